@@ -0,0 +1,82 @@
+package main;
+
+import model.Card.Place;
+import model.Card.Suspect;
+import model.Card.Weapon;
+
+/**
+ * A decision of the current Player, see Engine.legalActions() and Engine.apply()
+ * </br> -- MOVE one step to row,col
+ * </br> -- SUGGEST suspect and weapon in the room the Player is in
+ * </br> -- ACCUSE suspect, weapon and place
+ * </br> -- END_TURN
+ * @author Ronni Perez
+ *
+ */
+public final class Action {
+	public static final Action END_TURN = new Action(Kind.END_TURN, -1, -1, null, null, null);
+
+	public final Kind kind;
+	public final int row;		//MOVE only, -1 otherwise
+	public final int col;
+	public final Suspect suspect;		//SUGGEST and ACCUSE only, null otherwise
+	public final Weapon weapon;
+	public final Place place;		//ACCUSE only, a suggestion is always about the current room
+
+	private Action(Kind kind, int row, int col, Suspect suspect, Weapon weapon, Place place) {
+		this.kind = kind;
+		this.row = row;
+		this.col = col;
+		this.suspect = suspect;
+		this.weapon = weapon;
+		this.place = place;
+	}
+
+	public static Action move(int row, int col) {
+		return new Action(Kind.MOVE, row, col, null, null, null);
+	}
+
+	public static Action suggest(Suspect suspect, Weapon weapon) {
+		return new Action(Kind.SUGGEST, -1, -1, suspect, weapon, null);
+	}
+
+	public static Action accuse(Suspect suspect, Weapon weapon, Place place) {
+		return new Action(Kind.ACCUSE, -1, -1, suspect, weapon, place);
+	}
+
+	@Override
+	public boolean equals(Object o) {
+		if (!(o instanceof Action)) {return false;}
+		Action a = (Action) o;
+		return kind == a.kind && row == a.row && col == a.col
+				&& suspect == a.suspect && weapon == a.weapon && place == a.place;
+	}
+
+	@Override
+	public int hashCode() {
+		int h = kind.ordinal();
+		h = h * 31 + row;
+		h = h * 31 + col;
+		h = h * 31 + (suspect == null ? -1 : suspect.ordinal());
+		h = h * 31 + (weapon == null ? -1 : weapon.ordinal());
+		return h * 31 + (place == null ? -1 : place.ordinal());
+	}
+
+	@Override
+	public String toString() {
+		switch (kind) {
+		case MOVE:
+			return "MOVE "+row+","+col;
+		case SUGGEST:
+			return "SUGGEST "+suspect+", "+weapon;
+		case ACCUSE:
+			return "ACCUSE "+suspect+", "+weapon+", "+place;
+		default:
+			return "END_TURN";
+		}
+	}
+
+	public enum Kind {
+		MOVE, SUGGEST, ACCUSE, END_TURN
+	}
+}
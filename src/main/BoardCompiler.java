@@ -0,0 +1,31 @@
+package main;
+
+import java.io.File;
+import java.io.IOException;
+
+import model.BoardFile;
+
+/**
+ * Compiles a text board file into the binary form read by Loader, see BoardFile
+ * </br> Usage: java main.BoardCompiler &lt;board.txt&gt; &lt;board.bin&gt;
+ * </br> Run with -Dcluedo.board=board.bin afterwards to play on the compiled board
+ * @author Ronni Perez
+ *
+ */
+public class BoardCompiler {
+	
+	/**
+	 * Main
+	 * @param args -- text board file (or built-in board name), then the compiled file to write
+	 * @throws IOException
+	 */
+	public static void main(String[] args) throws IOException {
+		if (args.length != 2) {
+			System.err.println("Usage: java main.BoardCompiler <board.txt> <board.bin>");
+			System.exit(1);
+		}
+		File out = new File(args[1]);
+		BoardFile.write(new Loader(args[0]).getTopology(), out);
+		System.out.println("Compiled "+args[0]+" to "+out+" ("+out.length()+" bytes)");
+	}
+}
@@ -1,49 +1,67 @@
 package main;
 
-import java.util.Collections;
-import java.util.HashSet;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.BitSet;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
 
-import javax.swing.JOptionPane;
+import javax.swing.SwingUtilities;
+import javax.swing.SwingWorker;
 
 import view.GUI;
-import view.InputOutput;
-import model.Board;
-import model.Card;
-import model.CentreRoom;
-import model.Player;
-import model.Square;
-import model.Square.Type;
+import view.SwingAdapter;
+import model.BoardTopology;
+import model.Card.Place;
+import model.Card.Weapon;
+import model.Deduction;
+import model.SolutionProbability;
 
 /**
- * Has main logic of ClueDo game
- * <br> -- This places N player tokens depending on how many are playing
- * <br> -- P1 always starts up to P N
- * <br> -- Can move horizontal or vertical
- * <br> -- Moving from one room to another room still REQUIRES 1 MOVE step
- * <br> -- Entering room ends turn
- * <br> -- Can make suggestions as long as you're in a room
- * <br> -- Automatic refute of suggestion
- * <br> -- Cannot forfeit turn
- * <br> -- Disqualified players stay in the game only to prove others suggestions wrong 
- * 	with the cards they hold in their hands
+ * Plays a game of ClueDo through a GameAdapter, the Swing GUI by default
+ * <br> -- The rules are in the Engine, this only turns buttons, keys and clicks into Actions
+ * <br> -- Events returned by the Engine are shown by the GameAdapter
+ * <br> -- Players named bot-&lt;agent&gt; are played by that PlayerAgent, see Table
+ * <br> -- The game is saved after every action, to -Dcluedo.save=file or ~/.cluedo.sav, and offered back
+ * when the program starts again; a background thread writes the latest state, so a click never waits for the disk
+ * <br> -- Every point at which a human may act is kept as a GameState, so undo and redo only pick another one
  * @author Ronni Perez
  *
  */
 public class Cluedo {
-	//private InputParser parser;	//parse text in system.in
+	private static final long ODDS_BUDGET = 250;		//milliseconds spent on solution probabilities, off the event thread
+	private static final String BOT = "bot-";		//a player named e.g. bot-greedy is played by that PlayerAgent
 	private Loader loader;		//load board file and game "environment"
-	private Board board;
-	private final int rows = 18;		//specs says 25x25 but done 18x18 instead, tedious hardcoding
-	private final int cols = 18;
-	private Map<String, String> weaponsInRoom;	//room name to weapon -- see Section 2.4 of instructions
-	private int players;		//number of players at the beginning, this may decrease over time if player is eliminated
-	private int current;		//player ID of the one in current turn
-	private int remaining;	//remaining MOVES for the current player
-	private CentreRoom solution;	//where solution is kept
-	private boolean isWon;		//if game over
+	private Engine engine;		//rules and state of the game
+	private GameAdapter adapter;		//dialogs and output
 	private GUI ui;		//user interface
+	private Table table;		//plays the seats of PlayerAgents, null if every player is human
+	private boolean busy;		//an agent is deciding, the humans wait
+	private Journal journal;		//records every game if -Dcluedo.journal=file is given, null otherwise
+	private Journal.Encoder record;		//events of this game not yet written
+	private boolean recording;		//this game is journalled i.e. it was not loaded halfway through
+	private volatile File autosave;		//saved after every action, null if it cannot be written
+	private final AtomicReference<GameState> unsaved = new AtomicReference<GameState>();		//latest state, null once written
+	private final ExecutorService saver = Executors.newSingleThreadExecutor(new ThreadFactory() {
+		@Override
+		public Thread newThread(Runnable r) {
+			Thread t = new Thread(r, "autosave");
+			t.setDaemon(true);		//close() waits for it, nothing else should
+			return t;
+		}
+	});
+	private Engine saving;		//restores the states written by saver, used on its thread only
+	private final List<GameState> history = new ArrayList<GameState>();		//every point a human could act at
+	private int now;		//index in history of the game shown, the ones after it are redone
 	
 	public boolean loaded;		//are components loaded
 	
@@ -51,36 +69,31 @@ public class Cluedo {
 	 * Main constructor
 	 */
 	public Cluedo() {
-		InputOutput.popup("Game Start", "Welcome to Cluedo game");
-		
 		loaded = false;
-		loader = new Loader (rows, cols);		//parse txt file from assets/board.txt
+		loader = new Loader ();		//parse board file, assets/board.txt by default
+		engine = new Engine(loader);
 		ui = new GUI(this);		//render image from assets/board.png
+		adapter = new SwingAdapter(ui);
+		adapter.notice("Game Start", "Welcome to Cluedo game");
+		if (!loader.getTopology().getDistances().isSaved()) {		//once per launch, the board still plays
+			adapter.notice("No Distance Cache", "Board distances could not be saved, they will be computed again next launch");
+		}
+		String file = System.getProperty("cluedo.journal");
+		if (file != null) {
+			try {
+				journal = new Journal(new File(file), loader.getTopology());
+				record = new Journal.Encoder(loader.getTopology());
+			} catch (IOException e) {
+				adapter.notice("No Journal", "Games will not be recorded: "+e.getMessage());
+			}
+		}
+		autosave = new File(System.getProperty("cluedo.save", new File(System.getProperty("user.home"), ".cluedo.sav").getPath()));
 		
-		reset();		//setup game
-		turnInfo();		//start play
-	}
-	
-	/**
-	 * Constructor used for Testing ONLY
-	 * This does not call reset() and turn();
-	 * @param players -- number of players
-	 */
-	public Cluedo(int players) {
-		this.players = players;
-		loader = new Loader (rows, cols);		//parse txt file from assets/board.txt
-		isWon = false;
-		List <Card> cards = loader.populateCards();		//game cards
-		board = new Board(loader.getCoords(), this.players);		//get board "string" representation
-		//pick 'solution' cards and put them in centre room
-		solution = new CentreRoom();
-		loader.pickSolution (solution,cards);
-		
-		weaponsInRoom = loader.putInRoom();		//put each weapon 'token'??? in a room-- see Section 2.4 of instructions
-		deal(cards);		//give cards to players
-
-		current = 1;		//P1 always goes first
-		remaining = 0;
+		if (autosave.exists() && adapter.confirm("Resume Game", "Continue the game you were playing?")
+				&& load(autosave)) {
+			return;
+		}
+		reset();		//setup game and start play
 	}
 
 	/**
@@ -90,322 +103,262 @@ public class Cluedo {
 	 */
 	public void reset() {
 		loaded = false;
-		isWon = false;
-		List <Card> cards = loader.populateCards();		//game cards
-		players = InputOutput.numPlayers();		//game players
-		String [] playerNames = InputOutput.playerNames(players);	//player names
-		//player to characters played
-		Map<String,String>nameToChar = InputOutput.playerChars(playerNames);
-		board = new Board(loader.getCoords(), players, playerNames, nameToChar);		//get board "string" representation
-		ui.setBoard(board);
-		//pick 'solution' cards and put them in centre room
-		solution = new CentreRoom();
-		loader.pickSolution (solution,cards);
-		
-		weaponsInRoom = loader.putInRoom();		//put each weapon in a room
-		deal(cards);		//give cards to players
-		
-		current = 1;		//P1 always goes first
-		remaining = 0;
-		ui.showKeys(); //show key mappings
-		turnInfo();		//start play
+		GameConfig config = adapter.setup(loader.getTopology());		//players, names and characters
+		List<Event> events = engine.newGame(config);
+		if (journal != null) {
+			record.begin(config);
+		}
+		recording = journal != null;
+		seatAgents(config);
+		adapter.started(engine);
+		history.clear();
+		show(events);		//start play
 		loaded = true;
 		ui.setReady(true);
 	}
 
 	/**
-	 * Distributes remaining cards to players
-	 * @param cards -- unshuffled cards which are left after solution was picked
+	 * Seat a PlayerAgent for every player named BOT followed by the agent's name, see PlayerAgent.names()
+	 * @param config
 	 */
-	private void deal(List<Card> cards) {
-		Collections.shuffle(cards);		//shuffle cards
-		int dealTo = 1;
-		while (!cards.isEmpty()) {		//deal each card
-			Card c = cards.remove(0);
-			Player p = board.getPlayer(dealTo);
-			p.addCard(c);			//add to player's card
-			
-			if (dealTo >= players) 	dealTo = 1;
-			else 	dealTo++;
+	private void seatAgents(GameConfig config) {
+		if (table != null) {
+			table.close();
+			table = null;
+		}
+		PlayerAgent[] agents = new PlayerAgent[config.players + 1];
+		boolean any = false;
+		for (int ID = 1; ID <= config.players; ID++) {
+			String name = config.getName(ID);
+			if (name.toLowerCase().startsWith(BOT)) {
+				agents[ID] = PlayerAgent.load(name.substring(BOT.length()));
+				if (agents[ID] == null) {
+					adapter.notice("Unknown Agent", "No computer player is called "+name.substring(BOT.length())
+							+", P"+ID+" is played by hand. Try one of: "+PlayerAgent.names());
+				}
+				any |= agents[ID] != null;
+			}
+		}
+		if (any) {
+			table = new Table(engine, agents, Table.TIMEOUT);
 		}
 	}
-	
-	
 
 	/**
-	 * Redraws labels in GUI
+	 * Show events of one call to the Engine
+	 * </br> If the game is over, ask user to play again, if an agent is to play next, let it
+	 * @param events
 	 */
-	private void turnInfo() {
-		remaining = roll();		//roll the die
-		Player p = board.getPlayer(current);		//get token of current player
-		Square loc = p.getLocation();
-		ui.visited = new HashSet<int[]>();		//maintain visited set of Squares during turn
-		ui.visited.add(new int [] {loc.row, loc.col});	//add current player position
-		//inform of whos's turn it is
-		ui.playerTurn.setText("It's "+p.name+" (P"+current+")'s turn");
-		ui.characterLbl.setText(" Go "+p.character);
-		ui.diceRoll.setText("You rolled:"+remaining);
-		ui.status.setText("");
-		ui.draw();
-		ui.endBtn.setEnabled(false); 		//must move at least once or accuse or suggest
+	private void show(List<Event> events) {
+		record(events);
+		autosave();
+		remember();
+		for (Event e: events) {
+			adapter.show(e, engine);
+		}
+		if (engine.isOver() && adapter.playAgain()) {
+			reset();
+		} else {
+			playAgent();
+		}
 	}
 
 	/**
-	 * Generates random number from 1....6
-	 * 1 Die ONLY, uncomment code for dice
-	 * @return
+	 * Append events to the journal, if any
+	 * @param events
 	 */
-	private int roll() {
-		return ((int)(Math.random()*6) + 1) ;
-				//+ ((int)(Math.random()*6) + 1);
+	private void record(List<Event> events) {
+		if (!recording || journal == null) {
+			return;
+		}
+		record.add(events);
+		try {
+			journal.write(record);
+			journal.flush();		//a few bytes per click, fsync is still batched
+		} catch (IOException e) {
+			adapter.notice("No Journal", "Recording stopped: "+e.getMessage());
+			journal = null;
+		}
 	}
-	
+
 	/**
-	 * Present ONLY valid options to current player
-	 * @return number of current player's choosing
-	 * 
-	 * 0 End turn  (available only if player has moved at least one move step)
-	 * 1 Make an ACCUSATION
-	 * 2 Announce SUGGESTION (available only if player is in a room)
+	 * Save the game as it is now, or delete the save once the game is over
+	 * </br> Only takes the GameState, the saver thread writes it, and skips it if a later one came first
 	 */
-	public void makeChoice(int option) {
-		if (!isWon) {		//if game not won
-			//execute accordingly
-			//option 2 only available when current player is in a room
-			switch (option) {
-			case 0: remaining = 0; break;
-			case 1: chooseAccuse(); break;
-			case 2: chooseSuggest(board.getPlayer(current).getLocation().getName()); break;
-			}
+	private void autosave() {
+		if (autosave == null) {
+			return;
 		}
-		if (remaining <=0 || isWon) {
-			evaluate();
+		if (unsaved.getAndSet(engine.state()) == null) {		//else the write already queued takes this state
+			saver.execute(this::writeAutosave);
 		}
 	}
-	
+
 	/**
-	 * Chooses the next situation based on the game state
-	 * i.e. next player moves, game over (no winner), game over (has winner)
-	 * and asks user to play again in the latter cases
+	 * Write the latest state taken by autosave(), on the saver thread
 	 */
-	private void evaluate() {
-		if (!isWon && !gameOver()) {			//check if any players left or game not won
-			nextMove(false);		//call turn
+	private void writeAutosave() {
+		GameState state = unsaved.getAndSet(null);
+		File file = autosave;
+		if (state == null || file == null) {
 			return;
-		} else if (!isWon && gameOver()) {		//game stops, no winner
-			InputOutput.popup("Game Over", "The case has gone cold. No active players left");
 		}
-		//ask user to play again
-		int r = InputOutput.yesOrNo("Play Again", "Do you want to play again?");
-		if (r == JOptionPane.YES_OPTION) {
-			ui.setReady(false);
-			reset();
+		if (state.isOver()) {
+			file.delete();		//nothing to resume
+			return;
+		}
+		if (saving == null) {
+			saving = new Engine(loader);
+		}
+		saving.restore(state);
+		try {
+			SaveGame.save(saving, file);
+		} catch (IOException e) {
+			autosave = null;
+			SwingUtilities.invokeLater(() -> adapter.notice("No Autosave", "The game will not be saved: "+e.getMessage()));
 		}
 	}
-	
+
 	/**
-	 * Increment 'current' player with the ID of next player player
-	 * i.e. 
-	 * if 4 players playing, then current == from 1 to 4 until game finishes;
-	 * if 6 players playing, then current == from 1 to 6 until game finishes;
-	 * 
-	 * @param isTesting is true iff in 'jUnit testing'. Set to true when testing
+	 * Save the game as it is now
+	 * @param file
+	 * @throws IOException
 	 */
-	private void nextMove(boolean isTesting) {
-		do {
-			if (current >= players)		//inspect limit
-				current = 1;
-			else
-				current++;
-		} while (!board.isPlaying(current));	//inspect if player has been disqualified i.e. made false accusation
-		
-		if (!isTesting) {		//if playing game, i.e. not testing
-			turnInfo();		//re-call turn for next player
-			String room = board.inRoom(current);	//get room location of current player	
-			if (room != null) {		//player is in a room (any room)
-				ui.suggestBtn.setEnabled(true);
-			} else {
-				ui.suggestBtn.setEnabled(false);
-			}
-		}
+	public void save(File file) throws IOException {
+		SaveGame.save(engine, file);
 	}
 
 	/**
-	 * Game stop or continue
-	 * 
-	 * @return true iff there are no players remaining i.e. everyone has been
-	 *         disqualified/expelled()
+	 * Replace the game by a saved one, and play on from where it was saved
+	 * </br> It is not journalled, a journal holds whole games only
+	 * @param file -- written by save()
+	 * @return false if file could not be loaded, the game is left as it was
 	 */
-	private boolean gameOver() {
-		for (int i = 1; i <= players; i++) {
-			if (board.getPlayer(i).isPlaying()) {		//look for active players
-				return false;
-			}
+	public boolean load(File file) {
+		try {
+			SaveGame.load(engine, file);
+		} catch (IOException e) {
+			adapter.notice("Cannot Load", file.getName()+" is not a saved game: "+e.getMessage());
+			return false;
 		}
-		//there are no active players
+		loaded = false;
+		recording = false;
+		history.clear();
+		seatAgents(engine.getConfig());
+		adapter.started(engine);
+		adapter.show(new Event(Event.Kind.TURN_STARTED, engine.getCurrent(), engine.getRemaining()), engine);
+		loaded = true;
+		ui.setReady(true);
+		remember();
+		playAgent();
 		return true;
 	}
-	
+
 	/**
-	 * Announce a Suggestion using the room that the current player is in
-	 * You can only suggest using the room you are in
-	 * @param room -- room that the current player is in
-	 * Assume room is not null
+	 * Keep the game as it is now, if a human may act, so that it can be gone back to
+	 * </br> Anything undone is dropped
 	 */
-	private void chooseSuggest (String room) {
-		String person = InputOutput.getString("Choose Character", "SUGGEST a suspect: ", Loader.getPeople());		//pick character
-		if (person == null) return;	
-		String weapon = InputOutput.getString("Choose Weapon", "SUGGEST a murder weapon: ", Loader.getWeapons());		//pick weapon		
-		if (weapon == null) return;
-		
-		//inform user of his/her suggestion
-		InputOutput.popup("Your Suggestion", "You suggested: "+ person+", "+room+", "+weapon);
-		
-		//move player and weapon in room -- via power of suggestion
-		moveCharAndWeapon(person, weapon, room);
-		
-		//refute this suggestion
-		checkSuggestion(person, weapon, room);
+	private void remember() {
+		if (!humansTurn()) {
+			return;
+		}
+		GameState state = engine.state();
+		if (!history.isEmpty() && history.get(now) == state) {
+			return;		//nothing happened e.g. INVALID
+		}
+		history.subList(Math.min(history.size(), now + 1), history.size()).clear();
+		history.add(state);
+		now = history.size() - 1;
 	}
 
 	/**
-	 * Put player that plays the 'person' and the specified weapon in this room
-	 * @param person -- name of character
-	 * @param weapon -- name of weapon
-	 * @param room -- name of room
+	 * Go back to the last point a human could act at before this one
 	 */
-	private void moveCharAndWeapon(String person, String weapon, String room) {
-		Player p = board.getPlayer(person);
-		//update or move player token when possible
-		if (p != null) {		//if player that represents character is playing
-			outerloop:
-			for (int row = 0; row < this.rows; row++) {
-				for (int col = 0; col < this.cols; col++) {
-					Square sq = board.getSquare(row, col);
-					if (sq.getName().equals(room) && sq.getOccupied() == null) {	//if vacant space found
-						board.movePlayerViaSuggestion(p.ID, row, col);		//move player token to row,col
-						InputOutput.popup(null, p.character+"(P"+p.ID+") will be moved to {"+row+", "+col+"} "+sq.getName());
-						ui.draw();
-						break outerloop;		//end loop
-					}
-				}
-			}
+	public void undo() {
+		if (!busy && now > 0) {
+			go(now - 1);
 		}
-		
-		//update weapon mappings e.g.
-		//kitchen has dagger
-		//lounge  has candlestick
-		//suggestion is dagger and lounge so:
-		//kitchen to lounge               dagger
-		
-		String wpn = weaponsInRoom.get(room);	//old weapon, if any		//candlestick
-		String rm = getRoom(weapon);	//old room			//kitchen
-		
-		//update i.e. swap
-		weaponsInRoom.put(rm, wpn);
-		weaponsInRoom.put(room, weapon);
 	}
 
 	/**
-	 * Check for room that a given weapon is in
-	 * @param weapon -- name of weapon to search for
-	 * @return name of room that a weapon is in (will never be null)
+	 * Go forward again, after undo()
 	 */
-	private String getRoom(String weapon) {
-		for (Map.Entry<String, String> entry: weaponsInRoom.entrySet()) {
-			if ((weapon).equals(entry.getValue())) {
-				return entry.getKey();
-			}
+	public void redo() {
+		if (!busy && now < history.size() - 1) {
+			go(now + 1);
 		}
-		//dead code
-		return null;
 	}
 
 	/**
-	 * Try to refute suggestion of current player  by other players
-	 * The card to be shown (if any) is chosen by the computer at random
-	 * @param person -- suspect chosen by the current player
-	 * @param weapon -- weapon chosen by the current player
-	 * @param room -- room that the current player is in
+	 * Show the game as it was at history[index]
+	 * </br> The journal stops, it holds games as played only
+	 * @param index
 	 */
-	private void checkSuggestion(String person, String weapon, String room) {
-		int nextPlayer = current +1;		//next player to show if it has one of those cards
-		while (nextPlayer != current) {		//go through every player
-			//even if player is disqualified, allow show card
-			if (nextPlayer > players) 	nextPlayer = 1;
-			else 	nextPlayer++;
-			
-			Player p = board.getPlayer(nextPlayer);		//get next player that is not disqualified
-			if (p != null) {
-				//inspect each card of next player if he has either of the three elements in the suggestion
-				//output is handled by the Player class
-				if (refuteSuggestion(p, person, weapon, room)) {
-					return;
-				}
-				//this next player cannot refute the current player's suggestion, go to next eligible player
-				InputOutput.popup("Info", "P"+p.ID+" cannot refute the suggestion");
-			}
-		}
-		
-		//if it gets here, then no one can refute the suggestion
-		InputOutput.popup("Unrefutable", "No one can refute the suggestion");
+	private void go(int index) {
+		now = index;
+		engine.restore(history.get(now));
+		recording = false;
+		autosave();
+		ui.setBoard(engine.getBoard());
+		adapter.show(new Event(Event.Kind.TURN_STARTED, engine.getCurrent(), engine.getRemaining()), engine);
 	}
 
 	/**
-	 * ADDED METHOD
-	 * Checks if Player p can refute suggestion of current player
-	 * @param p -- the Player refuting the suggestion
-	 * @param person -- name of person in suggestion
-	 * @param weapon -- name of weapon in suggestion
-	 * @param room -- name of room in suggestion
-	 * @return true if p can refute suggestion of current Player
+	 * If it is an agent's turn, let it decide off the event thread, then apply its action on it
+	 * </br> Every action is shown as it is played, and leads to the next
 	 */
-	private boolean refuteSuggestion(Player p, String person, String weapon, String room) {
-		Card personCard = p.hasCard(person, false);
-		if (personCard != null) {
-			board.getPlayer(current).addToSeen(personCard);	//add this card to seen card of current player
-			return true;		//card found
-		}
-		Card weaponCard = p.hasCard(person, false);
-		if (weaponCard != null) {
-			board.getPlayer(current).addToSeen(weaponCard);	//add this card to seen card of current player
-			return true;		//card found
-		}
-		Card roomCard = p.hasCard(person, false);
-		if (roomCard != null) {
-			board.getPlayer(current).addToSeen(roomCard);	//add this card to seen card of current player
-			return true;		//card found
+	private void playAgent() {
+		if (busy || table == null || !table.isAgentTurn()) {
+			return;
 		}
-		return false;		//Player p cannot refute suggestion
+		busy = true;
+		new SwingWorker<Action, Void>() {
+			@Override
+			protected Action doInBackground() {
+				return table.decide();
+			}
+
+			@Override
+			protected void done() {
+				busy = false;
+				try {
+					show(engine.apply(get()));
+				} catch (InterruptedException | ExecutionException e) {
+					throw new IllegalStateException("Agent failed to decide", e);
+				}
+			}
+		}.execute();
 	}
 
 	/**
-	 * Make an Accusation
-	 * At the end of this method, 'current' player can either win or be disqualified
+	 * @return true iff a human may act now
 	 */
-	private void chooseAccuse() {
-		String person = InputOutput.getString("Choose Character", "Choose the suspect:", Loader.getPeople());		//pick character
-		if (person == null) return;
-		String weapon = InputOutput.getString("Choose Weapon", "Choose the murder weapon: ", Loader.getWeapons());		//pick weapon		
-		if (weapon == null) return;
-		String room = InputOutput.getString("Choose Room", "Choose the scene of the crime:", Loader.getRooms());		//pick room (any room)
-		if (room == null) return;
-		
-		//inform user of his/her accusation
-		InputOutput.popup("Your Suggestion", "You chose: "+ person+", "+room+", "+weapon);
-		
-		if (person.equals(solution.getSuspect()) 		//if accusation matches solution
-				&& weapon.equals(solution.getWeapon()) 
-				&& room.equals(solution.getPlace()) ) {
-			InputOutput.popup(null, "You WON!!!");
-			InputOutput.popup(null, board.getPlayer(current).character+" won the game");
-			InputOutput.popup(null, "The suspect is "+person+". He/She used the "+weapon+" to kill Dr Black in the "+room);
-			isWon = true;
-			makeChoice(0);			// stop turn immediately
-		} else {		//else, disqualify/expel 'current' player
-			InputOutput.popup("You're out", "P"+current+"'s accusations are baseless. P"+current+" is expelled from the game BUT can still rubute suggestions");
-			board.expel(current);
-			makeChoice(0);			// stop turn immediately
+	private boolean humansTurn() {
+		return !engine.isOver() && !busy && (table == null || !table.isAgentTurn());
+	}
+	
+	/**
+	 * Present ONLY valid options to current player
+	 * @return number of current player's choosing
+	 * 
+	 * 0 End turn  (available only if player has moved at least one move step)
+	 * 1 Make an ACCUSATION
+	 * 2 Announce SUGGESTION (available only if player is in a room)
+	 */
+	public void makeChoice(int option) {
+		if (!humansTurn()) {
+			return;
+		}
+		Action action = null;
+		//execute accordingly
+		//option 2 only available when current player is in a room
+		switch (option) {
+		case 0: action = Action.END_TURN; break;
+		case 1: action = adapter.chooseAccusation(); break;
+		case 2: action = adapter.chooseSuggestion(engine.getBoard().inRoom(engine.getCurrent())); break;
+		}
+		if (action != null) {		//null if user changed their mind
+			show(engine.apply(action));
 		}
 	}
 	
@@ -415,81 +368,103 @@ public class Cluedo {
 	 * @param newCol -- column to move to
 	 */
 	public void chooseMove(int newRow, int newCol) {
-		if (remaining > 0) {
-			int oldRow = board.getPlayer(current).getLocation().row;
-			int oldCol = board.getPlayer(current).getLocation().col;
-			if (board.movePiece(current,newRow, newCol, ui.visited)) {		//if move is valid
-				//update visited set
-				updateVisited(oldRow, oldCol);
-				
-				ui.endBtn.setEnabled(true);		//can now end turn if you wish
-				
-				ui.status.setText("");	//clear status bar text
-				//if  NOT entered room
-				Square newSquare = board.getSquare(newRow, newCol);
-				if (newSquare.kind != Type.ROOM) {
-					remaining--;			//decrement remaining allowed move steps
-					ui.suggestBtn.setEnabled(false);
-				} else {		
-					//entered a room...
-					ui.suggestBtn.setEnabled(true);
-					remaining = 0;		//set to 0 so player turn ends
-					InputOutput.popup("Make a Choice", "You may now make a suggestion OR choose to end your turn");
-				}
-				
-				if (!ui.suggestBtn.isEnabled()) {	//if can suggest, wait for 'end turn' OR suggest; else continue here
-					if (remaining <=0) {
-						evaluate();
-					}
-				} else {
-					ui.status.setText("You now have the option of making a suggestion");
-				}
-			} else {
-				ui.status.setText("INVALID: You cannot move at: "+newRow+" , "+newCol);
-			}
+		if (engine.getRemaining() > 0 && humansTurn()) {
+			show(engine.apply(Action.move(newRow, newCol)));
 		}
 	}
-	
+
 	/**
-	 * Updates visited set during current turn 
-	 * </br>Assume that newRow,newCol is always valid
-	 * @param oldRow -- row to move to
-	 * @param oldCol -- column to move to
+	 * Save what needs saving before the program exits
 	 */
-	private void updateVisited(int oldRow, int oldCol) {
-		Square sqr = board.getSquare(oldRow, oldCol);
-		if (sqr.kind != Type.ROOM) {		//if square is not room
-			ui.visited.add(new int []{oldRow, oldCol});	//add this Square's coordinate
-		} else {		//if it's a room
-			String roomName = sqr.getName();
-			for (int row = 0; row < rows; row++) {	//for all squares
-				for (int col = 0; col < cols; col++) {
-					//add all Squares in the same room i.e. you can't go back to the room you just left, in the same turn
-					if (board.getSquare(row, col).getName().equals(roomName)) {
-						ui.visited.add(new int []{row, col});
-					}
-				}
+	public void close() {
+		saver.shutdown();		//the last state taken is still written
+		try {
+			saver.awaitTermination(10, TimeUnit.SECONDS);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+		if (journal != null) {
+			try {
+				journal.close();
+			} catch (IOException e) {
+				adapter.notice("No Journal", "The last games may not have been recorded: "+e.getMessage());
 			}
-			
+			journal = null;
 		}
-		
+	}
+
+	/**
+	 * Read a recorded game, to be shown by the GUI
+	 * @param file -- a journal
+	 * @param game -- which game in it, 1 is the first
+	 * @return null if file has fewer games
+	 * @throws IOException
+	 */
+	public Replay replay(File file, int game) throws IOException {
+		return Replay.read(file, loader, game);
 	}
 
 	//ADDED GETTERS FOR GUI
 	//current Player ID
 	public int getCurrent() {	
-		return current;
+		return engine.getCurrent();
 	}
 	
 	//remaining move steps for current player
 	public int getRemaining() {	
-		return remaining;
+		return engine.getRemaining();
+	}
+	
+	//Squares, size and rooms of the board being played
+	public BoardTopology getTopology() {
+		return loader.getTopology();
 	}
 	
 	//room to weapon mappings
 	//some rooms may not have a weapon in them
-	public Map<String, String> weapons() {
-		return weaponsInRoom;
+	public Map<Place, Weapon> weapons() {
+		return engine.weapons();
+	}
+	
+	//what Player with ID knows about who holds which card
+	public Deduction notes(int ID) {
+		return engine.notes(ID);
+	}
+	
+	/**
+	 * Work out the chance of each card being in the envelope, given what Player with ID knows, in the background
+	 * </br> Exact when the notes allow it in time, sampled otherwise
+	 * @param ID -- Player ID
+	 * @param shown -- given the odds on the event thread, once they are ready
+	 */
+	public void odds(int ID, Consumer<SolutionProbability> shown) {
+		Deduction notes = engine.notes(ID).copy();		//as they are now, the game may go on meanwhile
+		long seed = engine.getSeed();
+		new SwingWorker<SolutionProbability, Void>() {
+			@Override
+			protected SolutionProbability doInBackground() {
+				return SolutionProbability.of(notes, ODDS_BUDGET, ForkJoinPool.commonPool(), seed);
+			}
+
+			@Override
+			protected void done() {
+				try {
+					shown.accept(get());
+				} catch (InterruptedException | ExecutionException e) {
+					throw new IllegalStateException("Odds failed", e);
+				}
+			}
+		}.execute();
+	}
+	
+	//visited set of Squares during current turn, by Square id
+	public BitSet visited() {
+		return engine.visited();
+	}
+	
+	//Zobrist key of visited()
+	public long visitedKey() {
+		return engine.visitedKey();
 	}
 	
 	/**
@@ -500,4 +475,4 @@ public class Cluedo {
 		new Cluedo();
 	}
 
-}
\ No newline at end of file
+}
@@ -0,0 +1,53 @@
+package main;
+
+/**
+ * Time limit of ONE decision of a PlayerAgent, and the signal to stop working on it
+ * </br> Once expired it stays expired, the thread of the decision is also interrupted
+ * @author Ronni Perez
+ *
+ */
+public final class Deadline {
+	private static final long FOREVER = Long.MAX_VALUE / 2;		//longer than this never ends, see System.nanoTime()
+	private final long end;		//System.nanoTime() when time is up
+	private final boolean never;		//no time limit, end is unused
+	private volatile boolean cancelled;
+
+	/**
+	 * Constructor
+	 * @param nanos -- time allowed from now, FOREVER or more is no limit at all
+	 */
+	public Deadline(long nanos) {
+		this.never = nanos >= FOREVER;		//now + nanos would overflow and be up at once
+		this.end = never ? 0 : System.nanoTime() + nanos;
+	}
+
+	/**
+	 * A Deadline that only expires once cancelled, e.g. for a Table's default decision
+	 * @return
+	 */
+	public static Deadline never() {
+		return new Deadline(Long.MAX_VALUE);
+	}
+
+	/**
+	 * @return true iff time is up or the decision is no longer wanted
+	 */
+	public boolean expired() {
+		return cancelled || !never && System.nanoTime() - end >= 0;
+	}
+
+	/**
+	 * @return nanoseconds left, 0 once expired, Long.MAX_VALUE if there is no limit
+	 */
+	public long remaining() {
+		if (cancelled) {return 0;}
+		return never ? Long.MAX_VALUE : Math.max(0, end - System.nanoTime());
+	}
+
+	/**
+	 * The answer is no longer wanted
+	 */
+	void cancel() {
+		cancelled = true;
+	}
+}
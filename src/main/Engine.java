@@ -0,0 +1,947 @@
+package main;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+
+import model.Adjacency;
+import model.Board;
+import model.Card;
+import model.Card.Place;
+import model.Card.Suspect;
+import model.Card.Weapon;
+import model.CentreRoom;
+import model.Deduction;
+import model.Player;
+import model.RoomIndex;
+import model.Square;
+import model.Square.Type;
+import model.Zobrist;
+
+/**
+ * Rules of a game of Cluedo, with NO user interface
+ * <br> -- This places N player tokens depending on how many are playing
+ * <br> -- P1 always starts up to P N
+ * <br> -- Can move horizontal or vertical
+ * <br> -- Moving from one room to another room still REQUIRES 1 MOVE step
+ * <br> -- Entering room ends turn
+ * <br> -- Can make ONE suggestion per turn as long as you're in a room
+ * <br> -- Automatic refute of suggestion
+ * <br> -- Cannot forfeit turn i.e. can end it only after moving or suggesting, or if there is nowhere to move
+ * <br> -- Disqualified players stay in the game only to prove other's suggestions wrong
+ * 	with the cards they hold in their hands
+ * <br> A front end asks legalActions() and passes one of them to apply(), then shows the returned events
+ * <br> state() and restore() turn the game into a GameState and back, e.g. to undo or to search;
+ * only the parts changed since the last of them are copied
+ * <br> hash() is the Zobrist key of the position, kept up to date move by move, see Zobrist
+ * @author Ronni Perez
+ *
+ */
+public class Engine {
+	//parts of a GameState, see dirty
+	private static final int TOKENS = 1, WEAPONS = 2, SEEN = 4, VISITED = 8, NOTES = 16, TURN = 32;
+	private static final int ROLL = 0, REFUTE = 1;		//kinds of draws, see draws()
+
+	private final Loader loader;		//board file and game "environment"
+	private Board board;
+	private EnumMap<Place, Weapon> weaponsInRoom;	//room to weapon -- see Section 2.4 of instructions
+	private final Place[] weaponRoom = new Place[Weapon.COUNT];		//weapon ordinal to the room it is in
+	private final BitSet visited = new BitSet();		//visited Squares during current turn, by Square id
+	private long weaponKey;		//Zobrist key of weaponRoom
+	private long visitedKey;		//Zobrist key of visited
+	private GameConfig config;		//who plays
+	private int players;		//number of players at the beginning, this may decrease over time if player is eliminated
+	private int current;		//player ID of the one in current turn
+	private int turn;		//turns started so far, this one included
+	private int remaining;	//remaining MOVES for the current player
+	private boolean moved;		//current player has moved at least once this turn
+	private boolean suggested;		//current player has made a suggestion this turn
+	private CentreRoom solution;	//where solution is kept
+	private Deduction[] notes;		//Player ID to what that Player knows, updated after every suggestion
+	private boolean isWon;		//if game over
+	private long seed;		//EVERY random draw of this game comes from it, so a game replays exactly, see GameConfig
+	private SplittableRandom rand;		//draws of the deal, every later draw comes from draws()
+	private Refuter refuter;		//picks the card shown to refute, null: picked at random
+	private GameState base;		//state this game was at when state() or restore() was last called, null if none
+	private int dirty;		//parts changed since base, see TOKENS...
+	private int shared;		//bit ID set iff notes[ID] belongs to base too, so it is copied before it changes
+
+	/**
+	 * Constructor
+	 * Nothing is played until newGame() is called
+	 * @param loader -- board file and game "environment"
+	 */
+	public Engine(Loader loader) {
+		this.loader = loader;
+	}
+
+	/**
+	 * Setup a new game, this can be called again when a game finishes
+	 * @param config -- who plays
+	 * @return events of the first turn i.e. TURN_STARTED for P1
+	 */
+	public List<Event> newGame(GameConfig config) {
+		isWon = false;
+		this.config = config;
+		players = config.players;
+		seed = config.seed;
+		rand = new SplittableRandom(seed);
+		List <Card> cards = loader.populateCards();		//game cards
+		board = new Board(loader.getTopology(), config.names(), config.characters());		//shared layout, new game state
+		//pick 'solution' cards and put them in centre room
+		solution = new CentreRoom();
+		loader.pickSolution (solution,cards,rand);
+
+		weaponsInRoom = loader.putInRoom(rand);		//put each weapon in a room
+		Arrays.fill(weaponRoom, null);
+		locateWeapons();
+		weaponKey = weaponKey(weaponRoom);
+		deal(cards);		//give cards to players
+		notes = new Deduction[players + 1];
+		for (int ID = 1; ID <= players; ID++) {
+			notes[ID] = new Deduction(players, ID, board.getPlayer(ID).hand());
+		}
+
+		current = 1;		//P1 always goes first
+		turn = 0;
+		base = null;
+		shared = 0;
+		List<Event> events = new ArrayList<Event>();
+		startTurn(events);
+		return events;
+	}
+
+	/**
+	 * Fill weaponRoom from weaponsInRoom
+	 */
+	private void locateWeapons() {
+		for (Map.Entry<Place, Weapon> entry: weaponsInRoom.entrySet()) {
+			if (entry.getValue() != null) {
+				weaponRoom[entry.getValue().ordinal()] = entry.getKey();
+			}
+		}
+	}
+
+	/**
+	 * Distributes remaining cards to players
+	 * @param cards -- unshuffled cards which are left after solution was picked
+	 */
+	private void deal(List<Card> cards) {
+		Loader.shuffle(cards, rand);		//shuffle cards
+		int dealTo = 1;
+		while (!cards.isEmpty()) {		//deal each card
+			Card c = cards.remove(0);
+			Player p = board.getPlayer(dealTo);
+			p.addCard(c);			//add to player's card
+
+			if (dealTo >= players) 	dealTo = 1;
+			else 	dealTo++;
+		}
+	}
+
+	/**
+	 * Roll the die and reset the visited set for the current player
+	 * @param events -- TURN_STARTED is added
+	 */
+	private void startTurn(List<Event> events) {
+		turn++;
+		remaining = roll();		//roll the die
+		moved = false;
+		suggested = false;
+		visited.clear();		//maintain visited set of Squares during turn
+		visited.set(board.getPlayer(current).getLocation().id);	//add current player position
+		visitedKey = Zobrist.visited(board.getPlayer(current).getLocation().id);
+		dirty |= VISITED | TURN;
+		events.add(new Event(Event.Kind.TURN_STARTED, current, remaining));
+	}
+
+	/**
+	 * Generates random number from 1....6
+	 * 1 Die ONLY, uncomment code for dice
+	 * @return
+	 */
+	private int roll() {
+		SplittableRandom rand = draws(ROLL);
+		return (rand.nextInt(6) + 1) ;
+				//+ (rand.nextInt(6) + 1);
+	}
+
+	/**
+	 * Random draws of ONE kind in the current turn, from the seed and the turn alone
+	 * </br> So what is drawn never depends on what else drew before, e.g. a save or a search:
+	 * the turn is all that is needed to go on with the same draws
+	 * @param kind -- ROLL or REFUTE, at most one of each per turn
+	 * @return
+	 */
+	private SplittableRandom draws(int kind) {
+		return new SplittableRandom(seed ^ (turn * 0x9E3779B97F4A7C15L + kind));
+	}
+
+	/**
+	 * Every action the current player may take now
+	 * </br> A MOVE into a Room is listed once, to its first free Square
+	 * @return empty iff the game is over
+	 */
+	public List<Action> legalActions() {
+		List<Action> actions = new ArrayList<Action>();
+		if (isOver()) {
+			return actions;
+		}
+		actions.addAll(legalMoves());
+		if (canSuggest()) {
+			for (Suspect s: Suspect.values()) {
+				for (Weapon w: Weapon.values()) {
+					actions.add(Action.suggest(s, w));
+				}
+			}
+		}
+		for (Suspect s: Suspect.values()) {
+			for (Weapon w: Weapon.values()) {
+				for (Place p: Place.values()) {
+					actions.add(Action.accuse(s, w, p));
+				}
+			}
+		}
+		if (canEndTurn()) {
+			actions.add(Action.END_TURN);
+		}
+		return actions;
+	}
+
+	/**
+	 * Single steps of the current player that are valid now, the MOVE actions of legalActions()
+	 * </br> Cheaper than legalActions() for callers that only move e.g. a Policy
+	 * @return
+	 */
+	public List<Action> legalMoves() {
+		List<Action> actions = new ArrayList<Action>();
+		if (remaining <= 0 || isOver()) {
+			return actions;
+		}
+		Adjacency adj = board.getAdjacency();
+		int id = board.getPlayer(current).getLocation().id;
+		for (int i = adj.start(id); i < adj.end(id); i++) {
+			int t = adj.target(i);
+			for (int j = adj.groupStart(t); j < adj.groupEnd(t); j++) {
+				int v = adj.member(j);
+				if (board.isValid(current, adj.row(v), adj.col(v), visited)) {
+					actions.add(Action.move(adj.row(v), adj.col(v)));
+					break;		//any free Square of a Room will do
+				}
+			}
+		}
+		return actions;
+	}
+
+	/**
+	 * @return true iff the current player is in a room and has not suggested this turn
+	 */
+	public boolean canSuggest() {
+		return !isOver() && !suggested && board.inRoom(current) != null;
+	}
+
+	/**
+	 * @return true iff the current player has moved or suggested, or cannot move at all
+	 */
+	public boolean canEndTurn() {
+		if (isOver()) {
+			return false;
+		}
+		if (moved || suggested) {
+			return true;
+		}
+		return legalMoves().isEmpty();
+	}
+
+	/**
+	 * Play an action of the current player
+	 * </br> An action that is not legal changes nothing and is answered with INVALID
+	 * @param action -- one of legalActions()
+	 * @return what happened, in order, including the start of the next turn if this one ended
+	 */
+	public List<Event> apply(Action action) {
+		List<Event> events = new ArrayList<Event>();
+		dirty |= TURN;
+		if (isOver()) {
+			events.add(new Event(Event.Kind.INVALID, current, 0, action.row, action.col, action));
+			return events;
+		}
+		switch (action.kind) {
+		case MOVE: move(action, events); break;
+		case SUGGEST: suggest(action, events); break;
+		case ACCUSE: accuse(action, events); break;
+		case END_TURN:
+			if (canEndTurn()) {
+				endTurn(events);
+			} else {
+				events.add(new Event(Event.Kind.INVALID, current, 0, -1, -1, action));
+			}
+			break;
+		}
+		return events;
+	}
+
+	/**
+	 * Move current player one step
+	 * @param action -- MOVE to row,col
+	 * @param events
+	 */
+	private void move(Action action, List<Event> events) {
+		Square old = board.getPlayer(current).getLocation();
+		if (remaining <= 0 || !board.movePiece(current, action.row, action.col, visited)) {
+			events.add(new Event(Event.Kind.INVALID, current, 0, action.row, action.col, action));
+			return;
+		}
+		//if it's a room, all Squares in the same room are added in one go
+		visitedKey ^= board.markVisited(visited, old.row, old.col);
+		dirty |= TOKENS | VISITED;
+		moved = true;
+		Square sq = board.getSquare(action.row, action.col);
+		if (sq.kind == Type.ROOM) {
+			//entered a room, set to 0 so player turn ends after suggesting OR ending the turn
+			remaining = 0;
+			events.add(new Event(Event.Kind.ENTERED_ROOM, current, board.inRoom(current).ordinal(), sq.row, sq.col, action));
+			return;
+		}
+		remaining--;			//decrement remaining allowed move steps
+		events.add(new Event(Event.Kind.MOVED, current, remaining, sq.row, sq.col, action));
+		if (remaining <= 0) {
+			endTurn(events);
+		}
+	}
+
+	/**
+	 * Announce a Suggestion using the room that the current player is in
+	 * @param action -- SUGGEST suspect and weapon
+	 * @param events
+	 */
+	private void suggest(Action action, List<Event> events) {
+		if (!canSuggest()) {
+			events.add(new Event(Event.Kind.INVALID, current, 0, -1, -1, action));
+			return;
+		}
+		Place room = board.inRoom(current);
+		suggested = true;
+		events.add(new Event(Event.Kind.SUGGESTED, current, room.ordinal(), -1, -1, action));
+
+		//move player and weapon in room -- via power of suggestion
+		moveCharAndWeapon(action.suspect, action.weapon, room, events);
+
+		//refute this suggestion
+		checkSuggestion(Card.mask(action.suspect, action.weapon, room), events);
+		if (remaining <= 0) {
+			endTurn(events);
+		}
+	}
+
+	/**
+	 * Put player that plays the 'person' and the specified weapon in this room
+	 * @param person -- character
+	 * @param weapon -- weapon
+	 * @param room -- room
+	 * @param events -- SUMMONED and WEAPON_MOVED are added
+	 */
+	private void moveCharAndWeapon(Suspect person, Weapon weapon, Place room, List<Event> events) {
+		Player p = board.getPlayer(person);
+		dirty |= TOKENS | WEAPONS;
+		//update or move player token when possible
+		if (p != null) {		//if player that represents character is playing
+			Square sq = board.getFreeSquare(room.ordinal());	//vacant space in room
+			board.movePlayerViaSuggestion(p.ID, sq.row, sq.col);		//move player token to row,col
+			events.add(new Event(Event.Kind.SUMMONED, p.ID, room.ordinal(), sq.row, sq.col, null));
+		}
+
+		//update weapon mappings e.g.
+		//kitchen has dagger
+		//lounge  has candlestick
+		//suggestion is dagger and lounge so:
+		//kitchen to lounge               dagger
+
+		Weapon wpn = weaponsInRoom.get(room);	//old weapon, if any		//candlestick
+		Place rm = getRoom(weapon);	//old room			//kitchen
+
+		//update i.e. swap
+		weaponsInRoom.put(rm, wpn);
+		weaponsInRoom.put(room, weapon);
+		if (wpn != null) {
+			weaponRoom[wpn.ordinal()] = rm;
+			weaponKey ^= Zobrist.weapon(wpn.ordinal(), room.ordinal()) ^ Zobrist.weapon(wpn.ordinal(), rm.ordinal());
+		}
+		weaponRoom[weapon.ordinal()] = room;
+		weaponKey ^= Zobrist.weapon(weapon.ordinal(), rm.ordinal()) ^ Zobrist.weapon(weapon.ordinal(), room.ordinal());
+		events.add(new Event(Event.Kind.WEAPON_MOVED, current, weapon.card()));
+	}
+
+	/**
+	 * Check for room that a given weapon is in
+	 * @param weapon -- weapon to search for
+	 * @return room that a weapon is in (will never be null)
+	 */
+	public Place getRoom(Weapon weapon) {
+		return weaponRoom[weapon.ordinal()];
+	}
+
+	/**
+	 * Try to refute suggestion of current player by other players, in turn order
+	 * The card to be shown (if any) is chosen by the Refuter, if set, otherwise by the computer at random
+	 * </br> The shown card is added to the detective notes of the current player
+	 * </br> Every player's Deduction learns who could not refute, and who did
+	 * @param suggestion -- bit mask of the suggested cards, see Card.mask()
+	 * @return id of the card shown, Card.NONE if no one can refute the suggestion
+	 */
+	public int checkSuggestion(int suggestion) {
+		return checkSuggestion(suggestion, new ArrayList<Event>());
+	}
+
+	/**
+	 * See checkSuggestion(int)
+	 * @param suggestion
+	 * @param events -- CANNOT_REFUTE for every player asked in vain, then REFUTED or UNREFUTED
+	 * @return
+	 */
+	private int checkSuggestion(int suggestion, List<Event> events) {
+		dirty |= SEEN | NOTES | TURN;
+		for (int k = 1; k < players; k++) {		//go through every other player
+			int nextPlayer = (current - 1 + k) % players + 1;
+			//even if player is disqualified, allow show card
+			Player p = board.getPlayer(nextPlayer);
+			int card = Card.NONE;
+			int held = p.hand() & suggestion;
+			if (held != 0 && refuter != null) {
+				card = refuter.show(p.ID, held);
+				if ((Card.bit(card) & held) == 0) {		//NONE, or a card it cannot show
+					card = Card.NONE;
+				}
+			}
+			if (card == Card.NONE) {
+				card = p.refute(suggestion, draws(REFUTE));		//one AND, then a random set bit
+			}
+			if (card != Card.NONE) {
+				board.getPlayer(current).addToSeen(Card.get(card));	//add this card to seen card of current player
+				for (int ID = 1; ID <= players; ID++) {
+					if (ID == current) {
+						note(ID).shown(p.ID, card);
+					} else {
+						note(ID).refuted(p.ID, suggestion);		//everyone else only sees that a card was shown
+					}
+				}
+				events.add(new Event(Event.Kind.REFUTED, p.ID, card));
+				return card;
+			}
+			//this next player cannot refute the current player's suggestion, go to next eligible player
+			for (int ID = 1; ID <= players; ID++) {
+				note(ID).cannotRefute(p.ID, suggestion);
+			}
+			events.add(new Event(Event.Kind.CANNOT_REFUTE, p.ID, suggestion));
+		}
+
+		//if it gets here, then no one can refute the suggestion
+		events.add(new Event(Event.Kind.UNREFUTED, current, suggestion));
+		return Card.NONE;
+	}
+
+	/**
+	 * Notes of Player with ID, to be changed
+	 * @param ID
+	 * @return a copy if they still belong to a GameState too
+	 */
+	private Deduction note(int ID) {
+		if ((shared & 1 << ID) != 0) {
+			notes[ID] = notes[ID].copy();
+			shared &= ~(1 << ID);
+		}
+		return notes[ID];
+	}
+
+	/**
+	 * Make an Accusation
+	 * At the end of this method, 'current' player has either won or been disqualified
+	 * @param action -- ACCUSE suspect, weapon and place
+	 * @param events
+	 */
+	private void accuse(Action action, List<Event> events) {
+		events.add(new Event(Event.Kind.ACCUSED, current, Card.mask(action.suspect, action.weapon, action.place), -1, -1, action));
+		if (solution.matches(action.suspect, action.weapon, action.place)) {		//if accusation matches solution
+			isWon = true;
+			remaining = 0;
+			events.add(new Event(Event.Kind.WON, current, 0, -1, -1, action));
+		} else {		//else, disqualify/expel 'current' player
+			board.expel(current);
+			events.add(new Event(Event.Kind.EXPELLED, current, 0, -1, -1, action));
+			endTurn(events);			// stop turn immediately
+		}
+	}
+
+	/**
+	 * Hand over to the next active player, or end the game if there is none
+	 * @param events -- TURN_STARTED or GAME_OVER is added
+	 */
+	private void endTurn(List<Event> events) {
+		remaining = 0;
+		if (gameOver()) {		//game stops, no winner
+			events.add(new Event(Event.Kind.GAME_OVER, current, 0));
+			return;
+		}
+		nextMove();
+		startTurn(events);
+	}
+
+	/**
+	 * Increment 'current' player with the ID of next player player
+	 * i.e.
+	 * if 4 players playing, then current == from 1 to 4 until game finishes;
+	 * if 6 players playing, then current == from 1 to 6 until game finishes;
+	 */
+	private void nextMove() {
+		do {
+			if (current >= players)		//inspect limit
+				current = 1;
+			else
+				current++;
+		} while (!board.isPlaying(current));	//inspect if player has been disqualified i.e. made false accusation
+	}
+
+	/**
+	 * Game stop or continue
+	 *
+	 * @return true iff there are no players remaining i.e. everyone has been
+	 *         disqualified/expelled()
+	 */
+	private boolean gameOver() {
+		for (int i = 1; i <= players; i++) {
+			if (board.getPlayer(i).isPlaying()) {		//look for active players
+				return false;
+			}
+		}
+		//there are no active players
+		return true;
+	}
+
+	/**
+	 * @return true iff someone won OR everyone has been expelled
+	 */
+	public boolean isOver() {
+		return isWon || gameOver();
+	}
+
+	/**
+	 * Let someone else pick the card shown to refute a suggestion, e.g. the PlayerAgent of the refuter
+	 * @param refuter -- null to pick at random
+	 */
+	public void setRefuter(Refuter refuter) {
+		this.refuter = refuter;
+	}
+
+	/**
+	 * Picks the card a player shows to refute a suggestion
+	 */
+	public interface Refuter {
+		/**
+		 * @param ID -- Player ID refuting
+		 * @param held -- card mask of the suggested cards ID holds, NOT 0
+		 * @return card id, one of held, or Card.NONE to let the Engine pick at random
+		 */
+		int show(int ID, int held);
+	}
+
+	/**
+	 * Write everything this game is made of, see SaveGame
+	 * </br> Draws nothing, and the game read back goes on with the same draws as this one, see draws()
+	 * </br> Square ids, cursors and counts are ints, so a board of any size is written whole
+	 * @param out
+	 * @throws IOException
+	 */
+	void write(DataOutput out) throws IOException {
+		out.writeInt(board.getTopology().rows());
+		out.writeInt(board.getTopology().cols());
+		out.writeLong(seed);
+		out.writeByte(players);
+		for (int ID = 1; ID <= players; ID++) {
+			out.writeByte(config.getCharacter(ID).ordinal());
+			out.writeUTF(config.getName(ID));
+		}
+		out.writeByte(current);
+		out.writeInt(turn);
+		out.writeByte(remaining);
+		out.writeByte((moved ? 1 : 0) | (suggested ? 2 : 0) | (isWon ? 4 : 0));
+		out.writeByte(solution.getSuspect().ordinal());
+		out.writeByte(solution.getWeapon().ordinal());
+		out.writeByte(solution.getPlace().ordinal());
+		for (Place room: weaponRoom) {
+			out.writeByte(room.ordinal());
+		}
+		for (int ID = 1; ID <= players; ID++) {
+			Player p = board.getPlayer(ID);
+			out.writeInt(p.getLocation().id);
+			out.writeBoolean(p.isPlaying());
+			out.writeInt(p.hand());
+			out.writeInt(p.seen());
+		}
+		int[] cursors = board.cursors();
+		for (int c: cursors) {
+			out.writeInt(c);
+		}
+		long[] words = visited.toLongArray();
+		out.writeInt(words.length);
+		for (long w: words) {
+			out.writeLong(w);
+		}
+		for (int ID = 1; ID <= players; ID++) {
+			Deduction d = notes[ID];
+			for (int holder = 0; holder <= players; holder++) {
+				out.writeInt(d.owns(holder));
+				out.writeInt(d.lacks(holder));
+			}
+			int[] clauses = d.clauses();
+			out.writeInt(clauses.length);
+			for (int c: clauses) {
+				out.writeInt(c);
+			}
+		}
+	}
+
+	/**
+	 * Replace this game by one written by write(), on the same board
+	 * @param in
+	 * @throws IOException -- if in does not hold a game, or one of another board
+	 */
+	void read(DataInput in) throws IOException {
+		if (in.readInt() != loader.getTopology().rows() || in.readInt() != loader.getTopology().cols()) {
+			throw new IOException("Saved game is of another board");
+		}
+		long seed = in.readLong();
+		int players = in.readUnsignedByte();
+		if (players < 1 || players > Suspect.COUNT) {
+			throw new IOException("Not a saved game: "+players+" players");
+		}
+		String[] names = new String[players + 1];
+		Suspect[] chars = new Suspect[players + 1];
+		for (int ID = 1; ID <= players; ID++) {
+			chars[ID] = Suspect.of(in.readUnsignedByte());
+			names[ID] = in.readUTF();
+		}
+		GameConfig config = new GameConfig(names, chars, seed);
+		Board board = new Board(loader.getTopology(), names, chars);
+		int current = in.readUnsignedByte();
+		int turn = in.readInt();
+		int remaining = in.readUnsignedByte();
+		int flags = in.readUnsignedByte();
+		CentreRoom solution = new CentreRoom();
+		solution.putInEnvelope(Arrays.asList(Card.get(Suspect.of(in.readUnsignedByte()).card()),
+				Card.get(Weapon.of(in.readUnsignedByte()).card()), Card.get(Place.of(in.readUnsignedByte()).card())));
+		Place[] weaponRoom = new Place[Weapon.COUNT];
+		EnumMap<Place, Weapon> weaponsInRoom = new EnumMap<Place, Weapon>(Place.class);
+		for (Place room: Place.values()) {
+			weaponsInRoom.put(room, null);
+		}
+		for (Weapon w: Weapon.values()) {
+			weaponRoom[w.ordinal()] = Place.of(in.readUnsignedByte());
+			weaponsInRoom.put(weaponRoom[w.ordinal()], w);
+		}
+		int[] squares = new int[players + 1];
+		for (int ID = 1; ID <= players; ID++) {
+			Player p = board.getPlayer(ID);
+			squares[ID] = in.readInt();
+			if (squares[ID] < 0 || squares[ID] >= loader.getTopology().getAdjacency().size()) {
+				throw new IOException("Not a saved game: Square "+squares[ID]);
+			}
+			p.setPlaying(in.readBoolean());
+			for (Card c: Card.set(in.readInt())) {
+				p.addCard(c);
+			}
+			for (Card c: Card.set(in.readInt())) {
+				p.addToSeen(c);
+			}
+		}
+		board.placeAll(squares);
+		int[] cursors = board.cursors();
+		RoomIndex rooms = loader.getTopology().getRooms();
+		for (int i = 0; i < cursors.length; i++) {
+			cursors[i] = in.readInt();
+			if (cursors[i] < 0 || cursors[i] > rooms.end(i) - rooms.start(i)) {
+				throw new IOException("Not a saved game: cursor "+cursors[i]+" of room "+i);
+			}
+		}
+		board.setCursors(cursors);
+		int count = in.readInt();
+		if (count < 0 || count > (loader.getTopology().getAdjacency().size() + 63) / 64) {		//more words than Squares
+			throw new IOException("Not a saved game: "+count+" words of visited Squares");
+		}
+		long[] words = new long[count];
+		for (int i = 0; i < words.length; i++) {
+			words[i] = in.readLong();
+		}
+		Deduction[] notes = new Deduction[players + 1];
+		for (int ID = 1; ID <= players; ID++) {
+			int[] owns = new int[players + 1];
+			int[] lacks = new int[players + 1];
+			for (int holder = 0; holder <= players; holder++) {
+				owns[holder] = in.readInt();
+				lacks[holder] = in.readInt();
+			}
+			count = in.readInt();
+			if (count < 0) {
+				throw new IOException("Not a saved game: "+count+" clauses");
+			}
+			int[] clauses = new int[count];
+			for (int i = 0; i < clauses.length; i++) {
+				clauses[i] = in.readInt();
+			}
+			notes[ID] = Deduction.restore(players, ID, owns, lacks, clauses);
+		}
+
+		//all read, nothing of this game was changed if any of it failed
+		this.config = config;
+		this.players = players;
+		this.seed = seed;
+		this.board = board;
+		this.solution = solution;
+		this.weaponsInRoom = weaponsInRoom;
+		System.arraycopy(weaponRoom, 0, this.weaponRoom, 0, weaponRoom.length);
+		this.notes = notes;
+		this.current = current;
+		this.turn = turn;
+		this.remaining = remaining;
+		this.moved = (flags & 1) != 0;
+		this.suggested = (flags & 2) != 0;
+		this.isWon = (flags & 4) != 0;
+		visited.clear();
+		visited.or(BitSet.valueOf(words));
+		this.weaponKey = weaponKey(weaponRoom);
+		this.visitedKey = Zobrist.visited(visited);
+		this.base = null;
+		this.shared = 0;
+	}
+
+	/**
+	 * This game as it is now, a GameState that never changes
+	 * </br> It shares with the last state made or restored every part that has not changed since,
+	 * and is that state itself if nothing has
+	 * </br> Taking a state draws nothing, and every restore() of it goes on with the same draws, see draws()
+	 * @return
+	 */
+	public GameState state() {
+		if (base != null && dirty == 0) {
+			return base;
+		}
+		GameState b = base;
+		int all = b == null ? -1 : dirty;		//parts to copy
+		int[] squares = b == null ? null : b.squares;
+		int[] cursors = b == null ? null : b.cursors;
+		if ((all & TOKENS) != 0) {
+			squares = new int[players + 1];
+			for (int ID = 1; ID <= players; ID++) {
+				squares[ID] = board.getPlayer(ID).getLocation().id;
+			}
+			cursors = board.cursors();
+		}
+		byte[] weapons = b == null ? null : b.weapons;
+		if ((all & WEAPONS) != 0) {
+			weapons = new byte[Weapon.COUNT];
+			for (int w = 0; w < weapons.length; w++) {
+				weapons[w] = (byte) weaponRoom[w].ordinal();
+			}
+		}
+		int[] seen = b == null ? null : b.seen;
+		if ((all & SEEN) != 0) {
+			seen = new int[players + 1];
+			for (int ID = 1; ID <= players; ID++) {
+				seen[ID] = board.getPlayer(ID).seen();
+			}
+		}
+		long[] words = (all & VISITED) != 0 ? visited.toLongArray() : b.visited;
+		Deduction[] notes = (all & NOTES) != 0 ? this.notes.clone() : b.notes;
+		int[] hands = b != null ? b.hands : null;
+		if (hands == null) {
+			hands = new int[players + 1];
+			for (int ID = 1; ID <= players; ID++) {
+				hands[ID] = board.getPlayer(ID).hand();
+			}
+		}
+		int playing = 0;
+		for (int ID = 1; ID <= players; ID++) {
+			playing |= board.isPlaying(ID) ? 1 << ID : 0;
+		}
+		base = new GameState(config, solution, hands, squares, cursors, weapons, seen, words, notes,
+				playing, current, turn, remaining, moved, suggested, isWon, hash());
+		dirty = 0;
+		shared = -1;		//every Deduction now belongs to base
+		return base;
+	}
+
+	/**
+	 * Put this game back as it was in state, e.g. to undo
+	 * </br> Only the parts that differ from the last state made or restored are changed
+	 * @param state -- from state(), of this Engine's board
+	 */
+	public void restore(GameState state) {
+		if (state == base && dirty == 0) {
+			return;
+		}
+		GameState b = base;
+		int changed = b == null || state.config != b.config ? -1 : dirty;
+		if (changed == -1) {		//another game, deal it again
+			config = state.config;
+			players = config.players;
+			seed = config.seed;
+			solution = state.solution;
+			board = new Board(loader.getTopology(), config.names(), config.characters());
+			for (int ID = 1; ID <= players; ID++) {
+				for (Card c: Card.set(state.hands[ID])) {
+					board.getPlayer(ID).addCard(c);
+				}
+			}
+		}
+		if ((changed & TOKENS) != 0 || state.squares != b.squares) {
+			board.placeAll(state.squares);
+			board.setCursors(state.cursors);
+		}
+		if ((changed & WEAPONS) != 0 || state.weapons != b.weapons) {
+			weaponsInRoom = new EnumMap<Place, Weapon>(Place.class);
+			for (Place room: Place.values()) {
+				weaponsInRoom.put(room, null);
+			}
+			for (Weapon w: Weapon.values()) {
+				weaponRoom[w.ordinal()] = Place.of(state.weapons[w.ordinal()]);
+				weaponsInRoom.put(weaponRoom[w.ordinal()], w);
+			}
+			weaponKey = weaponKey(weaponRoom);
+		}
+		if ((changed & SEEN) != 0 || state.seen != b.seen) {
+			for (int ID = 1; ID <= players; ID++) {
+				board.getPlayer(ID).setSeen(state.seen[ID]);
+			}
+		}
+		if ((changed & VISITED) != 0 || state.visited != b.visited) {
+			visited.clear();
+			visited.or(BitSet.valueOf(state.visited));
+			visitedKey = Zobrist.visited(visited);
+		}
+		if ((changed & NOTES) != 0 || state.notes != b.notes) {
+			notes = state.notes.clone();
+		}
+		for (int ID = 1; ID <= players; ID++) {
+			board.getPlayer(ID).setPlaying((state.playing & 1 << ID) != 0);
+		}
+		current = state.current;
+		turn = state.turn;
+		remaining = state.remaining;
+		moved = state.moved;
+		suggested = state.suggested;
+		isWon = state.won;
+		base = state;
+		dirty = 0;
+		shared = -1;
+	}
+
+	/**
+	 * Zobrist key of the position: where every Player is, where every weapon is, visited Squares,
+	 * whose turn it is and remaining steps, e.g. to key a transposition table
+	 * </br> O(1), every move updates it with a few XORs
+	 * @return
+	 */
+	public long hash() {
+		return board.getKey() ^ weaponKey ^ visitedKey ^ Zobrist.current(current) ^ Zobrist.remaining(remaining);
+	}
+
+	/**
+	 * @param weaponRoom -- weapon ordinal to the room it is in
+	 * @return XOR of Zobrist.weapon() of every weapon
+	 */
+	private static long weaponKey(Place[] weaponRoom) {
+		long key = 0;
+		for (int w = 0; w < weaponRoom.length; w++) {
+			key ^= Zobrist.weapon(w, weaponRoom[w].ordinal());
+		}
+		return key;
+	}
+
+	/**
+	 * Play an action from a state, without changing the state
+	 * </br> Same as restore(state), apply(action), state(), so this Engine is left at the new state
+	 * @param state -- from state()
+	 * @param action -- one of legalActions() in state
+	 * @return the state after action
+	 */
+	public GameState apply(GameState state, Action action) {
+		restore(state);
+		apply(action);
+		return state();
+	}
+
+	//GETTERS
+	public Board getBoard() {
+		return board;
+	}
+
+	//number of players at the beginning
+	public int getPlayers() {
+		return players;
+	}
+
+	//current Player ID
+	public int getCurrent() {
+		return current;
+	}
+
+	//remaining move steps for current player
+	public int getRemaining() {
+		return remaining;
+	}
+
+	//turns started so far, 1 during the first turn
+	public int getTurn() {
+		return turn;
+	}
+
+	public boolean isWon() {
+		return isWon;
+	}
+
+	//who plays
+	public GameConfig getConfig() {
+		return config;
+	}
+
+	//seed this game was set up with, see GameConfig
+	public long getSeed() {
+		return seed;
+	}
+
+	/**
+	 * What Player with ID knows, and has deduced, about who holds which card
+	 * @param ID
+	 * @return NOT to be modified, copy() it to try something out
+	 */
+	public Deduction notes(int ID) {
+		return notes[ID];
+	}
+
+	public CentreRoom getSolution() {
+		return solution;
+	}
+
+	//room to weapon mappings
+	//some rooms may not have a weapon in them
+	public Map<Place, Weapon> weapons() {
+		return Collections.unmodifiableMap(weaponsInRoom);
+	}
+
+	//visited Squares during current turn, by Square id, NOT to be modified
+	public BitSet visited() {
+		return visited;
+	}
+
+	//Zobrist key of visited(), see Board.reachable()
+	public long visitedKey() {
+		return visitedKey;
+	}
+}
@@ -0,0 +1,51 @@
+package main;
+
+/**
+ * Something that happened in a game, returned by Engine.newGame() and Engine.apply()
+ * </br> What player, value, row and col mean depends on the kind, see Kind
+ * @author Ronni Perez
+ *
+ */
+public final class Event {
+	public final Kind kind;
+	public final int player;		//Player ID the event is about
+	public final int value;		//roll, room, card id or card mask, see Kind
+	public final int row;		//Square the event is about, -1 if none
+	public final int col;
+	public final Action action;		//the suggestion or accusation, null otherwise
+
+	Event(Kind kind, int player, int value, int row, int col, Action action) {
+		this.kind = kind;
+		this.player = player;
+		this.value = value;
+		this.row = row;
+		this.col = col;
+		this.action = action;
+	}
+
+	Event(Kind kind, int player, int value) {
+		this(kind, player, value, -1, -1, null);
+	}
+
+	@Override
+	public String toString() {
+		return kind+" P"+player+" "+value+(row < 0 ? "" : " @"+row+","+col)+(action == null ? "" : " "+action);
+	}
+
+	public enum Kind {
+		TURN_STARTED,		//player's turn, value is the roll
+		MOVED,		//player stepped to row,col, value is remaining move steps
+		ENTERED_ROOM,		//player stepped into a room at row,col, value is the room
+		INVALID,		//player tried an action that is not legal, row,col of a MOVE
+		SUGGESTED,		//player made the suggestion in action, value is the room it is about
+		SUMMONED,		//player was moved to row,col of room (value) by a suggestion
+		WEAPON_MOVED,		//weapon with card id (value) moved to the suggested room
+		REFUTED,		//player showed card (value) to the suggesting Player
+		CANNOT_REFUTE,		//player has none of the suggested cards, value is the suggestion's card mask
+		UNREFUTED,		//no one could refute the suggestion of player, value is its card mask
+		ACCUSED,		//player made the accusation in action, value is its card mask
+		WON,		//player's accusation was right, game over
+		EXPELLED,		//player's accusation was wrong
+		GAME_OVER		//no active players left, no winner
+	}
+}
@@ -0,0 +1,67 @@
+package main;
+
+import model.BoardTopology;
+import model.Card.Place;
+
+/**
+ * Front end of a game played by Cluedo, e.g. the Swing GUI
+ * </br> Everything that waits for a user, e.g. a dialog, is behind this interface so that
+ * the Engine itself never blocks
+ * @author Ronni Perez
+ *
+ */
+public interface GameAdapter {
+	/**
+	 * Ask who plays the next game
+	 * @param topology -- the board to be played on, for its starting Squares
+	 * @return
+	 */
+	GameConfig setup(BoardTopology topology);
+
+	/**
+	 * A new game has been set up, called before its first events are shown
+	 * @param engine
+	 */
+	void started(Engine engine);
+
+	/**
+	 * Ask the current player for a suggestion
+	 * @param room -- room that the current player is in
+	 * @return a SUGGEST action, null if the player changed their mind
+	 */
+	Action chooseSuggestion(Place room);
+
+	/**
+	 * Ask the current player for an accusation
+	 * @return an ACCUSE action, null if the player changed their mind
+	 */
+	Action chooseAccusation();
+
+	/**
+	 * Show what happened
+	 * @param event -- returned by Engine.newGame() or Engine.apply()
+	 * @param engine -- state after ALL events of the same call
+	 */
+	void show(Event event, Engine engine);
+
+	/**
+	 * Ask whether to play again, once a game is over
+	 * @return
+	 */
+	boolean playAgain();
+
+	/**
+	 * Tell the user something that needs no answer, e.g. that a file could not be written
+	 * @param title
+	 * @param msg
+	 */
+	void notice(String title, String msg);
+
+	/**
+	 * Ask the user a yes or no question
+	 * @param title
+	 * @param msg
+	 * @return true if yes
+	 */
+	boolean confirm(String title, String msg);
+}
@@ -0,0 +1,78 @@
+package main;
+
+import model.BoardTopology;
+import model.Card.Suspect;
+
+/**
+ * Who plays a new game, see Engine.newGame(), and the seed of ALL its random draws
+ * </br> Arrays are indexed by Player ID i.e. index 0 is never used
+ * </br> The same config and the same actions replay the same game
+ * @author Ronni Perez
+ *
+ */
+public class GameConfig {
+	public final int players;		//number of players, from 1 to 6
+	public final long seed;		//seed of the game's SplittableRandom
+	private final String[] names;		//Player ID to name
+	private final Suspect[] characters;		//Player ID to character played
+
+	/**
+	 * Players take the characters in the order of the board file's starting Squares
+	 * </br> e.g. P1 is Miss Scarlett on the built-in board, named P1
+	 * @param players -- number of players
+	 * @param topology -- the board to be played on
+	 * @param seed -- seed of every random draw in the game
+	 */
+	public GameConfig(int players, BoardTopology topology, long seed) {
+		this.players = players;
+		this.seed = seed;
+		this.names = new String[players + 1];
+		this.characters = new Suspect[players + 1];
+		for (int ID = 1; ID <= players; ID++) {
+			names[ID] = "P"+ID;
+			characters[ID] = Suspect.parse(topology.getCharacter(ID - 1));
+		}
+	}
+
+	/**
+	 * @param names -- Player ID to name, names[0] is not used
+	 * @param characters -- Player ID to character played, characters[0] is not used
+	 * @param seed -- seed of every random draw in the game
+	 */
+	public GameConfig(String[] names, Suspect[] characters, long seed) {
+		if (names.length != characters.length || names.length < 2) {
+			throw new IllegalArgumentException("Need a name and a character for at least one player");
+		}
+		this.players = names.length - 1;
+		this.seed = seed;
+		this.names = names.clone();
+		this.characters = characters.clone();
+	}
+
+	/**
+	 * Seed given by the 'cluedo.seed' system property, so that a game can be played again exactly
+	 * </br> A different seed every call if there is no such property
+	 * @return
+	 */
+	public static long defaultSeed() {
+		Long seed = Long.getLong("cluedo.seed");
+		return seed != null ? seed : System.nanoTime() ^ Thread.currentThread().getId() * 0x9E3779B97F4A7C15L;
+	}
+
+	//GETTERS
+	public String getName(int ID) {
+		return names[ID];
+	}
+
+	public Suspect getCharacter(int ID) {
+		return characters[ID];
+	}
+
+	String[] names() {
+		return names.clone();
+	}
+
+	Suspect[] characters() {
+		return characters.clone();
+	}
+}
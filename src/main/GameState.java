@@ -0,0 +1,141 @@
+package main;
+
+import java.util.BitSet;
+
+import model.Card.Place;
+import model.Card.Weapon;
+import model.CentreRoom;
+import model.Deduction;
+
+/**
+ * A game at one point, that never changes, see Engine.state() and Engine.restore()
+ * <br> -- made of small arrays of primitives, one per part of the game: tokens, weapons, seen cards,
+ * visited Squares and detective notes
+ * <br> -- a state made from another shares every array that did not change in between, so a new state costs
+ * only what changed, e.g. an action that moves a token copies the token array and nothing else
+ * <br> -- the deal, i.e. who plays, the solution and the hands, is shared by every state of a game
+ * <br> -- Engine.apply(state, action) returns the next state and leaves state as it was, so
+ * search can branch from one state many times, and undo is going back to an older state
+ * @author Ronni Perez
+ *
+ */
+public final class GameState {
+	//the deal, shared by every state of the game
+	final GameConfig config;
+	final CentreRoom solution;		//never changed after the deal
+	final int[] hands;		//Player ID to card mask
+
+	//shared with the state this was made from, unless changed in between
+	final int[] squares;		//Player ID to Square id
+	final int[] cursors;		//room to where the next free Square search starts, see Board.getFreeSquare()
+	final byte[] weapons;		//weapon ordinal to Place ordinal
+	final int[] seen;		//Player ID to card mask
+	final long[] visited;		//Square ids visited this turn, see BitSet.toLongArray()
+	final Deduction[] notes;		//Player ID to notes, NOT to be modified
+
+	final int playing;		//bit ID set iff Player with ID is playing
+	final int current;
+	final int turn;
+	final int remaining;
+	final boolean moved;
+	final boolean suggested;
+	final boolean won;
+	final long hash;		//Zobrist key, see Engine.hash()
+
+	GameState(GameConfig config, CentreRoom solution, int[] hands, int[] squares, int[] cursors, byte[] weapons,
+			int[] seen, long[] visited, Deduction[] notes, int playing, int current, int turn, int remaining,
+			boolean moved, boolean suggested, boolean won, long hash) {
+		this.config = config;
+		this.solution = solution;
+		this.hands = hands;
+		this.squares = squares;
+		this.cursors = cursors;
+		this.weapons = weapons;
+		this.seen = seen;
+		this.visited = visited;
+		this.notes = notes;
+		this.playing = playing;
+		this.current = current;
+		this.turn = turn;
+		this.remaining = remaining;
+		this.moved = moved;
+		this.suggested = suggested;
+		this.won = won;
+		this.hash = hash;
+	}
+
+	/**
+	 * @return true iff someone won OR everyone has been expelled
+	 */
+	public boolean isOver() {
+		return won || playing == 0;
+	}
+
+	/**
+	 * Zobrist key of the position, see Engine.hash()
+	 * </br> Equal positions of a game have equal keys, whatever the moves that led to them
+	 * @return
+	 */
+	public long hash() {
+		return hash;
+	}
+
+	//GETTERS
+	public GameConfig getConfig() {
+		return config;
+	}
+
+	public int getPlayers() {
+		return config.players;
+	}
+
+	//current Player ID
+	public int getCurrent() {
+		return current;
+	}
+
+	//turns started so far
+	public int getTurn() {
+		return turn;
+	}
+
+	public int getRemaining() {
+		return remaining;
+	}
+
+	public boolean isWon() {
+		return won;
+	}
+
+	public boolean isPlaying(int ID) {
+		return (playing & 1 << ID) != 0;
+	}
+
+	//Square id of Player with ID
+	public int square(int ID) {
+		return squares[ID];
+	}
+
+	public Place room(Weapon weapon) {
+		return Place.of(weapons[weapon.ordinal()]);
+	}
+
+	//card masks, see Card.bit()
+	public int hand(int ID) {
+		return hands[ID];
+	}
+
+	public int seen(int ID) {
+		return seen[ID];
+	}
+
+	//what Player with ID knows, NOT to be modified
+	public Deduction notes(int ID) {
+		return notes[ID];
+	}
+
+	//visited Squares this turn, by Square id, a copy
+	public BitSet visited() {
+		return BitSet.valueOf(visited);
+	}
+}
@@ -0,0 +1,47 @@
+package main;
+
+import model.Card;
+
+/**
+ * PlayerAgent that plays like GreedyPolicy, and the default decision of a Table when an agent runs late
+ * <br> -- accuses as soon as its notes leave one card of each kind
+ * <br> -- suggests cards that may be in the envelope, heads for the nearest room that may be the scene
+ * <br> -- shows the same card again to a player it has shown it to before, so that player learns less
+ * <br> Every decision takes microseconds, it never looks at the Deadline
+ * @author Ronni Perez
+ *
+ */
+public class GreedyAgent implements PlayerAgent {
+	private final int[] shownTo = new int[8];		//Player ID to card mask shown to it, enough for 6 players
+
+	@Override
+	public String name() {
+		return "greedy";
+	}
+
+	@Override
+	public Action accuse(Seat seat, Deadline deadline) {
+		return RandomPolicy.accusation(seat.notes.candidates());
+	}
+
+	@Override
+	public Action suggest(Seat seat, Deadline deadline) {
+		return GreedyPolicy.candidateSuggestion(seat.notes.candidates(), seat.rng);
+	}
+
+	@Override
+	public Action move(Seat seat, Deadline deadline) {
+		if (seat.moves.isEmpty()) {
+			return Action.END_TURN;
+		}
+		return GreedyPolicy.closest(seat.topology, seat.moves, seat.notes.candidates(), seat.rng);
+	}
+
+	@Override
+	public int showCard(Seat seat, int suggester, int held, Deadline deadline) {
+		int again = held & shownTo[suggester];
+		int card = RandomPolicy.pick(again != 0 ? again : held, seat.rng);
+		shownTo[suggester] |= Card.bit(card);
+		return card;
+	}
+}
@@ -0,0 +1,79 @@
+package main;
+
+import java.util.List;
+import java.util.SplittableRandom;
+
+import model.BoardTopology;
+import model.Card;
+import model.Card.Place;
+import model.Card.Suspect;
+import model.Card.Weapon;
+import model.DistanceTable;
+import model.RoomIndex;
+
+/**
+ * Heads for the nearest room that may be the scene of the crime, and suggests cards that may be in the envelope
+ * </br> Distances come from the precomputed DistanceTable, so a move costs one lookup per room
+ * @author Ronni Perez
+ *
+ */
+public class GreedyPolicy extends RandomPolicy {
+
+	@Override
+	protected Action suggestion(Engine engine, int candidates, SplittableRandom rng) {
+		return candidateSuggestion(candidates, rng);
+	}
+
+	@Override
+	protected Action move(Engine engine, List<Action> moves, int candidates, SplittableRandom rng) {
+		return closest(engine.getBoard().getTopology(), moves, candidates, rng);
+	}
+
+	/**
+	 * Suggest a character and a weapon that may be in the envelope
+	 * @param candidates -- card mask of cards that may be in the envelope
+	 * @param rng
+	 * @return a SUGGEST action
+	 */
+	static Action candidateSuggestion(int candidates, SplittableRandom rng) {
+		//the solution is always a candidate, so there is always one of each kind left
+		Suspect s = Suspect.of(pick(candidates & SUSPECTS, rng));
+		Weapon w = Weapon.of(pick(candidates & WEAPONS, rng) - Suspect.COUNT);
+		return Action.suggest(s, w);
+	}
+
+	/**
+	 * The step that gets closest to a room that may be the scene of the crime
+	 * @param topology -- board played on
+	 * @param moves -- legal MOVE actions, NOT empty
+	 * @param candidates -- card mask of cards that may be in the envelope
+	 * @param rng -- breaks ties
+	 * @return one of moves
+	 */
+	static Action closest(BoardTopology topology, List<Action> moves, int candidates, SplittableRandom rng) {
+		DistanceTable distances = topology.getDistances();
+		RoomIndex rooms = topology.getRooms();
+		Action best = null;
+		int bestDistance = Integer.MAX_VALUE;
+		int ties = 0;
+		for (Action a: moves) {
+			int id = topology.getSquare(a.row, a.col).id;
+			int d = Integer.MAX_VALUE;
+			for (int room = 0; room < rooms.rooms(); room++) {
+				if ((candidates & Card.bit(Place.of(room).card())) == 0) {continue;}		//not the scene of the crime
+				int steps = distances.distance(id, room);
+				if (steps >= 0 && steps < d) {
+					d = steps;
+				}
+			}
+			if (d < bestDistance) {
+				best = a;
+				bestDistance = d;
+				ties = 1;
+			} else if (d == bestDistance && rng.nextInt(++ties) == 0) {		//uniform among ties
+				best = a;
+			}
+		}
+		return best;
+	}
+}
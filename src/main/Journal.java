@@ -0,0 +1,461 @@
+package main;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import model.BoardTopology;
+import model.Card.Place;
+import model.Card.Suspect;
+import model.Card.Weapon;
+
+/**
+ * Append-only file of played games, every Event of every game in order
+ * <br> -- a game is a GAME record, i.e. seed, names and characters, then its events
+ * <br> -- an event is a header byte, kind and which fields follow, then varints: player, value (zigzag),
+ * Square id and action, so most events take 3 or 4 bytes
+ * <br> -- writes go through a buffer to a FileChannel, fsync runs at most every SYNC_INTERVAL and on close()
+ * <br> -- games are encoded apart, see Encoder, and written whole or in pieces; pieces of two games
+ * must not be interleaved, so parallel writers write whole games
+ * <br> -- read back as a stream, a game at a time, see Reader
+ * <br> -- a record cut short by a crash is dropped when the file is opened again, so what is appended after it can be read
+ * <br> File: MAGIC, VERSION, rows and cols of the board, then games until the end of the file
+ * @author Ronni Perez
+ *
+ */
+public final class Journal implements Closeable {
+	private static final int MAGIC = 0x434C4A4E;		//"CLJN"
+	private static final int VERSION = 1;
+	private static final long SYNC_INTERVAL = 1000;		//milliseconds between fsyncs, at most
+	private static final int BUFFER = 1 << 16;
+	private static final int GAME = 0xFF;		//header byte of a GAME record
+	private static final int SQUARE = 0x10;		//header flags, the low 4 bits are the kind
+	private static final int ACTION = 0x20;
+	private static final int MOVE_HERE = 0x40;		//the action is a MOVE to the Square of the event
+
+	private final FileChannel channel;
+	private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER);
+	private long synced = System.currentTimeMillis();		//time of the last fsync
+	private boolean dirty;		//written since the last fsync
+
+	/**
+	 * Open file for appending, a new file is started with the board's dimensions
+	 * </br> An existing file is cut back to its last complete record first, see complete()
+	 * @param file
+	 * @param topology -- board of the games, to turn rows and cols into Square ids
+	 * @throws IOException -- if file cannot be written, or is a journal of another board
+	 */
+	public Journal(File file, BoardTopology topology) throws IOException {
+		channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+		if (channel.size() == 0) {
+			buffer.putInt(MAGIC).putInt(VERSION).putInt(topology.rows()).putInt(topology.cols());
+		} else {
+			ByteBuffer head = ByteBuffer.allocate(16);
+			while (head.hasRemaining() && channel.read(head, head.position()) > 0) {}
+			head.flip();
+			if (head.remaining() < 16 || head.getInt() != MAGIC || head.getInt() != VERSION
+					|| head.getInt() != topology.rows() || head.getInt() != topology.cols()) {
+				channel.close();
+				throw new IOException(file+" is not a journal of version "+VERSION+" for this board");
+			}
+			long end = complete(file);
+			if (end < channel.size()) {		//a crash cut the last record short
+				channel.truncate(end);
+			}
+		}
+		channel.position(channel.size());
+	}
+
+	/**
+	 * Read file through, to where its last complete record ends
+	 * @param file -- a journal of this version
+	 * @return offset in file
+	 * @throws IOException
+	 */
+	private static long complete(File file) throws IOException {
+		try (Reader in = new Reader(file)) {
+			long end = in.offset();
+			try {
+				while (in.nextGame()) {
+					end = in.offset();
+					while (in.next() != null) {
+						end = in.offset();
+					}
+				}
+			} catch (IOException | RuntimeException e) {
+				//cut short, or garbage after it e.g. an event of an unknown kind: all dropped from end on
+			}
+			return end;
+		}
+	}
+
+	/**
+	 * Append what game has encoded so far, and clear it
+	 * @param game
+	 * @throws IOException
+	 */
+	public synchronized void write(Encoder game) throws IOException {
+		for (int off = 0; off < game.size; ) {
+			if (!buffer.hasRemaining()) {
+				drain();
+			}
+			int n = Math.min(buffer.remaining(), game.size - off);
+			buffer.put(game.bytes, off, n);
+			off += n;
+		}
+		game.size = 0;
+		if (System.currentTimeMillis() - synced >= SYNC_INTERVAL) {
+			sync();
+		}
+	}
+
+	/**
+	 * Write the buffer to the file, without waiting for the disk
+	 * @throws IOException
+	 */
+	public synchronized void flush() throws IOException {
+		drain();
+	}
+
+	/**
+	 * Write the buffer to the file and wait for the disk
+	 * @throws IOException
+	 */
+	public synchronized void sync() throws IOException {
+		drain();
+		if (dirty) {
+			channel.force(false);
+			dirty = false;
+		}
+		synced = System.currentTimeMillis();
+	}
+
+	@Override
+	public synchronized void close() throws IOException {
+		try {
+			sync();
+		} finally {
+			channel.close();
+		}
+	}
+
+	private void drain() throws IOException {
+		buffer.flip();
+		while (buffer.hasRemaining()) {
+			channel.write(buffer);
+			dirty = true;
+		}
+		buffer.clear();
+	}
+
+	/**
+	 * Encodes ONE game in memory, to be written by Journal.write()
+	 * </br> Reused from game to game
+	 */
+	public static final class Encoder {
+		private final int cols;
+		private byte[] bytes = new byte[1024];
+		private int size;
+
+		/**
+		 * Constructor
+		 * @param topology -- board of the game
+		 */
+		public Encoder(BoardTopology topology) {
+			this.cols = topology.cols();
+		}
+
+		/**
+		 * Start a game, clears anything not yet written
+		 * @param config -- who plays
+		 */
+		public void begin(GameConfig config) {
+			size = 0;
+			put(GAME);
+			putLong(zigzag(config.seed));
+			putInt(config.players);
+			for (int ID = 1; ID <= config.players; ID++) {
+				put(config.getCharacter(ID).ordinal());
+				byte[] name = config.getName(ID).getBytes(StandardCharsets.UTF_8);
+				putInt(name.length);
+				reserve(name.length);
+				System.arraycopy(name, 0, bytes, size, name.length);
+				size += name.length;
+			}
+		}
+
+		/**
+		 * @param event -- next event of the game
+		 */
+		public void add(Event event) {
+			int header = event.kind.ordinal();
+			boolean square = event.row >= 0;
+			Action a = event.action;
+			boolean here = a != null && square && a.kind == Action.Kind.MOVE && a.row == event.row && a.col == event.col;
+			header |= (square ? SQUARE : 0) | (a != null && !here ? ACTION : 0) | (here ? MOVE_HERE : 0);
+			put(header);
+			putInt(event.player);
+			putInt(zigzag(event.value));
+			if (square) {
+				putInt(event.row * cols + event.col);
+			}
+			if (a != null && !here) {
+				put(a.kind.ordinal());
+				switch (a.kind) {
+				case MOVE: putInt(zigzag(a.row)); putInt(zigzag(a.col)); break;		//may be off the board if INVALID
+				case SUGGEST: put(a.suspect.ordinal() * Weapon.COUNT + a.weapon.ordinal()); break;
+				case ACCUSE: putInt((a.suspect.ordinal() * Weapon.COUNT + a.weapon.ordinal()) * Place.COUNT + a.place.ordinal()); break;
+				default: break;
+				}
+			}
+		}
+
+		/**
+		 * @param events -- next events of the game, in order
+		 */
+		public void add(List<Event> events) {
+			for (Event e: events) {
+				add(e);
+			}
+		}
+
+		//bytes encoded and not yet written
+		public int size() {
+			return size;
+		}
+
+		private void put(int b) {
+			reserve(1);
+			bytes[size++] = (byte) b;
+		}
+
+		private void putInt(int v) {
+			putLong(v & 0xFFFFFFFFL);
+		}
+
+		private void putLong(long v) {
+			reserve(10);
+			while ((v & ~0x7FL) != 0) {
+				bytes[size++] = (byte) (v & 0x7F | 0x80);
+				v >>>= 7;
+			}
+			bytes[size++] = (byte) v;
+		}
+
+		private void reserve(int n) {
+			if (size + n > bytes.length) {
+				bytes = Arrays.copyOf(bytes, Math.max(bytes.length * 2, size + n));
+			}
+		}
+	}
+
+	/**
+	 * Reads a journal back, a game at a time, without loading the whole file
+	 */
+	public static final class Reader implements Closeable {
+		private final FileChannel channel;
+		private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER);
+		private final int cols;
+		private GameConfig config;		//game being read, null before the first
+		private boolean inGame;		//the next record is an event of config's game
+
+		/**
+		 * Constructor
+		 * @param file -- written by Journal
+		 * @throws IOException -- if file is not a journal of this version
+		 */
+		public Reader(File file) throws IOException {
+			channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+			buffer.flip();
+			try {
+				if (getFixed() != MAGIC || getFixed() != VERSION) {
+					throw new IOException(file+" is not a journal of version "+VERSION);
+				}
+				getFixed();		//rows
+				cols = getFixed();
+			} catch (IOException e) {
+				channel.close();
+				throw e;
+			}
+		}
+
+		/**
+		 * Skip to the next game, the events left of this one are passed over
+		 * @return false at the end of the file
+		 * @throws IOException
+		 */
+		public boolean nextGame() throws IOException {
+			while (inGame) {
+				next();
+			}
+			if (!fill(1)) {
+				return false;
+			}
+			int b = buffer.get() & 0xFF;
+			if (b != GAME) {
+				throw new IOException("Journal is corrupt, expected a game");
+			}
+			long seed = unzigzag(getLong());
+			int players = getInt();
+			String[] names = new String[players + 1];
+			Suspect[] chars = new Suspect[players + 1];
+			for (int ID = 1; ID <= players; ID++) {
+				chars[ID] = Suspect.of(get());
+				byte[] name = new byte[getInt()];
+				for (int i = 0; i < name.length; i++) {
+					name[i] = (byte) get();
+				}
+				names[ID] = new String(name, StandardCharsets.UTF_8);
+			}
+			config = new GameConfig(names, chars, seed);
+			inGame = true;
+			return true;
+		}
+
+		/**
+		 * @return who played the game being read
+		 */
+		public GameConfig config() {
+			return config;
+		}
+
+		/**
+		 * Next event of the game being read
+		 * @return null at the end of the game
+		 * @throws IOException
+		 */
+		public Event next() throws IOException {
+			if (!inGame || !fill(1) || (buffer.get(buffer.position()) & 0xFF) == GAME) {
+				inGame = false;
+				return null;
+			}
+			int header = get();
+			Event.Kind kind = Event.Kind.values()[header & 0x0F];
+			int player = getInt();
+			int value = unzigzag(getInt());
+			int row = -1;
+			int col = -1;
+			if ((header & SQUARE) != 0) {
+				int id = getInt();
+				row = id / cols;
+				col = id % cols;
+			}
+			Action action = null;
+			if ((header & MOVE_HERE) != 0) {
+				action = Action.move(row, col);
+			} else if ((header & ACTION) != 0) {
+				switch (Action.Kind.values()[get()]) {
+				case MOVE: action = Action.move(unzigzag(getInt()), unzigzag(getInt())); break;
+				case SUGGEST: {
+					int sw = get();
+					action = Action.suggest(Suspect.of(sw / Weapon.COUNT), Weapon.of(sw % Weapon.COUNT));
+					break;
+				}
+				case ACCUSE: {
+					int swp = getInt();
+					action = Action.accuse(Suspect.of(swp / Place.COUNT / Weapon.COUNT), Weapon.of(swp / Place.COUNT % Weapon.COUNT),
+							Place.of(swp % Place.COUNT));
+					break;
+				}
+				default: action = Action.END_TURN; break;
+				}
+			}
+			return new Event(kind, player, value, row, col, action);
+		}
+
+		/**
+		 * The rest of the game being read
+		 * @return
+		 * @throws IOException
+		 */
+		public List<Event> events() throws IOException {
+			List<Event> events = new ArrayList<Event>();
+			for (Event e = next(); e != null; e = next()) {
+				events.add(e);
+			}
+			return events;
+		}
+
+		@Override
+		public void close() throws IOException {
+			channel.close();
+		}
+
+		/**
+		 * @return offset in the file of the next byte to read
+		 * @throws IOException
+		 */
+		private long offset() throws IOException {
+			return channel.position() - buffer.remaining();
+		}
+
+		/**
+		 * Make sure n bytes are in the buffer, unless the file ends first
+		 * @param n
+		 * @return false iff the file ends first
+		 * @throws IOException
+		 */
+		private boolean fill(int n) throws IOException {
+			if (buffer.remaining() >= n) {
+				return true;
+			}
+			buffer.compact();
+			while (buffer.position() < n && channel.read(buffer) > 0) {}
+			buffer.flip();
+			return buffer.remaining() >= n;
+		}
+
+		private int get() throws IOException {
+			if (!fill(1)) {
+				throw new EOFException("Journal ends in the middle of a record");
+			}
+			return buffer.get() & 0xFF;
+		}
+
+		private int getFixed() throws IOException {
+			if (!fill(4)) {
+				throw new EOFException("Journal ends in the middle of its header");
+			}
+			return buffer.getInt();
+		}
+
+		private int getInt() throws IOException {
+			return (int) getLong();
+		}
+
+		private long getLong() throws IOException {
+			long v = 0;
+			for (int shift = 0; ; shift += 7) {
+				int b = get();
+				v |= (long) (b & 0x7F) << shift;
+				if ((b & 0x80) == 0) {
+					return v;
+				}
+			}
+		}
+	}
+
+	private static int zigzag(int v) {
+		return v << 1 ^ v >> 31;
+	}
+
+	private static long zigzag(long v) {
+		return v << 1 ^ v >> 63;
+	}
+
+	private static int unzigzag(int v) {
+		return v >>> 1 ^ -(v & 1);
+	}
+
+	private static long unzigzag(long v) {
+		return v >>> 1 ^ -(v & 1);
+	}
+}
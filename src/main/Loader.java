@@ -1,17 +1,31 @@
 package main;
 
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.EnumMap;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.Random;
-import java.util.Scanner;
+import java.util.SplittableRandom;
 
+import model.BoardFile;
+import model.BoardTopology;
 import model.Card;
+import model.Card.Place;
+import model.Card.Suspect;
+import model.Card.Weapon;
 import model.CentreRoom;
-import model.Card.Type;
+import model.RoomIndex;
 
 /**
  * Loads necessary files and characters, weapons etc ready for parsing by different classes
@@ -19,114 +33,229 @@ import model.Card.Type;
  *
  */
 public class Loader {
-	private String[][] coords;			//string representation of the board
-	private static String[] people;		//characters in the game
-	private static String[] weapons;		//weapons in the game
-	private static String[] rooms;		//rooms in the game
-	private static int rows;	
-	private static int cols;
+	private static final String BOARD = "assets/board.txt";		//built-in board, next to this class
 	
-	public Loader (int rows, int cols) {
-		Loader.rows = rows;
-		Loader.cols = cols;
-		coords = new String[rows][cols];
-		loadBoard();		//read strings from assets/board.txt
-		loadCards();		//cards
+	private final BoardTopology topology;		//static layout of the board file
+	//long names of the cards, the same for every board, see checkRooms()
+	private static final String[] people = names(Suspect.values());		//characters in the game
+	private static final String[] weapons = names(Weapon.values());		//weapons in the game
+	private static final String[] rooms = names(Place.values());		//rooms in the game
+	//built once per board file, shared by every game
+	private static final Map<String, BoardTopology> topologies = new HashMap<String, BoardTopology>();
+	
+	/**
+	 * Loads the board file given by the 'cluedo.board' system property, the built-in board by default
+	 */
+	public Loader () {
+		this(System.getProperty("cluedo.board", BOARD));
+	}
+	
+	/**
+	 * @param board -- path of a board file, OR the name of the built-in one i.e. assets/board.txt
+	 * </br> A board compiled by BoardCompiler is mapped, any other file is read as text
+	 */
+	public Loader (String board) {
+		topology = loadTopology(board);		//read board file e.g. assets/board.txt, its size is topology.rows() and cols()
+		checkRooms();
+	}
+	
+	/**
+	 * Static layout of a board file, parsed and precomputed on first use ONLY
+	 * @param board -- file path or built-in board name
+	 * @return
+	 */
+	private static BoardTopology loadTopology(String board) {
+		synchronized (topologies) {
+			BoardTopology topology = topologies.get(board);
+			if (topology == null) {
+				File file = new File(board);
+				if (BoardFile.isCompiled(file)) {		//binary, no parsing
+					try {
+						topology = BoardFile.read(file);
+					} catch (IOException e) {
+						throw new UncheckedIOException("Cannot read board "+board, e);
+					}
+				} else {		//text
+					topology = loadBoard(board).build();
+				}
+				topologies.put(board, topology);
+			}
+			return topology;
+		}
 	}
 	
 	/**
 	 * Read game Board from text file
+	 * </br> One pass over the lines, see assets/board.txt for the format
+	 * @param board -- file path or built-in board name
+	 * @return
 	 */
-	private void loadBoard() {
-		Scanner sc = new Scanner(Loader.class.getResourceAsStream("assets/board.txt"));
-		for (int i = 0; i < rows; i++) {
-			for (int j = 0; j < cols; j++) {
-				coords[i][j] = sc.next(); // put it into coords String[][]
+	private static BoardTopology.Builder loadBoard(String board) {
+		try (BufferedReader in = open(board)) {
+			BoardTopology.Builder layout = null;
+			String line;
+			int number = 0;		//line number, for error messages
+			while ((line = in.readLine()) != null) {
+				number++;
+				line = line.trim();
+				if (line.isEmpty() || line.startsWith("#")) {continue;}		//blank or comment
+				String[] tokens = line.split("\\s+");
+				try {
+					switch (tokens[0]) {
+					case "SIZE":
+						layout = new BoardTopology.Builder(Integer.parseInt(tokens[1]), Integer.parseInt(tokens[2]));
+						for (int row = 0; row < layout.rows(); row++) {		//grid follows
+							String next = in.readLine();
+							number++;
+							if (next == null) {
+								throw new IllegalArgumentException("expected "+layout.rows()+" rows");
+							}
+							String[] squares = next.trim().split("\\s+");
+							if (squares.length != layout.cols()) {
+								throw new IllegalArgumentException("expected "+layout.cols()+" Squares");
+							}
+							for (int col = 0; col < squares.length; col++) {
+								layout.square(row, col, squares[col]);
+							}
+						}
+						break;
+					case "ROOM":
+						header(layout).room(tokens[1], rest(line, 2));
+						break;
+					case "DOOR":
+						header(layout).door(Integer.parseInt(tokens[1]), Integer.parseInt(tokens[2]),
+								Integer.parseInt(tokens[3]), Integer.parseInt(tokens[4]));
+						break;
+					case "PASSAGE":
+						header(layout).passage(tokens[1], tokens[2]);
+						break;
+					case "START":
+						header(layout).start(rest(line, 3), Integer.parseInt(tokens[1]), Integer.parseInt(tokens[2]));
+						break;
+					default:
+						throw new IllegalArgumentException("unknown entry "+tokens[0]);
+					}
+				} catch (RuntimeException e) {		//bad number, missing token or Square
+					throw new IllegalArgumentException(board+" line "+number+": "+e.getMessage(), e);
+				}
 			}
+			return header(layout);
+		} catch (IOException e) {
+			throw new UncheckedIOException("Cannot read board "+board, e);
 		}
-		sc.close();
 	}
-
+	
 	/**
-	 * Cards from hard coded String[] 
+	 * Open a board file, falling back to the boards bundled with this class
+	 * @param board
 	 * @return
+	 * @throws IOException
+	 */
+	private static BufferedReader open(String board) throws IOException {
+		File file = new File(board);
+		InputStream in = file.isFile() ? new FileInputStream(file) : Loader.class.getResourceAsStream(board);
+		if (in == null) {
+			throw new FileNotFoundException(board);
+		}
+		return new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+	}
+	
+	/**
+	 * SUPPLEMENTARY METHOD
+	 * @param layout
+	 * @return layout, if SIZE has been read
 	 */
-	private void loadCards() {
-		people = new String []{
-				"Miss Scarlett","Colonel Mustard","Mrs. White","The Reverend Green","Mrs. Peacock","Professor Plum"
-				};
-		weapons = new String []{
-				"Candlestick","Dagger","Lead Pipe","Revolver","Rope","Spanner"
-				};
-		rooms = new String []{
-				"Kitchen",
-				"Ball Room",
-				"Conservatory",
-				 "Billiard Room",
-				 "Library",
-				 "Study",
-				 "Hall",
-				 "Lounge",
-				 "Dining Room"
-				};
+	private static BoardTopology.Builder header(BoardTopology.Builder layout) {
+		if (layout == null) {
+			throw new IllegalArgumentException("SIZE must come before the rest of the board");
+		}
+		return layout;
+	}
+	
+	/**
+	 * SUPPLEMENTARY METHOD
+	 * @param line
+	 * @param skip -- number of tokens to skip
+	 * @return the rest of line after skipping tokens e.g. a name with spaces
+	 */
+	private static String rest(String line, int skip) {
+		String[] parts = line.split("\\s+", skip + 1);
+		if (parts.length <= skip) {
+			throw new IllegalArgumentException("missing name");
+		}
+		return parts[skip];
 	}
 
 	/**
-	 * Create and return list of Card Objects
-	 * Used by loadCards()
+	 * The board file must declare the rooms of the game, in card order
+	 */
+	private void checkRooms() {
+		RoomIndex index = topology.getRooms();
+		boolean same = index.rooms() == Place.COUNT;
+		for (int room = 0; same && room < Place.COUNT; room++) {
+			same = Place.of(room).toString().equals(index.name(room));
+		}
+		if (!same) {
+			throw new IllegalArgumentException("Board must declare the rooms "+Arrays.toString(rooms)+" in this order");
+		}
+	}
+	
+	private static String[] names(Enum<?>[] values) {
+		String[] names = new String[values.length];
+		for (int i = 0; i < values.length; i++) {
+			names[i] = values[i].toString();
+		}
+		return names;
+	}
+
+	/**
+	 * Create and return list of Card Objects, in card id order
 	 * @return
 	 */
 	public List<Card> populateCards() {
 		List <Card> cards = new ArrayList<Card>();
-		for (String s: people) {
-			cards.add (new Card(Type.CHARACTER, s ));
-		}
-		for (String s: weapons) {
-			cards.add (new Card(Type.WEAPON, s));
-		}
-		for (String s: rooms) {
-			cards.add (new Card(Type.ROOM, s));
+		for (int id = 0; id < Card.COUNT; id++) {
+			cards.add(Card.get(id));
 		}
 		return cards;
 	}
 	
-	public void pickSolution(CentreRoom solution, List<Card> cards) {
-		Random rand = new Random();
-		String person = people[rand.nextInt(people.length)];
-		String tool = weapons[rand.nextInt(weapons.length)];
-		String place = rooms[rand.nextInt(rooms.length)];
+	/**
+	 * Pick one card of each kind at random, put them in the envelope and take them out of cards
+	 * @param solution -- the envelope
+	 * @param cards -- from populateCards()
+	 * @param rand -- random numbers of this game
+	 */
+	public void pickSolution(CentreRoom solution, List<Card> cards, SplittableRandom rand) {
+		Card person = Card.get(Suspect.of(rand.nextInt(Suspect.COUNT)).card());
+		Card tool = Card.get(Weapon.of(rand.nextInt(Weapon.COUNT)).card());
+		Card place = Card.get(Place.of(rand.nextInt(Place.COUNT)).card());
 		
-		List<Card> sol = new ArrayList<Card>();
-		for (int i = 0; i<cards.size(); i++) {
-			Card c = cards.get(i);
-			String name = c.name;
-			
-			//inspect in order -- character, weapon, room
-			if (name.equals(person) || name.equals(tool) || name.equals(place)) {
-				sol.add(c);		//add to solution and remove card from 'pool'
-				cards.remove(i);
-			}
-		}
-		solution.putInEnvelope(sol);
+		//remove solution cards from 'pool'
+		cards.remove(person);
+		cards.remove(tool);
+		cards.remove(place);
+		solution.putInEnvelope(Arrays.asList(person, tool, place));
 	}
 
 	/**
-	 * Returns map of roomNames to weaponNames
+	 * Returns map of rooms to weapons
 	 * Put weapons in random rooms (1 weapon per room at most) ????
 	 * -- see Section 2.4 of instructions
-	 * @return
+	 * @param rand -- random numbers of this game
+	 * @return every room, mapped to null if it has no weapon
 	 */
-	public Map<String, String> putInRoom() {
-		Map <String, String> inRoom = new HashMap<String, String>(); 
-		//add loaded weapons and rooms from hardcoded names to a collection
-		ArrayList<String> tools = new ArrayList<String>(Arrays.asList(weapons));
-		ArrayList<String> places = new ArrayList<String>(Arrays.asList(rooms));
+	public EnumMap<Place, Weapon> putInRoom(SplittableRandom rand) {
+		EnumMap <Place, Weapon> inRoom = new EnumMap<Place, Weapon>(Place.class); 
+		//add weapons and rooms to a collection
+		ArrayList<Weapon> tools = new ArrayList<Weapon>(Arrays.asList(Weapon.values()));
+		ArrayList<Place> places = new ArrayList<Place>(Arrays.asList(Place.values()));
 		//shuffle both collections
-		Collections.shuffle(places);
-		Collections.shuffle(tools);
+		shuffle(places, rand);
+		shuffle(tools, rand);
 		while (!tools.isEmpty()) {		//for each weapon
-			String key = places.remove(0);	//remove first element in each collection
-			String val = tools.remove(0);
+			Place key = places.remove(0);	//remove first element in each collection
+			Weapon val = tools.remove(0);
 			
 			inRoom.put(key, val);		//put in map
 		}
@@ -137,21 +266,28 @@ public class Loader {
 		return inRoom;
 	}
 	
-	/*HELPER METHOD*/
-	//Used by Board class to construct board game
-	public String[][] getCoords() {
-		return coords;
-	}
-
-	/*GETTERS*/
-	public static int rows() {
-		return rows;
+	/**
+	 * Fisher-Yates shuffle drawing from rand, as Collections.shuffle() only takes a java.util.Random
+	 * @param list
+	 * @param rand -- random numbers of this game
+	 */
+	public static <T> void shuffle(List<T> list, SplittableRandom rand) {
+		for (int i = list.size() - 1; i > 0; i--) {
+			Collections.swap(list, i, rand.nextInt(i + 1));
+		}
 	}
 	
-	public static int cols() {
-		return cols;
+	/**
+	 * Static layout of the board, parsed and precomputed once per board file
+	 * </br> Every game (and thread) shares this, a new game only creates a Board
+	 * @return
+	 */
+	public BoardTopology getTopology() {
+		return topology;
 	}
-	
+
+	/*GETTERS*/
+	//long names of the cards, for the UI ONLY
 	public static String [] getPeople() {
 		return people;
 	}
@@ -0,0 +1,77 @@
+package main;
+
+import java.util.concurrent.ForkJoinPool;
+
+import model.Adjacency;
+import model.Card;
+import model.Card.Place;
+import model.MovePlanner;
+
+/**
+ * PlayerAgent that plans its moves with a MovePlanner, and otherwise plays like GreedyAgent
+ * <br> -- rooms that may be the scene of the crime are worth going to, except the one it is in
+ * <br> -- plans the whole path on the first step of a turn and then follows it, planning again only if
+ * the board is not as planned e.g. a step was refused
+ * <br> -- plans within the Deadline, on the common ForkJoinPool
+ * @author Ronni Perez
+ *
+ */
+public class PlannerAgent extends GreedyAgent {
+	private MovePlanner planner;		//created on the first move, for the seat's board
+	private long budget;		//milliseconds per plan of planner
+	private int[] path;		//Square ids of the plan, null if none
+	private int turn;		//turn planned, see Seat.turn
+	private int step;		//next step of path
+	private int from;		//Square id the next step starts from
+	private int left;		//move steps left when the next step is taken
+
+	@Override
+	public String name() {
+		return "planner";
+	}
+
+	@Override
+	public Action move(Seat seat, Deadline deadline) {
+		if (seat.moves.isEmpty()) {
+			return Action.END_TURN;
+		}
+		if (path == null || seat.turn != turn || seat.square != from || seat.remaining != left) {		//new turn, or off the plan
+			plan(seat, deadline);
+		}
+		if (step == path.length) {		//stops here
+			return seat.canEndTurn ? Action.END_TURN : GreedyPolicy.closest(seat.topology, seat.moves,
+					seat.notes.candidates(), seat.rng);
+		}
+		Adjacency adj = seat.topology.getAdjacency();
+		int id = path[step++];
+		from = id;
+		left = seat.remaining - 1;
+		return Action.move(adj.row(id), adj.col(id));
+	}
+
+	/**
+	 * Plan the rest of this turn from where the seat is
+	 * @param seat
+	 * @param deadline
+	 */
+	private void plan(Seat seat, Deadline deadline) {
+		long ms = Math.max(1, Math.min(MovePlanner.BUDGET, deadline.remaining() / 2000000));		//half the time left
+		if (planner == null || ms != budget) {
+			planner = new MovePlanner(seat.topology, ForkJoinPool.commonPool(), MovePlanner.NODES, ms, MovePlanner.TURNS);
+			budget = ms;
+		}
+		int candidates = seat.notes.candidates();
+		double[] value = new double[seat.topology.getRooms().rooms()];
+		for (int room = 0; room < value.length; room++) {
+			Place p = Place.of(room);
+			if ((candidates & Card.bit(p.card())) != 0 && p != seat.room) {
+				value[room] = 1;
+			}
+		}
+		path = planner.plan(seat.square, seat.remaining, seat.occupied, seat.visited, value, seat.rng.nextLong()).path;
+		turn = seat.turn;
+		step = 0;
+		from = seat.square;
+		left = seat.remaining;
+	}
+}
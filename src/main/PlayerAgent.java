@@ -0,0 +1,82 @@
+package main;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.ServiceLoader;
+
+/**
+ * A computer player that can take any seat of a game, next to humans or other agents, see Table
+ * <br> -- every decision gets a snapshot of what the player may know, see Seat, and a Deadline
+ * <br> -- a decision runs on its own thread: it should check the Deadline now and then and give up
+ * once it has expired, its answer is ignored by then and the Table plays a default decision instead
+ * <br> -- unlike a Policy an agent may keep state, each seat gets its own instance
+ * <br> -- agents are found with ServiceLoader: list the class in META-INF/services/main.PlayerAgent
+ * and give it a public no-argument constructor
+ * @author Ronni Perez
+ *
+ */
+public interface PlayerAgent {
+	/**
+	 * @return name to pick the agent by, see load()
+	 */
+	String name();
+
+	/**
+	 * Accuse, if the agent is sure enough, asked at the start of every turn
+	 * @param seat
+	 * @param deadline
+	 * @return an ACCUSE action, null to go on playing
+	 */
+	Action accuse(Seat seat, Deadline deadline);
+
+	/**
+	 * Suggest, asked when the player is in a room and has not suggested this turn
+	 * @param seat
+	 * @param deadline
+	 * @return a SUGGEST action, null to move or end the turn instead
+	 */
+	Action suggest(Seat seat, Deadline deadline);
+
+	/**
+	 * Take a step
+	 * @param seat
+	 * @param deadline
+	 * @return one of seat.moves, or END_TURN if the turn may end
+	 */
+	Action move(Seat seat, Deadline deadline);
+
+	/**
+	 * Pick the card to show to refute another player's suggestion
+	 * @param seat
+	 * @param suggester -- Player ID who suggested
+	 * @param held -- card mask of the suggested cards this player holds, NOT 0
+	 * @param deadline
+	 * @return card id, one of held
+	 */
+	int showCard(Seat seat, int suggester, int held, Deadline deadline);
+
+	/**
+	 * A new instance of the agent with name
+	 * @param name -- see name()
+	 * @return null if no agent on the class path has that name
+	 */
+	static PlayerAgent load(String name) {
+		for (PlayerAgent agent: ServiceLoader.load(PlayerAgent.class)) {
+			if (agent.name().equalsIgnoreCase(name)) {
+				return agent;
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * @return names of every agent on the class path
+	 */
+	static List<String> names() {
+		List<String> names = new ArrayList<String>();
+		for (PlayerAgent agent: ServiceLoader.load(PlayerAgent.class)) {
+			names.add(agent.name());
+		}
+		return names;
+	}
+}
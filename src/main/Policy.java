@@ -0,0 +1,19 @@
+package main;
+
+import java.util.SplittableRandom;
+
+/**
+ * How a computer player picks its next action, used by the Simulator
+ * </br> One instance is shared by every game on every thread, so a Policy must keep NO state between calls
+ * @author Ronni Perez
+ *
+ */
+public interface Policy {
+	/**
+	 * Pick the next action of the current player
+	 * @param engine -- game in progress, NOT to be modified except through the returned action
+	 * @param rng -- random numbers of this game
+	 * @return a legal action, see Engine.legalActions()
+	 */
+	Action choose(Engine engine, SplittableRandom rng);
+}
@@ -0,0 +1,90 @@
+package main;
+
+import java.util.List;
+import java.util.SplittableRandom;
+
+import model.Card;
+import model.Card.Place;
+import model.Card.Suspect;
+import model.Card.Weapon;
+
+/**
+ * Plays at random, except that it accuses as soon as its Deduction leaves
+ * ONE candidate card of each kind
+ * </br> Subclasses pick smarter moves and suggestions
+ * @author Ronni Perez
+ *
+ */
+public class RandomPolicy implements Policy {
+	static final int SUSPECTS = (1 << Suspect.COUNT) - 1;		//card mask of every character
+	static final int WEAPONS = ((1 << Weapon.COUNT) - 1) << Suspect.COUNT;		//card mask of every weapon
+	static final int PLACES = Card.ALL & ~SUSPECTS & ~WEAPONS;		//card mask of every room
+
+	@Override
+	public Action choose(Engine engine, SplittableRandom rng) {
+		int candidates = engine.notes(engine.getCurrent()).candidates();
+		Action accuse = accusation(candidates);
+		if (accuse != null) {
+			return accuse;
+		}
+		if (engine.canSuggest()) {
+			return suggestion(engine, candidates, rng);
+		}
+		List<Action> moves = engine.legalMoves();
+		if (!moves.isEmpty()) {
+			return move(engine, moves, candidates, rng);
+		}
+		return Action.END_TURN;
+	}
+
+	/**
+	 * The accusation that the notes point to, if any
+	 * @param candidates -- card mask of cards that may be in the envelope, see Deduction.candidates()
+	 * @return null unless exactly one card of each kind is left
+	 */
+	static Action accusation(int candidates) {
+		if (Integer.bitCount(candidates & SUSPECTS) != 1 || Integer.bitCount(candidates & WEAPONS) != 1
+				|| Integer.bitCount(candidates & PLACES) != 1) {
+			return null;
+		}
+		return Action.accuse(Suspect.of(Integer.numberOfTrailingZeros(candidates & SUSPECTS)),
+				Weapon.of(Integer.numberOfTrailingZeros(candidates & WEAPONS) - Suspect.COUNT),
+				Place.of(Integer.numberOfTrailingZeros(candidates & PLACES) - Suspect.COUNT - Weapon.COUNT));
+	}
+
+	/**
+	 * Suggest any character and weapon
+	 * @param engine
+	 * @param candidates -- card mask of cards that may be in the envelope
+	 * @param rng
+	 * @return a SUGGEST action
+	 */
+	protected Action suggestion(Engine engine, int candidates, SplittableRandom rng) {
+		return Action.suggest(Suspect.of(rng.nextInt(Suspect.COUNT)), Weapon.of(rng.nextInt(Weapon.COUNT)));
+	}
+
+	/**
+	 * Step anywhere
+	 * @param engine
+	 * @param moves -- legal MOVE actions, NOT empty
+	 * @param candidates -- card mask of cards that may be in the envelope
+	 * @param rng
+	 * @return one of moves
+	 */
+	protected Action move(Engine engine, List<Action> moves, int candidates, SplittableRandom rng) {
+		return moves.get(rng.nextInt(moves.size()));
+	}
+
+	/**
+	 * Random set bit of mask
+	 * @param mask -- NOT 0
+	 * @param rng
+	 * @return id of the card
+	 */
+	static int pick(int mask, SplittableRandom rng) {
+		for (int skip = rng.nextInt(Integer.bitCount(mask)); skip > 0; skip--) {
+			mask &= mask - 1;		//clear lowest set bit
+		}
+		return Integer.numberOfTrailingZeros(mask);
+	}
+}
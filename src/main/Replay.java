@@ -0,0 +1,318 @@
+package main;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+import model.Board;
+import model.Card.Place;
+import model.Card.Suspect;
+import model.Card.Weapon;
+import model.Player;
+import model.Square;
+import model.Zobrist;
+
+/**
+ * A recorded game that can be shown at any point, e.g. from a Journal
+ * <br> -- the position is how many events have been applied, 0 is the game as dealt
+ * <br> -- a Frame, i.e. where every token is, is kept every INTERVAL events, a keyframe
+ * <br> -- seek() restores the keyframe at or before the position and applies the events after it,
+ * so any position is at most INTERVAL events away, however long the game
+ * <br> -- stepping forward applies only the events in between
+ * <br> Only what is drawn is replayed: tokens, weapons, whose turn it is, remaining steps and visited Squares
+ * @author Ronni Perez
+ *
+ */
+public final class Replay {
+	static final int INTERVAL = 64;		//events between keyframes
+
+	private final GameConfig config;
+	private final List<Event> events;
+	private final int[] turns;		//turn - 1 to the position just after its TURN_STARTED
+	private final Frame[] keyframes;		//position / INTERVAL to the Frame at that position
+	private final Board board;		//shown position, drawn by the GUI
+	private final byte[] weaponRoom = new byte[Weapon.COUNT];		//weapon ordinal to Place ordinal
+	private final BitSet visited = new BitSet();
+	private long visitedKey;		//Zobrist key of visited
+	private int current;
+	private int remaining;
+	private int room;		//room of the last suggestion, where WEAPON_MOVED moves the weapon to
+	private int position;		//events applied to board
+
+	/**
+	 * Constructor, the game is dealt again from config so that tokens and weapons start where they did
+	 * @param loader -- board the game was played on
+	 * @param config -- who played
+	 * @param events -- every event of the game, in order, see Engine.newGame() and Engine.apply()
+	 */
+	public Replay(Loader loader, GameConfig config, List<Event> events) {
+		this.config = config;
+		this.events = new ArrayList<Event>(events);
+		Engine engine = new Engine(loader);
+		engine.newGame(config);
+		this.board = engine.getBoard();
+		for (Weapon w: Weapon.values()) {
+			weaponRoom[w.ordinal()] = (byte) engine.getRoom(w).ordinal();
+		}
+		current = 1;
+
+		//one pass over the game, keeping a Frame every INTERVAL events
+		keyframes = new Frame[this.events.size() / INTERVAL + 1];
+		List<Integer> starts = new ArrayList<Integer>();
+		for (int i = 0; i < this.events.size(); i++) {
+			if (i % INTERVAL == 0) {
+				keyframes[i / INTERVAL] = new Frame();
+			}
+			apply(this.events.get(i));
+			if (this.events.get(i).kind == Event.Kind.TURN_STARTED) {
+				starts.add(i + 1);
+			}
+		}
+		if (this.events.size() % INTERVAL == 0) {
+			keyframes[this.events.size() / INTERVAL] = new Frame();
+		}
+		turns = new int[starts.size()];
+		for (int t = 0; t < turns.length; t++) {
+			turns[t] = starts.get(t);
+		}
+		seek(0);
+	}
+
+	/**
+	 * Read one game of a journal
+	 * @param file -- written by Journal
+	 * @param loader -- board the game was played on
+	 * @param game -- which game, 1 is the first
+	 * @return null if file has fewer games
+	 * @throws IOException
+	 */
+	public static Replay read(File file, Loader loader, int game) throws IOException {
+		try (Journal.Reader reader = new Journal.Reader(file)) {
+			for (int g = 1; reader.nextGame(); g++) {
+				if (g == game) {
+					return new Replay(loader, reader.config(), reader.events());
+				}
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * @param file -- written by Journal
+	 * @return number of games in file
+	 * @throws IOException
+	 */
+	public static int games(File file) throws IOException {
+		int games = 0;
+		try (Journal.Reader reader = new Journal.Reader(file)) {
+			while (reader.nextGame()) {
+				games++;
+			}
+		}
+		return games;
+	}
+
+	/**
+	 * Show the game after position events
+	 * @param position -- from 0 to size(), clamped
+	 */
+	public void seek(int position) {
+		position = Math.max(0, Math.min(events.size(), position));
+		int key = position / INTERVAL;
+		if (position < this.position || this.position < key * INTERVAL) {		//behind, or the keyframe is closer
+			keyframes[key].restore();
+		}
+		while (this.position < position) {
+			apply(events.get(this.position));
+		}
+	}
+
+	/**
+	 * Show the game at the start of a turn i.e. just after its roll
+	 * @param turn -- from 1 to turns(), clamped
+	 */
+	public void seekTurn(int turn) {
+		if (turns.length > 0) {
+			seek(turns[Math.max(1, Math.min(turns.length, turn)) - 1]);
+		}
+	}
+
+	/**
+	 * Turn being shown
+	 * @return 0 before the first roll
+	 */
+	public int turn() {
+		int lo = 0;
+		int hi = turns.length;
+		while (lo < hi) {		//turns that started at or before position
+			int mid = (lo + hi) >>> 1;
+			if (turns[mid] <= position) {
+				lo = mid + 1;
+			} else {
+				hi = mid;
+			}
+		}
+		return lo;
+	}
+
+	/**
+	 * Apply one event to the shown position
+	 * @param e -- the event at position
+	 */
+	private void apply(Event e) {
+		switch (e.kind) {
+		case TURN_STARTED:
+			current = e.player;
+			remaining = e.value;
+			visited.clear();
+			visited.set(board.getPlayer(current).getLocation().id);
+			visitedKey = Zobrist.visited(board.getPlayer(current).getLocation().id);
+			break;
+		case MOVED:
+		case ENTERED_ROOM: {
+			Square old = board.getPlayer(e.player).getLocation();
+			visitedKey ^= board.markVisited(visited, old.row, old.col);
+			board.movePlayerViaSuggestion(e.player, e.row, e.col);
+			remaining = e.kind == Event.Kind.MOVED ? e.value : 0;
+			break;
+		}
+		case SUGGESTED:
+			room = e.value;
+			break;
+		case SUMMONED:
+			board.movePlayerViaSuggestion(e.player, e.row, e.col);
+			break;
+		case WEAPON_MOVED: {		//swap with the weapon in the room, if any
+			int weapon = e.value - Suspect.COUNT;
+			for (int w = 0; w < weaponRoom.length; w++) {
+				if (weaponRoom[w] == room) {
+					weaponRoom[w] = weaponRoom[weapon];
+				}
+			}
+			weaponRoom[weapon] = (byte) room;
+			break;
+		}
+		case WON:
+		case GAME_OVER:
+			remaining = 0;
+			break;
+		case EXPELLED:
+			board.expel(e.player);
+			break;
+		default:
+			break;
+		}
+		position++;
+	}
+
+	//GETTERS
+	//shown position, NOT to be modified
+	public Board getBoard() {
+		return board;
+	}
+
+	public GameConfig getConfig() {
+		return config;
+	}
+
+	//events applied so far
+	public int position() {
+		return position;
+	}
+
+	//every event of the game
+	public int size() {
+		return events.size();
+	}
+
+	//turns started in the game
+	public int turns() {
+		return turns.length;
+	}
+
+	//last event applied, null at position 0
+	public Event last() {
+		return position == 0 ? null : events.get(position - 1);
+	}
+
+	//Player ID whose turn is shown
+	public int getCurrent() {
+		return current;
+	}
+
+	public int getRemaining() {
+		return remaining;
+	}
+
+	//visited Squares during the shown turn, by Square id, NOT to be modified
+	public BitSet visited() {
+		return visited;
+	}
+
+	//Zobrist key of visited()
+	public long visitedKey() {
+		return visitedKey;
+	}
+
+	//room to weapon, as shown
+	public Map<Place, Weapon> weapons() {
+		EnumMap<Place, Weapon> weapons = new EnumMap<Place, Weapon>(Place.class);
+		for (int w = 0; w < weaponRoom.length; w++) {
+			weapons.put(Place.of(weaponRoom[w]), Weapon.of(w));
+		}
+		return Collections.unmodifiableMap(weapons);
+	}
+
+	/**
+	 * Everything apply() changes, at one position
+	 */
+	private final class Frame {
+		private final int position;
+		private final int[] squares;		//Player ID to Square id
+		private final int playing;		//bit ID set iff Player with ID is playing
+		private final byte[] weapons;
+		private final long[] visited;
+		private final long visitedKey;
+		private final int current;
+		private final int remaining;
+		private final int room;
+
+		private Frame() {
+			this.position = Replay.this.position;
+			this.squares = new int[config.players + 1];
+			int playing = 0;
+			for (int ID = 1; ID <= config.players; ID++) {
+				Player p = board.getPlayer(ID);
+				squares[ID] = p.getLocation().id;
+				playing |= p.isPlaying() ? 1 << ID : 0;
+			}
+			this.playing = playing;
+			this.weapons = weaponRoom.clone();
+			this.visited = Replay.this.visited.toLongArray();
+			this.visitedKey = Replay.this.visitedKey;
+			this.current = Replay.this.current;
+			this.remaining = Replay.this.remaining;
+			this.room = Replay.this.room;
+		}
+
+		private void restore() {
+			board.placeAll(squares);
+			for (int ID = 1; ID <= config.players; ID++) {
+				board.getPlayer(ID).setPlaying((playing & 1 << ID) != 0);
+			}
+			System.arraycopy(weapons, 0, weaponRoom, 0, weapons.length);
+			Replay.this.visited.clear();
+			Replay.this.visited.or(BitSet.valueOf(visited));
+			Replay.this.visitedKey = visitedKey;
+			Replay.this.current = current;
+			Replay.this.remaining = remaining;
+			Replay.this.room = room;
+			Replay.this.position = position;
+		}
+	}
+}
@@ -0,0 +1,83 @@
+package main;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+
+import model.SafeFile;
+
+/**
+ * A game in progress, saved whole and loaded back, see Engine.write() and Engine.read()
+ * <br> -- Board occupancy, hands, seen cards and who is still playing, the solution, weapons, whose turn it is,
+ * remaining steps, visited Squares, every Player's detective notes and the seed
+ * <br> -- a few hundred bytes, written in one go to a temporary file that then replaces the save,
+ * so it is cheap enough to save after every action and a crash never leaves half a save, see SafeFile
+ * <br> File: MAGIC, VERSION, then the game, which starts with the rows and cols of its board
+ * @author Ronni Perez
+ *
+ */
+public final class SaveGame {
+	private static final int MAGIC = 0x434C5356;		//"CLSV"
+	private static final int VERSION = 3;		//bump when Engine.write() changes
+
+	private SaveGame() {
+	}
+
+	/**
+	 * @param engine -- game to save
+	 * @return the save, as written to a file
+	 */
+	public static byte[] encode(Engine engine) {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream(512);
+		try (DataOutputStream out = new DataOutputStream(bytes)) {
+			out.writeInt(MAGIC);
+			out.writeInt(VERSION);
+			engine.write(out);
+		} catch (IOException e) {
+			throw new IllegalStateException("Cannot write to memory", e);		//dead code
+		}
+		return bytes.toByteArray();
+	}
+
+	/**
+	 * Replace the game of engine by a saved one
+	 * @param save -- from encode()
+	 * @param engine -- left as it was if save cannot be read
+	 * @throws IOException -- if save is not a game of this version and board
+	 */
+	public static void decode(byte[] save, Engine engine) throws IOException {
+		try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(save))) {
+			if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+				throw new IOException("Not a saved game of version "+VERSION);
+			}
+			engine.read(in);
+		} catch (RuntimeException e) {		//e.g. a card or room out of range
+			throw new IOException("Saved game is corrupt", e);
+		}
+	}
+
+	/**
+	 * Save to file, see SafeFile
+	 * @param engine -- game to save
+	 * @param file
+	 * @throws IOException
+	 */
+	public static void save(Engine engine, File file) throws IOException {
+		byte[] save = encode(engine);
+		SafeFile.write(file, out -> out.write(save));
+	}
+
+	/**
+	 * Load from file
+	 * @param engine -- left as it was if file cannot be read
+	 * @param file -- written by save()
+	 * @throws IOException
+	 */
+	public static void load(Engine engine, File file) throws IOException {
+		decode(Files.readAllBytes(file.toPath()), engine);
+	}
+}
@@ -0,0 +1,69 @@
+package main;
+
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.List;
+import java.util.SplittableRandom;
+
+import model.Board;
+import model.BoardTopology;
+import model.Card.Place;
+import model.Deduction;
+
+/**
+ * What ONE player may know when a PlayerAgent decides for it, taken when the decision is asked for
+ * </br> A snapshot: the game goes on without waiting for a decision that runs late, so an agent
+ * never sees the Engine itself
+ * @author Ronni Perez
+ *
+ */
+public final class Seat {
+	public final int ID;		//Player ID of this seat
+	public final int players;		//number of players at the beginning
+	public final int current;		//Player ID whose turn it is
+	public final int turn;		//turns started so far
+	public final int hand;		//card mask of the cards this player holds
+	public final Deduction notes;		//copy of this player's notes, free to modify
+	public final BoardTopology topology;		//the board, shared and never changes
+	public final int square;		//Square id this player is on
+	public final Place room;		//room this player is in, null if none
+	public final int remaining;		//move steps left this turn, 0 if not this player's turn
+	public final BitSet visited;		//Squares visited this turn, by Square id, empty if not this player's turn
+	public final BitSet occupied;		//ids of Squares taken by OTHER Players
+	public final boolean canSuggest;		//may suggest now
+	public final boolean canEndTurn;		//may end the turn now
+	public final List<Action> moves;		//legal MOVE actions now, see Engine.legalMoves()
+	public final SplittableRandom rng;		//random numbers of this decision ONLY
+
+	/**
+	 * Constructor
+	 * @param engine -- game in progress
+	 * @param ID -- Player ID
+	 * @param rng -- split off the Table's
+	 */
+	Seat(Engine engine, int ID, SplittableRandom rng) {
+		Board board = engine.getBoard();
+		boolean turn = ID == engine.getCurrent();
+		this.ID = ID;
+		this.players = engine.getPlayers();
+		this.current = engine.getCurrent();
+		this.turn = engine.getTurn();
+		this.hand = board.getPlayer(ID).hand();
+		this.notes = engine.notes(ID).copy();
+		this.topology = board.getTopology();
+		this.square = board.getPlayer(ID).getLocation().id;
+		this.room = board.inRoom(ID);
+		this.remaining = turn ? engine.getRemaining() : 0;
+		this.visited = turn ? (BitSet) engine.visited().clone() : new BitSet();
+		this.occupied = new BitSet();
+		for (int other = 1; other <= players; other++) {		//expelled Players' tokens stay on the board
+			if (other != ID) {
+				occupied.set(board.getPlayer(other).getLocation().id);
+			}
+		}
+		this.canSuggest = turn && engine.canSuggest();
+		this.canEndTurn = turn && engine.canEndTurn();
+		this.moves = turn ? Collections.unmodifiableList(engine.legalMoves()) : Collections.<Action>emptyList();
+		this.rng = rng;
+	}
+}
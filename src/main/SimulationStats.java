@@ -0,0 +1,193 @@
+package main;
+
+import java.util.Locale;
+
+import model.BoardTopology;
+import model.Card.Suspect;
+import model.Square;
+
+/**
+ * Aggregate results of simulated games, see Simulator
+ * </br> Only counts and sums are kept, so merging in any order gives the same result
+ * @author Ronni Perez
+ *
+ */
+public class SimulationStats {
+	private final BoardTopology topology;		//for the start Squares in the report
+	private long games;		//games played
+	private long won;		//games ending with a correct accusation
+	private long cold;		//games ending with everyone expelled
+	private long unfinished;		//games stopped at Simulator.MAX_TURNS
+	private long turns;		//sum of game lengths, in turns
+	private long minTurns = Long.MAX_VALUE;
+	private long maxTurns;
+	private long suggestions;		//sum of suggestions made
+	private long expelled;		//sum of false accusations
+	private final long[] characterGames = new long[Suspect.COUNT];		//character ordinal to games played
+	private final long[] characterWins = new long[Suspect.COUNT];
+	private final long[] startGames;		//index of start Square, see BoardTopology.getCharacter(i), to games played
+	private final long[] startWins;
+	private final long[] seatWins = new long[7];		//Player ID i.e. turn order to wins
+
+	/**
+	 * Constructor
+	 * @param topology -- board the games are played on
+	 */
+	public SimulationStats(BoardTopology topology) {
+		this.topology = topology;
+		this.startGames = new long[topology.starts()];
+		this.startWins = new long[topology.starts()];
+	}
+
+	/**
+	 * Count one game
+	 * @param characters -- character of Player with ID at characters[ID], characters[0] is not used
+	 * @param starts -- start index of Player with ID at starts[ID]
+	 * @param winner -- Player ID, 0 if none
+	 * @param over -- true iff the game ended before Simulator.MAX_TURNS
+	 * @param turns -- number of turns played
+	 * @param suggestions -- number of suggestions made
+	 * @param expelled -- number of false accusations
+	 */
+	void add(Suspect[] characters, int[] starts, int winner, boolean over, int turns, int suggestions, int expelled) {
+		games++;
+		if (winner != 0) {
+			won++;
+			characterWins[characters[winner].ordinal()]++;
+			startWins[starts[winner]]++;
+			seatWins[winner]++;
+		} else if (over) {
+			cold++;
+		} else {
+			unfinished++;
+		}
+		for (int ID = 1; ID < characters.length; ID++) {
+			characterGames[characters[ID].ordinal()]++;
+			startGames[starts[ID]]++;
+		}
+		this.turns += turns;
+		minTurns = Math.min(minTurns, turns);
+		maxTurns = Math.max(maxTurns, turns);
+		this.suggestions += suggestions;
+		this.expelled += expelled;
+	}
+
+	/**
+	 * Add the counts of other into this
+	 * @param other -- same topology
+	 * @return this
+	 */
+	SimulationStats merge(SimulationStats other) {
+		games += other.games;
+		won += other.won;
+		cold += other.cold;
+		unfinished += other.unfinished;
+		turns += other.turns;
+		minTurns = Math.min(minTurns, other.minTurns);
+		maxTurns = Math.max(maxTurns, other.maxTurns);
+		suggestions += other.suggestions;
+		expelled += other.expelled;
+		add(characterGames, other.characterGames);
+		add(characterWins, other.characterWins);
+		add(startGames, other.startGames);
+		add(startWins, other.startWins);
+		add(seatWins, other.seatWins);
+		return this;
+	}
+
+	private static void add(long[] to, long[] from) {
+		for (int i = 0; i < to.length; i++) {
+			to[i] += from[i];
+		}
+	}
+
+	/**
+	 * Fraction of the games with character in it that character won
+	 * @param character
+	 * @return 0 if character never played
+	 */
+	public double winRate(Suspect character) {
+		long n = characterGames[character.ordinal()];
+		return n == 0 ? 0 : (double) characterWins[character.ordinal()] / n;
+	}
+
+	/**
+	 * Fraction of the games with someone on a start Square that they won
+	 * @param start -- index of the start Square, see BoardTopology.getCharacter(i)
+	 * @return 0 if no one started there
+	 */
+	public double startWinRate(int start) {
+		return startGames[start] == 0 ? 0 : (double) startWins[start] / startGames[start];
+	}
+
+	/**
+	 * @param elapsed -- nanoseconds taken to play games()
+	 * @return
+	 */
+	public double gamesPerSecond(long elapsed) {
+		return elapsed <= 0 ? 0 : games * 1e9 / elapsed;
+	}
+
+	//GETTERS
+	public long games() {
+		return games;
+	}
+
+	public long won() {
+		return won;
+	}
+
+	public long cold() {
+		return cold;
+	}
+
+	public long unfinished() {
+		return unfinished;
+	}
+
+	public double meanTurns() {
+		return games == 0 ? 0 : (double) turns / games;
+	}
+
+	public long minTurns() {
+		return games == 0 ? 0 : minTurns;
+	}
+
+	public long maxTurns() {
+		return maxTurns;
+	}
+
+	public double meanSuggestions() {
+		return games == 0 ? 0 : (double) suggestions / games;
+	}
+
+	public long seatWins(int ID) {
+		return seatWins[ID];
+	}
+
+	/**
+	 * Report, one line per figure
+	 */
+	@Override
+	public String toString() {
+		StringBuilder text = new StringBuilder();
+		text.append(String.format(Locale.ROOT, "games %d: won %d, cold %d, unfinished %d%n", games, won, cold, unfinished));
+		text.append(String.format(Locale.ROOT, "turns per game: mean %.2f, min %d, max %d%n", meanTurns(), minTurns(), maxTurns));
+		text.append(String.format(Locale.ROOT, "suggestions per game: %.2f, false accusations per game: %.3f%n",
+				meanSuggestions(), games == 0 ? 0 : (double) expelled / games));
+		for (Suspect s: Suspect.values()) {
+			text.append(String.format(Locale.ROOT, "  %-20s win rate %.4f (%d games)%n", s, winRate(s), characterGames[s.ordinal()]));
+		}
+		for (int i = 0; i < startGames.length; i++) {
+			Square sq = topology.getStart(topology.getCharacter(i));
+			text.append(String.format(Locale.ROOT, "  start {%2d, %2d}         win rate %.4f (%d games)%n",
+					sq.row, sq.col, startWinRate(i), startGames[i]));
+		}
+		for (int ID = 1; ID < seatWins.length; ID++) {
+			if (seatWins[ID] > 0) {
+				text.append(String.format(Locale.ROOT, "  P%d wins %d%n", ID, seatWins[ID]));
+			}
+		}
+		return text.toString();
+	}
+}
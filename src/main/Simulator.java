@@ -0,0 +1,251 @@
+package main;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+import model.BoardTopology;
+import model.Card.Suspect;
+
+/**
+ * Plays whole games with computer players on every core, and reports aggregate results
+ * <br> -- games are split over a ForkJoinPool, each task plays its games on its own Engine
+ * <br> -- game i takes its seed from the master seed and i ONLY, so results do not depend on the split
+ * <br> -- each game's SplittableRandom feeds the Engine and the Policies, no shared RNG is contended
+ * <br> -- every game picks its characters at random, so each character plays from every seat
+ * <br> -- games can be recorded to a Journal, each game is written whole once it is over
+ * <br> Usage: java main.Simulator &lt;games&gt; [players] [seed] [random|greedy] [journal]
+ * @author Ronni Perez
+ *
+ */
+public class Simulator {
+	public static final int MAX_TURNS = 1000;		//a game still going after this many turns is unfinished
+	private static final int MAX_ACTIONS = 50 * MAX_TURNS;		//guards against a Policy that never ends its turn
+	private static final int GAMES_PER_TASK = 32;		//fork-join leaf size
+
+	private final Loader loader;
+	private final BoardTopology topology;
+	private final int players;
+	private final Policy[] policies;		//Player ID - 1 to Policy, cycled if fewer than players
+	private Journal journal;		//where games are recorded, null for nowhere
+
+	/**
+	 * Constructor
+	 * @param loader -- board the games are played on
+	 * @param players -- from 1 to the number of start Squares
+	 * @param policies -- Policy of P1, P2... repeated if fewer than players
+	 */
+	public Simulator(Loader loader, int players, Policy... policies) {
+		if (players < 1 || players > loader.getTopology().starts()) {
+			throw new IllegalArgumentException("Cannot simulate "+players+" players on this board");
+		}
+		if (policies.length == 0) {
+			throw new IllegalArgumentException("Need at least one Policy");
+		}
+		this.loader = loader;
+		this.topology = loader.getTopology();
+		this.players = players;
+		this.policies = policies.clone();
+	}
+
+	/**
+	 * Record every game from now on
+	 * @param journal -- null to stop recording
+	 */
+	public void setJournal(Journal journal) {
+		this.journal = journal;
+	}
+
+	/**
+	 * Play games, reporting the totals so far after every batch
+	 * @param seed -- master seed, the same seed gives the same totals
+	 * @param games -- number of games
+	 * @param batch -- games per report
+	 * @param pool -- where games are played
+	 * @param listener -- gets the totals after every batch, may be null
+	 * @return totals of ALL games
+	 */
+	public SimulationStats run(long seed, long games, long batch, ForkJoinPool pool, Listener listener) {
+		SimulationStats totals = new SimulationStats(topology);
+		long begin = System.nanoTime();
+		for (long lo = 0; lo < games; lo += batch) {
+			totals.merge(pool.invoke(new Batch(seed, lo, Math.min(games, lo + batch))));
+			if (listener != null) {
+				listener.update(totals, System.nanoTime() - begin);
+			}
+		}
+		return totals;
+	}
+
+	/**
+	 * Play games on the common pool, no reports
+	 * @param seed -- master seed
+	 * @param games -- number of games
+	 * @return
+	 */
+	public SimulationStats run(long seed, long games) {
+		return run(seed, games, Math.max(1, games), ForkJoinPool.commonPool(), null);
+	}
+
+	/**
+	 * Seed of game i, splitmix64 of the master seed and i
+	 * @param seed -- master seed
+	 * @param i -- game number
+	 * @return
+	 */
+	static long gameSeed(long seed, long i) {
+		long z = seed + (i + 1) * 0x9E3779B97F4A7C15L;
+		z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+		z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+		return z ^ (z >>> 31);
+	}
+
+	/**
+	 * Play ONE game to the end, or to MAX_TURNS
+	 * @param engine -- reused between games
+	 * @param seed -- seed of this game
+	 * @param stats -- the game is added here
+	 * @param record -- the game is encoded here, null if not recorded
+	 */
+	private void play(Engine engine, long seed, SimulationStats stats, Journal.Encoder record) {
+		SplittableRandom rng = new SplittableRandom(seed);
+		//players take characters at random, the start Square comes with the character
+		int[] starts = new int[players + 1];
+		Suspect[] chars = new Suspect[players + 1];
+		String[] names = new String[players + 1];
+		int[] order = new int[topology.starts()];
+		for (int i = 0; i < order.length; i++) {
+			order[i] = i;
+		}
+		for (int ID = 1; ID <= players; ID++) {		//partial Fisher-Yates shuffle
+			int j = ID - 1 + rng.nextInt(order.length - ID + 1);
+			int t = order[j];
+			order[j] = order[ID - 1];
+			order[ID - 1] = t;
+			starts[ID] = t;
+			chars[ID] = Suspect.parse(topology.getCharacter(t));
+			names[ID] = "P"+ID;
+		}
+
+		int turns = 0;
+		int suggestions = 0;
+		int expelled = 0;
+		int winner = 0;
+		GameConfig config = new GameConfig(names, chars, rng.nextLong());
+		List<Event> events = engine.newGame(config);
+		if (record != null) {
+			record.begin(config);
+		}
+		for (int actions = 0; actions < MAX_ACTIONS && turns <= MAX_TURNS; actions++) {
+			if (record != null) {
+				record.add(events);
+			}
+			for (Event e: events) {
+				switch (e.kind) {
+				case TURN_STARTED: turns++; break;
+				case SUGGESTED: suggestions++; break;
+				case EXPELLED: expelled++; break;
+				case WON: winner = e.player; break;
+				default: break;
+				}
+			}
+			if (engine.isOver()) {
+				break;
+			}
+			Policy policy = policies[(engine.getCurrent() - 1) % policies.length];
+			events = engine.apply(policy.choose(engine, rng));
+		}
+		stats.add(chars, starts, winner, engine.isOver(), turns, suggestions, expelled);
+		if (record != null) {
+			try {
+				journal.write(record);
+			} catch (IOException e) {
+				throw new UncheckedIOException(e);
+			}
+		}
+	}
+
+	/**
+	 * Games lo to hi - 1, split in halves until small enough
+	 */
+	private final class Batch extends RecursiveTask<SimulationStats> {
+		private static final long serialVersionUID = 1L;
+		private final long seed;
+		private final long lo;
+		private final long hi;
+
+		private Batch(long seed, long lo, long hi) {
+			this.seed = seed;
+			this.lo = lo;
+			this.hi = hi;
+		}
+
+		@Override
+		protected SimulationStats compute() {
+			if (hi - lo <= GAMES_PER_TASK) {
+				SimulationStats stats = new SimulationStats(topology);
+				Engine engine = new Engine(loader);
+				Journal.Encoder record = journal == null ? null : new Journal.Encoder(topology);
+				for (long i = lo; i < hi; i++) {
+					play(engine, gameSeed(seed, i), stats, record);
+				}
+				return stats;
+			}
+			long mid = (lo + hi) >>> 1;
+			Batch left = new Batch(seed, lo, mid);
+			left.fork();
+			SimulationStats right = new Batch(seed, mid, hi).compute();
+			return right.merge(left.join());
+		}
+	}
+
+	/**
+	 * Gets results while a simulation runs
+	 */
+	public interface Listener {
+		/**
+		 * @param totals -- results so far, NOT to be kept, it changes after this returns
+		 * @param elapsed -- nanoseconds since the simulation started
+		 */
+		void update(SimulationStats totals, long elapsed);
+	}
+
+	/**
+	 * Main
+	 * @param args -- number of games, then optionally players, master seed, policy and journal file
+	 * @throws IOException -- if the journal cannot be written
+	 */
+	public static void main(String[] args) throws IOException {
+		if (args.length < 1 || args.length > 5) {
+			System.err.println("Usage: java main.Simulator <games> [players] [seed] [random|greedy] [journal]");
+			System.exit(1);
+		}
+		long games = Long.parseLong(args[0]);
+		int players = args.length > 1 ? Integer.parseInt(args[1]) : 6;
+		long seed = args.length > 2 ? Long.parseLong(args[2]) : System.nanoTime();
+		Policy policy = args.length > 3 && args[3].equals("random") ? new RandomPolicy() : new GreedyPolicy();
+		Simulator sim = new Simulator(new Loader(), players, policy);
+		if (!sim.topology.getDistances().isSaved()) {
+			System.err.println("Board distances could not be saved, they will be computed again next launch");
+		}
+		Journal journal = args.length > 4 ? new Journal(new File(args[4]), sim.topology) : null;
+		sim.setJournal(journal);
+		ForkJoinPool pool = ForkJoinPool.commonPool();
+		System.out.println("Simulating "+games+" games of "+players+" players, seed "+seed
+				+", on "+pool.getParallelism()+" threads");
+		sim.run(seed, games, Math.max(1, Math.min(games, 100000)), pool, new Listener() {
+			@Override
+			public void update(SimulationStats totals, long elapsed) {
+				System.out.printf("%n%d games in %.1f s, %.0f games/s%n", totals.games(), elapsed / 1e9, totals.gamesPerSecond(elapsed));
+				System.out.print(totals);
+			}
+		});
+		if (journal != null) {
+			journal.close();
+		}
+	}
+}
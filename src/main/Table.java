@@ -0,0 +1,240 @@
+package main;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import model.Card;
+
+/**
+ * Plays the seats of ONE game that are taken by PlayerAgents, the other seats are left to humans
+ * <br> -- every decision runs on a thread of its own with a Deadline, the game never waits longer than that
+ * <br> -- a decision that is late, throws, or is not legal is replaced by the default decision,
+ * that of a GreedyAgent for the same seat
+ * <br> -- a late decision is cancelled: its Deadline expires and its thread is interrupted
+ * <br> -- agents also pick the card their seat shows to refute, see Engine.setRefuter()
+ * @author Ronni Perez
+ *
+ */
+public class Table implements Engine.Refuter {
+	public static final long TIMEOUT = 1000;		//default milliseconds per decision
+	private static final int MAX_ACTIONS = 50 * Simulator.MAX_TURNS;		//play() gives up after this many
+	private static final AtomicInteger THREADS = new AtomicInteger();		//names agent threads
+
+	private final Engine engine;
+	private final PlayerAgent[] agents;		//Player ID to agent, null for a human
+	private final PlayerAgent[] fallbacks;		//Player ID to the default decisions
+	private final long timeout;		//nanoseconds per decision
+	private final ExecutorService threads;		//one thread per decision in progress
+	private final SplittableRandom rng;
+	private int accuseAsked;		//turn in which the current agent was last asked to accuse
+	private int suggestDeclined;		//turn in which the current agent chose not to suggest
+	private int late;		//decisions replaced because of the deadline
+	private int failed;		//decisions replaced because they threw or were not legal
+
+	/**
+	 * Constructor, call after Engine.newGame()
+	 * @param engine -- game to play, its Refuter is set to this
+	 * @param agents -- Player ID to agent, null for a human, index 0 unused
+	 * @param timeout -- milliseconds per decision
+	 */
+	public Table(Engine engine, PlayerAgent[] agents, long timeout) {
+		this.engine = engine;
+		this.agents = agents.clone();
+		this.fallbacks = new PlayerAgent[agents.length];
+		for (int ID = 1; ID < agents.length; ID++) {
+			if (agents[ID] != null) {
+				fallbacks[ID] = new GreedyAgent();
+			}
+		}
+		this.timeout = TimeUnit.MILLISECONDS.toNanos(timeout);
+		this.threads = Executors.newCachedThreadPool(new ThreadFactory() {
+			@Override
+			public Thread newThread(Runnable r) {
+				Thread t = new Thread(r, "agent-"+THREADS.incrementAndGet());
+				t.setDaemon(true);		//a runaway agent must not keep the program alive
+				return t;
+			}
+		});
+		this.rng = new SplittableRandom(engine.getSeed()).split();
+		engine.setRefuter(this);
+	}
+
+	/**
+	 * @param ID -- Player ID
+	 * @return true iff an agent plays the seat
+	 */
+	public boolean isAgent(int ID) {
+		return agents[ID] != null;
+	}
+
+	/**
+	 * @return true iff the game is on and it is an agent's turn
+	 */
+	public boolean isAgentTurn() {
+		return !engine.isOver() && isAgent(engine.getCurrent());
+	}
+
+	/**
+	 * Next action of the agent whose turn it is: accuse at the start of a turn, suggest if it can,
+	 * otherwise move
+	 * </br> Does NOT apply the action, so that a GUI can decide off its event thread and apply on it
+	 * @return an action to apply, see Engine.apply()
+	 */
+	public Action decide() {
+		int ID = engine.getCurrent();
+		int turn = engine.getTurn();
+		PlayerAgent agent = agents[ID];
+		if (accuseAsked != turn) {
+			accuseAsked = turn;
+			Seat seat = seat(ID);
+			Action accuse = ask(d -> agent.accuse(seat, d), seat, Decision.ACCUSE);
+			if (accuse != null) {
+				return accuse;
+			}
+		}
+		if (engine.canSuggest() && suggestDeclined != turn) {
+			Seat seat = seat(ID);
+			Action suggest = ask(d -> agent.suggest(seat, d), seat, Decision.SUGGEST);
+			if (suggest != null) {
+				return suggest;
+			}
+			suggestDeclined = turn;
+		}
+		Seat seat = seat(ID);
+		return ask(d -> agent.move(seat, d), seat, Decision.MOVE);
+	}
+
+	/**
+	 * Decide and apply ONE action of the agent whose turn it is
+	 * @return events, see Engine.apply()
+	 */
+	public List<Event> step() {
+		return engine.apply(decide());
+	}
+
+	/**
+	 * Play the agents' turns until a human's turn or the end of the game
+	 * @return every event, in order
+	 */
+	public List<Event> play() {
+		List<Event> events = new ArrayList<Event>();
+		for (int actions = 0; actions < MAX_ACTIONS && isAgentTurn(); actions++) {
+			events.addAll(step());
+		}
+		return events;
+	}
+
+	@Override
+	public int show(int ID, int held) {
+		if (!isAgent(ID)) {
+			return Card.NONE;		//humans show a card at random, as always
+		}
+		PlayerAgent agent = agents[ID];
+		int suggester = engine.getCurrent();
+		Seat seat = seat(ID);
+		Deadline deadline = new Deadline(timeout);
+		Integer card = call(() -> agent.showCard(seat, suggester, held, deadline), deadline);
+		if (card == null || (Card.bit(card) & held) == 0) {
+			if (card != null) {failed++;}
+			Deadline never = Deadline.never();
+			card = fallbacks[ID].showCard(seat, suggester, held, never);
+		}
+		return card;
+	}
+
+	/**
+	 * Stop the threads, call when the game is over
+	 */
+	public void close() {
+		threads.shutdownNow();
+		engine.setRefuter(null);
+	}
+
+	//decisions replaced because of the deadline
+	public int late() {
+		return late;
+	}
+
+	//decisions replaced because they threw or were not legal
+	public int failed() {
+		return failed;
+	}
+
+	private Seat seat(int ID) {
+		return new Seat(engine, ID, rng.split());
+	}
+
+	/**
+	 * Ask for a turn decision within the deadline, the default one if it is late, throws or is not legal
+	 * @param decision -- calls the agent
+	 * @param seat -- what the agent was given
+	 * @param kind -- which decision
+	 * @return null iff the decision is not to accuse or not to suggest
+	 */
+	private Action ask(Function<Deadline, Action> decision, Seat seat, Decision kind) {
+		Deadline deadline = new Deadline(timeout);
+		int misses = late + failed;
+		Action action = call(() -> decision.apply(deadline), deadline);
+		if (action != null && !kind.allows(action, seat)) {
+			failed++;
+		} else if (late + failed == misses && (action != null || kind != Decision.MOVE)) {
+			return action;
+		}
+		Deadline never = Deadline.never();
+		PlayerAgent fallback = fallbacks[seat.ID];
+		switch (kind) {
+		case ACCUSE: return fallback.accuse(seat, never);
+		case SUGGEST: return fallback.suggest(seat, never);
+		default: return fallback.move(seat, never);
+		}
+	}
+
+	/**
+	 * Run a decision on its own thread, wait at most until the deadline
+	 * @param decision
+	 * @param deadline -- cancelled once this returns
+	 * @return the answer, null if late or if it threw
+	 */
+	private <T> T call(Callable<T> decision, Deadline deadline) {
+		Future<T> answer = threads.submit(decision);
+		try {
+			return answer.get(deadline.remaining(), TimeUnit.NANOSECONDS);
+		} catch (TimeoutException e) {
+			late++;
+		} catch (ExecutionException e) {
+			failed++;
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		} finally {
+			deadline.cancel();
+			answer.cancel(true);
+		}
+		return null;
+	}
+
+	/**
+	 * The decisions of a turn, and which answers are legal
+	 */
+	private enum Decision {
+		ACCUSE, SUGGEST, MOVE;
+
+		private boolean allows(Action action, Seat seat) {
+			switch (this) {
+			case ACCUSE: return action.kind == Action.Kind.ACCUSE;
+			case SUGGEST: return action.kind == Action.Kind.SUGGEST && seat.canSuggest;
+			default: return action.kind == Action.Kind.END_TURN ? seat.canEndTurn : seat.moves.contains(action);
+			}
+		}
+	}
+}
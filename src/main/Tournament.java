@@ -0,0 +1,559 @@
+package main;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Function;
+
+import model.BoardTopology;
+import model.Card.Suspect;
+import model.SafeFile;
+
+/**
+ * Ranks PlayerAgents by playing them against each other
+ * <br> -- ROUND_ROBIN: every group of 'seats' entrants meets once, in ONE round
+ * <br> -- SWISS: 'rounds' rounds, each groups entrants of similar standing, the next round is paired
+ * once the last is over
+ * <br> -- a group plays one game per seat rotation and start Square, so every entrant of the group
+ * plays from every seat and as every starting character, see Board.positionPlayers()
+ * <br> -- games are played by a fixed number of workers, their results are applied in game order
+ * as they come in, so standings are up to date and do not depend on the number of workers
+ * <br> -- Elo: a game counts as won against every other seat, drawn between the others,
+ * and drawn by all if no one wins
+ * <br> -- progress is saved to a checkpoint file every CHECKPOINT_INTERVAL, at the end of every round and
+ * when run() returns, run() picks up from the checkpoint of the same tournament
+ * <br> Usage: java main.Tournament &lt;checkpoint&gt; &lt;roundrobin|swiss&gt; &lt;seats&gt; &lt;rounds&gt; &lt;seed&gt; &lt;workers&gt; &lt;entrant&gt;...
+ * <br> where an entrant is an agent name, or label:agent to enter the same agent more than once
+ * @author Ronni Perez
+ *
+ */
+public class Tournament {
+	public static final double INITIAL_ELO = 1500;
+	private static final double K = 32;		//Elo points at stake per game
+	private static final long CHECKPOINT_INTERVAL = 30000;		//milliseconds between checkpoints
+	private static final int MAGIC = 0x434C5452;		//"CLTR"
+	private static final int VERSION = 1;
+
+	/**
+	 * How groups are drawn
+	 */
+	public enum Format {ROUND_ROBIN, SWISS}
+
+	private final Loader loader;
+	private final BoardTopology topology;
+	private final Format format;
+	private final int seats;		//players per game, 3 to 6
+	private final int rounds;		//1 for ROUND_ROBIN
+	private final String[] entrants;
+	private final long seed;
+	private final Standing[] standings;		//entrant index to results so far
+	private Function<String, PlayerAgent> agents = Tournament::agent;		//entrant to a new agent of it
+	private long timeout = Table.TIMEOUT;		//milliseconds per decision
+
+	//progress, saved in the checkpoint
+	private int round;		//round being played, rounds once finished
+	private List<int[]> groups;		//entrant indices of each group of the round, null until drawn
+	private long done;		//games of the round applied, in game order
+
+	/**
+	 * Constructor
+	 * @param loader -- board the games are played on
+	 * @param format -- ROUND_ROBIN or SWISS
+	 * @param seats -- players per game, 3 to 6
+	 * @param rounds -- rounds of a SWISS tournament, ignored for ROUND_ROBIN
+	 * @param entrants -- agent names, or label:agent, at least seats of them, all different
+	 * @param seed -- master seed, the same seed plays the same games
+	 */
+	public Tournament(Loader loader, Format format, int seats, int rounds, List<String> entrants, long seed) {
+		this.loader = loader;
+		this.topology = loader.getTopology();
+		if (seats < 3 || seats > Math.min(6, topology.starts())) {
+			throw new IllegalArgumentException("Games need 3 to 6 seats, not "+seats);
+		}
+		if (entrants.size() < seats || entrants.size() != entrants.stream().distinct().count()) {
+			throw new IllegalArgumentException("Need at least "+seats+" different entrants: "+entrants);
+		}
+		if (format == Format.SWISS && rounds < 1) {
+			throw new IllegalArgumentException("Need at least one round");
+		}
+		this.format = format;
+		this.seats = seats;
+		this.rounds = format == Format.ROUND_ROBIN ? 1 : rounds;
+		this.entrants = entrants.toArray(new String[0]);
+		this.seed = seed;
+		this.standings = new Standing[this.entrants.length];
+		for (int i = 0; i < standings.length; i++) {
+			standings[i] = new Standing(this.entrants[i]);
+		}
+	}
+
+	/**
+	 * Where agents come from, PlayerAgent.load() of the name after any label by default
+	 * @param agents -- entrant to a NEW agent, called once per seat per game from the workers
+	 */
+	public void setAgents(Function<String, PlayerAgent> agents) {
+		this.agents = agents;
+	}
+
+	/**
+	 * @param timeout -- milliseconds per decision, see Table
+	 */
+	public void setTimeout(long timeout) {
+		this.timeout = timeout;
+	}
+
+	/**
+	 * Play, picking up from checkpoint if it holds this tournament
+	 * @param workers -- games played at once
+	 * @param checkpoint -- saved to and resumed from, null for none
+	 * @param limit -- stop after this many games, to play the rest later
+	 * @param listener -- gets the standings at every checkpoint and the end of every round, may be null
+	 * @return true iff the tournament is finished
+	 * @throws IOException -- if checkpoint cannot be read or written, or belongs to another tournament
+	 */
+	public boolean run(int workers, File checkpoint, long limit, Listener listener) throws IOException {
+		if (checkpoint != null && checkpoint.exists()) {
+			load(checkpoint);
+		}
+		ExecutorService pool = Executors.newFixedThreadPool(workers);
+		CompletionService<Result> results = new ExecutorCompletionService<Result>(pool);
+		long saved = System.currentTimeMillis();
+		long played = 0;
+		try {
+			while (round < rounds && played < limit) {
+				if (groups == null) {
+					groups = draw();
+				}
+				long total = (long) groups.size() * gamesPerGroup();
+				long stop = done + Math.min(total - done, limit - played);		//end of this run in this round
+				long next = done;
+				int running = 0;
+				Map<Long, Result> ready = new HashMap<Long, Result>();		//finished out of order
+				while (done < stop) {
+					for (; running < 2 * workers && next < stop; running++, next++) {		//keep the queue short
+						final long game = next;
+						results.submit(() -> play(game));
+					}
+					Result r = results.take().get();
+					running--;
+					ready.put(r.game, r);
+					for (Result in = ready.remove(done); in != null; in = ready.remove(done)) {
+						apply(in);
+						done++;
+						played++;
+					}
+					if (checkpoint != null && System.currentTimeMillis() - saved > CHECKPOINT_INTERVAL) {
+						save(checkpoint);
+						saved = System.currentTimeMillis();
+						if (listener != null) {listener.update(this);}
+					}
+				}
+				if (done == total) {		//round over, draw the next one later
+					round++;
+					groups = null;
+					done = 0;
+					if (checkpoint != null) {
+						save(checkpoint);
+						saved = System.currentTimeMillis();
+					}
+					if (listener != null) {listener.update(this);}
+				}
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();		//stop, what was applied is saved below
+		} catch (ExecutionException e) {
+			throw new IllegalStateException("A game failed", e.getCause());
+		} finally {
+			pool.shutdownNow();
+			if (checkpoint != null) {
+				save(checkpoint);
+			}
+		}
+		return isFinished();
+	}
+
+	/**
+	 * Groups of the round about to start
+	 * @return entrant indices of every group
+	 */
+	private List<int[]> draw() {
+		List<int[]> drawn = new ArrayList<int[]>();
+		int n = entrants.length;
+		if (format == Format.ROUND_ROBIN) {		//every combination, in order
+			int[] c = new int[seats];
+			for (int i = 0; i < seats; i++) {
+				c[i] = i;
+			}
+			while (true) {
+				drawn.add(c.clone());
+				int i = seats - 1;
+				while (i >= 0 && c[i] == n - seats + i) {
+					i--;
+				}
+				if (i < 0) {
+					return drawn;
+				}
+				c[i]++;
+				for (int j = i + 1; j < seats; j++) {
+					c[j] = c[j - 1] + 1;
+				}
+			}
+		}
+		//SWISS: best first, by wins then Elo, the first round at random
+		Integer[] order = new Integer[n];
+		for (int i = 0; i < n; i++) {
+			order[i] = i;
+		}
+		if (round == 0) {
+			SplittableRandom rng = new SplittableRandom(seed);
+			for (int i = n - 1; i > 0; i--) {
+				int j = rng.nextInt(i + 1);
+				Integer t = order[i];
+				order[i] = order[j];
+				order[j] = t;
+			}
+		} else {
+			Arrays.sort(order, Comparator.comparing((Integer i) -> standings[i]).thenComparing(i -> i));
+		}
+		//tables of seats from the top, the rest play a smaller table, or sit out if fewer than 3
+		for (int i = 0; i + 3 <= n; i += seats) {
+			int size = Math.min(seats, n - i);
+			int[] group = new int[size];
+			for (int j = 0; j < size; j++) {
+				group[j] = order[i + j];
+			}
+			drawn.add(group);
+		}
+		return drawn;
+	}
+
+	/**
+	 * @return games played by every group, one per seat rotation and start offset
+	 */
+	private int gamesPerGroup() {
+		return seats * topology.starts();
+	}
+
+	/**
+	 * Play game number 'game' of the round
+	 * @param game
+	 * @return
+	 */
+	private Result play(long game) {
+		int[] group = groups.get((int) (game / gamesPerGroup()));
+		int k = group.length;
+		int i = (int) (game % gamesPerGroup());
+		int rotation = i / topology.starts() % k;		//a smaller group repeats rotations
+		int offset = i % topology.starts();
+		int[] entrant = new int[k + 1];		//Player ID to entrant index
+		String[] names = new String[k + 1];
+		Suspect[] chars = new Suspect[k + 1];
+		PlayerAgent[] seated = new PlayerAgent[k + 1];
+		for (int ID = 1; ID <= k; ID++) {
+			entrant[ID] = group[(ID - 1 + rotation) % k];
+			names[ID] = entrants[entrant[ID]];
+			chars[ID] = Suspect.parse(topology.getCharacter((ID - 1 + offset) % topology.starts()));
+			seated[ID] = agents.apply(names[ID]);
+			if (seated[ID] == null) {
+				throw new IllegalArgumentException("No agent for entrant "+names[ID]);
+			}
+		}
+		Engine engine = new Engine(loader);
+		long gameSeed = Simulator.gameSeed(Simulator.gameSeed(seed, round), game);
+		engine.newGame(new GameConfig(names, chars, gameSeed));
+		Table table = new Table(engine, seated, timeout);
+		int winner = 0;
+		try {
+			for (Event e: table.play()) {
+				if (e.kind == Event.Kind.WON) {
+					winner = e.player;
+				}
+			}
+		} finally {
+			table.close();
+		}
+		return new Result(game, entrant, winner);
+	}
+
+	/**
+	 * Update the standings with one game, Elo changes are worked out from the ratings before it
+	 * @param result
+	 */
+	private void apply(Result result) {
+		int k = result.entrant.length - 1;
+		double[] before = new double[k + 1];
+		for (int ID = 1; ID <= k; ID++) {
+			before[ID] = standings[result.entrant[ID]].elo;
+		}
+		for (int ID = 1; ID <= k; ID++) {
+			double delta = 0;
+			for (int other = 1; other <= k; other++) {
+				if (other == ID) {continue;}
+				double score = ID == result.winner ? 1 : other == result.winner ? 0 : 0.5;
+				double expected = 1 / (1 + Math.pow(10, (before[other] - before[ID]) / 400));
+				delta += score - expected;
+			}
+			Standing s = standings[result.entrant[ID]];
+			s.elo += K * delta / (k - 1);
+			s.games++;
+			if (ID == result.winner) {
+				s.wins++;
+			} else if (result.winner == 0) {
+				s.draws++;
+			}
+		}
+	}
+
+	/**
+	 * Save progress, see SafeFile, so a crash never leaves half a checkpoint
+	 * @param file
+	 * @throws IOException
+	 */
+	private void save(File file) throws IOException {
+		SafeFile.write(file, out -> {
+			writeHeader(out);
+			out.writeInt(round);
+			out.writeLong(done);
+			out.writeInt(groups == null ? -1 : groups.size());
+			if (groups != null) {
+				for (int[] group: groups) {
+					out.writeByte(group.length);
+					for (int e: group) {
+						out.writeShort(e);
+					}
+				}
+			}
+			for (Standing s: standings) {
+				out.writeDouble(s.elo);
+				out.writeLong(s.games);
+				out.writeLong(s.wins);
+				out.writeLong(s.draws);
+			}
+		});
+	}
+
+	/**
+	 * Pick up progress saved by save()
+	 * @param file
+	 * @throws IOException -- if file is not a checkpoint of this tournament
+	 */
+	private void load(File file) throws IOException {
+		try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+			if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+				throw new IOException(file+" is not a tournament checkpoint of version "+VERSION);
+			}
+			if (in.readInt() != format.ordinal() || in.readInt() != seats || in.readInt() != rounds
+					|| in.readLong() != seed || in.readInt() != entrants.length) {
+				throw new IOException(file+" belongs to another tournament");
+			}
+			for (String e: entrants) {
+				if (!in.readUTF().equals(e)) {
+					throw new IOException(file+" belongs to another tournament");
+				}
+			}
+			round = in.readInt();
+			done = in.readLong();
+			int n = in.readInt();
+			groups = n < 0 ? null : new ArrayList<int[]>(n);
+			for (int i = 0; i < n; i++) {
+				int[] group = new int[in.readByte()];
+				for (int j = 0; j < group.length; j++) {
+					group[j] = in.readShort();
+				}
+				groups.add(group);
+			}
+			for (Standing s: standings) {
+				s.elo = in.readDouble();
+				s.games = in.readLong();
+				s.wins = in.readLong();
+				s.draws = in.readLong();
+			}
+		}
+	}
+
+	private void writeHeader(DataOutputStream out) throws IOException {
+		out.writeInt(MAGIC);
+		out.writeInt(VERSION);
+		out.writeInt(format.ordinal());
+		out.writeInt(seats);
+		out.writeInt(rounds);
+		out.writeLong(seed);
+		out.writeInt(entrants.length);
+		for (String e: entrants) {
+			out.writeUTF(e);
+		}
+	}
+
+	/**
+	 * Default agents: the name after any label
+	 * @param entrant
+	 * @return
+	 */
+	private static PlayerAgent agent(String entrant) {
+		return PlayerAgent.load(entrant.substring(entrant.indexOf(':') + 1));
+	}
+
+	/**
+	 * @return true iff every round has been played
+	 */
+	public boolean isFinished() {
+		return round >= rounds;
+	}
+
+	/**
+	 * @return round being played, counting from 0
+	 */
+	public int round() {
+		return round;
+	}
+
+	/**
+	 * @return standings, best first
+	 */
+	public Standing[] standings() {
+		Standing[] sorted = new Standing[standings.length];
+		for (int i = 0; i < standings.length; i++) {
+			sorted[i] = standings[i].copy();
+		}
+		Arrays.sort(sorted);
+		return sorted;
+	}
+
+	/**
+	 * Standings, one line per entrant
+	 */
+	@Override
+	public String toString() {
+		StringBuilder text = new StringBuilder();
+		text.append(String.format(Locale.ROOT, "%s, %d seats, round %d of %d%n", format, seats, Math.min(round + 1, rounds), rounds));
+		for (Standing s: standings()) {
+			text.append(s).append(String.format("%n"));
+		}
+		return text.toString();
+	}
+
+	/**
+	 * Results of ONE entrant
+	 */
+	public static final class Standing implements Comparable<Standing> {
+		public final String name;
+		private double elo = INITIAL_ELO;
+		private long games;
+		private long wins;
+		private long draws;		//games no one won
+
+		private Standing(String name) {
+			this.name = name;
+		}
+
+		private Standing copy() {
+			Standing s = new Standing(name);
+			s.elo = elo;
+			s.games = games;
+			s.wins = wins;
+			s.draws = draws;
+			return s;
+		}
+
+		/**
+		 * Most wins first, then highest Elo
+		 */
+		@Override
+		public int compareTo(Standing other) {
+			int c = Long.compare(other.wins, wins);
+			return c != 0 ? c : Double.compare(other.elo, elo);
+		}
+
+		//GETTERS
+		public double elo() {
+			return elo;
+		}
+
+		public long games() {
+			return games;
+		}
+
+		public long wins() {
+			return wins;
+		}
+
+		public long draws() {
+			return draws;
+		}
+
+		public double winRate() {
+			return games == 0 ? 0 : (double) wins / games;
+		}
+
+		@Override
+		public String toString() {
+			return String.format(Locale.ROOT, "  %-20s Elo %7.1f  won %d of %d (%.4f), %d drawn", name, elo, wins, games, winRate(), draws);
+		}
+	}
+
+	/**
+	 * Outcome of ONE game
+	 */
+	private static final class Result {
+		private final long game;		//number in the round
+		private final int[] entrant;		//Player ID to entrant index
+		private final int winner;		//Player ID, 0 if none
+
+		private Result(long game, int[] entrant, int winner) {
+			this.game = game;
+			this.entrant = entrant;
+			this.winner = winner;
+		}
+	}
+
+	/**
+	 * Gets the standings while a tournament runs
+	 */
+	public interface Listener {
+		/**
+		 * @param tournament -- see toString() and standings()
+		 */
+		void update(Tournament tournament);
+	}
+
+	/**
+	 * Main
+	 * @param args -- see the class comment
+	 */
+	public static void main(String[] args) throws IOException {
+		if (args.length < 7) {
+			System.err.println("Usage: java main.Tournament <checkpoint> <roundrobin|swiss> <seats> <rounds> <seed> <workers> <entrant>...");
+			System.err.println("Agents: "+PlayerAgent.names());
+			System.exit(1);
+		}
+		Format format = args[1].equalsIgnoreCase("swiss") ? Format.SWISS : Format.ROUND_ROBIN;
+		Tournament t = new Tournament(new Loader(), format, Integer.parseInt(args[2]), Integer.parseInt(args[3]),
+				Arrays.asList(args).subList(6, args.length), Long.parseLong(args[4]));
+		if (!t.topology.getDistances().isSaved()) {
+			System.err.println("Board distances could not be saved, they will be computed again next launch");
+		}
+		t.run(Integer.parseInt(args[5]), new File(args[0]), Long.MAX_VALUE, new Listener() {
+			@Override
+			public void update(Tournament tournament) {
+				System.out.print(tournament);
+			}
+		});
+		System.out.print(t);
+	}
+}
@@ -0,0 +1,283 @@
+package model;
+
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.util.Arrays;
+
+/**
+ * Compressed sparse row (CSR) adjacency of the Board, built once by the Board
+ * <br> -- every Square is keyed by its id i.e. row*cols+col
+ * <br> -- all Squares of one Room share a single neighbour list, kept under the Room's first Square
+ * <br> -- a Room is listed as a neighbour ONCE, using the id of its first Square
+ * <br> -- neighbour tests and iteration are O(degree) and never allocate
+ * @author Ronni Perez
+ *
+ */
+public final class Adjacency {
+	private final int rows;
+	private final int cols;
+	private final int[] canon;		//square id to id of the Square that owns its neighbour list
+	private final int[] offsets;		//canon id to start of its neighbours in targets, length size()+1
+	private final int[] targets;		//neighbour ids (canonical), sorted per Square
+	private final int[] groupOffsets;		//canon id to start of its members in members, length size()+1
+	private final int[] members;		//square ids grouped by canon id i.e. every Square of a Room
+
+	private Adjacency(int rows, int cols, int[] canon, int[] offsets, int[] targets, int[] groupOffsets, int[] members) {
+		this.rows = rows;
+		this.cols = cols;
+		this.canon = canon;
+		this.offsets = offsets;
+		this.targets = targets;
+		this.groupOffsets = groupOffsets;
+		this.members = members;
+	}
+
+	/**
+	 * Square id of row,col
+	 * Assume row,col will NEVER go out of bounds
+	 * @param row
+	 * @param col
+	 * @return
+	 */
+	public int id(int row, int col) {
+		return row * cols + col;
+	}
+
+	public int row(int id) {
+		return id / cols;
+	}
+
+	public int col(int id) {
+		return id % cols;
+	}
+
+	/**
+	 * @param row
+	 * @param col
+	 * @return true iff row,col is inside the board
+	 */
+	public boolean inBounds(int row, int col) {
+		return row >= 0 && row < rows && col >= 0 && col < cols;
+	}
+
+	/**
+	 * Id of the Square that owns the neighbour list of Square with id
+	 * <br> This is the first Square of a Room OR the Square itself if not part of a Room
+	 * @param id
+	 * @return
+	 */
+	public int canonical(int id) {
+		return canon[id];
+	}
+
+	/**
+	 * Index into target() of the first neighbour of Square with id
+	 * @param id
+	 * @return
+	 */
+	public int start(int id) {
+		return offsets[canon[id]];
+	}
+
+	/**
+	 * Index into target() after the last neighbour of Square with id
+	 * @param id
+	 * @return
+	 */
+	public int end(int id) {
+		return offsets[canon[id] + 1];
+	}
+
+	/**
+	 * Neighbour at index i, in between start(id) and end(id)
+	 * @param i
+	 * @return canonical id of the neighbour
+	 */
+	public int target(int i) {
+		return targets[i];
+	}
+
+	/**
+	 * Index into member() of the first Square grouped with canonical id
+	 * @param canonId -- a value returned by canonical() or target()
+	 * @return
+	 */
+	public int groupStart(int canonId) {
+		return groupOffsets[canonId];
+	}
+
+	/**
+	 * Index into member() after the last Square grouped with canonical id
+	 * @param canonId -- a value returned by canonical() or target()
+	 * @return
+	 */
+	public int groupEnd(int canonId) {
+		return groupOffsets[canonId + 1];
+	}
+
+	/**
+	 * Square id at index i, in between groupStart(canonId) and groupEnd(canonId)
+	 * @param i
+	 * @return
+	 */
+	public int member(int i) {
+		return members[i];
+	}
+
+	/**
+	 * Checks if Square with id 'to' is a neighbour of Square with id 'from'
+	 * @param from
+	 * @param to
+	 * @return true iff 'to' (or the Room it is part of) is a neighbour of 'from'
+	 */
+	public boolean contains(int from, int to) {
+		int key = canon[to];
+		int c = canon[from];
+		//neighbour lists are short and sorted, linear scan is enough
+		for (int i = offsets[c]; i < offsets[c + 1]; i++) {
+			if (targets[i] == key) {
+				return true;
+			} else if (targets[i] > key) {
+				return false;
+			}
+		}
+		return false;
+	}
+
+	//GETTERS
+	public int rows() {
+		return rows;
+	}
+
+	public int cols() {
+		return cols;
+	}
+
+	public int size() {
+		return canon.length;
+	}
+
+	/**
+	 * Number of bytes put() needs
+	 * @return
+	 */
+	int bytes() {
+		return 4 * (3 + canon.length + offsets.length + targets.length + groupOffsets.length + members.length);
+	}
+
+	/**
+	 * Write the compacted arrays as they are, see BoardFile
+	 * @param out -- position is moved past what is written
+	 */
+	void put(ByteBuffer out) {
+		out.putInt(rows).putInt(cols).putInt(targets.length);
+		IntBuffer ints = out.asIntBuffer();
+		ints.put(canon).put(offsets).put(targets).put(groupOffsets).put(members);
+		out.position(out.position() + 4 * ints.position());
+	}
+
+	/**
+	 * Read arrays written by put() with bulk copies, nothing is rebuilt
+	 * @param in -- position is moved past what is read
+	 * @return
+	 */
+	static Adjacency get(ByteBuffer in) {
+		int rows = in.getInt();
+		int cols = in.getInt();
+		int edges = in.getInt();
+		int size = rows * cols;
+		IntBuffer ints = in.asIntBuffer();
+		int[] canon = new int[size];
+		int[] offsets = new int[size + 1];
+		int[] targets = new int[edges];
+		int[] groupOffsets = new int[size + 1];
+		int[] members = new int[size];
+		ints.get(canon).get(offsets).get(targets).get(groupOffsets).get(members);
+		in.position(in.position() + 4 * ints.position());
+		return new Adjacency(rows, cols, canon, offsets, targets, groupOffsets, members);
+	}
+
+	/**
+	 * Collects neighbour pairs during Board construction and compacts them
+	 * @author Ronni Perez
+	 *
+	 */
+	public static final class Builder {
+		private final int rows;
+		private final int cols;
+		private final int[] canon;
+		private long[] edges;		//packed from << 32 | to
+		private int count;
+
+		public Builder(int rows, int cols) {
+			this.rows = rows;
+			this.cols = cols;
+			this.canon = new int[rows * cols];
+			for (int id = 0; id < canon.length; id++) {
+				canon[id] = id;		//every Square owns its list until grouped
+			}
+			this.edges = new long[rows * cols * 4];
+			this.count = 0;
+		}
+
+		/**
+		 * Make Square with id share the neighbour list of Square with canonId
+		 * Used by the Board to group all Squares of a Room
+		 * @param id
+		 * @param canonId
+		 */
+		public void group(int id, int canonId) {
+			canon[id] = canonId;
+		}
+
+		/**
+		 * Add 'to' as a neighbour of 'from'
+		 * Duplicates and neighbours within the same group are ignored
+		 * @param from
+		 * @param to
+		 */
+		public void add(int from, int to) {
+			int f = canon[from];
+			int t = canon[to];
+			if (f == t) {return;}
+			if (count == edges.length) {
+				edges = Arrays.copyOf(edges, count * 2);
+			}
+			edges[count++] = ((long) f << 32) | t;
+		}
+
+		public Adjacency build() {
+			int size = canon.length;
+			long[] sorted = Arrays.copyOf(edges, count);
+			Arrays.sort(sorted);		//group by 'from', sorted by 'to'
+
+			int[] offsets = new int[size + 1];
+			int[] targets = new int[count];
+			int n = 0;
+			long last = -1;
+			for (long e : sorted) {
+				if (e == last) {continue;}		//duplicate
+				last = e;
+				offsets[(int) (e >>> 32) + 1]++;
+				targets[n++] = (int) e;
+			}
+			for (int id = 0; id < size; id++) {
+				offsets[id + 1] += offsets[id];
+			}
+
+			int[] groupOffsets = new int[size + 1];
+			for (int id = 0; id < size; id++) {
+				groupOffsets[canon[id] + 1]++;
+			}
+			for (int id = 0; id < size; id++) {
+				groupOffsets[id + 1] += groupOffsets[id];
+			}
+			int[] members = new int[size];
+			int[] fill = Arrays.copyOf(groupOffsets, size);
+			for (int id = 0; id < size; id++) {
+				members[fill[canon[id]]++] = id;
+			}
+			return new Adjacency(rows, cols, canon.clone(), offsets, Arrays.copyOf(targets, n), groupOffsets, members);
+		}
+	}
+}
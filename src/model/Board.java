@@ -1,258 +1,87 @@
 package model;
 
+import java.util.BitSet;
 import java.util.HashMap;
 import java.util.Map;
-import java.util.Set;
 
-import model.Square.Type;
+import model.Card.Place;
+import model.Card.Suspect;
 
 /**
  * Cluedo Board
+ * <br> This is the state of ONE game i.e. Players and which Squares they occupy
+ * <br> The layout itself is a BoardTopology, shared by every game
  * @author Ronni Perez
  *
  */
 public class Board {
-	private Square[][] squares;		//internal data representation
+	public static final int FREE = 0;		//occupant of a Square that no Player is on
+	
+	private final BoardTopology topology;		//static layout, shared
+	private final Adjacency adjacency;		//same as topology.getAdjacency()
+	private final RoomIndex rooms;		//same as topology.getRooms()
+	private final byte[] occupants;		//square id to ID of the occupying Player, FREE if none
+	private final int[] cursors;		//room to where the next free Square search starts
+	private final BitSet occupied;		//ids of Squares taken by a Player
+	private long tokenKey;		//Zobrist key of which Player is on which Square, updated on every move, also keys occupied
+	private final long[] roomKeys;		//room to Zobrist key of all its Squares visited, 0 until first needed
+	private Reachability reach;		//multi-step moves, cached, created when first needed
 	private Map <Integer, Player> characters;
+	private final Player[] bySuspect;		//character ordinal to the Player portraying it, null if none
 
 	/**
 	 * FOR TESTING PURPOSES ONLY
-	 * @param arr -- string representation of Board
+	 * @param topology -- static layout, see Loader.getTopology()
 	 * @param players -- number of players initially playing the game
 	 */
-	public Board(String[][] arr, int players) {		
-		squares = new Square[arr.length][arr[0].length];		
-		characters = new HashMap<Integer,Player>();		//holds Player instances
-		
-		for (int row = 0; row < arr.length; row++) {
-			for (int col = 0; col < arr[0].length; col++) {
-				String[] tokens = arr[row][col].split("\\.");		//parse board string
-				squares[row][col] = parse(row, col, tokens[0], tokens[1]);
-			}
-		}
-		
-		//map and add neighbors of every Square - above, below, left, right (EXCEPT room Squares)
-		assignNeighbours();
-		//add room Squares as neighbors to room
-		connectToDoorways();
-		//change code of doorways
-		setDoorwayCode();
+	public Board(BoardTopology topology, int players) {		
+		this(topology);
 		//put players in starting positions
 		positionPlayers(players);
 	}
 
 	/**
 	 * Constructor
-	 * @param arr -- string representation of Board
-	 * @param players -- number of players initially playing the game
+	 * Nothing is parsed or precomputed, only the state of this game is created
+	 * @param topology -- static layout, see Loader.getTopology()
+	 * @param names -- name of Player with ID at names[ID], names[0] is not used
+	 * @param characters -- character of Player with ID at characters[ID], characters[0] is not used
 	 */
-	public Board(String[][] arr, int players, String [] playerNames, Map<String,String>nameToChar) {		
-		squares = new Square[arr.length][arr[0].length];		
-		characters = new HashMap<Integer,Player>();		//holds Player instances
-		
-		for (int row = 0; row < arr.length; row++) {
-			for (int col = 0; col < arr[0].length; col++) {
-				String[] tokens = arr[row][col].split("\\.");		//parse board string
-				squares[row][col] = parse(row, col, tokens[0], tokens[1]);
-			}
-		}
-		
-		//map and add neighbors of every Square - above, below, left, right (EXCEPT room Squares)
-		assignNeighbours();
-		//add room Squares as neighbors to room
-		connectToDoorways();
-		//connect doorways to ALL room coordinates
-		setDoorwayCode();
+	public Board(BoardTopology topology, String[] names, Suspect[] characters) {		
+		this(topology);
 		//put players in starting positions
-		positionPlayers(players, playerNames, nameToChar);
-	}
-
-	/**
-	 * Create and return a new Square
-	 * Each row,col index in the data representation is a Square
-	 * @param row
-	 * @param col
-	 * @param arg1 -- the Type of the Square:  PlayArea or Room
-	 * @param arg2 -- the name of a Room
-	 * @return
-	 */
-	private Square parse(int row, int col, String arg1, String arg2) {
-		Type kind = parseKind(arg1);		//parse kind/type
-		if (kind == Type.ROOM) {		
-			String name = parseRoom(arg2);	//parse room name
-			return new Room(row, col, Type.ROOM, name, arg2);
-		}
-		return new Square(row, col, kind, arg2);
-	}
-
-	/**
-	 * Returns name of the room depending on the String arg passed
-	 * @param arg
-	 * @return
-	 */
-	private String parseRoom(String arg) {
-		switch (arg) {
-		case "KC":
-			return "Kitchen";
-		case "BR":
-			return "Ball Room";
-		case "CV":
-			return "Conservatory";
-		case "BL":
-			return "Billiard Room";
-		case "LB":
-			return "Library";
-		case "SD":
-			return "Study";
-		case "HL":
-			return "Hall";
-		case "LN":
-			return "Lounge";
-		case "DR":
-			return "Dining Room";
-		}
-		//dead code
-		return null;
+		positionPlayers(names, characters);
 	}
 
 	/**
-	 * Returns Type of the room depending on the String arg passed
-	 * @param arg
-	 * @return
-	 */
-	private Type parseKind(String arg) {
-		if (arg.equals("RM")) {
-			return Type.ROOM;
-		} else if (arg.equals("NL")) {
-			return Type.NULL;
-		} else {		//"PA":
-			return Type.PLAYAREA;
-		}
-	}
-	
-	/**
-	 * Helper method
-	 * Distinguish if Square at row,col is a PLAYAREA or ROOM
-	 */
-	private void assignNeighbours() {
-		for (int row = 0; row < squares.length; row++) {
-			for (int col = 0; col < squares[0].length; col++) {
-				if (squares[row][col].kind == Type.PLAYAREA) {		//is playarea
-					validNeigbours(row, col);
-				} else if (squares[row][col].kind == Type.ROOM) {		//is room
-					roomNeigbours(row, col);
-				}
-			}
-		}
-	}
-	
-	/**
-	 * Assign neighbors of a Square at row,col - above, below, left, right
-	 * PROVIDED that neighbor is NOT a room
-	 * @param row
-	 * @param col
+	 * Empty Board i.e. no Players yet
+	 * @param topology -- static layout
 	 */
-	private void validNeigbours(int row, int col) {
-		int leftCol = col - 1;		int rightCol = col + 1;		int aboveRow = row - 1;		int belowRow = row + 1;
-		squares[row][col].addNeighbour(row, leftCol, squares);
-		squares[row][col].addNeighbour(row, rightCol, squares);
-		squares[row][col].addNeighbour(aboveRow, col, squares);
-		squares[row][col].addNeighbour(belowRow, col, squares);
+	private Board(BoardTopology topology) {
+		this.topology = topology;
+		this.adjacency = topology.getAdjacency();
+		this.rooms = topology.getRooms();
+		this.occupants = new byte[adjacency.size()];
+		this.cursors = new int[rooms.rooms()];
+		this.roomKeys = new long[rooms.rooms()];
+		this.occupied = new BitSet(adjacency.size());
+		this.characters = new HashMap<Integer,Player>();		//holds Player instances
+		this.bySuspect = new Player[Suspect.COUNT];
 	}
 
-	/**
-	 * Assign neighbors of a Room (which extends a Square) at row,col
-	 * -- the doorways FROM INSIDE the room TO the OUTSIDE
-	 * This also takes care of the stairwells
-	 * @param row
-	 * @param col
-	 */
-	private void roomNeigbours(int row, int col) {
-		String code = squares[row][col].getCode();
-		switch (code) {
-		case "KC":	//has stairwell
-			squares[row][col].addNeighbour(this, new int[] {3,3,16,16});	break;
-		case "BR":
-			squares[row][col].addNeighbour(this, new int[] {2,5,4,7,4,10,2,12});	break;
-		case "CV":	//has stairwell
-			squares[row][col].addNeighbour(this, new int[] {3,14,16,1});	break;
-		case "BL":
-			squares[row][col].addNeighbour(this, new int[] {5,13,8,16});	break;
-		case "LB":
-			squares[row][col].addNeighbour(this, new int[] {9,15,11,13});	break;
-		case "SD":	//has stairwell
-			squares[row][col].addNeighbour(this, new int[] {14,14,1,1});	break;
-		case "HL":
-			squares[row][col].addNeighbour(this, new int[] {14,12,12,9});	break;
-		case "LN":	//has stairwell
-			squares[row][col].addNeighbour(this, new int[] {13,4,1,16});	break;
-		case "DR":
-			squares[row][col].addNeighbour(this, new int[] {11,3,7,5});	break;
-		}
-	}
-
-	/**
-	 * Assign neighbors of a Square
-	 * -- the doorways FROM OUTSIDE(i.e. playarea) which leads TO INSIDE of the ROOM
-	 * NOTE that validNeigbours(row,col) ignored rooms
-	 * @param row
-	 * @param col
-	 */
-	private void connectToDoorways() {
-		//follows case order from roomNeigbours() method
-		squares[3][3].neighbours.add(new int []{2,3});
-		
-		squares[2][5].neighbours.add(new int []{2,6});
-		squares[4][7].neighbours.add(new int []{3,7});
-		squares[4][10].neighbours.add(new int []{3,10});
-		squares[2][12].neighbours.add(new int []{2,11});
-		
-		squares[3][14].neighbours.add(new int []{3,15});
-
-		squares[5][13].neighbours.add(new int []{5,14});
-		squares[8][16].neighbours.add(new int []{7,16});
-
-		squares[9][15].neighbours.add(new int []{10,15});
-		squares[11][13].neighbours.add(new int []{11,14});
-
-		squares[14][14].neighbours.add(new int []{15,14});
-
-		squares[14][12].neighbours.add(new int []{14,11});
-		squares[12][9].neighbours.add(new int []{13,9});
-
-		squares[13][4].neighbours.add(new int []{14,4});
-
-		squares[11][3].neighbours.add(new int []{10,3});
-		squares[7][5].neighbours.add(new int []{7,4});
-		
-		
-	}
-	
-	/**
-	 * Set every PLAYAREA Square that has a Room neighbor to code: 'dw'
-	 */
-	private void setDoorwayCode() {
-		for (int row = 0; row < squares.length; row++) {
-			for (int col = 0; col < squares[0].length; col++) {
-				if (squares[row][col].kind == Type.PLAYAREA) {	//check if playarea
-					squares[row][col].changeToDoorway(this);
-				}
-			}
-		}
-	}
-	
 	/**
 	 * Put players in starting positions
-	 * @param players -- how many will play
+	 * @param names -- name of Player with ID at names[ID]
+	 * @param chars -- character of Player with ID at chars[ID]
 	 */
-	private void positionPlayers(int players, String[] names, Map <String, String> nameToChar) {
-		for (int ID = 1; ID <= players; ID++) {
+	private void positionPlayers(String[] names, Suspect[] chars) {
+		for (int ID = 1; ID < names.length; ID++) {
 			//assume the role of a character
-			String character = nameToChar.get(names[ID]);
-			Square loc = assignLocation(character);
-			Player p = new Player (ID, names[ID].substring(1), character, loc) ;		//NOTE: get name except ID
+			Square loc = assignLocation(chars[ID]);
+			Player p = new Player (ID, names[ID], chars[ID], loc) ;
 			characters.put(ID, p);			//put in map
-			loc.occupied = "P"+ID; 	//put in Board
+			bySuspect[chars[ID].ordinal()] = p;
+			occupy(loc, ID); 	//put in Board
 		}
 	}
 
@@ -262,28 +91,14 @@ public class Board {
 	 * @param players -- how many will play
 	 */
 	private void positionPlayers(int players) {
-		int [][] position = new int [] []{
-				{0, 0},		//not used
-				
-				{17,5},		//starting positions for player 1
-				{12,0},		//p 2
-				{0,6},		//p 3
-				{9,17},		//and so on
-				{0,11},
-				{13,17}	};
-		String [] chars = new String []{
-				null,		//not used
-				"Miss Scarlett",		//characters for player 1
-				"Colonel Mustard",		//p 2
-				"Mrs. White",		//p 3
-				"The Reverend Green",		//and so on
-				"Mrs. Peacock",
-				"Professor Plum"	};
 		for (int ID = 1; ID <= players; ID++) {
-			//assume the role of a character
-			Player p = new Player (ID, chars[ID], squares[position[ID][0]][position[ID][1]] ) ;
+			//assume the role of characters in board file order
+			Suspect character = Suspect.parse(topology.getCharacter(ID - 1));
+			Square loc = assignLocation(character);
+			Player p = new Player (ID, character, loc) ;
 			characters.put(ID, p);			//put in map
-			squares[position[ID][0]][position[ID][1]].occupied = "P"+ID; 	//put in Board
+			bySuspect[character.ordinal()] = p;
+			occupy(loc, ID); 	//put in Board
 		}
 	}
 	
@@ -293,25 +108,21 @@ public class Board {
 	 * @param ID	-- current player uID
 	 * @param newRow -- row to move to
 	 * @param newCol -- column to move to
-	 * @param visited -- visited Squares during current turn in row,col format
+	 * @param visited -- visited Squares during current turn, by Square id
 	 * @return true iff newRow,newCol is a neighbor of current location and is not occupied
 	 */
-	public boolean movePiece(int ID, int newRow, int newCol, Set<int[]> visited) {
-		if (newRow < 0 || newRow >= squares.length || newCol < 0 || newCol >= squares[0].length) {
+	public boolean movePiece(int ID, int newRow, int newCol, BitSet visited) {
+		if (!adjacency.inBounds(newRow, newCol)) {
 			//out of bounds
 			return false;
 		}
 		//else, inspect
 		Player p = characters.get(ID);
-		Square loc = p.getLocation();
 		//check if new coordinates is neighbor of current player's position
 		//check if free i.e. not occupied by another player
 		if (isValid(ID, newRow, newCol, visited)) {
-			//update board
-			squares [newRow][newCol].occupied = "P"+ID;
-			squares[loc.row][loc.col].occupied = null;
-			//update player location
-			p.setLocation(squares [newRow] [newCol]);
+			//update board and player location
+			place(p, topology.getSquare(newRow, newCol));
 			return true;
 		}
 		return false;
@@ -330,13 +141,10 @@ public class Board {
 		Player p = characters.get(ID);
 		Square loc = p.getLocation();
 		//check if new coordinates is neighbor of current player's position
-		if (squares[loc.row][loc.col].hasNeigbour(newRow, newCol) 
-				&& getSquare(newRow, newCol).occupied == null) {	
-			//update board
-			squares [newRow][newCol].occupied = "P"+ID;
-			squares[loc.row][loc.col].occupied = null;
-			//update player location
-			p.setLocation(squares [newRow] [newCol]);
+		if (topology.getSquare(loc.row, loc.col).hasNeigbour(newRow, newCol) 
+				&& occupants[adjacency.id(newRow, newCol)] == FREE) {	
+			//update board and player location
+			place(p, topology.getSquare(newRow, newCol));
 			return true;
 		}
 		return false;
@@ -353,20 +161,80 @@ public class Board {
 		int newRow = row;
 		int newCol = col;
 		
-		if (squares [newRow][newCol].getOccupied() != null) {		//if square is already occupied
+		if (occupants[adjacency.id(newRow, newCol)] != FREE) {		//if square is already occupied
 			//get another square in the SAME ROOM that is not occupied
-			int [] rowCol = getFreeSquare(squares[newRow][newCol]);
-			newRow = rowCol[0];
-			newCol = rowCol[1];
+			Square free = getFreeSquare(rooms.roomOf(topology.getSquare(newRow, newCol).id));
+			newRow = free.row;
+			newCol = free.col;
 		}
 		
-		Player p = characters.get(ID);
-		Square loc = p.getLocation();
-		//update board
-		squares [newRow][newCol].occupied = "P"+ID;
-		squares[loc.row][loc.col].occupied = null;
-		//update player location
-		p.setLocation(squares [newRow] [newCol]);
+		//update board and player location
+		place(characters.get(ID), topology.getSquare(newRow, newCol));
+	}
+	
+	/**
+	 * Put every Player on the Square given, all at once, e.g. to restore a saved position
+	 * </br> Players may trade Squares, no two may end up on the same one
+	 * @param squares -- Player ID to Square id, index 0 is not used
+	 */
+	public void placeAll(int[] squares) {
+		for (Player p: characters.values()) {
+			vacate(p.getLocation());
+		}
+		for (Player p: characters.values()) {
+			Square sq = topology.getSquare(squares[p.ID]);
+			occupy(sq, p.ID);
+			p.setLocation(sq);
+		}
+	}
+
+	/**
+	 * Move Player p from its location to Square sq
+	 * Assume sq is vacant i.e. no occupant
+	 * @param p
+	 * @param sq
+	 */
+	private void place(Player p, Square sq) {
+		vacate(p.getLocation());
+		occupy(sq, p.ID);
+		p.setLocation(sq);
+	}
+	
+	/**
+	 * Put Player with ID on Square sq
+	 * @param sq
+	 * @param ID
+	 */
+	private void occupy(Square sq, int ID) {
+		occupants[sq.id] = (byte) ID;
+		occupied.set(sq.id);
+		tokenKey ^= Zobrist.token(ID, sq.id);
+	}
+	
+	/**
+	 * Remove the occupying Player of Square sq
+	 * @param sq
+	 */
+	private void vacate(Square sq) {
+		tokenKey ^= Zobrist.token(occupants[sq.id], sq.id);
+		occupants[sq.id] = FREE;
+		occupied.clear(sq.id);
+	}
+	
+	/**
+	 * Every Square that Player with ID can move to in at most 'remaining' steps this turn
+	 * </br> Cached, so this is cheap to call on every repaint
+	 * @param ID -- current player uID
+	 * @param remaining -- move steps left
+	 * @param visited -- visited set in current turn, by Square id
+	 * @param visitedKey -- Zobrist key of visited, kept up to date by the caller e.g. Engine.visitedKey()
+	 * @return
+	 */
+	public Reachability.Reach reachable(int ID, int remaining, BitSet visited, long visitedKey) {
+		if (reach == null) {		//this game's first search
+			reach = new Reachability(adjacency, rooms);
+		}
+		return reach.search(characters.get(ID).getLocation().id, remaining, occupied, tokenKey, visited, visitedKey);
 	}
 
 	/**
@@ -377,7 +245,79 @@ public class Board {
 	 * @return
 	 */
 	public Square getSquare(int row, int col) {
-		return squares[row][col];
+		return topology.getSquare(row, col);
+	}
+	
+	/**
+	 * Neighbours of every Square on this Board, keyed by Square id
+	 * @return
+	 */
+	public Adjacency getAdjacency() {
+		return adjacency;
+	}
+
+	/**
+	 * Room membership of every Square on this Board
+	 * @return
+	 */
+	public RoomIndex getRooms() {
+		return rooms;
+	}
+
+	/**
+	 * Fewest steps between Squares and rooms, ignoring Players
+	 * @return
+	 */
+	public DistanceTable getDistances() {
+		return topology.getDistances();
+	}
+
+	/**
+	 * Static layout of this Board, shared with other games
+	 * @return
+	 */
+	public BoardTopology getTopology() {
+		return topology;
+	}
+
+	/**
+	 * ID of the Player occupying Square at row,col
+	 * Assume it will NEVER go out of bounds
+	 * @param row
+	 * @param col
+	 * @return Player ID, FREE if not occupied
+	 */
+	public int getOccupant(int row, int col) {
+		return occupants[adjacency.id(row, col)];
+	}
+	
+	/**
+	 * String representation of this Board, one line per row
+	 * </br> Occupied Squares show their Player e.g. "P1", others show their code
+	 */
+	@Override
+	public String toString() {
+		StringBuilder text = new StringBuilder();
+		for (int row = 0; row < adjacency.rows(); row++) {
+			for (int col = 0; col < adjacency.cols(); col++) {
+				int ID = occupants[adjacency.id(row, col)];
+				if (ID != FREE) {
+					text.append(characters.get(ID).toString()).append(' ');
+				} else {
+					text.append(topology.getSquare(row, col).toString());
+				}
+			}
+			text.append('\n');
+		}
+		return text.toString();
+	}
+
+	/**
+	 * Zobrist key of which Player is on which Square, kept up to date by every move
+	 * @return XOR of Zobrist.token() of every Player
+	 */
+	public long getKey() {
+		return tokenKey;
 	}
 
 	/**
@@ -393,12 +333,12 @@ public class Board {
 	 * Check where player with ID is i.e. Kitchen, Lounge etc
 	 * Return NULL if not in any Room i.e. is in playArea
 	 * @param ID -- current player
-	 * @return name of room
+	 * @return the room
 	 */
-	public String inRoom(int ID) {
-		Player p = characters.get(ID);
-		if (p.getLocation().kind == Type.ROOM) {
-			return p.getLocation().getName();
+	public Place inRoom(int ID) {
+		int room = rooms.roomOf(characters.get(ID).getLocation().id);
+		if (room != RoomIndex.NONE) {
+			return Place.of(room);
 		}
 		return null;
 	}
@@ -424,17 +364,11 @@ public class Board {
 
 	/**
 	 * Returns the Player that plays this character
-	 * @param character -- the name of the character that we want to find the player to
-	 * @return
+	 * @param character -- the character that we want to find the player to
+	 * @return null if no Player portrays character
 	 */
-	public Player getPlayer(String character) {
-		for (Map.Entry<Integer, Player> entry: characters.entrySet()) {
-			Player p = entry.getValue();
-			if (p.character.equals(character)) {
-				return p;
-			}
-		}
-		return null;
+	public Player getPlayer(Suspect character) {
+		return bySuspect[character.ordinal()];
 	}
 
 	//ADDED METHODS
@@ -446,68 +380,107 @@ public class Board {
 	 * @param ID	-- current player uID
 	 * @param newRow -- row to move to
 	 * @param newCol -- column to move to
-	 * @param visited  -- visited set in current turn
+	 * @param visited  -- visited set in current turn, by Square id
 	 * @return true iff newRow,newCol is a neighbor of current location and is not occupied
 	 */
-	public boolean isValid (int ID, int newRow, int newCol, Set<int[]> visited) {
+	public boolean isValid (int ID, int newRow, int newCol, BitSet visited) {
+		if (!adjacency.inBounds(newRow, newCol)) {		//arrow keys can go out of bounds
+			return false;
+		}
 		Player p = characters.get(ID);		//Player with ID
 		Square loc = p.getLocation();
-		if (squares[loc.row][loc.col].hasNeigbour(newRow, newCol) 	//is neighbour
-				&& squares[newRow][newCol].getOccupied() == null) {	//is free
-			
-			for (int[] pair: visited) {
-				if (pair[0] == newRow && pair[1] == newCol) {//if visited during this turn
-					return false;
-				}
-			}
+		if (adjacency.contains(loc.id, topology.getSquare(newRow, newCol).id) 	//is neighbour
+				&& occupants[adjacency.id(newRow, newCol)] == FREE) {	//is free
 			//not visited during this turn
-			return true;
+			return !visited.get(topology.getSquare(newRow, newCol).id);
 		}
 		//if not neighbor
 		return false;
 	}
 	
+	/**
+	 * Add Square at row,col to the visited set of the current turn
+	 * </br> If it's part of a Room, ALL Squares in the same Room are added 
+	 * </br> i.e. you can't go back to the room you just left, in the same turn
+	 * @param visited -- visited set in current turn, by Square id
+	 * @param row
+	 * @param col
+	 * @return XOR of the Zobrist keys of the Squares newly visited, see Zobrist.visited()
+	 */
+	public long markVisited(BitSet visited, int row, int col) {
+		Square sq = topology.getSquare(row, col);
+		int room = rooms.roomOf(sq.id);
+		long key = 0;
+		if (room != RoomIndex.NONE) {		//if it's a room
+			BitSet mask = rooms.mask(room);
+			if (roomKeys[room] == 0) {		//first time in this game
+				roomKeys[room] = Zobrist.visited(mask);
+			}
+			key = roomKeys[room];
+			if (visited.intersects(mask)) {		//e.g. the turn started in the room
+				for (int id = mask.nextSetBit(0); id >= 0; id = mask.nextSetBit(id + 1)) {
+					if (visited.get(id)) {
+						key ^= Zobrist.visited(id);
+					}
+				}
+			}
+			visited.or(mask);
+		} else if (!visited.get(sq.id)) {
+			visited.set(sq.id);
+			key = Zobrist.visited(sq.id);
+		}
+		return key;
+	}
+	
 	/**
 	 * This assigns a character to a specific Square on the Board
 	 * </br>A Player's starting position depends on the character they play
 	 * @param character -- the character that one of the Players may play
 	 * @return a specific Square on the Board
 	 */
-	private Square assignLocation (String character) {
-		switch(character) {
-		case "Miss Scarlett":
-			return getSquare(17, 5);
-		case "Colonel Mustard":
-			return getSquare(12, 0);
-		case "Mrs. White":
-			return getSquare(0, 6);
-		case "The Reverend Green":
-			return getSquare(9, 17);
-		case "Mrs. Peacock":
-			return getSquare(0, 11);
-		case "Professor Plum":
-			return getSquare(13, 17);
+	private Square assignLocation (Suspect character) {
+		Square loc = topology.getStart(character.toString());
+		if (loc == null) {
+			throw new IllegalArgumentException("Board has no starting Square for "+character);
 		}
-		//dead code
-		return null;
+		return loc;
 	}
 	
+	/**
+	 * Where getFreeSquare() searches next, per room, e.g. to save a game
+	 * @return a copy
+	 */
+	public int[] cursors() {
+		return cursors.clone();
+	}
+
+	/**
+	 * Put back what cursors() returned, so a restored game picks the same free Squares
+	 * @param cursors
+	 */
+	public void setCursors(int[] cursors) {
+		System.arraycopy(cursors, 0, this.cursors, 0, this.cursors.length);
+	}
+
 	/**
 	 * SUPPLEMENTARY METHOD
-	 * Checks if roomSquare at row,col is not occupied
-	 * </br> This will find the next free Square in the same room
-	 * @param square -- the room Square that a Player will move to
+	 * Finds the next free Square in a room
 	 * </br> The movePlayerViaSuggestion() method moves a Player to a particular roomSquare
-	 * @return an int array containing row,col of the free Square
-	 */
-	private int[] getFreeSquare(Square square) {
-		String roomName = square.name;	//the room to look for
-		for (int row = 0; row < squares.length; row++) {		//search
-			for (int col = 0; col < squares[0].length; col++) {
-				//found free Square in same room
-				if (squares[row][col].name.equals(roomName) && squares[row][col].occupied == null) {
-					return new int [] {row, col};
-				}
+	 * @param room -- the room that a Player will move to, see getRooms()
+	 * @return the free Square
+	 */
+	public Square getFreeSquare(int room) {
+		int start = rooms.start(room) + cursors[room];		//search from where the last search stopped
+		int size = rooms.end(room) - rooms.start(room);
+		for (int k = 0; k < size; k++) {
+			int i = start + k;
+			if (i >= rooms.end(room)) {		//wrap around
+				i -= size;
+			}
+			int id = rooms.square(i);
+			if (occupants[id] == FREE) {		//found free Square in same room
+				cursors[room] = (i + 1 - rooms.start(room)) % size;		//next search starts after this one
+				return topology.getSquare(id);
 			}
 		}
 		//dead code -- there will always be a free space
@@ -0,0 +1,179 @@
+package model;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import model.Square.Type;
+
+/**
+ * Compiled, binary form of a BoardTopology
+ * <br> -- header: magic, version, rows, cols
+ * <br> -- rooms, Square codes and starting Squares as a small string table
+ * <br> -- per Square: kind, code and room, one array each
+ * <br> -- the CSR Adjacency and the DistanceTable, exactly as held in memory
+ * <br> Reading maps the file and bulk copies the arrays, no text is parsed and nothing is recomputed
+ * @author Ronni Perez
+ *
+ */
+public final class BoardFile {
+	private static final int MAGIC = 0x434C4442;		//"CLDB"
+	private static final int VERSION = 1;
+	private static final Type[] KINDS = Type.values();
+
+	private BoardFile() {}
+
+	/**
+	 * Checks the first bytes of file
+	 * @param file
+	 * @return true iff file is a compiled board i.e. written by write()
+	 */
+	public static boolean isCompiled(File file) {
+		if (!file.isFile() || file.length() < 4) {return false;}
+		try (RandomAccessFile in = new RandomAccessFile(file, "r")) {
+			return in.readInt() == MAGIC;
+		} catch (IOException e) {
+			return false;
+		}
+	}
+
+	/**
+	 * Compile topology into file, see read()
+	 * @param topology
+	 * @param file
+	 * @throws IOException
+	 */
+	public static void write(BoardTopology topology, File file) throws IOException {
+		Adjacency adj = topology.getAdjacency();
+		RoomIndex rooms = topology.getRooms();
+		int size = adj.size();
+
+		//distinct Square codes e.g. 00, dw, CR, KC
+		List<String> codes = new ArrayList<String>();
+		Map<String, Integer> codeIndex = new HashMap<String, Integer>();
+		short[] code = new short[size];
+		for (int id = 0; id < size; id++) {
+			String c = topology.getSquare(id).getCode();
+			Integer i = codeIndex.get(c);
+			if (i == null) {
+				i = codes.size();
+				codes.add(c);
+				codeIndex.put(c, i);
+			}
+			code[id] = i.shortValue();
+		}
+
+		List<byte[]> strings = new ArrayList<byte[]>();		//room names, codes, characters
+		for (int room = 0; room < rooms.rooms(); room++) {
+			strings.add(rooms.name(room).getBytes(StandardCharsets.UTF_8));
+		}
+		for (String c : codes) {
+			strings.add(c.getBytes(StandardCharsets.UTF_8));
+		}
+		for (int i = 0; i < topology.starts(); i++) {
+			strings.add(topology.getCharacter(i).getBytes(StandardCharsets.UTF_8));
+		}
+		int bytes = 4 * 7 + 4 * topology.starts() + size * (1 + 2 + 1) + adj.bytes() + topology.getDistances().bytes();
+		for (byte[] s : strings) {
+			bytes += 2 + s.length;
+		}
+
+		ByteBuffer out = ByteBuffer.allocate(bytes);
+		out.putInt(MAGIC).putInt(VERSION).putInt(adj.rows()).putInt(adj.cols());
+		out.putInt(rooms.rooms()).putInt(codes.size()).putInt(topology.starts());
+		for (byte[] s : strings) {
+			out.putShort((short) s.length).put(s);
+		}
+		for (int i = 0; i < topology.starts(); i++) {
+			out.putInt(topology.getStart(topology.getCharacter(i)).id);
+		}
+		for (int id = 0; id < size; id++) {
+			out.put((byte) topology.getSquare(id).kind.ordinal());
+		}
+		for (int id = 0; id < size; id++) {
+			out.putShort(code[id]);
+		}
+		for (int id = 0; id < size; id++) {
+			out.put((byte) rooms.roomOf(id));
+		}
+		adj.put(out);
+		topology.getDistances().put(out);
+		out.flip();
+		SafeFile.write(file, data -> data.write(out.array(), 0, out.limit()));
+	}
+
+	/**
+	 * Map a file written by write() and build its BoardTopology
+	 * @param file
+	 * @return
+	 * @throws IOException -- if file cannot be read or is not a compiled board of this version
+	 */
+	public static BoardTopology read(File file) throws IOException {
+		MappedByteBuffer in;
+		try (FileChannel ch = new RandomAccessFile(file, "r").getChannel()) {
+			in = ch.map(FileChannel.MapMode.READ_ONLY, 0, ch.size());		//stays valid once closed
+		}
+		try {
+			if (in.getInt() != MAGIC || in.getInt() != VERSION) {
+				throw new IOException(file+" is not a compiled board of version "+VERSION);
+			}
+			int rows = in.getInt();
+			int cols = in.getInt();
+			int size = rows * cols;
+			String[] names = new String[in.getInt()];
+			String[] codes = new String[in.getInt()];
+			String[] characters = new String[in.getInt()];
+			for (int i = 0; i < names.length; i++) {
+				names[i] = string(in);
+			}
+			for (int i = 0; i < codes.length; i++) {
+				codes[i] = string(in);
+			}
+			for (int i = 0; i < characters.length; i++) {
+				characters[i] = string(in);
+			}
+			int[] starts = new int[characters.length];
+			in.asIntBuffer().get(starts);
+			in.position(in.position() + 4 * starts.length);
+
+			byte[] kind = new byte[size];
+			in.get(kind);
+			short[] code = new short[size];
+			in.asShortBuffer().get(code);
+			in.position(in.position() + 2 * size);
+			byte[] roomOf = new byte[size];
+			in.get(roomOf);
+
+			Adjacency adj = Adjacency.get(in);
+			RoomIndex rooms = new RoomIndex(roomOf, names);
+			DistanceTable distances = DistanceTable.get(adj, rooms, in);
+
+			Square[] byId = new Square[size];
+			for (int id = 0; id < size; id++) {
+				Type k = KINDS[kind[id]];
+				if (k == Type.ROOM) {
+					byId[id] = new Room(id, id / cols, id % cols, k, names[roomOf[id]], codes[code[id]]);
+				} else {
+					byId[id] = new Square(id, id / cols, id % cols, k, codes[code[id]]);
+				}
+			}
+			return new BoardTopology(byId, adj, rooms, distances, characters, starts);
+		} catch (RuntimeException e) {		//truncated or corrupt
+			throw new IOException(file+" is not a valid compiled board", e);
+		}
+	}
+
+	private static String string(ByteBuffer in) {
+		byte[] s = new byte[in.getShort() & 0xffff];
+		in.get(s);
+		return new String(s, StandardCharsets.UTF_8);
+	}
+}
@@ -0,0 +1,485 @@
+package model;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import model.Square.Type;
+
+/**
+ * Static layout of a Cluedo Board i.e. everything that never changes during a game
+ * <br> -- Squares, neighbours, room membership and distances
+ * <br> -- immutable once constructed, so ONE instance is safely shared by any number of games and threads
+ * <br> -- occupancy and Players are per game, see Board
+ * <br> -- built from a board file by Loader, through a Builder
+ * @author Ronni Perez
+ *
+ */
+public final class BoardTopology {
+	private final Square[][] squares;		//internal data representation
+	private final Square[] byId;		//same Squares, by Square id
+	private final Adjacency adjacency;		//neighbours of every Square, keyed by Square id
+	private final RoomIndex rooms;		//room membership of every Square
+	private final DistanceTable distances;		//fewest steps between Squares and rooms
+	private final String[] characters;		//characters that have a starting Square, in file order
+	private final int[] starts;		//starting Square id of each of characters
+	private Adjacency.Builder edges;		//only used while constructing
+
+	/**
+	 * Parse the Squares and precompute the Board's neighbours, room membership and distances
+	 * <br> Every step costs time proportional to the number of Squares, doors and passages
+	 * @param b -- everything declared in the board file, see Builder
+	 */
+	private BoardTopology(Builder b) {
+		squares = new Square[b.rows][b.cols];		
+		byId = new Square[b.rows * b.cols];
+		Map<String, String> names = new HashMap<String, String>();
+		for (int r = 0; r < b.codes.size(); r++) {
+			names.put(b.codes.get(r), b.names.get(r));
+		}
+		
+		for (int row = 0; row < b.rows; row++) {
+			for (int col = 0; col < b.cols; col++) {
+				if (b.arr[row][col] == null) {
+					throw new IllegalArgumentException("Board is missing Square "+row+","+col);
+				}
+				String[] tokens = b.arr[row][col].split("\\.");		//parse board string
+				squares[row][col] = parse(row, col, tokens[0], tokens[1], names);
+				byId[squares[row][col].id] = squares[row][col];
+			}
+		}
+		
+		//room to Squares and Square to room, in one pass
+		rooms = new RoomIndex(squares, b.codes.toArray(new String[b.codes.size()]));
+		for (int room = 0; room < rooms.rooms(); room++) {
+			if (rooms.start(room) == rooms.end(room)) {
+				throw new IllegalArgumentException("Room "+b.codes.get(room)+" has no Squares");
+			}
+		}
+		//all Squares of a Room share one neighbour list
+		groupRooms();
+		//map and add neighbors of every Square - above, below, left, right (EXCEPT room Squares)
+		assignNeighbours();
+		//add doorways and stairwells as declared in the board file
+		connectToDoorways(b.doors);
+		connectStairwells(b.passages);
+		//compact neighbours, then change code of doorways
+		adjacency = edges.build();
+		edges = null;
+		linkAdjacency();
+		setDoorwayCode();
+		distances = DistanceTable.load(adjacency, rooms);
+
+		characters = b.characters.toArray(new String[b.characters.size()]);
+		starts = new int[characters.length];
+		for (int i = 0; i < characters.length; i++) {
+			starts[i] = square(b.starts[2 * i], b.starts[2 * i + 1]).id;
+		}
+	}
+
+	/**
+	 * Constructor used by BoardFile, everything has already been compiled
+	 * @param byId -- every Square, by Square id
+	 * @param adjacency
+	 * @param rooms
+	 * @param distances
+	 * @param characters -- characters that have a starting Square
+	 * @param starts -- starting Square id of each of characters
+	 */
+	BoardTopology(Square[] byId, Adjacency adjacency, RoomIndex rooms, DistanceTable distances,
+			String[] characters, int[] starts) {
+		this.squares = new Square[adjacency.rows()][adjacency.cols()];
+		this.byId = byId;
+		for (Square sq : byId) {
+			squares[sq.row][sq.col] = sq;
+		}
+		this.adjacency = adjacency;
+		this.rooms = rooms;
+		this.distances = distances;
+		this.characters = characters;
+		this.starts = starts;
+		linkAdjacency();
+	}
+
+	/**
+	 * Create and return a new Square
+	 * Each row,col index in the data representation is a Square
+	 * @param row
+	 * @param col
+	 * @param arg1 -- the Type of the Square:  PlayArea or Room
+	 * @param arg2 -- the code of a Room
+	 * @param names -- room code to long name of the room e.g. KC to Kitchen
+	 * @return
+	 */
+	private Square parse(int row, int col, String arg1, String arg2, Map<String, String> names) {
+		Type kind = parseKind(arg1);		//parse kind/type
+		int id = row * squares[0].length + col;
+		if (kind == Type.ROOM) {		
+			String name = names.get(arg2);	//parse room name
+			if (name == null) {
+				throw new IllegalArgumentException("Square "+row+","+col+" is part of undeclared room "+arg2);
+			}
+			return new Room(id, row, col, Type.ROOM, name, arg2);
+		}
+		return new Square(id, row, col, kind, arg2);
+	}
+
+	/**
+	 * Returns Type of the room depending on the String arg passed
+	 * @param arg
+	 * @return
+	 */
+	private Type parseKind(String arg) {
+		if (arg.equals("RM")) {
+			return Type.ROOM;
+		} else if (arg.equals("NL")) {
+			return Type.NULL;
+		} else {		//"PA":
+			return Type.PLAYAREA;
+		}
+	}
+	
+	/**
+	 * Helper method
+	 * Make every Square of a Room share the neighbour list of the first Square of that Room
+	 */
+	private void groupRooms() {
+		edges = new Adjacency.Builder(squares.length, squares[0].length);
+		for (int room = 0; room < rooms.rooms(); room++) {
+			int first = rooms.square(rooms.start(room));
+			for (int i = rooms.start(room) + 1; i < rooms.end(room); i++) {
+				edges.group(rooms.square(i), first);
+			}
+		}
+	}
+	
+	/**
+	 * Helper method
+	 * Assign neighbours of every PLAYAREA Square
+	 */
+	private void assignNeighbours() {
+		for (int row = 0; row < squares.length; row++) {
+			for (int col = 0; col < squares[0].length; col++) {
+				if (squares[row][col].kind == Type.PLAYAREA) {		//is playarea
+					validNeigbours(row, col);
+				}
+			}
+		}
+	}
+	
+	/**
+	 * Assign neighbors of a Square at row,col - above, below, left, right
+	 * PROVIDED that neighbor is NOT a room
+	 * @param row
+	 * @param col
+	 */
+	private void validNeigbours(int row, int col) {
+		int leftCol = col - 1;		int rightCol = col + 1;		int aboveRow = row - 1;		int belowRow = row + 1;
+		addPlayArea(row, col, row, leftCol);
+		addPlayArea(row, col, row, rightCol);
+		addPlayArea(row, col, aboveRow, col);
+		addPlayArea(row, col, belowRow, col);
+	}
+	
+	/**
+	 * Supplementary method used by validNeigbours(row, col) to add neighbors
+	 * @param row
+	 * @param col
+	 * @param newRow
+	 * @param newCol
+	 */
+	private void addPlayArea(int row, int col, int newRow, int newCol) {
+		// check for bounds
+		if (newRow >= 0 && newRow < squares.length && newCol >= 0 && newCol < squares[0].length) {
+			// add if newRow,newCol is playArea ONLY
+			if (squares[newRow][newCol].kind == Type.PLAYAREA) {
+				edges.add(squares[row][col].id, squares[newRow][newCol].id);
+			}
+		}
+	}
+
+	/**
+	 * Connect every doorway to its room, BOTH ways
+	 * -- FROM OUTSIDE(i.e. playarea) which leads TO INSIDE of the ROOM, and back
+	 * NOTE that validNeigbours(row,col) ignored rooms
+	 * @param doors -- row,col of the doorway then row,col of a Square of the room, 4 ints per door
+	 */
+	private void connectToDoorways(int[] doors) {
+		for (int i = 0; i < doors.length; i += 4) {
+			Square outside = square(doors[i], doors[i + 1]);
+			Square inside = square(doors[i + 2], doors[i + 3]);
+			if (outside.kind != Type.PLAYAREA || inside.kind != Type.ROOM) {
+				throw new IllegalArgumentException("Door "+outside.row+","+outside.col+" to "
+						+inside.row+","+inside.col+" must lead from a play area to a room");
+			}
+			//a room Square stands for the WHOLE room -- see Adjacency
+			edges.add(outside.id, inside.id);
+			edges.add(inside.id, outside.id);
+		}
+	}
+
+	/**
+	 * Connect the rooms at both ends of every stairwell i.e. secret passage, BOTH ways
+	 * @param passages -- room codes, 2 per stairwell
+	 */
+	private void connectStairwells(List<String> passages) {
+		String[] codes = new String[rooms.rooms()];
+		for (int room = 0; room < codes.length; room++) {
+			codes[room] = byId[rooms.square(rooms.start(room))].getCode();
+		}
+		for (int i = 0; i < passages.size(); i += 2) {
+			int from = firstSquare(codes, passages.get(i));
+			int to = firstSquare(codes, passages.get(i + 1));
+			edges.add(from, to);
+			edges.add(to, from);
+		}
+	}
+
+	/**
+	 * Supplementary method used by connectStairwells()
+	 * @param codes -- room to two-letter code
+	 * @param code -- a two-letter room code
+	 * @return id of the first Square of room with code
+	 */
+	private int firstSquare(String[] codes, String code) {
+		for (int room = 0; room < codes.length; room++) {
+			if (codes[room].equals(code)) {
+				return rooms.square(rooms.start(room));
+			}
+		}
+		throw new IllegalArgumentException("Stairwell to undeclared room "+code);
+	}
+
+	/**
+	 * Square at row,col, checking bounds as these come from the board file
+	 * @param row
+	 * @param col
+	 * @return
+	 */
+	private Square square(int row, int col) {
+		if (row < 0 || row >= squares.length || col < 0 || col >= squares[0].length) {
+			throw new IllegalArgumentException("Square "+row+","+col+" is outside the board");
+		}
+		return squares[row][col];
+	}
+	
+	/**
+	 * Share the compacted Adjacency with every Square
+	 */
+	private void linkAdjacency() {
+		for (int row = 0; row < squares.length; row++) {
+			for (int col = 0; col < squares[0].length; col++) {
+				squares[row][col].setAdjacency(adjacency);
+			}
+		}
+	}
+	
+	/**
+	 * Set every PLAYAREA Square that has a Room neighbor to code: 'dw'
+	 */
+	private void setDoorwayCode() {
+		for (int row = 0; row < squares.length; row++) {
+			for (int col = 0; col < squares[0].length; col++) {
+				if (squares[row][col].kind == Type.PLAYAREA) {	//check if playarea
+					squares[row][col].changeToDoorway(this);
+				}
+			}
+		}
+	}
+
+
+	/**
+	 * Get Square at row, col
+	 * Assume it will NEVER go out of bounds
+	 * @param row
+	 * @param col
+	 * @return
+	 */
+	public Square getSquare(int row, int col) {
+		return squares[row][col];
+	}
+
+	/**
+	 * Get Square with id i.e. row*cols+col
+	 * @param id
+	 * @return
+	 */
+	public Square getSquare(int id) {
+		return byId[id];
+	}
+
+	/**
+	 * Starting Square of a character
+	 * @param character -- e.g. Miss Scarlett
+	 * @return null if the board file gives no starting Square to character
+	 */
+	public Square getStart(String character) {
+		for (int i = 0; i < characters.length; i++) {
+			if (characters[i].equals(character)) {
+				return byId[starts[i]];
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Character with the i-th starting Square, in board file order
+	 * @param i -- from 0 to starts()-1
+	 * @return
+	 */
+	public String getCharacter(int i) {
+		return characters[i];
+	}
+
+	//GETTERS
+	public int starts() {
+		return starts.length;
+	}
+
+	public int rows() {
+		return squares.length;
+	}
+
+	public int cols() {
+		return squares[0].length;
+	}
+
+	public Adjacency getAdjacency() {
+		return adjacency;
+	}
+
+	public RoomIndex getRooms() {
+		return rooms;
+	}
+
+	public DistanceTable getDistances() {
+		return distances;
+	}
+
+	/**
+	 * Collects everything declared in a board file, see Loader
+	 * <br> -- the grid of Squares e.g. RM.KC, PA.00, NL.CR
+	 * <br> -- rooms, in card order, with their long names
+	 * <br> -- doors, stairwells and starting Squares
+	 * <br> Lines may come in any order, nothing is checked until build()
+	 * @author Ronni Perez
+	 *
+	 */
+	public static final class Builder {
+		private final int rows;
+		private final int cols;
+		private final String[][] arr;		//string representation of Board
+		private final List<String> codes = new ArrayList<String>();		//room to two-letter code
+		private final List<String> names = new ArrayList<String>();		//room to long name
+		private int[] doors = new int[16];		//doorway row,col then room row,col
+		private int doorCount;		//ints used in doors
+		private final List<String> passages = new ArrayList<String>();		//room codes, 2 per stairwell
+		private final List<String> characters = new ArrayList<String>();
+		private int[] starts = new int[12];		//starting row,col of each of characters
+
+		public Builder(int rows, int cols) {
+			if (rows <= 0 || cols <= 0) {
+				throw new IllegalArgumentException("Board must have at least one Square");
+			}
+			this.rows = rows;
+			this.cols = cols;
+			this.arr = new String[rows][cols];
+		}
+
+		/**
+		 * @param row
+		 * @param col
+		 * @param token -- Type and code of the Square e.g. RM.KC
+		 * @return
+		 * @throws IllegalArgumentException -- if token is not a Type (RM, PA or NL), a dot and a code
+		 */
+		public Builder square(int row, int col, String token) {
+			String[] parts = token.split("\\.");
+			if (parts.length != 2 || parts[1].isEmpty() || !parts[0].matches("RM|PA|NL")) {
+				throw new IllegalArgumentException("Square "+row+","+col+" is "+token+", expected e.g. RM.KC or PA.00");
+			}
+			arr[row][col] = token;
+			return this;
+		}
+
+		/**
+		 * Declare the next room
+		 * @param code -- two-letter code used by the grid e.g. KC
+		 * @param name -- long name e.g. Kitchen
+		 * @return
+		 */
+		public Builder room(String code, String name) {
+			codes.add(code);
+			names.add(name);
+			return this;
+		}
+
+		/**
+		 * Declare a door between a play area Square and a room
+		 * @param row -- row of the doorway
+		 * @param col -- column of the doorway
+		 * @param roomRow -- row of any Square of the room
+		 * @param roomCol -- column of any Square of the room
+		 * @return
+		 */
+		public Builder door(int row, int col, int roomRow, int roomCol) {
+			if (doorCount + 4 > doors.length) {
+				doors = Arrays.copyOf(doors, doors.length * 2);
+			}
+			doors[doorCount++] = row;
+			doors[doorCount++] = col;
+			doors[doorCount++] = roomRow;
+			doors[doorCount++] = roomCol;
+			return this;
+		}
+
+		/**
+		 * Declare a stairwell i.e. secret passage between two rooms
+		 * @param from -- room code
+		 * @param to -- room code
+		 * @return
+		 */
+		public Builder passage(String from, String to) {
+			passages.add(from);
+			passages.add(to);
+			return this;
+		}
+
+		/**
+		 * Declare the starting Square of a character
+		 * @param character -- e.g. Miss Scarlett
+		 * @param row
+		 * @param col
+		 * @return
+		 */
+		public Builder start(String character, int row, int col) {
+			if (2 * characters.size() + 2 > starts.length) {
+				starts = Arrays.copyOf(starts, starts.length * 2);
+			}
+			starts[2 * characters.size()] = row;
+			starts[2 * characters.size() + 1] = col;
+			characters.add(character);
+			return this;
+		}
+
+		public BoardTopology build() {
+			doors = Arrays.copyOf(doors, doorCount);
+			return new BoardTopology(this);
+		}
+
+		//GETTERS
+		public int rows() {
+			return rows;
+		}
+
+		public int cols() {
+			return cols;
+		}
+
+		public List<String> rooms() {
+			return names;
+		}
+	}
+}
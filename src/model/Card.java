@@ -1,19 +1,103 @@
 package model;
 
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+
 /**
  * A Card in the game
+ * <br> -- there is exactly ONE instance per card, see get(id)
+ * <br> -- cards have dense ids: characters 0..5, weapons 6..11, rooms 12..20
+ * <br> -- game logic works with ids and enum ordinals, long names are for the UI ONLY
  * @author Ronni Perez
  *
  */
 public class Card {
+	public static final int COUNT = Suspect.COUNT + Weapon.COUNT + Place.COUNT;	//cards in the game
+	public static final int NONE = -1;		//id of no card
+	public static final int ALL = (1 << COUNT) - 1;		//bit mask of every card
+
+	private static final Card[] DECK = new Card[COUNT];		//id to card
+	private static final Map<String, Card> BY_NAME = new HashMap<String, Card>();		//long name to card, UI edge ONLY
+	static {
+		for (Suspect s: Suspect.values()) {
+			add(new Card(Type.CHARACTER, s.toString(), s.card()));
+		}
+		for (Weapon w: Weapon.values()) {
+			add(new Card(Type.WEAPON, w.toString(), w.card()));
+		}
+		for (Place p: Place.values()) {
+			add(new Card(Type.ROOM, p.toString(), p.card()));
+		}
+	}
+
 	public final Type kind;	//character, weapon or room
 	public final String name;	//long name of card
+	public final int id;		//from 0 to COUNT-1
 
-	public Card(Type kind, String name) {
+	private Card(Type kind, String name, int id) {
 		this.kind = kind;
 		this.name = name;
+		this.id = id;
+	}
+
+	private static void add(Card c) {
+		DECK[c.id] = c;
+		BY_NAME.put(c.name, c);
+	}
+
+	/**
+	 * @param id -- from 0 to COUNT-1
+	 * @return the Card with id
+	 */
+	public static Card get(int id) {
+		return DECK[id];
+	}
+
+	/**
+	 * Card from its long name, used at the UI edge ONLY
+	 * @param name -- e.g. Lead Pipe
+	 * @return null if there is no such card
+	 */
+	public static Card of(String name) {
+		return BY_NAME.get(name);
+	}
+
+	/**
+	 * Bit of card in a mask e.g. a hand, seen cards or a suggestion
+	 * </br> All cards fit in one int, bit i is the Card with id i
+	 * @param id
+	 * @return
+	 */
+	public static int bit(int id) {
+		return 1 << id;
 	}
-	
+
+	/**
+	 * Bit mask of a suggestion or accusation
+	 * @param suspect
+	 * @param weapon
+	 * @param place
+	 * @return
+	 */
+	public static int mask(Suspect suspect, Weapon weapon, Place place) {
+		return bit(suspect.card()) | bit(weapon.card()) | bit(place.card());
+	}
+
+	/**
+	 * Cards in a bit mask, for display ONLY
+	 * @param mask
+	 * @return a new Set, in card order
+	 */
+	public static Set<Card> set(int mask) {
+		Set<Card> cards = new LinkedHashSet<Card>();
+		for (int m = mask; m != 0; m &= m - 1) {		//each set bit, lowest first
+			cards.add(DECK[Integer.numberOfTrailingZeros(m)]);
+		}
+		return cards;
+	}
+
 	@Override
 	public String toString() {
 		switch (kind) {
@@ -25,9 +109,138 @@ public class Card {
 			return "WEAPON: "+name;
 		}
 	}
-	
+
 	//3 kinds of cards
 	public enum Type {
 		CHARACTER, WEAPON, ROOM
 	}
-}
\ No newline at end of file
+
+	/**
+	 * Characters, in card order
+	 */
+	public enum Suspect {
+		MISS_SCARLETT("Miss Scarlett"), COLONEL_MUSTARD("Colonel Mustard"), MRS_WHITE("Mrs. White"),
+		THE_REVEREND_GREEN("The Reverend Green"), MRS_PEACOCK("Mrs. Peacock"), PROFESSOR_PLUM("Professor Plum");
+
+		public static final int COUNT = 6;
+		private static final Suspect[] VALUES = values();
+		private final String text;		//long name
+
+		private Suspect(String text) {
+			this.text = text;
+		}
+
+		//card id
+		public int card() {
+			return ordinal();
+		}
+
+		public static Suspect of(int ordinal) {
+			return VALUES[ordinal];
+		}
+
+		/**
+		 * @param text -- long name, from the UI
+		 * @return null if no such character
+		 */
+		public static Suspect parse(String text) {
+			for (Suspect s: VALUES) {
+				if (s.text.equals(text)) {return s;}
+			}
+			return null;
+		}
+
+		@Override
+		public String toString() {
+			return text;
+		}
+	}
+
+	/**
+	 * Weapons, in card order
+	 */
+	public enum Weapon {
+		CANDLESTICK("Candlestick"), DAGGER("Dagger"), LEAD_PIPE("Lead Pipe"),
+		REVOLVER("Revolver"), ROPE("Rope"), SPANNER("Spanner");
+
+		public static final int COUNT = 6;
+		private static final Weapon[] VALUES = values();
+		private final String text;		//long name
+
+		private Weapon(String text) {
+			this.text = text;
+		}
+
+		//card id
+		public int card() {
+			return Suspect.COUNT + ordinal();
+		}
+
+		public static Weapon of(int ordinal) {
+			return VALUES[ordinal];
+		}
+
+		/**
+		 * @param text -- long name, from the UI
+		 * @return null if no such weapon
+		 */
+		public static Weapon parse(String text) {
+			for (Weapon w: VALUES) {
+				if (w.text.equals(text)) {return w;}
+			}
+			return null;
+		}
+
+		@Override
+		public String toString() {
+			return text;
+		}
+	}
+
+	/**
+	 * Rooms, in card order
+	 * <br> The ordinal is also the room number used by RoomIndex, Loader checks that the board agrees
+	 */
+	public enum Place {
+		KITCHEN("Kitchen"), BALL_ROOM("Ball Room"), CONSERVATORY("Conservatory"),
+		BILLIARD_ROOM("Billiard Room"), LIBRARY("Library"), STUDY("Study"),
+		HALL("Hall"), LOUNGE("Lounge"), DINING_ROOM("Dining Room");
+
+		public static final int COUNT = 9;
+		private static final Place[] VALUES = values();
+		private final String text;		//long name
+
+		private Place(String text) {
+			this.text = text;
+		}
+
+		//card id
+		public int card() {
+			return Suspect.COUNT + Weapon.COUNT + ordinal();
+		}
+
+		/**
+		 * @param ordinal -- also a room number, see RoomIndex
+		 * @return
+		 */
+		public static Place of(int ordinal) {
+			return VALUES[ordinal];
+		}
+
+		/**
+		 * @param text -- long name, from the UI
+		 * @return null if no such room
+		 */
+		public static Place parse(String text) {
+			for (Place p: VALUES) {
+				if (p.text.equals(text)) {return p;}
+			}
+			return null;
+		}
+
+		@Override
+		public String toString() {
+			return text;
+		}
+	}
+}
@@ -2,7 +2,10 @@ package model;
 
 import java.util.List;
 
+import model.Card.Place;
+import model.Card.Suspect;
 import model.Card.Type;
+import model.Card.Weapon;
 
 /**
  * A CentreRoom is a ""Room"" which contains the solution in the game
@@ -10,10 +13,9 @@ import model.Card.Type;
  *
  */
 public class CentreRoom {
-	//these are long names of the person, weapon and room
-	private String suspect;	//self explanatory
-	private String weapon;
-	private String place;
+	private Suspect suspect;	//self explanatory
+	private Weapon weapon;
+	private Place place;
 
 	/**
 	 * Supplementary method used by Loader.pickSolution() to put appropriate solution in
@@ -22,25 +24,36 @@ public class CentreRoom {
 	public void putInEnvelope(List<Card> cards) {
 		for (Card c: cards) {
 			if (c.kind == Type.CHARACTER) {
-				this.suspect = c.name;
+				this.suspect = Suspect.of(c.id);
 			} else if (c.kind == Type.WEAPON) {
-				this.weapon = c.name;
+				this.weapon = Weapon.of(c.id - Suspect.COUNT);
 			} else if (c.kind == Type.ROOM) {
-				this.place = c.name;
+				this.place = Place.of(c.id - Suspect.COUNT - Weapon.COUNT);
 			}
 		}
 	}
 
+	/**
+	 * Checks an accusation
+	 * @param suspect
+	 * @param weapon
+	 * @param place
+	 * @return true iff all three match the solution
+	 */
+	public boolean matches(Suspect suspect, Weapon weapon, Place place) {
+		return this.suspect == suspect && this.weapon == weapon && this.place == place;
+	}
+
 	//GETTERS
-	public String getSuspect() {
+	public Suspect getSuspect() {
 		return suspect;
 	}
 
-	public String getWeapon() {
+	public Weapon getWeapon() {
 		return weapon;
 	}
 
-	public String getPlace() {
+	public Place getPlace() {
 		return place;
 	}
-}
\ No newline at end of file
+}
@@ -0,0 +1,301 @@
+package model;
+
+import java.util.Arrays;
+
+/**
+ * Detective notes of ONE player, with everything that follows from them
+ * <br> -- for every holder, i.e. the envelope and every Player, the cards it owns and the cards it lacks
+ * <br> -- a card neither owned nor lacked by a holder is unknown for it
+ * <br> -- kept as card masks, see Card.bit(), so an update is a handful of ANDs and ORs
+ * <br> -- after every observation the rules below are applied until nothing changes:
+ * <br> &nbsp; each card has exactly one holder
+ * <br> &nbsp; each Player holds as many cards as it was dealt, the envelope one card of each kind
+ * <br> &nbsp; a Player who refuted a suggestion owns at least one of its cards
+ * @author Ronni Perez
+ *
+ */
+public final class Deduction {
+	public static final int ENVELOPE = 0;		//holder index of the CentreRoom, Players use their ID
+	public static final int UNKNOWN = 0;		//see status()
+	public static final int OWNS = 1;
+	public static final int LACKS = -1;
+
+	private static final int SUSPECTS = (1 << Card.Suspect.COUNT) - 1;		//card mask of every character
+	private static final int WEAPONS = ((1 << Card.Weapon.COUNT) - 1) << Card.Suspect.COUNT;
+	private static final int PLACES = Card.ALL & ~SUSPECTS & ~WEAPONS;
+	private static final int[] KINDS = {SUSPECTS, WEAPONS, PLACES};
+
+	private final int observer;		//Player ID whose notes these are
+	private final int[] size;		//holder to number of cards it holds
+	private final int[] owns;		//holder to card mask of cards it is known to own
+	private final int[] lacks;		//holder to card mask of cards it is known NOT to own
+	private int[] clauses;		//pending refutations, refuter << 24 | suggestion, see refuted()
+	private int pending;		//number of clauses in use
+
+	/**
+	 * Constructor
+	 * @param players -- number of players dealt cards
+	 * @param observer -- Player ID whose notes these are
+	 * @param hand -- card mask of the observer's hand
+	 */
+	public Deduction(int players, int observer, int hand) {
+		this.observer = observer;
+		this.size = new int[players + 1];
+		this.owns = new int[players + 1];
+		this.lacks = new int[players + 1];
+		this.clauses = new int[8];
+		size[ENVELOPE] = 3;
+		for (int ID = 1; ID <= players; ID++) {
+			size[ID] = handSize(players, ID);
+		}
+		owns[observer] = hand;
+		lacks[observer] = Card.ALL & ~hand;
+		propagate();
+	}
+
+	private Deduction(Deduction other) {
+		this.observer = other.observer;
+		this.size = other.size;		//never changes, shared
+		this.owns = other.owns.clone();
+		this.lacks = other.lacks.clone();
+		this.clauses = Arrays.copyOf(other.clauses, Math.max(8, other.pending));
+		this.pending = other.pending;
+	}
+
+	/**
+	 * Number of cards Player with ID is dealt, cards go round from P1 after the solution is picked
+	 * @param players
+	 * @param ID
+	 * @return
+	 */
+	public static int handSize(int players, int ID) {
+		int cards = Card.COUNT - 3;
+		return cards / players + (ID <= cards % players ? 1 : 0);
+	}
+
+	/**
+	 * The observer was shown card by refuter
+	 * @param refuter -- Player ID
+	 * @param card -- card id
+	 */
+	public void shown(int refuter, int card) {
+		owns[refuter] |= Card.bit(card);
+		propagate();
+	}
+
+	/**
+	 * refuter showed ONE card of suggestion to someone else, the observer did not see which
+	 * @param refuter -- Player ID
+	 * @param suggestion -- card mask of the suggestion
+	 */
+	public void refuted(int refuter, int suggestion) {
+		if (pending == clauses.length) {
+			clauses = Arrays.copyOf(clauses, pending * 2);
+		}
+		clauses[pending++] = refuter << 24 | suggestion;
+		propagate();
+	}
+
+	/**
+	 * player was asked to refute suggestion and could not
+	 * @param player -- Player ID
+	 * @param suggestion -- card mask of the suggestion
+	 */
+	public void cannotRefute(int player, int suggestion) {
+		lacks[player] |= suggestion;
+		propagate();
+	}
+
+	/**
+	 * Apply the rules until nothing changes
+	 * <br> Every pass either learns something or stops, and there are at most 2 * 21 * holders facts to learn
+	 */
+	private void propagate() {
+		boolean changed = true;
+		while (changed) {
+			changed = false;
+			int all = 0;		//cards with a known holder
+			for (int h = 0; h < owns.length; h++) {
+				all |= owns[h];
+			}
+			for (int h = 0; h < owns.length; h++) {
+				int l = lacks[h] | (all & ~owns[h]);		//someone else owns it
+				int o = owns[h];
+				if (Integer.bitCount(o) == size[h]) {		//hand is complete
+					l |= Card.ALL & ~o;
+				}
+				if (Integer.bitCount(Card.ALL & ~l) == size[h]) {		//only so many cards left
+					o |= Card.ALL & ~l;
+				}
+				if (h == ENVELOPE) {		//one of each kind
+					for (int kind: KINDS) {
+						if ((o & kind) != 0) {
+							l |= kind & ~o;
+						} else if (Integer.bitCount(kind & ~l) == 1) {
+							o |= kind & ~l;
+						}
+					}
+				}
+				if (o != owns[h] || l != lacks[h]) {
+					owns[h] = o;
+					lacks[h] = l;
+					changed = true;
+				}
+			}
+			//a card that every holder but one lacks belongs to that one
+			for (int m = Card.ALL & ~all; m != 0; m &= m - 1) {
+				int bit = m & -m;
+				int holder = -1;
+				for (int h = 0; h < owns.length; h++) {
+					if ((lacks[h] & bit) == 0) {
+						holder = holder == -1 ? h : -2;		//-2: more than one
+					}
+				}
+				if (holder >= 0) {
+					owns[holder] |= bit;
+					changed = true;
+				}
+			}
+			//refutations: drop the satisfied, resolve those down to one card
+			for (int i = pending - 1; i >= 0; i--) {
+				int h = clauses[i] >>> 24;
+				int m = clauses[i] & Card.ALL & ~lacks[h];
+				if ((m & owns[h]) != 0 || Integer.bitCount(m) <= 1) {
+					if (Integer.bitCount(m) == 1 && (m & owns[h]) == 0) {
+						owns[h] |= m;
+						changed = true;
+					}
+					clauses[i] = clauses[--pending];		//done with
+				}
+			}
+		}
+	}
+
+	/**
+	 * Independent copy, e.g. to try out a suggestion
+	 * @return
+	 */
+	public Deduction copy() {
+		return new Deduction(this);
+	}
+
+	/**
+	 * @param holder -- ENVELOPE or a Player ID
+	 * @param card -- card id
+	 * @return OWNS, LACKS or UNKNOWN
+	 */
+	public int status(int holder, int card) {
+		if ((owns[holder] & Card.bit(card)) != 0) {return OWNS;}
+		if ((lacks[holder] & Card.bit(card)) != 0) {return LACKS;}
+		return UNKNOWN;
+	}
+
+	/**
+	 * Cards that may be in the envelope, at least one of each kind
+	 * @return card mask
+	 */
+	public int candidates() {
+		return Card.ALL & ~lacks[ENVELOPE];
+	}
+
+	/**
+	 * Every suggestion that may be the solution
+	 * @return card masks, see Card.mask()
+	 */
+	public int[] solutions() {
+		int c = candidates();
+		int[] result = new int[Integer.bitCount(c & SUSPECTS) * Integer.bitCount(c & WEAPONS) * Integer.bitCount(c & PLACES)];
+		int n = 0;
+		for (int s = c & SUSPECTS; s != 0; s &= s - 1) {
+			for (int w = c & WEAPONS; w != 0; w &= w - 1) {
+				for (int p = c & PLACES; p != 0; p &= p - 1) {
+					result[n++] = (s & -s) | (w & -w) | (p & -p);
+				}
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * @return true iff exactly one solution is left
+	 */
+	public boolean isSolved() {
+		return Integer.bitCount(owns[ENVELOPE]) == 3;
+	}
+
+	/**
+	 * Same knowledge: same observer, same facts, same pending refutations in any order
+	 * </br> NOTE: Deduction is mutable, use a copy() as a map key
+	 */
+	@Override
+	public boolean equals(Object o) {
+		if (this == o) {return true;}
+		if (!(o instanceof Deduction)) {return false;}
+		Deduction other = (Deduction) o;
+		return observer == other.observer && Arrays.equals(owns, other.owns) && Arrays.equals(lacks, other.lacks)
+				&& Arrays.equals(sortedClauses(), other.sortedClauses());
+	}
+
+	@Override
+	public int hashCode() {
+		return 31 * (31 * (31 * observer + Arrays.hashCode(owns)) + Arrays.hashCode(lacks)) + Arrays.hashCode(sortedClauses());
+	}
+
+	private int[] sortedClauses() {
+		int[] c = clauses();
+		Arrays.sort(c);
+		return c;
+	}
+
+	//GETTERS, card masks
+	public int owns(int holder) {
+		return owns[holder];
+	}
+
+	public int lacks(int holder) {
+		return lacks[holder];
+	}
+
+	public int unknown(int holder) {
+		return Card.ALL & ~owns[holder] & ~lacks[holder];
+	}
+
+	public int holders() {
+		return owns.length;
+	}
+
+	public int size(int holder) {
+		return size[holder];
+	}
+
+	public int observer() {
+		return observer;
+	}
+
+	/**
+	 * Pending refutations i.e. clauses not yet resolved
+	 * @return refuter << 24 | suggestion, see refuted()
+	 */
+	public int[] clauses() {
+		return Arrays.copyOf(clauses, pending);
+	}
+
+	/**
+	 * Notes as they were saved, i.e. from owns(), lacks() and clauses() of every holder
+	 * </br> Nothing is deduced again, the saved notes already were
+	 * @param players -- number of players dealt cards
+	 * @param observer -- Player ID whose notes these are
+	 * @param owns -- holder to card mask
+	 * @param lacks -- holder to card mask
+	 * @param clauses -- see clauses()
+	 * @return
+	 */
+	public static Deduction restore(int players, int observer, int[] owns, int[] lacks, int[] clauses) {
+		Deduction notes = new Deduction(players, observer, owns[observer]);
+		System.arraycopy(owns, 0, notes.owns, 0, notes.owns.length);
+		System.arraycopy(lacks, 0, notes.lacks, 0, notes.lacks.length);
+		notes.clauses = Arrays.copyOf(clauses, Math.max(8, clauses.length));
+		notes.pending = clauses.length;
+		return notes;
+	}
+}
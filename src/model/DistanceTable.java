@@ -0,0 +1,340 @@
+package model;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ShortBuffer;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Precomputed BFS distances over the static topology of a Board i.e. ignoring Players
+ * <br> -- fewest steps from every Square to enter every room, stairwells included
+ * <br> -- fewest steps between every pair of Squares, a Room counts as ONE Square
+ * <br> -- kept in primitive short[] arrays, -1 means unreachable
+ * <br> -- saved to a file named after the topology, so later launches skip the computation
+ * <br> -- thread safe, shared through the BoardTopology
+ * @author Ronni Perez
+ *
+ */
+public final class DistanceTable {
+	private static final int MAGIC = 0x434C4454;		//"CLDT"
+	private static final int VERSION = 1;
+	//above this many nodes, pairs are computed per source on demand and not saved
+	private static final int MAX_PAIRS_NODES = 2048;
+
+	private final int size;		//number of Squares
+	private final int rooms;		//number of rooms
+	private final int nodes;		//number of Squares once each Room counts as one
+	private final int[] node;		//square id to node
+	private final short[] toRoom;		//[room * size + square id] steps to enter room
+	private final AtomicReferenceArray<short[]> pairs;		//[node][node] steps, a row is null until needed
+	private boolean saved = true;		//false if computed and the file could not be written
+
+	//used to fill rows of 'pairs' on demand
+	private final int[] offsets;		//node to start of its neighbours in targets
+	private final int[] targets;		//neighbour nodes
+
+	private DistanceTable(Adjacency adj, RoomIndex roomIndex) {
+		this.size = adj.size();
+		this.rooms = roomIndex.rooms();
+		this.node = new int[size];
+		int n = 0;
+		for (int id = 0; id < size; id++) {
+			if (adj.canonical(id) == id) {
+				node[id] = n++;
+			}
+		}
+		for (int id = 0; id < size; id++) {
+			node[id] = node[adj.canonical(id)];
+		}
+		this.nodes = n;
+
+		//REVERSE edges between nodes i.e. who can step INTO a node
+		this.offsets = new int[nodes + 1];
+		int edges = 0;
+		for (int id = 0; id < size; id++) {
+			if (adj.canonical(id) != id) {continue;}
+			for (int i = adj.start(id); i < adj.end(id); i++) {
+				offsets[node[adj.target(i)] + 1]++;
+				edges++;
+			}
+		}
+		for (int v = 0; v < nodes; v++) {
+			offsets[v + 1] += offsets[v];
+		}
+		this.targets = new int[edges];
+		int[] fill = Arrays.copyOf(offsets, nodes);
+		for (int id = 0; id < size; id++) {
+			if (adj.canonical(id) != id) {continue;}
+			for (int i = adj.start(id); i < adj.end(id); i++) {
+				targets[fill[node[adj.target(i)]]++] = node[id];
+			}
+		}
+
+		this.toRoom = new short[rooms * size];
+		this.pairs = new AtomicReferenceArray<short[]>(nodes);
+	}
+
+	/**
+	 * Distance tables of a Board, read from the saved file if there is one, else computed and saved
+	 * <br> Saving is best effort, see isSaved()
+	 * <br> The file lives in the directory given by the 'cluedo.cache' system property,
+	 * the temporary directory by default
+	 * @param adj -- neighbours of every Square
+	 * @param roomIndex -- room membership of every Square
+	 * @return
+	 */
+	public static DistanceTable load(Adjacency adj, RoomIndex roomIndex) {
+		DistanceTable table = new DistanceTable(adj, roomIndex);
+		long key = fingerprint(adj, roomIndex);
+		File file = new File(System.getProperty("cluedo.cache", System.getProperty("java.io.tmpdir")),
+				"cluedo-distances-" + Long.toHexString(key) + ".bin");
+		if (file.isFile() && table.read(file, key)) {
+			return table;
+		}
+		table.compute(roomIndex);
+		table.saved = table.write(file, key);
+		return table;
+	}
+
+	/**
+	 * Number of bytes put() needs
+	 * @return
+	 */
+	int bytes() {
+		return 4 + 1 + 2 * toRoom.length + (isFull() ? 2 * nodes * nodes : 0);
+	}
+
+	/**
+	 * Write the tables, see BoardFile
+	 * @param out -- position is moved past what is written
+	 */
+	void put(ByteBuffer out) {
+		boolean full = isFull();
+		out.putInt(nodes).put((byte) (full ? 1 : 0));
+		ShortBuffer shorts = out.asShortBuffer();
+		shorts.put(toRoom);
+		if (full) {
+			for (int v = 0; v < nodes; v++) {
+				shorts.put(pairs.get(v));
+			}
+		}
+		out.position(out.position() + 2 * shorts.position());
+	}
+
+	/**
+	 * Read tables written by put() with bulk copies, nothing is computed
+	 * @param adj -- neighbours of every Square
+	 * @param roomIndex -- room membership of every Square
+	 * @param in -- position is moved past what is read
+	 * @return
+	 */
+	static DistanceTable get(Adjacency adj, RoomIndex roomIndex, ByteBuffer in) {
+		DistanceTable table = new DistanceTable(adj, roomIndex);
+		if (in.getInt() != table.nodes) {
+			throw new IllegalArgumentException("Distances do not match the board");
+		}
+		boolean full = in.get() != 0;
+		ShortBuffer shorts = in.asShortBuffer();
+		shorts.get(table.toRoom);
+		if (full) {
+			for (int v = 0; v < table.nodes; v++) {
+				short[] row = new short[table.nodes];
+				shorts.get(row);
+				table.pairs.set(v, row);
+			}
+		}
+		in.position(in.position() + 2 * shorts.position());
+		return table;
+	}
+
+	/**
+	 * @return true iff every row of pairs is known
+	 */
+	private boolean isFull() {
+		for (int v = 0; v < nodes; v++) {
+			if (pairs.get(v) == null) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Fewest steps from Square with id to enter room
+	 * @param id -- Square id
+	 * @param room -- see RoomIndex
+	 * @return -1 if room can never be entered from Square with id
+	 */
+	public int distance(int id, int room) {
+		return toRoom[room * size + id];
+	}
+
+	/**
+	 * Fewest steps from Square 'from' to Square 'to', a Room counts as ONE Square
+	 * @param from -- Square id
+	 * @param to -- Square id
+	 * @return -1 if 'to' can never be reached from 'from'
+	 */
+	public int between(int from, int to) {
+		short[] row = pairs.get(node[to]);		//rows hold steps INTO a node
+		if (row == null) {		//racing threads compute the same row, either one is kept
+			row = bfs(node[to]);
+			pairs.compareAndSet(node[to], null, row);
+		}
+		return row[node[from]];
+	}
+
+	/**
+	 * Fill the room table and, if small enough, every row of pairs
+	 * @param roomIndex
+	 */
+	private void compute(RoomIndex roomIndex) {
+		for (int room = 0; room < rooms; room++) {
+			short[] row = bfs(node[roomIndex.square(roomIndex.start(room))]);
+			for (int id = 0; id < size; id++) {
+				toRoom[room * size + id] = row[node[id]];
+			}
+		}
+		if (nodes <= MAX_PAIRS_NODES) {
+			for (int v = 0; v < nodes; v++) {
+				pairs.set(v, bfs(v));
+			}
+		}
+	}
+
+	/**
+	 * Breadth first search over the reverse edges
+	 * @param goal -- node to step into
+	 * @return node to fewest steps needed to get to goal, -1 if never
+	 */
+	private short[] bfs(int goal) {
+		short[] dist = new short[nodes];
+		Arrays.fill(dist, (short) -1);
+		int[] queue = new int[nodes];
+		int head = 0;
+		int tail = 0;
+		dist[goal] = 0;
+		queue[tail++] = goal;
+		while (head < tail) {
+			int v = queue[head++];
+			for (int i = offsets[v]; i < offsets[v + 1]; i++) {
+				int u = targets[i];
+				if (dist[u] < 0) {
+					dist[u] = (short) (dist[v] + 1);
+					queue[tail++] = u;
+				}
+			}
+		}
+		return dist;
+	}
+
+	/**
+	 * Read tables saved by write()
+	 * @param file
+	 * @param key -- fingerprint of the topology
+	 * @return true iff the file matched this topology and was read in full
+	 */
+	private boolean read(File file, long key) {
+		try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+			if (in.readInt() != MAGIC || in.readInt() != VERSION || in.readLong() != key
+					|| in.readInt() != size || in.readInt() != rooms || in.readInt() != nodes) {
+				return false;		//stale or foreign file, compute again
+			}
+			for (int i = 0; i < toRoom.length; i++) {
+				toRoom[i] = in.readShort();
+			}
+			if (in.readBoolean()) {		//has pairs
+				for (int v = 0; v < nodes; v++) {
+					short[] row = new short[nodes];
+					for (int u = 0; u < nodes; u++) {
+						row[u] = in.readShort();
+					}
+					pairs.set(v, row);
+				}
+			}
+			return true;
+		} catch (IOException e) {
+			return false;		//unreadable, compute again
+		}
+	}
+
+	/**
+	 * Save tables so that later launches can read() them, see SafeFile
+	 * @param file
+	 * @param key -- fingerprint of the topology
+	 * @return false if file could not be written e.g. a read-only cache directory
+	 */
+	private boolean write(File file, long key) {
+		try {
+			SafeFile.write(file, out -> {
+				out.writeInt(MAGIC);
+				out.writeInt(VERSION);
+				out.writeLong(key);
+				out.writeInt(size);
+				out.writeInt(rooms);
+				out.writeInt(nodes);
+				for (short d : toRoom) {
+					out.writeShort(d);
+				}
+				boolean full = nodes <= MAX_PAIRS_NODES;
+				out.writeBoolean(full);
+				if (full) {
+					for (int v = 0; v < nodes; v++) {
+						for (short d : pairs.get(v)) {
+							out.writeShort(d);
+						}
+					}
+				}
+			});		//concurrent launches write the same tables, whichever moves last is kept
+			return true;
+		} catch (IOException e) {
+			return false;		//best effort, computed again next launch
+		}
+	}
+
+	/**
+	 * 64-bit FNV-1a hash of everything the distances depend on
+	 * @param adj
+	 * @param roomIndex
+	 * @return
+	 */
+	private static long fingerprint(Adjacency adj, RoomIndex roomIndex) {
+		long h = 0xcbf29ce484222325L;
+		h = mix(h, adj.rows());
+		h = mix(h, adj.cols());
+		for (int id = 0; id < adj.size(); id++) {
+			h = mix(h, adj.canonical(id));
+			h = mix(h, roomIndex.roomOf(id));
+			for (int i = adj.start(id); i < adj.end(id); i++) {
+				h = mix(h, adj.target(i));
+			}
+			h = mix(h, -1);		//end of neighbours
+		}
+		return h;
+	}
+
+	private static long mix(long h, int value) {
+		for (int shift = 0; shift < 32; shift += 8) {
+			h ^= (value >>> shift) & 0xff;
+			h *= 0x100000001b3L;
+		}
+		return h;
+	}
+
+	//GETTERS
+	public int rooms() {
+		return rooms;
+	}
+
+	/**
+	 * @return false if the tables were computed and could not be saved, so the next launch computes them again
+	 */
+	public boolean isSaved() {
+		return saved;
+	}
+}
@@ -0,0 +1,411 @@
+package model;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Plans the moves of ONE turn towards the most valuable room, by Monte Carlo tree search over the next few turns
+ * <br> -- decision node: where to stop this turn, every Square reachable with the roll, a Room once;
+ * entering a Room ends the turn, stairwells are Room to Room steps, see Reachability
+ * <br> -- chance node: the roll of the next turn, one die, each of 1..6 as likely, sampled rather than searched
+ * <br> -- reward: value of the first valued room entered, lower the more turns it takes, see DISCOUNT;
+ * past the last turn searched, or in a playout, the rest of the way is estimated from the DistanceTable
+ * <br> -- playouts run in parallel on a ForkJoinPool and share one tree; a playout counts as a visit with no reward
+ * on its way down (virtual loss), so the others spread over other branches until its reward is added
+ * <br> -- stops after a budget of playouts, each adds at most one node, or of time, whichever comes first
+ * <br> Other Players' tokens are taken to stay where they are
+ * @author Ronni Perez
+ *
+ */
+public final class MovePlanner {
+	public static final int NODES = 1 << 14;		//default most playouts per plan
+	public static final long BUDGET = 30;		//default milliseconds per plan
+	public static final int TURNS = 3;		//default turns searched, this one included
+	private static final double DISCOUNT = 0.75;		//value of a room one turn later
+	private static final double EXPLORE = 0.5;		//UCT exploration constant
+	private static final double MEAN_ROLL = 3.5;		//steps per turn, estimates only
+	private static final double GREEDY = 0.8;		//chance a playout takes the best looking move
+	private static final int FACES = 6;		//sides of the die
+	private static final double SCALE = 1 << 20;		//rewards are summed as fixed point longs
+
+	private final Adjacency adjacency;
+	private final RoomIndex rooms;
+	private final DistanceTable distances;
+	private final ForkJoinPool pool;
+	private final int nodes;
+	private final long budget;
+	private final int turns;
+
+	/**
+	 * Constructor
+	 * @param topology -- board played on
+	 * @param pool -- where playouts run, one worker per thread of its parallelism
+	 * @param nodes -- most playouts per plan, see NODES
+	 * @param budget -- most milliseconds per plan, see BUDGET
+	 * @param turns -- turns searched, at least 1, see TURNS
+	 */
+	public MovePlanner(BoardTopology topology, ForkJoinPool pool, int nodes, long budget, int turns) {
+		if (nodes < 1 || budget < 1 || turns < 1) {
+			throw new IllegalArgumentException("Budget must be positive");
+		}
+		this.adjacency = topology.getAdjacency();
+		this.rooms = topology.getRooms();
+		this.distances = topology.getDistances();
+		this.pool = pool;
+		this.nodes = nodes;
+		this.budget = budget;
+		this.turns = turns;
+	}
+
+	/**
+	 * Plan the current turn
+	 * @param start -- Square id of the moving Player
+	 * @param remaining -- move steps left this turn
+	 * @param occupied -- ids of Squares taken by OTHER Players, NOT modified
+	 * @param visited -- visited Squares this turn, by Square id, NOT modified
+	 * @param value -- room to how much it is worth to get there, 0 if nothing, see RoomIndex
+	 * @param seed -- seed of the rolls and playouts
+	 * @return the path to take, empty if the Player cannot move
+	 */
+	public Plan plan(int start, int remaining, BitSet occupied, BitSet visited, double[] value, long seed) {
+		long deadline = System.nanoTime() + budget * 1000000L;
+		Search search = new Search(occupied, value, deadline);
+		Reachability.Reach reach = new Reachability(adjacency, rooms)
+				.search(start, remaining, occupied, 0, visited, Zobrist.visited(visited));
+		Node root = search.node(reach, 0);
+		if (root.moves.length == 0) {
+			return new Plan(new int[0], 0, 0, 1);
+		}
+		int workers = Math.max(1, pool.getParallelism());
+		pool.invoke(new Worker(search, root, new SplittableRandom(seed), workers));
+
+		//most visited stop, the best looking on ties
+		int best = 0;
+		for (int i = 1; i < root.moves.length; i++) {
+			int c = Integer.compare(root.visits.get(i), root.visits.get(best));
+			if (c > 0 || c == 0 && root.prior[i] > root.prior[best]) {
+				best = i;
+			}
+		}
+		return new Plan(reach.path(root.moves[best]), root.mean(best),
+				Math.min(search.playouts.get(), nodes), search.size.get());
+	}
+
+	/**
+	 * Estimated reward of standing on Square with id at the start of a turn
+	 * @param id -- Square id
+	 * @param turn -- turns taken by then, 0 is this turn
+	 * @param value -- see plan()
+	 * @return
+	 */
+	private double estimate(int id, int turn, double[] value) {
+		double best = 0;
+		for (int room = 0; room < value.length; room++) {
+			if (value[room] <= 0) {continue;}
+			int steps = distances.distance(id, room);
+			if (steps < 0) {continue;}		//never entered from here
+			double v = value[room] * Math.pow(DISCOUNT, turn + Math.max(1, Math.ceil(steps / MEAN_ROLL)) - 1);
+			best = Math.max(best, v);
+		}
+		return best;
+	}
+
+	/**
+	 * What to do this turn
+	 */
+	public static final class Plan {
+		public final int[] path;		//Square ids of every step, excluding the start, see Reach.path()
+		public final double value;		//expected reward of the path, 0..1 if values are
+		public final int playouts;		//playouts run
+		public final int nodes;		//decision nodes in the tree
+
+		private Plan(int[] path, double value, int playouts, int nodes) {
+			this.path = path;
+			this.value = value;
+			this.playouts = playouts;
+			this.nodes = nodes;
+		}
+
+		/**
+		 * @return Square id the path ends on, -1 if empty
+		 */
+		public int destination() {
+			return path.length == 0 ? -1 : path[path.length - 1];
+		}
+	}
+
+	/**
+	 * One plan, shared by its workers
+	 */
+	private final class Search {
+		private final BitSet occupied;
+		private final double[] value;
+		private final long deadline;		//System.nanoTime() when time is up
+		private final AtomicInteger playouts = new AtomicInteger();		//started so far
+		private final AtomicInteger size = new AtomicInteger();		//decision nodes
+
+		private Search(BitSet occupied, double[] value, long deadline) {
+			this.occupied = occupied;
+			this.value = value;
+			this.deadline = deadline;
+		}
+
+		/**
+		 * @return true iff another playout fits the budget, and counts it
+		 */
+		private boolean more() {
+			return System.nanoTime() - deadline < 0 && playouts.incrementAndGet() <= nodes;
+		}
+
+		/**
+		 * @param id -- Square id
+		 * @return true iff entering Square with id ends the search i.e. it is part of a valued room
+		 */
+		private boolean scores(int id) {
+			int room = rooms.roomOf(id);
+			return room != RoomIndex.NONE && value[room] > 0;
+		}
+
+		/**
+		 * Decision node, its moves rated up front
+		 * @param reach -- from the Square of the node, with its roll
+		 * @param turn -- 0 is this turn
+		 * @return
+		 */
+		private Node node(Reachability.Reach reach, int turn) {
+			int[] moves = stops(reach);
+			double[] prior = new double[moves.length];
+			for (int i = 0; i < moves.length; i++) {
+				prior[i] = rate(moves[i], turn);
+			}
+			size.incrementAndGet();
+			return new Node(turn, moves, prior);
+		}
+
+		/**
+		 * @param reach
+		 * @return Square ids where the turn may end, a Room once
+		 */
+		private int[] stops(Reachability.Reach reach) {
+			int[] moves = new int[reach.size()];
+			int n = 0;
+			long seen = 0;		//rooms listed, a bit per room
+			for (int i = 0; i < reach.size(); i++) {
+				int id = reach.square(i);
+				int room = rooms.roomOf(id);
+				if (room != RoomIndex.NONE) {
+					if ((seen & 1L << room) != 0) {continue;}
+					seen |= 1L << room;
+				}
+				moves[n++] = id;
+			}
+			return Arrays.copyOf(moves, n);
+		}
+
+		/**
+		 * @param id -- Square id the turn ends on
+		 * @param turn -- 0 is this turn
+		 * @return reward if valued, estimated reward from there otherwise
+		 */
+		private double rate(int id, int turn) {
+			if (scores(id)) {
+				return value[rooms.roomOf(id)] * Math.pow(DISCOUNT, turn);
+			}
+			return estimate(id, turn + 1, value);
+		}
+	}
+
+	/**
+	 * Decision node, statistics per move
+	 */
+	private static final class Node {
+		private final int turn;
+		private final int[] moves;		//Square ids the turn may end on
+		private final double[] prior;		//see Search.rate(), counts as one visit
+		private final AtomicIntegerArray visits;		//move to playouts through it, virtual losses included
+		private final AtomicLongArray rewards;		//move to summed rewards, see SCALE
+		private final AtomicInteger total = new AtomicInteger();		//playouts through this node
+		private final AtomicReferenceArray<Node> next;		//[move * FACES + roll - 1] node of the next turn
+
+		private Node(int turn, int[] moves, double[] prior) {
+			this.turn = turn;
+			this.moves = moves;
+			this.prior = prior;
+			this.visits = new AtomicIntegerArray(moves.length);
+			this.rewards = new AtomicLongArray(moves.length);
+			this.next = new AtomicReferenceArray<Node>(moves.length * FACES);
+		}
+
+		/**
+		 * @param i -- move
+		 * @return mean reward, the prior counted as one visit
+		 */
+		private double mean(int i) {
+			return (rewards.get(i) / SCALE + prior[i]) / (visits.get(i) + 1);
+		}
+
+		/**
+		 * UCT
+		 * @return move to try next
+		 */
+		private int select() {
+			double log = Math.log(total.get() + 1);
+			int best = 0;
+			double bestScore = Double.NEGATIVE_INFINITY;
+			for (int i = 0; i < moves.length; i++) {
+				double score = mean(i) + EXPLORE * Math.sqrt(log / (visits.get(i) + 1));
+				if (score > bestScore) {
+					best = i;
+					bestScore = score;
+				}
+			}
+			return best;
+		}
+	}
+
+	/**
+	 * Runs playouts until the budget is used up, 'workers' of them in parallel
+	 */
+	private final class Worker extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
+		private final Search search;
+		private final Node root;
+		private final SplittableRandom rng;
+		private final int workers;
+
+		private Worker(Search search, Node root, SplittableRandom rng, int workers) {
+			this.search = search;
+			this.root = root;
+			this.rng = rng;
+			this.workers = workers;
+		}
+
+		@Override
+		protected void compute() {
+			if (workers > 1) {
+				Worker other = new Worker(search, root, rng.split(), workers / 2);
+				other.fork();
+				new Worker(search, root, rng, workers - workers / 2).compute();
+				other.join();
+				return;
+			}
+			//own search scratch, a Reachability is NOT thread safe
+			Reachability reach = new Reachability(adjacency, rooms);
+			BitSet visited = new BitSet(adjacency.size());
+			while (search.more()) {
+				playout(reach, visited);
+			}
+		}
+
+		/**
+		 * Down the tree to a new node, then a playout to the end of the horizon, then the reward back up
+		 * @param reach
+		 * @param visited -- scratch
+		 */
+		private void playout(Reachability reach, BitSet visited) {
+			Node[] path = new Node[turns];
+			int[] moves = new int[turns];
+			int depth = 0;
+			double reward;
+			Node node = root;
+			while (true) {
+				int i = node.select();
+				node.total.incrementAndGet();		//virtual loss, until the reward is added
+				node.visits.incrementAndGet(i);
+				path[depth] = node;
+				moves[depth++] = i;
+				int id = node.moves[i];
+				if (search.scores(id) || node.turn + 1 >= turns) {
+					reward = search.rate(id, node.turn);
+					break;
+				}
+				int roll = rng.nextInt(FACES) + 1;		//chance node
+				Node child = node.next.get(i * FACES + roll - 1);
+				boolean made = child == null;
+				if (made) {		//expand, a racing worker's node may be kept instead
+					node.next.compareAndSet(i * FACES + roll - 1, null,
+							search.node(start(reach, visited, id, roll), node.turn + 1));
+					child = node.next.get(i * FACES + roll - 1);
+				}
+				if (child.moves.length == 0) {		//blocked in, the turn is lost
+					reward = estimate(id, child.turn + 1, search.value);
+					break;
+				}
+				if (made) {
+					reward = rollout(reach, visited, child);
+					break;
+				}
+				node = child;
+			}
+			long scaled = (long) (reward * SCALE);
+			for (int d = 0; d < depth; d++) {
+				path[d].rewards.addAndGet(moves[d], scaled);
+			}
+		}
+
+		/**
+		 * Mostly greedy moves and random rolls from node to a valued room or the end of the horizon
+		 * @param reach
+		 * @param visited -- scratch
+		 * @param node -- with moves, NOT modified
+		 * @return reward
+		 */
+		private double rollout(Reachability reach, BitSet visited, Node node) {
+			int turn = node.turn;
+			int id = pick(node.moves, node.prior);
+			while (!search.scores(id) && turn + 1 < turns) {
+				turn++;
+				Reachability.Reach r = start(reach, visited, id, rng.nextInt(FACES) + 1);
+				int[] moves = search.stops(r);
+				if (moves.length == 0) {
+					return estimate(id, turn + 1, search.value);
+				}
+				double[] prior = new double[moves.length];
+				for (int i = 0; i < moves.length; i++) {
+					prior[i] = search.rate(moves[i], turn);
+				}
+				id = pick(moves, prior);
+			}
+			return search.rate(id, turn);
+		}
+
+		/**
+		 * @param moves
+		 * @param prior
+		 * @return the best rated of moves, or at times any
+		 */
+		private int pick(int[] moves, double[] prior) {
+			if (rng.nextDouble() >= GREEDY) {
+				return moves[rng.nextInt(moves.length)];
+			}
+			int best = 0;
+			for (int i = 1; i < moves.length; i++) {
+				if (prior[i] > prior[best]) {
+					best = i;
+				}
+			}
+			return moves[best];
+		}
+
+		/**
+		 * Squares reachable at the start of a later turn, only its own Square visited
+		 * @param reach
+		 * @param visited -- scratch
+		 * @param id -- Square id
+		 * @param roll
+		 * @return
+		 */
+		private Reachability.Reach start(Reachability reach, BitSet visited, int id, int roll) {
+			visited.clear();
+			visited.set(id);
+			return reach.search(id, roll, search.occupied, 0, visited, Zobrist.visited(id));
+		}
+	}
+}
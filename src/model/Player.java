@@ -3,11 +3,11 @@ package model;
 import java.awt.Color;
 import java.awt.Graphics;
 import java.awt.Graphics2D;
-import java.util.HashSet;
 import java.util.Set;
+import java.util.SplittableRandom;
 
+import model.Card.Suspect;
 import view.GUICanvas;
-import view.InputOutput;
 
 /**
  * A Player in the game
@@ -17,23 +17,23 @@ import view.InputOutput;
 public class Player {
 	// public because final
 	public final int ID;		//unique identifier, also the player number
-	public final String character;		//character portrayed by this player
+	public final Suspect character;		//character portrayed by this player
 	public final String name;
 	public Color color;			//token color on canvas
 	
 	private boolean isPlaying;		//disqualified or not?
 	private Square location;		//current location in the board
-	private Set<Card> yourCards;	//cards in-hand
-	private Set<Card> cardsSeen;		//detective notes
+	private int yourCards;	//cards in-hand, bit i set iff has Card with id i
+	private int cardsSeen;		//detective notes, same bit layout
 	
-	public Player(int ID, String name, String character, Square location) {
+	public Player(int ID, String name, Suspect character, Square location) {
 		this.ID = ID;
 		this.isPlaying = true;
 		this.name = name;
 		this.character = character;
 		this.location = location;
-		this.yourCards = new HashSet<Card>();
-		this.cardsSeen = new HashSet<Card>();
+		this.yourCards = 0;
+		this.cardsSeen = 0;
 		this.color = setColor(character);
 	}
 	
@@ -43,14 +43,14 @@ public class Player {
 	 * @param character
 	 * @param location
 	 */
-	public Player(int ID, String character, Square location) {
+	public Player(int ID, Suspect character, Square location) {
 		this.ID = ID;
 		this.isPlaying = true;
 		this.name = "";
 		this.character = character;
 		this.location = location;
-		this.yourCards = new HashSet<Card>();
-		this.cardsSeen = new HashSet<Card>();
+		this.yourCards = 0;
+		this.cardsSeen = 0;
 		this.color = setColor(character);
 	}
 
@@ -59,28 +59,48 @@ public class Player {
 	 * @param cd
 	 */
 	public void addCard (Card cd) {
-		yourCards.add(cd);
-		cardsSeen.add(cd);
+		yourCards |= Card.bit(cd.id);
+		cardsSeen |= Card.bit(cd.id);
 	}
 	
 	/**
 	 * Supplementary method
-	 * Checks if Player has Card with the name
-	 * Used by Cluedo.checkSuggestion() 
-	 * @param name -- long name of card
-	 * @param isTesting is true iff in 'jUnit testing'. Set to true when testing
+	 * Checks if Player has Card with the id
+	 * @param card -- id of card, see Card
 	 * @return card iff player has card, null otherwise
 	 */
-	public Card hasCard(String name, boolean isTesting) {
-		for (Card c: yourCards) {
-			if (c.name.equals(name)) {
-				if (!isTesting) {		//if not testing, output
-					InputOutput.popup("Suggestion Refuted", "Player "+ID+" has the card "+name);
-				}
-				return c;
-			}
+	public Card hasCard(int card) {
+		if ((yourCards & Card.bit(card)) == 0) {
+			return null;
 		}
-		return null;
+		return Card.get(card);
+	}
+	
+	/**
+	 * Checks if Player can refute a suggestion i.e. has at least one of its cards
+	 * @param suggestion -- bit mask of the suggested cards, see Card.mask()
+	 * @return
+	 */
+	public boolean canRefute(int suggestion) {
+		return (yourCards & suggestion) != 0;
+	}
+	
+	/**
+	 * Pick the card to show against a suggestion, at random if Player has more than one
+	 * Used by Engine.checkSuggestion() 
+	 * @param suggestion -- bit mask of the suggested cards, see Card.mask()
+	 * @param rand -- random numbers of this game
+	 * @return id of the card shown, Card.NONE if Player cannot refute
+	 */
+	public int refute(int suggestion, SplittableRandom rand) {
+		int match = yourCards & suggestion;
+		if (match == 0) {
+			return Card.NONE;
+		}
+		for (int skip = rand.nextInt(Integer.bitCount(match)); skip > 0; skip--) {
+			match &= match - 1;		//clear lowest set bit
+		}
+		return Integer.numberOfTrailingZeros(match);
 	}
 	
 	/**
@@ -101,6 +121,15 @@ public class Player {
 		this.isPlaying = isPlaying;
 	}
 	
+	/**
+	 * Supplementary method
+	 * Used by Engine.restore(), to put back the detective notes of a saved state
+	 * @param seen -- card mask, see Card.bit()
+	 */
+	public void setSeen(int seen) {
+		this.cardsSeen = seen;
+	}
+	
 	//GETTERS
 	public Square getLocation() {
 		return location;
@@ -115,9 +144,22 @@ public class Player {
 		return isPlaying;
 	}
 	
-	public Set<Card> allCards() {
+	//bit masks, see Card.bit()
+	public int hand() {
 		return yourCards;
 	}
+	
+	public int seen() {
+		return cardsSeen;
+	}
+	
+	/**
+	 * Cards in-hand, for display ONLY
+	 * @return a new Set, in card order
+	 */
+	public Set<Card> allCards() {
+		return Card.set(yourCards);
+	}
 
 	//ADDED METHODS
 	/**
@@ -125,19 +167,19 @@ public class Player {
 	 * @param character -- character portrayed by this Player
 	 * @return
 	 */
-	private Color setColor(String character) {
+	private Color setColor(Suspect character) {
 		switch(character) {
-			case "Miss Scarlett":
+			case MISS_SCARLETT:
 				return new Color(255, 36, 0);
-			case "Colonel Mustard":
+			case COLONEL_MUSTARD:
 				return new Color(255, 128, 0);
-			case "Mrs. White":
+			case MRS_WHITE:
 				return Color.WHITE;
-			case "The Reverend Green":
+			case THE_REVEREND_GREEN:
 				return new Color(0, 128, 0);
-			case "Mrs. Peacock":
+			case MRS_PEACOCK:
 				return new Color(0, 0, 255);
-			case "Professor Plum":
+			case PROFESSOR_PLUM:
 				return new Color(142, 69, 133);
 			}
 		//dead code
@@ -149,31 +191,7 @@ public class Player {
 	 * @param cd
 	 */
 	public void addToSeen(Card cd) {
-		cardsSeen.add(cd);
-	}
-	
-	/**
-	 * Manages JDialog popup message to show cards in hand
-	 */
-	public void showCards() {
-		StringBuilder text = new StringBuilder();
-		text.append("You have the following cards in your hand: \n");
-		for (Card c: yourCards) {	//output each card on one line
-			text.append(c.toString()+"\n");
-		}
-		InputOutput.popup(this.name+"'s Cards",  text.toString());
-	}
-	
-	/**
-	 * Manages JDialog popup message to show detective notes i.e. cards seen
-	 */
-	public void seenCards() {
-		StringBuilder text = new StringBuilder();
-		text.append("You have seen the following cards: \n");
-		for (Card c: cardsSeen) {		//output each card on one line
-			text.append(c.toString()+"\n");
-		}
-		InputOutput.popup(this.name+"'s Cards",  text.toString());
+		cardsSeen |= Card.bit(cd.id);
 	}
 	
 	/**
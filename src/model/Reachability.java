@@ -0,0 +1,276 @@
+package model;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Multi-step reachability engine of a Board
+ * <br> -- bounded breadth first search over the Board's Adjacency
+ * <br> -- occupied and visited Squares are never stepped on
+ * <br> -- entering a Room ends the turn, so a Room is reachable but never passed through
+ * <br> -- where a turn can end is found on demand by a depth first search over paths that never step on a Square twice,
+ * so detours count, not only shortest paths
+ * <br> -- results are cached per (position, remaining, occupancy, visited), the last two by their keys
+ * @author Ronni Perez
+ *
+ */
+public final class Reachability {
+	private static final int CACHE_SIZE = 64;		//most recent results kept
+
+	private final Adjacency adjacency;
+	private final RoomIndex rooms;
+	private final Map<Key, Reach> cache;
+
+	//scratch buffers, reused by every search
+	private final short[] dist;
+	private final int[] parent;
+	private final int[] queue;
+
+	/**
+	 * Constructor
+	 * <br> NOT thread safe, every Board has its own
+	 * @param adjacency -- neighbours of every Square
+	 * @param rooms -- room membership of every Square
+	 */
+	public Reachability(Adjacency adjacency, RoomIndex rooms) {
+		this.adjacency = adjacency;
+		this.rooms = rooms;
+		this.dist = new short[adjacency.size()];
+		this.parent = new int[adjacency.size()];
+		this.queue = new int[adjacency.size()];
+		this.cache = new LinkedHashMap<Key, Reach>(CACHE_SIZE, 0.75f, true) {
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<Key, Reach> eldest) {
+				return size() > CACHE_SIZE;
+			}
+		};
+	}
+
+	/**
+	 * Every Square reachable from start in at most 'remaining' steps
+	 * @param start -- Square id of the moving Player
+	 * @param remaining -- move steps left
+	 * @param occupied -- ids of Squares taken by ANY Player, including the moving one
+	 * @param occupancyKey -- key of 'occupied', kept up to date by the Board on every move, see Board.getKey()
+	 * @param visited -- visited Squares during current turn, by Square id
+	 * @param visitedKey -- Zobrist key of 'visited', see Zobrist.visited()
+	 * @return
+	 */
+	public Reach search(int start, int remaining, BitSet occupied, long occupancyKey, BitSet visited, long visitedKey) {
+		Key key = new Key(start, remaining, occupancyKey, visitedKey);
+		Reach r = cache.get(key);
+		if (r == null) {
+			r = bfs(start, remaining, occupied, visited);
+			cache.put(key, r);
+		}
+		return r;
+	}
+
+	private Reach bfs(int start, int remaining, BitSet occupied, BitSet visited) {
+		Arrays.fill(dist, (short) -1);
+		Arrays.fill(parent, -1);
+		int startGroup = adjacency.canonical(start);
+		int head = 0;
+		int tail = 0;
+		int found = 0;
+		dist[start] = 0;
+		queue[tail++] = start;
+
+		while (head < tail) {
+			int u = queue[head++];
+			int d = dist[u];
+			if (d >= remaining) {continue;}		//no steps left
+			if (rooms.roomOf(u) != RoomIndex.NONE && adjacency.canonical(u) != startGroup) {
+				continue;		//entered a room, turn ends here
+			}
+			for (int i = adjacency.start(u); i < adjacency.end(u); i++) {
+				int t = adjacency.target(i);
+				//a Room neighbour is every free Square of that Room
+				for (int j = adjacency.groupStart(t); j < adjacency.groupEnd(t); j++) {
+					int v = adjacency.member(j);
+					if (dist[v] >= 0 || occupied.get(v) || visited.get(v)
+							|| adjacency.canonical(v) == startGroup) {
+						continue;
+					}
+					dist[v] = (short) (d + 1);
+					parent[v] = u;
+					queue[tail++] = v;
+					found++;
+				}
+			}
+		}
+
+		//compact into an immutable result
+		int[] squares = new int[found];
+		for (int i = 0; i < found; i++) {
+			squares[i] = queue[i + 1];		//queue[0] is start
+		}
+		return new Reach(this, start, remaining, dist.clone(), parent.clone(), squares,
+				(BitSet) occupied.clone(), (BitSet) visited.clone());
+	}
+
+	/**
+	 * Result of one reachability search, shared through the cache so NOT to be modified
+	 * @author Ronni Perez
+	 *
+	 */
+	public static final class Reach {
+		public final int start;		//Square id searched from
+		public final int remaining;		//move steps available
+		private final short[] dist;		//square id to fewest steps, -1 if unreachable
+		private final int[] parent;		//square id to previous Square on a shortest path
+		private final int[] squares;		//reachable Square ids, nearest first
+
+		//what exactly() searches, on its first call
+		private final Adjacency adjacency;
+		private final RoomIndex rooms;
+		private final BitSet occupied;		//copy of the occupied Squares searched
+		private final BitSet visited;		//copy of the visited Squares searched
+		private volatile BitSet exact;		//Square ids at the end of a path of exactly 'remaining' steps, null until needed
+
+		private Reach(Reachability of, int start, int remaining, short[] dist, int[] parent, int[] squares,
+				BitSet occupied, BitSet visited) {
+			this.start = start;
+			this.remaining = remaining;
+			this.dist = dist;
+			this.parent = parent;
+			this.squares = squares;
+			this.adjacency = of.adjacency;
+			this.rooms = of.rooms;
+			this.occupied = occupied;
+			this.visited = visited;
+		}
+
+		/**
+		 * @param id
+		 * @return fewest steps needed to move to Square with id, -1 if not reachable this turn
+		 */
+		public int distance(int id) {
+			return dist[id];
+		}
+
+		/**
+		 * @param id
+		 * @return true iff Square with id can be moved to in at most 'remaining' steps
+		 */
+		public boolean atMost(int id) {
+			return id != start && dist[id] > 0;
+		}
+
+		/**
+		 * A Player's turn ends on Square with id if it uses ALL steps to get there
+		 * OR if it is part of a Room i.e. entering a room ends the turn
+		 * <br> ALL steps may take a detour, e.g. 4 steps end 2 Squares away around a corner
+		 * @param id
+		 * @param room -- true iff Square with id is part of a Room
+		 * @return
+		 */
+		public boolean exactly(int id, boolean room) {
+			if (!atMost(id)) {
+				return false;
+			}
+			if (room) {
+				return true;
+			}
+			BitSet e = exact;
+			if (e == null) {		//the same every time, so a race only searches twice
+				e = new BitSet(adjacency.size());
+				BitSet path = new BitSet(adjacency.size());
+				path.set(start);
+				dfs(start, 0, adjacency.canonical(start), path, e);
+				exact = e;
+			}
+			return e.get(id);
+		}
+
+		/**
+		 * Every Square where a path of exactly 'remaining' steps from u ends, a detour of the shortest one included
+		 * <br> Steps like bfs(), and never onto a Square of the path so far
+		 * @param u -- Square id the path is at
+		 * @param d -- steps taken
+		 * @param startGroup -- canonical id of the start
+		 * @param path -- Squares of the path so far
+		 * @param exact -- set with the ids of the Squares found
+		 */
+		private void dfs(int u, int d, int startGroup, BitSet path, BitSet exact) {
+			if (d == remaining) {
+				exact.set(u);
+				return;
+			}
+			if (rooms.roomOf(u) != RoomIndex.NONE && adjacency.canonical(u) != startGroup) {
+				return;		//entered a room, turn ends here and exactly() says so
+			}
+			for (int i = adjacency.start(u); i < adjacency.end(u); i++) {
+				int t = adjacency.target(i);
+				for (int j = adjacency.groupStart(t); j < adjacency.groupEnd(t); j++) {
+					int v = adjacency.member(j);
+					if (path.get(v) || occupied.get(v) || visited.get(v) || adjacency.canonical(v) == startGroup) {
+						continue;
+					}
+					path.set(v);
+					dfs(v, d + 1, startGroup, path, exact);
+					path.clear(v);
+				}
+			}
+		}
+
+		/**
+		 * Shortest path to Square with id
+		 * @param id -- a Square where atMost(id) is true
+		 * @return Square ids of every step, excluding start, ending with id
+		 */
+		public int[] path(int id) {
+			int[] steps = new int[dist[id]];
+			for (int v = id, i = steps.length - 1; i >= 0; v = parent[v], i--) {
+				steps[i] = v;
+			}
+			return steps;
+		}
+
+		/**
+		 * Number of reachable Squares, see square(i)
+		 * @return
+		 */
+		public int size() {
+			return squares.length;
+		}
+
+		public int square(int i) {
+			return squares[i];
+		}
+	}
+
+	/**
+	 * Cache key of a search
+	 */
+	private static final class Key {
+		private final int start;
+		private final int remaining;
+		private final long occupancy;
+		private final long visited;
+
+		private Key(int start, int remaining, long occupancy, long visited) {
+			this.start = start;
+			this.remaining = remaining;
+			this.occupancy = occupancy;
+			this.visited = visited;
+		}
+
+		@Override
+		public boolean equals(Object o) {
+			if (!(o instanceof Key)) {return false;}
+			Key k = (Key) o;
+			return start == k.start && remaining == k.remaining && occupancy == k.occupancy && visited == k.visited;
+		}
+
+		@Override
+		public int hashCode() {
+			long h = occupancy ^ visited * 17;
+			return (int) (h ^ (h >>> 32)) * 31 * 31 + start * 31 + remaining;
+		}
+	}
+}
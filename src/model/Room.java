@@ -5,8 +5,8 @@ package model;
  * @author  Ronni Perez
  */
 public class Room extends Square {
-	public Room(int row, int col, Type kind, String name, String code) {
-		super(row, col, kind, code);
+	public Room(int id, int row, int col, Type kind, String name, String code) {
+		super(id, row, col, kind, code);
 		this.name = name;
 	}
 }
@@ -0,0 +1,177 @@
+package model;
+
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.Map;
+
+import model.Square.Type;
+
+/**
+ * Room membership of every Square on the Board, built once by the BoardTopology
+ * <br> -- rooms are numbered 0..N-1 in the order of their codes e.g. KC is 0, BR is 1
+ * <br> -- room to Square ids, Square id to room
+ * <br> -- immutable, the free-slot cursor of each room is kept per game by the Board
+ * <br> -- room lookups cost time proportional to the room size, no String comparisons
+ * @author Ronni Perez
+ *
+ */
+public final class RoomIndex {
+	public static final int NONE = -1;		//room of a Square that is not part of any Room
+
+	private final String[] names;		//room to long name of the room
+	private final Map<String, Integer> byName;		//long name to room, used at the UI edge ONLY
+	private final byte[] roomOf;		//square id to room, NONE if not a Room
+	private final int[] offsets;		//room to start of its Squares in squares, length rooms()+1
+	private final int[] squares;		//square ids grouped by room, in row,col order
+	private final BitSet[] masks;		//room to ids of ALL its Squares
+
+	/**
+	 * Constructor
+	 * @param board -- the parsed Squares of a Board
+	 * @param codes -- two-letter code of each room, in room order
+	 */
+	public RoomIndex(Square[][] board, String[] codes) {
+		this(roomOf(board, codes), names(board, codes));
+	}
+
+	/**
+	 * Constructor used when the room of every Square is already known e.g. from a compiled board file
+	 * @param roomOf -- square id to room, NONE if not a Room
+	 * @param names -- room to long name of the room
+	 */
+	RoomIndex(byte[] roomOf, String[] names) {
+		this.names = names;
+		this.byName = new HashMap<String, Integer>();
+		this.roomOf = roomOf;
+		this.offsets = new int[names.length + 1];
+		this.masks = new BitSet[names.length];
+		for (int r = 0; r < names.length; r++) {
+			byName.put(names[r], r);
+		}
+
+		//count Squares per room
+		for (int id = 0; id < roomOf.length; id++) {
+			if (roomOf[id] != NONE) {
+				offsets[roomOf[id] + 1]++;
+			}
+		}
+		for (int r = 0; r < names.length; r++) {
+			offsets[r + 1] += offsets[r];
+			masks[r] = new BitSet(roomOf.length);
+		}
+
+		//fill Squares per room
+		this.squares = new int[offsets[names.length]];
+		int[] fill = offsets.clone();
+		for (int id = 0; id < roomOf.length; id++) {
+			if (roomOf[id] != NONE) {
+				squares[fill[roomOf[id]]++] = id;
+				masks[roomOf[id]].set(id);
+			}
+		}
+	}
+
+	/**
+	 * Room of every Square, used by the constructor
+	 * @param board
+	 * @param codes
+	 * @return square id to room, NONE if not a Room
+	 */
+	private static byte[] roomOf(Square[][] board, String[] codes) {
+		Map<String, Integer> byCode = new HashMap<String, Integer>();
+		for (int r = 0; r < codes.length; r++) {
+			byCode.put(codes[r], r);
+		}
+		byte[] roomOf = new byte[board.length * board[0].length];
+		for (Square[] row : board) {
+			for (Square sq : row) {
+				roomOf[sq.id] = (byte) (sq.kind == Type.ROOM ? byCode.get(sq.getCode()) : NONE);
+			}
+		}
+		return roomOf;
+	}
+
+	/**
+	 * Long name of every room, used by the constructor
+	 * @param board
+	 * @param codes
+	 * @return room to long name of the room, null if the room has no Squares
+	 */
+	private static String[] names(Square[][] board, String[] codes) {
+		String[] names = new String[codes.length];
+		byte[] roomOf = roomOf(board, codes);
+		for (Square[] row : board) {
+			for (Square sq : row) {
+				if (roomOf[sq.id] != NONE) {
+					names[roomOf[sq.id]] = sq.getName();
+				}
+			}
+		}
+		return names;
+	}
+
+	/**
+	 * Room that Square with id is part of
+	 * @param id
+	 * @return room number, NONE if not part of a Room
+	 */
+	public int roomOf(int id) {
+		return roomOf[id];
+	}
+
+	/**
+	 * Room number of a room's long name e.g. Kitchen
+	 * @param name
+	 * @return room number, NONE if no such room
+	 */
+	public int room(String name) {
+		Integer room = byName.get(name);
+		return room == null ? NONE : room;
+	}
+
+	/**
+	 * Index into square() of the first Square of room
+	 * @param room
+	 * @return
+	 */
+	public int start(int room) {
+		return offsets[room];
+	}
+
+	/**
+	 * Index into square() after the last Square of room
+	 * @param room
+	 * @return
+	 */
+	public int end(int room) {
+		return offsets[room + 1];
+	}
+
+	/**
+	 * Square id at index i, in between start(room) and end(room)
+	 * @param i
+	 * @return
+	 */
+	public int square(int i) {
+		return squares[i];
+	}
+
+	/**
+	 * Ids of ALL Squares in room
+	 * <br> NOT to be modified, this is shared
+	 * @param room
+	 * @return
+	 */
+	public BitSet mask(int room) {
+		return masks[room];
+	}
+
+	//GETTERS
+	public int rooms() {
+		return names.length;
+	}
+
+	public String name(int room) {
+		return names[room];
+	}
+}
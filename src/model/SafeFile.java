@@ -0,0 +1,56 @@
+package model;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+
+/**
+ * Replaces a file whole or not at all, for saves, checkpoints and caches
+ * <br> -- content goes to a temporary file of its own in the same directory, so concurrent writers never share one
+ * <br> -- forced to disk, then moved over the file in one atomic step
+ * <br> So a reader, or a launch after a crash, finds either the old file or the new one, never half of one
+ * @author Ronni Perez
+ *
+ */
+public final class SafeFile {
+
+	/**
+	 * What to write
+	 */
+	public interface Content {
+		void write(DataOutputStream out) throws IOException;
+	}
+
+	private SafeFile() {
+	}
+
+	/**
+	 * Write content to file, replacing it if it exists
+	 * @param file
+	 * @param content
+	 * @throws IOException -- file is left as it was
+	 */
+	public static void write(File file, Content content) throws IOException {
+		File dir = file.getAbsoluteFile().getParentFile();
+		File tmp = File.createTempFile(file.getName() + ".", ".tmp", dir);		//prefix of at least 3 chars
+		boolean moved = false;
+		try {
+			try (FileOutputStream fos = new FileOutputStream(tmp);
+					DataOutputStream out = new DataOutputStream(new BufferedOutputStream(fos))) {
+				content.write(out);
+				out.flush();
+				fos.getChannel().force(true);		//on disk before it replaces anything
+			}
+			Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+			moved = true;
+		} finally {
+			if (!moved) {
+				tmp.delete();
+			}
+		}
+	}
+}
@@ -0,0 +1,499 @@
+package model;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+import model.Card.Place;
+import model.Card.Suspect;
+import model.Card.Weapon;
+
+/**
+ * Probability of every possible solution, given what ONE player knows, see Deduction
+ * <br> -- every deal consistent with the notes is equally likely, shown cards are taken as plain facts
+ * <br> -- exact: for each candidate solution, count the deals of the other cards to the Players
+ * <br> &nbsp; cards in a pending refutation are tried holder by holder, every other card only matters
+ * by which Players may hold it, so those are counted a class at a time with binomials, memoised per
+ * number of cards each Player still needs
+ * <br> -- solutions are counted in parallel with fork-join
+ * <br> -- if the count is too big to finish within the time budget, deals are sampled instead
+ * (sequential importance sampling) until the budget is used up
+ * @author Ronni Perez
+ *
+ */
+public final class SolutionProbability {
+	public static final int SOLUTIONS = Suspect.COUNT * Weapon.COUNT * Place.COUNT;		//possible solutions
+	private static final long EXACT_LIMIT = 1L << 22;		//most holder choices for refutation cards to try per solution
+	private static final int SAMPLES_PER_TASK = 2048;		//importance sampling, fork-join leaf size
+	private static final long[][] BINOMIAL = new long[Card.COUNT + 1][Card.COUNT + 1];		//n choose k
+	static {
+		for (int n = 0; n <= Card.COUNT; n++) {
+			BINOMIAL[n][0] = 1;
+			for (int k = 1; k <= n; k++) {
+				BINOMIAL[n][k] = BINOMIAL[n - 1][k - 1] + (k <= n - 1 ? BINOMIAL[n - 1][k] : 0);
+			}
+		}
+	}
+
+	private final double[] joint;		//solution index, see index(), to probability
+	private final double[] cards;		//card id to probability of being in the envelope
+	public final boolean exact;		//false if sampled
+	public final long deals;		//consistent deals counted, exact ONLY
+	public final long samples;		//deals sampled, sampled ONLY
+
+	private SolutionProbability(double[] weights, boolean exact, long deals, long samples) {
+		this.exact = exact;
+		this.deals = deals;
+		this.samples = samples;
+		this.joint = new double[SOLUTIONS];
+		this.cards = new double[Card.COUNT];
+		double total = 0;
+		for (double w: weights) {
+			total += w;
+		}
+		for (int i = 0; i < SOLUTIONS; i++) {
+			joint[i] = total > 0 ? weights[i] / total : 0;
+			int mask = mask(i);
+			for (int m = mask; m != 0; m &= m - 1) {
+				cards[Integer.numberOfTrailingZeros(m)] += joint[i];
+			}
+		}
+	}
+
+	/**
+	 * Probabilities for the notes, within a time budget
+	 * @param notes -- what the player knows, NOT modified
+	 * @param budget -- milliseconds to spend at most, give or take one batch of samples
+	 * @param pool -- where counting and sampling run
+	 * @param seed -- seed of the samples, if any
+	 * @return
+	 */
+	public static SolutionProbability of(Deduction notes, long budget, ForkJoinPool pool, long seed) {
+		long start = System.nanoTime();
+		long deadline = start + budget * 1000000L;
+		Problem problem = new Problem(notes);
+		int[] solutions = notes.solutions();
+		if (problem.isSmall()) {
+			Counter counter = new Counter(problem, solutions, 0, solutions.length, start + budget * 500000L);
+			long[] counts = pool.invoke(counter);
+			if (counts != null) {
+				double[] weights = new double[SOLUTIONS];
+				long deals = 0;
+				for (int i = 0; i < SOLUTIONS; i++) {
+					weights[i] = counts[i];
+					deals += counts[i];
+				}
+				return new SolutionProbability(weights, true, deals, 0);
+			}
+		}
+		//too big or too slow, sample until the budget is used up
+		double[] weights = new double[SOLUTIONS];
+		long samples = 0;
+		int tasks = Math.max(1, pool.getParallelism());
+		SplittableRandom rng = new SplittableRandom(seed);
+		do {
+			double[] batch = pool.invoke(new Sampler(problem, solutions, rng.split(), tasks));
+			for (int i = 0; i < SOLUTIONS; i++) {
+				weights[i] += batch[i];
+			}
+			samples += (long) tasks * SAMPLES_PER_TASK;
+		} while (System.nanoTime() < deadline);
+		return new SolutionProbability(weights, false, 0, samples);
+	}
+
+	/**
+	 * Index of a solution in 0..SOLUTIONS-1
+	 * @param suspect
+	 * @param weapon
+	 * @param place
+	 * @return
+	 */
+	public static int index(Suspect suspect, Weapon weapon, Place place) {
+		return (suspect.ordinal() * Weapon.COUNT + weapon.ordinal()) * Place.COUNT + place.ordinal();
+	}
+
+	/**
+	 * Index of a solution given as a card mask
+	 * @param mask -- one card of each kind, see Card.mask()
+	 * @return
+	 */
+	public static int index(int mask) {
+		int s = Integer.numberOfTrailingZeros(mask);
+		int w = Integer.numberOfTrailingZeros(mask >>> Suspect.COUNT << Suspect.COUNT);
+		int p = 31 - Integer.numberOfLeadingZeros(mask);
+		return (s * Weapon.COUNT + w - Suspect.COUNT) * Place.COUNT + p - Suspect.COUNT - Weapon.COUNT;
+	}
+
+	/**
+	 * Card mask of the solution at index
+	 * @param index
+	 * @return
+	 */
+	public static int mask(int index) {
+		int p = index % Place.COUNT;
+		int w = index / Place.COUNT % Weapon.COUNT;
+		int s = index / Place.COUNT / Weapon.COUNT;
+		return Card.mask(Suspect.of(s), Weapon.of(w), Place.of(p));
+	}
+
+	/**
+	 * @param card -- card id
+	 * @return probability that card is in the envelope
+	 */
+	public double probability(int card) {
+		return cards[card];
+	}
+
+	/**
+	 * @param index -- see index()
+	 * @return probability that this is the solution
+	 */
+	public double solution(int index) {
+		return joint[index];
+	}
+
+	/**
+	 * The counting problem, shared read-only by every task
+	 */
+	static final class Problem {
+		final int players;
+		private final int[] need;		//Player ID to cards still to be dealt to it
+		private final int[] lacks;		//Player ID to card mask of cards it lacks
+		private final int[] owns;		//Player ID to card mask of cards it owns
+		private final int free;		//cards with no known holder, the solution included
+		private final int[] clauses;		//pending refutations, see Deduction.refuted()
+		private final int clauseCards;		//cards in any pending refutation
+
+		Problem(Deduction notes) {
+			this.players = notes.holders() - 1;
+			this.need = new int[players + 1];
+			this.lacks = new int[players + 1];
+			this.owns = new int[players + 1];
+			int known = 0;
+			for (int h = 0; h <= players; h++) {
+				known |= notes.owns(h);
+			}
+			for (int ID = 1; ID <= players; ID++) {
+				owns[ID] = notes.owns(ID);
+				lacks[ID] = notes.lacks(ID);
+				need[ID] = notes.size(ID) - Integer.bitCount(owns[ID]);
+			}
+			this.free = Card.ALL & ~known;
+			this.clauses = notes.clauses();
+			int c = 0;
+			for (int clause: clauses) {
+				c |= clause & Card.ALL & free;
+			}
+			this.clauseCards = c;
+		}
+
+		/**
+		 * Players that may hold card
+		 * @param card -- card id
+		 * @return bit ID set iff Player with ID may hold it
+		 */
+		private int allowed(int card) {
+			int a = 0;
+			for (int ID = 1; ID <= players; ID++) {
+				if ((lacks[ID] & Card.bit(card)) == 0) {
+					a |= 1 << ID;
+				}
+			}
+			return a;
+		}
+
+		/**
+		 * @return true iff trying every holder of refutation cards is cheap enough
+		 */
+		private boolean isSmall() {
+			double tries = 1;
+			for (int m = clauseCards; m != 0; m &= m - 1) {
+				tries *= Integer.bitCount(allowed(Integer.numberOfTrailingZeros(m)));
+			}
+			return tries <= EXACT_LIMIT;
+		}
+
+		/**
+		 * @param dealt -- Player ID to card mask dealt in a try, with owns
+		 * @return true iff every pending refutation is satisfied
+		 */
+		private boolean satisfied(int[] dealt) {
+			for (int clause: clauses) {
+				if ((dealt[clause >>> 24] & clause) == 0) {
+					return false;
+				}
+			}
+			return true;
+		}
+
+		/**
+		 * Deal the free cards other than solution at random, see Sampler
+		 * @param solution -- card mask of the envelope
+		 * @param rng
+		 * @param dealt -- filled with Player ID to card mask dealt, owns included
+		 * @param needs -- scratch, players + 1 long
+		 * @param order -- scratch, Card.COUNT long
+		 * @return weight of the deal, the number of choices there were, 0 if no consistent deal came out
+		 */
+		double deal(int solution, SplittableRandom rng, int[] dealt, int[] needs, int[] order) {
+			System.arraycopy(owns, 0, dealt, 0, dealt.length);
+			System.arraycopy(need, 0, needs, 0, needs.length);
+			//most constrained cards first, so fewer deals get stuck
+			int cards = 0;
+			for (int m = free & ~solution; m != 0; m &= m - 1) {
+				order[cards++] = Integer.numberOfTrailingZeros(m);
+			}
+			double weight = 1;
+			for (int i = 0; i < cards; i++) {
+				int best = i;
+				for (int j = i + 1; j < cards; j++) {
+					if (choices(order[j], needs) < choices(order[best], needs)) {
+						best = j;
+					}
+				}
+				int card = order[best];
+				order[best] = order[i];
+				order[i] = card;
+				int a = holders(card, needs);
+				int c = Integer.bitCount(a);
+				if (c == 0) {
+					return 0;
+				}
+				for (int skip = rng.nextInt(c); skip > 0; skip--) {
+					a &= a - 1;
+				}
+				int ID = Integer.numberOfTrailingZeros(a);
+				dealt[ID] |= Card.bit(card);
+				needs[ID]--;
+				weight *= c;
+			}
+			return satisfied(dealt) ? weight : 0;
+		}
+
+		private int holders(int card, int[] needs) {
+			int a = allowed(card);
+			for (int m = a; m != 0; m &= m - 1) {
+				int ID = Integer.numberOfTrailingZeros(m);
+				if (needs[ID] == 0) {
+					a &= ~(1 << ID);
+				}
+			}
+			return a;
+		}
+
+		private int choices(int card, int[] needs) {
+			return Integer.bitCount(holders(card, needs));
+		}
+	}
+
+	/**
+	 * Exact count of the deals of a range of solutions
+	 */
+	private static final class Counter extends RecursiveTask<long[]> {
+		private static final long serialVersionUID = 1L;
+		private final Problem problem;
+		private final int[] solutions;
+		private final int lo;
+		private final int hi;
+		private final long deadline;
+
+		//per solution state, leaf ONLY
+		private int[] classAllowed;		//class to Players that may hold its cards
+		private int[] classSize;		//class to number of cards
+		private int classes;
+		private Map<Long, Long> memo;		//(class, needs) to deals
+		private int[] dealt;
+		private int[] needs;
+		private boolean late;
+
+		private Counter(Problem problem, int[] solutions, int lo, int hi, long deadline) {
+			this.problem = problem;
+			this.solutions = solutions;
+			this.lo = lo;
+			this.hi = hi;
+			this.deadline = deadline;
+		}
+
+		@Override
+		protected long[] compute() {
+			if (hi - lo > 1) {
+				int mid = (lo + hi) >>> 1;
+				Counter left = new Counter(problem, solutions, lo, mid, deadline);
+				left.fork();
+				long[] right = new Counter(problem, solutions, mid, hi, deadline).compute();
+				long[] l = left.join();
+				if (l == null || right == null) {
+					return null;		//too slow, counts are incomplete
+				}
+				for (int i = 0; i < SOLUTIONS; i++) {
+					right[i] += l[i];
+				}
+				return right;
+			}
+			long[] counts = new long[SOLUTIONS];
+			for (int i = lo; i < hi; i++) {
+				counts[index(solutions[i])] = count(solutions[i]);
+				if (late) {
+					return null;
+				}
+			}
+			return counts;
+		}
+
+		/**
+		 * Deals of the free cards, other than the solution, to the Players
+		 * @param solution -- card mask
+		 * @return
+		 */
+		private long count(int solution) {
+			int rest = problem.free & ~solution;
+			//group cards that are in no refutation by which Players may hold them
+			Map<Integer, Integer> groups = new HashMap<Integer, Integer>();
+			for (int m = rest & ~problem.clauseCards; m != 0; m &= m - 1) {
+				int a = problem.allowed(Integer.numberOfTrailingZeros(m));
+				if (a == 0) {
+					return 0;		//no one may hold it
+				}
+				Integer n = groups.get(a);
+				groups.put(a, n == null ? 1 : n + 1);
+			}
+			classes = groups.size();
+			classAllowed = new int[classes];
+			classSize = new int[classes];
+			int k = 0;
+			for (Map.Entry<Integer, Integer> e: groups.entrySet()) {
+				classAllowed[k] = e.getKey();
+				classSize[k++] = e.getValue();
+			}
+			memo = new HashMap<Long, Long>();
+			dealt = problem.owns.clone();
+			needs = problem.need.clone();
+			return dealClauseCards(rest & problem.clauseCards);
+		}
+
+		/**
+		 * Try every holder of the refutation cards, then count the rest
+		 * @param cards -- refutation cards left to deal
+		 * @return
+		 */
+		private long dealClauseCards(int cards) {
+			if (late || (late = System.nanoTime() > deadline)) {
+				return 0;
+			}
+			if (cards == 0) {
+				return problem.satisfied(dealt) ? dealClasses(0) : 0;
+			}
+			int card = Integer.numberOfTrailingZeros(cards);
+			long total = 0;
+			for (int a = problem.allowed(card); a != 0; a &= a - 1) {
+				int ID = Integer.numberOfTrailingZeros(a);
+				if (needs[ID] == 0) {continue;}
+				needs[ID]--;
+				dealt[ID] |= Card.bit(card);
+				total += dealClauseCards(cards & (cards - 1));
+				dealt[ID] &= ~Card.bit(card);
+				needs[ID]++;
+			}
+			return total;
+		}
+
+		/**
+		 * Deals of classes k onwards, given what each Player still needs
+		 * @param k
+		 * @return
+		 */
+		private long dealClasses(int k) {
+			if (k == classes) {
+				for (int ID = 1; ID <= problem.players; ID++) {
+					if (needs[ID] != 0) {return 0;}
+				}
+				return 1;
+			}
+			long key = k;
+			for (int ID = 1; ID <= problem.players; ID++) {
+				key = key << 5 | needs[ID];
+			}
+			Long known = memo.get(key);
+			if (known != null) {
+				return known;
+			}
+			long total = spread(k, classAllowed[k], classSize[k]);
+			memo.put(key, total);
+			return total;
+		}
+
+		/**
+		 * Ways to give 'left' cards of class k to the Players in 'allowed', times the deals of the classes after
+		 * @param k
+		 * @param allowed -- Players still to be given some
+		 * @param left -- cards of class k not yet given
+		 * @return
+		 */
+		private long spread(int k, int allowed, int left) {
+			if (allowed == 0) {
+				return left == 0 ? dealClasses(k + 1) : 0;
+			}
+			int ID = Integer.numberOfTrailingZeros(allowed);
+			int rest = allowed & (allowed - 1);
+			long total = 0;
+			int most = Math.min(left, needs[ID]);
+			for (int x = rest == 0 ? left : 0; x <= most; x++) {		//the last Player takes what is left
+				needs[ID] -= x;
+				long ways = spread(k, rest, left - x);
+				needs[ID] += x;
+				if (ways != 0) {
+					total += BINOMIAL[left][x] * ways;
+				}
+			}
+			return total;
+		}
+	}
+
+	/**
+	 * Importance sampling of deals, 'tasks' leaves of SAMPLES_PER_TASK deals each
+	 * </br> A card goes to a random Player that may still take it, the weight of a deal is the number of
+	 * choices there were, so weights add up to the number of deals on average
+	 */
+	private static final class Sampler extends RecursiveTask<double[]> {
+		private static final long serialVersionUID = 1L;
+		private final Problem problem;
+		private final int[] solutions;
+		private final SplittableRandom rng;
+		private final int tasks;
+
+		private Sampler(Problem problem, int[] solutions, SplittableRandom rng, int tasks) {
+			this.problem = problem;
+			this.solutions = solutions;
+			this.rng = rng;
+			this.tasks = tasks;
+		}
+
+		@Override
+		protected double[] compute() {
+			if (tasks > 1) {
+				Sampler left = new Sampler(problem, solutions, rng.split(), tasks / 2);
+				left.fork();
+				double[] right = new Sampler(problem, solutions, rng, tasks - tasks / 2).compute();
+				double[] l = left.join();
+				for (int i = 0; i < SOLUTIONS; i++) {
+					right[i] += l[i];
+				}
+				return right;
+			}
+			double[] weights = new double[SOLUTIONS];
+			int[] dealt = new int[problem.players + 1];
+			int[] needs = new int[problem.players + 1];
+			int[] order = new int[Card.COUNT];
+			for (int n = 0; n < SAMPLES_PER_TASK; n++) {
+				int solution = solutions[rng.nextInt(solutions.length)];		//uniform proposal
+				double weight = problem.deal(solution, rng, dealt, needs, order);
+				if (weight > 0) {
+					weights[index(solution)] += weight * solutions.length;
+				}
+			}
+			return weights;
+		}
+	}
+}
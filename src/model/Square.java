@@ -3,11 +3,9 @@ package model;
 import java.awt.BasicStroke;
 import java.awt.Graphics2D;
 import java.awt.Stroke;
-import java.util.HashSet;
-import java.util.Set;
+import java.util.BitSet;
 
 import view.GUICanvas;
-import main.Loader;
 
 /**
  * A Square is the actual object at row,col of a board
@@ -18,63 +16,31 @@ public class Square {
 	// public because final
 	public final int row; // coordinates in array
 	public final int col;
+	public final int id; // row*cols+col, index into the Board's Adjacency
 	public final Type kind; // room or playArea
-	public final Set<int[]> neighbours; // COORDINATES of surrounding Squares of
-										// this Square in row,col format
 	// protected because used by subclasses
 	protected String name; // long name of this Square, no name if playArea
-	protected String occupied; // String representation of the occupying Player
-								// of this Square
 	//private because not meant to be edited illegally
 	private String code; // String representation of this Square ()
+	private Adjacency adjacency; // neighbours of ALL Squares, shared with the Board
 
-	public Square(int row, int col, Type kind, String code) {
+	public Square(int id, int row, int col, Type kind, String code) {
+		this.id = id;
 		this.row = row;
 		this.col = col;
 		this.kind = kind;
 		this.name = " ";
 		this.code = code;
-		this.neighbours = new HashSet<int[]>();
-		this.occupied = null;
 	}
 
 	/**
-	 * Supplementary method used by Board.validNeigbours(row, col) to add
-	 * neighbors
-	 * 
-	 * @param newRow
-	 * @param newCol
-	 * @param board
+	 * Supplementary method used by Board once its Adjacency has been built
+	 * @param adjacency -- neighbours of every Square on the Board
 	 */
-	public void addNeighbour(int newRow, int newCol, Square[][] board) {
-		// check for bounds
-		if (newRow >= 0 && newRow < board.length && newCol >= 0
-				&& newCol < board[0].length) {
-			// add if newRow,newCol is playArea ONLY
-			if (board[newRow][newCol].kind == Type.PLAYAREA)
-				neighbours.add(new int[] { newRow, newCol });
-		}
+	void setAdjacency(Adjacency adjacency) {
+		this.adjacency = adjacency;
 	}
 
-	/**
-	 * Supplementary method used by Board.roomNeigbours(row, col) and
-	 * Board.connectToDoorways() to add neighbors
-	 * 
-	 * @param coords
-	 *            -- coordinates of neighbors in row,col format (ALWAYS even number of elements) 
-	 *            e.g. new int [] {1,4,5,5,8,4,5,4} means neighbors are: {1,4} {5,5} {8,4} {5,4}
-	 */
-	public void addNeighbour(Board board, int[] coords) {
-		for (int i = 0; i < coords.length; i += 2) {
-			Square sq = board.getSquare(coords[i], coords[i + 1]);
-			if (sq.kind == Type.ROOM) {
-				floodFill(board,sq.name);
-			} else {
-				neighbours.add(new int[] { coords[i], coords[i + 1] });
-			}
-		}
-	}
-	
 	/**
 	 * Checks if row,col is a neighbor of this Square
 	 * @param row
@@ -82,23 +48,21 @@ public class Square {
 	 * @return true iff this square has Square at row,col as it's neighbor
 	 */
 	public boolean hasNeigbour(int row, int col) {
-		for (int[] pair : neighbours) {		//each row,col coordinates
-			if (pair[0] == row && pair[1] == col) {
-				return true;
-			}
+		if (!adjacency.inBounds(row, col)) {
+			return false;
 		}
-		return false;
+		return adjacency.contains(id, adjacency.id(row, col));
 	}
 	
 	/**
 	 * Checks if this Square has a "Room" Square neighbor i.e. is a doorway
-	 * @param board -- the game board
+	 * @param board -- the board layout
 	 */
-	public void changeToDoorway(Board board) {
-		for (int[] pair : neighbours) {		//get row,col coordinates
-			Square sq = board.getSquare(pair[0], pair[1]);
+	public void changeToDoorway(BoardTopology board) {
+		for (int i = adjacency.start(id); i < adjacency.end(id); i++) {		//get neighbour ids
+			int n = adjacency.target(i);
+			Square sq = board.getSquare(adjacency.row(n), adjacency.col(n));
 			if (sq.kind == Type.ROOM ) {
-				floodFill(board, sq.name);	//ADDED LINE
 				this.code = "dw";		//change code i.e. string output to dw
 				return;
 			}
@@ -107,10 +71,6 @@ public class Square {
 
 	@Override
 	public String toString() {
-		if (occupied != null) {
-			return occupied.toString() + " ";
-		}
-		
 		if (this.kind == Type.ROOM) {		//if room, then use two-letter code for output
 			return code + " ";
 		} else if (this.kind == Type.NULL) {		//if null type, then use two-letter code for output
@@ -127,10 +87,6 @@ public class Square {
 		return name;
 	}
 
-	public String getOccupied() {
-		return occupied;
-	}
-	
 	public String getCode () {
 		return code;
 	}
@@ -141,30 +97,6 @@ public class Square {
 	}
 	
 	//ADDED METHODS
-		/**
-		 * </br>Supplementary method used by changeToDoorway()
-		 * Makes an Square doorway be a neighbor to all roomSquares it connects to
-		 * @param board -- the game board
-		 * @param roomName -- name of room that we will 'floodFill'
-		 */
-		/*
-		 * 	02 03 04		e.g. if {3,2} is a DoorWay which leads to KitChen,
-		 		.............			I only need to assign dw once to KC and this
-	02 .....  KC KC KC 			method ensures that ALL Squares with KC is a
-	03 .....  __ dw __ 			neighbor of dw
-	04 .....  __ __ __ 
-		 */
-		private void floodFill(Board board, String roomName) {
-			for (int row = 0; row < Loader.rows(); row++) {
-				for (int col = 0; col < Loader.cols(); col++) {
-					if (board.getSquare(row, col).name.equals(roomName)) {
-						this.neighbours.add(new int[] { row, col });
-					}
-				}
-			}
-			
-		}
-		
 		/**
 		 * Draw neighbors of this Square to Canvas
 		 * @param g -- graphics context for Canvas
@@ -173,16 +105,22 @@ public class Square {
 		 * @param remaining -- move steps left for Player in this Square
 		 * @param visited -- visited Squares of Player in this Square
 		 */
-		public void drawNeighbours(Graphics2D g, GUICanvas canvas, Board board, int remaining, Set<int[]> visited) {
+		public void drawNeighbours(Graphics2D g, GUICanvas canvas, Board board, int remaining, BitSet visited) {
 			if (remaining <=0) {return;}		//if none left
 
-			Player p = board.getPlayer(Integer.parseInt(""+occupied.charAt(1)));	//get occupying Player
+			Player p = board.getPlayer(board.getOccupant(row, col));	//get occupying Player
 			Stroke stk = g.getStroke();		//save current 'border' thickness and set 'border' thickness to 5
 			g.setStroke(new BasicStroke((int) (canvas.getSquareWidth()/8)));
-			for (int [] pair: neighbours) {		//for each neighbor
-				if (board.isValid(p.ID, pair[0], pair[1], visited)) {		//if not visited, mean can visit so...
-					g.setColor(p.color.brighter().brighter().brighter());		//draw using player color but lighter
-					g.drawOval(canvas.getXFromBoardCol(pair[1])+11, canvas.getYFromBoardRow(pair[0])+10, (int) canvas.getSquareWidth()/2, (int) canvas.getSquareHeight()/2);
+			for (int i = adjacency.start(id); i < adjacency.end(id); i++) {		//for each neighbor
+				int n = adjacency.target(i);
+				//a Room neighbour is drawn on every Square of that Room
+				for (int j = adjacency.groupStart(n); j < adjacency.groupEnd(n); j++) {
+					int row = adjacency.row(adjacency.member(j));
+					int col = adjacency.col(adjacency.member(j));
+					if (board.isValid(p.ID, row, col, visited)) {		//if not visited, mean can visit so...
+						g.setColor(p.color.brighter().brighter().brighter());		//draw using player color but lighter
+						g.drawOval(canvas.getXFromBoardCol(col)+11, canvas.getYFromBoardRow(row)+10, (int) canvas.getSquareWidth()/2, (int) canvas.getSquareHeight()/2);
+					}
 				}
 			}
 			g.setStroke(stk);		//set 'border' thickness back
@@ -0,0 +1,346 @@
+package model;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+import model.Card.Place;
+import model.Card.Suspect;
+import model.Card.Weapon;
+
+/**
+ * Ranks the suggestions a player can make in a room by how much they are expected to tell the player
+ * <br> -- gain of a suggestion: expected drop in entropy, in bits, of the solution given what is seen,
+ * i.e. the mutual information of the solution and the answer
+ * <br> -- the answer tells about the solution through which of the suggested cards are in the envelope,
+ * so that is what the information is measured on: 8 cases instead of up to 324 solutions keep the estimate
+ * from a few thousand deals unbiased enough to tell suggestions apart
+ * <br> -- the answer is who refutes and with which card, or no one: Players are asked in turn from the
+ * left of the suggester, as Engine.checkSuggestion() does, the first who can refute shows a card at random
+ * <br> -- deals consistent with the notes are sampled once, see SolutionProbability, in parallel, then
+ * all 36 suggestions are rated on the same deals, in parallel
+ * <br> -- ratings are cached per knowledge state and room, and worked out off the calling thread,
+ * so a GUI can ask for them as soon as a player enters a room
+ * @author Ronni Perez
+ *
+ */
+public final class SuggestionAdvisor {
+	public static final int SAMPLES = 1 << 14;		//default number of deals sampled per rating
+	private static final int SAMPLES_PER_TASK = 1024;		//deal sampling, fork-join leaf size
+	private static final int CACHE_SIZE = 32;		//knowledge states remembered
+	private static final int SUGGESTIONS = Suspect.COUNT * Weapon.COUNT;
+
+	private final ForkJoinPool pool;
+	private final int samples;
+	private final long seed;
+	private final Map<Key, CompletableFuture<Rating[]>> cache;		//least recently used first
+
+	/**
+	 * Constructor
+	 * @param pool -- where ratings are worked out
+	 * @param samples -- deals sampled per rating, see SAMPLES
+	 * @param seed -- seed of the samples
+	 */
+	public SuggestionAdvisor(ForkJoinPool pool, int samples, long seed) {
+		this.pool = pool;
+		this.samples = samples;
+		this.seed = seed;
+		this.cache = new LinkedHashMap<Key, CompletableFuture<Rating[]>>(16, 0.75f, true) {
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<Key, CompletableFuture<Rating[]>> eldest) {
+				return size() > CACHE_SIZE;
+			}
+		};
+	}
+
+	/**
+	 * Start rating the suggestions, unless already started for the same knowledge and room
+	 * @param notes -- what the suggester knows, copied
+	 * @param room -- where the suggestion is made
+	 * @return ratings, best first, when done
+	 */
+	public synchronized CompletableFuture<Rating[]> advise(Deduction notes, Place room) {
+		Key key = new Key(notes.copy(), room);
+		CompletableFuture<Rating[]> ratings = cache.get(key);
+		if (ratings == null) {
+			ratings = CompletableFuture.supplyAsync(() -> rank(key.notes, key.room, samples, pool, seed), pool);
+			cache.put(key, ratings);
+		}
+		return ratings;
+	}
+
+	/**
+	 * Ratings if they are done, never waits
+	 * @param notes -- what the suggester knows
+	 * @param room -- where the suggestion is made
+	 * @return ratings, best first, or null if not started or not done
+	 */
+	public synchronized Rating[] ratings(Deduction notes, Place room) {
+		CompletableFuture<Rating[]> ratings = cache.get(new Key(notes, room));
+		return ratings != null && ratings.isDone() && !ratings.isCompletedExceptionally() ? ratings.join() : null;
+	}
+
+	/**
+	 * Rate every suggestion in a room, waits until done
+	 * @param notes -- what the suggester, notes.observer(), knows, NOT modified
+	 * @param room -- where the suggestion is made
+	 * @param samples -- deals to sample
+	 * @param pool -- where deals are sampled and suggestions rated
+	 * @param seed -- seed of the samples
+	 * @return all 36 suggestions, best first
+	 */
+	public static Rating[] rank(Deduction notes, Place room, int samples, ForkJoinPool pool, long seed) {
+		SolutionProbability.Problem problem = new SolutionProbability.Problem(notes);
+		int[] solutions = notes.solutions();
+		int tasks = Math.max(1, samples / SAMPLES_PER_TASK);
+		Deals deals = pool.invoke(new DealSampler(problem, solutions, new SplittableRandom(seed), tasks));
+		//Players asked in turn, from the left of the suggester
+		int players = problem.players;
+		int[] order = new int[players - 1];
+		for (int k = 1; k < players; k++) {
+			order[k - 1] = (notes.observer() - 1 + k) % players + 1;
+		}
+		Rating[] ratings = pool.invoke(new Rater(deals, order, room, 0, SUGGESTIONS));
+		Arrays.sort(ratings);
+		return ratings;
+	}
+
+	/**
+	 * How informative ONE suggestion is
+	 */
+	public static final class Rating implements Comparable<Rating> {
+		public final Suspect suspect;
+		public final Weapon weapon;
+		public final double gain;		//expected bits learned about the solution
+		public final double unrefuted;		//chance no one can refute
+
+		private Rating(Suspect suspect, Weapon weapon, double gain, double unrefuted) {
+			this.suspect = suspect;
+			this.weapon = weapon;
+			this.gain = gain;
+			this.unrefuted = unrefuted;
+		}
+
+		/**
+		 * Most gain first, then in card order
+		 */
+		@Override
+		public int compareTo(Rating other) {
+			int c = Double.compare(other.gain, gain);
+			if (c != 0) {return c;}
+			c = suspect.compareTo(other.suspect);
+			return c != 0 ? c : weapon.compareTo(other.weapon);
+		}
+
+		@Override
+		public String toString() {
+			return String.format("%s with the %s (%.2f bits)", suspect, weapon, gain);
+		}
+	}
+
+	/**
+	 * Sampled deals, flat: deal i gives Player ID the cards hands[i * holders + ID]
+	 */
+	private static final class Deals {
+		private final int holders;
+		private int[] hands;
+		private double[] weight;
+		private int[] solution;		//card mask of the envelope
+		private int size;
+
+		private Deals(int holders, int capacity) {
+			this.holders = holders;
+			this.hands = new int[capacity * holders];
+			this.weight = new double[capacity];
+			this.solution = new int[capacity];
+		}
+
+		private void add(int[] dealt, double w, int envelope) {
+			reserve(size + 1);
+			System.arraycopy(dealt, 0, hands, size * holders, holders);
+			weight[size] = w;
+			solution[size++] = envelope;
+		}
+
+		private Deals merge(Deals other) {
+			reserve(size + other.size);
+			System.arraycopy(other.hands, 0, hands, size * holders, other.size * holders);
+			System.arraycopy(other.weight, 0, weight, size, other.size);
+			System.arraycopy(other.solution, 0, solution, size, other.size);
+			size += other.size;
+			return this;
+		}
+
+		private void reserve(int capacity) {
+			if (capacity > weight.length) {
+				capacity = Math.max(capacity, weight.length * 2);
+				hands = Arrays.copyOf(hands, capacity * holders);
+				weight = Arrays.copyOf(weight, capacity);
+				solution = Arrays.copyOf(solution, capacity);
+			}
+		}
+	}
+
+	/**
+	 * Importance sampling of deals, 'tasks' leaves of SAMPLES_PER_TASK deals each, keeps the consistent ones
+	 */
+	private static final class DealSampler extends RecursiveTask<Deals> {
+		private static final long serialVersionUID = 1L;
+		private final SolutionProbability.Problem problem;
+		private final int[] solutions;
+		private final SplittableRandom rng;
+		private final int tasks;
+
+		private DealSampler(SolutionProbability.Problem problem, int[] solutions, SplittableRandom rng, int tasks) {
+			this.problem = problem;
+			this.solutions = solutions;
+			this.rng = rng;
+			this.tasks = tasks;
+		}
+
+		@Override
+		protected Deals compute() {
+			if (tasks > 1) {
+				DealSampler left = new DealSampler(problem, solutions, rng.split(), tasks / 2);
+				left.fork();
+				Deals right = new DealSampler(problem, solutions, rng, tasks - tasks / 2).compute();
+				return left.join().merge(right);		//left first, so the order does not depend on threads
+			}
+			Deals deals = new Deals(problem.players + 1, SAMPLES_PER_TASK);
+			int[] dealt = new int[problem.players + 1];
+			int[] needs = new int[problem.players + 1];
+			int[] order = new int[Card.COUNT];
+			for (int n = 0; n < SAMPLES_PER_TASK; n++) {
+				int solution = solutions[rng.nextInt(solutions.length)];		//uniform proposal
+				double weight = problem.deal(solution, rng, dealt, needs, order);
+				if (weight > 0) {
+					deals.add(dealt, weight, solution);
+				}
+			}
+			return deals;
+		}
+	}
+
+	/**
+	 * Rates suggestions lo to hi - 1, by suspect * Weapon.COUNT + weapon, split in halves
+	 */
+	private static final class Rater extends RecursiveTask<Rating[]> {
+		private static final long serialVersionUID = 1L;
+		private final Deals deals;
+		private final int[] order;		//Players asked, in turn
+		private final Place room;
+		private final int lo;
+		private final int hi;
+
+		private Rater(Deals deals, int[] order, Place room, int lo, int hi) {
+			this.deals = deals;
+			this.order = order;
+			this.room = room;
+			this.lo = lo;
+			this.hi = hi;
+		}
+
+		@Override
+		protected Rating[] compute() {
+			if (hi - lo > 1) {
+				int mid = (lo + hi) >>> 1;
+				Rater left = new Rater(deals, order, room, lo, mid);
+				left.fork();
+				Rating[] right = new Rater(deals, order, room, mid, hi).compute();
+				Rating[] l = left.join();
+				Rating[] all = Arrays.copyOf(l, l.length + right.length);
+				System.arraycopy(right, 0, all, l.length, right.length);
+				return all;
+			}
+			Suspect s = Suspect.of(lo / Weapon.COUNT);
+			Weapon w = Weapon.of(lo % Weapon.COUNT);
+			return new Rating[] {rate(s, w)};
+		}
+
+		/**
+		 * Mutual information of the solution and the answer, over the sampled deals
+		 * @param s
+		 * @param w
+		 * @return
+		 */
+		private Rating rate(Suspect s, Weapon w) {
+			int suggestion = Card.mask(s, w, room);
+			int answers = order.length * 3 + 1;		//refuter and kind of card shown, or no one
+			int none = answers - 1;
+			double[] joint = new double[answers * 8];		//answer, suggested cards in the envelope to weight
+			double[] answer = new double[answers];
+			double[] envelope = new double[8];
+			double total = 0;
+			for (int i = 0; i < deals.size; i++) {
+				double weight = deals.weight[i];
+				int in = deals.solution[i] & suggestion;
+				int e = ((in & Card.bit(s.card())) != 0 ? 1 : 0) | ((in & Card.bit(w.card())) != 0 ? 2 : 0)
+						| ((in & Card.bit(room.card())) != 0 ? 4 : 0);
+				int base = i * deals.holders;
+				int held = 0;
+				int k = 0;
+				for (; k < order.length; k++) {
+					held = deals.hands[base + order[k]] & suggestion;
+					if (held != 0) {break;}
+				}
+				if (held == 0) {
+					joint[none * 8 + e] += weight;
+					answer[none] += weight;
+				} else {
+					double share = weight / Integer.bitCount(held);		//each card it holds is as likely to be shown
+					for (int m = held; m != 0; m &= m - 1) {
+						int a = k * 3 + Card.get(Integer.numberOfTrailingZeros(m)).kind.ordinal();
+						joint[a * 8 + e] += share;
+						answer[a] += share;
+					}
+				}
+				envelope[e] += weight;
+				total += weight;
+			}
+			if (total == 0) {
+				return new Rating(s, w, 0, 0);
+			}
+			double gain = 0;
+			for (int a = 0; a < answers; a++) {
+				for (int e = 0; e < 8; e++) {
+					double j = joint[a * 8 + e];
+					if (j > 0) {
+						gain += j * Math.log(j * total / (answer[a] * envelope[e]));
+					}
+				}
+			}
+			return new Rating(s, w, Math.max(0, gain / total / Math.log(2)), answer[none] / total);
+		}
+	}
+
+	/**
+	 * Cache key, knowledge state and room
+	 */
+	private static final class Key {
+		private final Deduction notes;
+		private final Place room;
+
+		private Key(Deduction notes, Place room) {
+			this.notes = notes;
+			this.room = room;
+		}
+
+		@Override
+		public boolean equals(Object o) {
+			if (!(o instanceof Key)) {return false;}
+			Key other = (Key) o;
+			return room == other.room && notes.equals(other.notes);
+		}
+
+		@Override
+		public int hashCode() {
+			return 31 * notes.hashCode() + room.hashCode();
+		}
+	}
+}
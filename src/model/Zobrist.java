@@ -0,0 +1,86 @@
+package model;
+
+import java.util.BitSet;
+
+/**
+ * Zobrist keys of a game: every feature of a position has a fixed pseudo-random 64 bit key, and the key of a
+ * position is the XOR of the keys of its features
+ * <br> -- so a move updates a position key with two XORs, one for the feature left and one for the feature entered
+ * <br> -- features: Player on Square, weapon in room, Square visited this turn, current Player, remaining steps
+ * <br> -- keys are splitmix64 of the feature, i.e. a table that is never stored, the same in every run
+ * <br> Equal positions have equal keys; unequal positions share a key with odds of about 2^-64
+ * @author Ronni Perez
+ *
+ */
+public final class Zobrist {
+	private static final long TOKEN = 1L << 56;		//feature kinds, in the top byte
+	private static final long WEAPON = 2L << 56;
+	private static final long VISITED = 3L << 56;
+	private static final long CURRENT = 4L << 56;
+	private static final long REMAINING = 5L << 56;
+
+	private Zobrist() {
+	}
+
+	/**
+	 * @param ID -- Player ID
+	 * @param square -- Square id
+	 * @return key of Player with ID on square
+	 */
+	public static long token(int ID, int square) {
+		return mix(TOKEN | (long) ID << 32 | square);
+	}
+
+	/**
+	 * @param weapon -- weapon ordinal
+	 * @param room -- Place ordinal
+	 * @return key of weapon in room
+	 */
+	public static long weapon(int weapon, int room) {
+		return mix(WEAPON | (long) weapon << 32 | room);
+	}
+
+	/**
+	 * @param square -- Square id
+	 * @return key of square visited this turn
+	 */
+	public static long visited(int square) {
+		return mix(VISITED | square);
+	}
+
+	/**
+	 * Key of a whole visited set, for when it is not kept up to date e.g. when it is restored
+	 * @param visited -- by Square id
+	 * @return XOR of visited() of every Square in it
+	 */
+	public static long visited(BitSet visited) {
+		long key = 0;
+		for (int id = visited.nextSetBit(0); id >= 0; id = visited.nextSetBit(id + 1)) {
+			key ^= visited(id);
+		}
+		return key;
+	}
+
+	/**
+	 * @param ID -- Player ID
+	 * @return key of the turn of Player with ID
+	 */
+	public static long current(int ID) {
+		return mix(CURRENT | ID);
+	}
+
+	/**
+	 * @param remaining -- move steps left
+	 * @return key of remaining steps
+	 */
+	public static long remaining(int remaining) {
+		return mix(REMAINING | remaining);
+	}
+
+	private static long mix(long z) {
+		z = (z + 1) * 0x9E3779B97F4A7C15L;		//splitmix64 finaliser
+		z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+		z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+		return z ^ (z >>> 31);
+	}
+}
@@ -11,8 +11,11 @@ import java.awt.event.MouseEvent;
 import java.awt.event.MouseListener;
 import java.awt.event.WindowEvent;
 import java.awt.event.WindowListener;
+import java.io.File;
+import java.io.IOException;
 
 import javax.swing.JButton;
+import javax.swing.JFileChooser;
 import javax.swing.JFrame;
 import javax.swing.JLabel;
 import javax.swing.JMenu;
@@ -21,14 +24,22 @@ import javax.swing.JMenuItem;
 import javax.swing.JOptionPane;
 
 import main.Cluedo;
-import main.Loader;
+import main.Replay;
+import model.Adjacency;
 import model.Board;
+import model.BoardTopology;
+import model.Card;
+import model.Card.Place;
+import model.Card.Weapon;
+import model.Deduction;
+import model.Player;
+import model.Reachability;
 import model.Square;
 
 import java.awt.Color;
 import java.awt.Font;
+import java.util.BitSet;
 import java.util.Map;
-import java.util.Set;
 
 import javax.swing.SwingConstants;
 import javax.swing.JPanel;
@@ -41,10 +52,10 @@ import javax.swing.JPanel;
 public class GUI implements WindowListener, MouseListener,KeyListener{	
 	private Cluedo game;
 	private Board board;
+	private Replay replay;		//recorded game shown instead of this one, null if none
 	
 	private JLabel remaining;		//remaining move steps --- will need to be decremented each time current Player steps
 	
-	public Set<int[]> visited;	//visited set of Squares during one given turn in row,col
 	public JLabel playerTurn; // texts in GUI
 	public JLabel characterLbl;		//character played by 'current' Player
 	public JLabel diceRoll;		//total dice roll
@@ -119,8 +130,8 @@ public class GUI implements WindowListener, MouseListener,KeyListener{
 		
 		int newCanvasWidth = boardCanvas.getWidth();
 		int newCanvasHeight = boardCanvas.getHeight();
-		boardCanvas.setSquareWidth(newCanvasWidth/Loader.cols());
-		boardCanvas.setSquareHeight(newCanvasHeight/Loader.rows());
+		boardCanvas.setSquareWidth(newCanvasWidth/game.getTopology().cols());
+		boardCanvas.setSquareHeight(newCanvasHeight/game.getTopology().rows());
 	}
 
 	/**
@@ -165,7 +176,7 @@ public class GUI implements WindowListener, MouseListener,KeyListener{
 		bottomPanel.add(remaining);
 		
 		//info to user
-		JLabel notice = new JLabel("Click the circles OR use arrow keys to move");
+		JLabel notice = new JLabel("Click the circles or dots OR use arrow keys to move");
 		//font
 		notice.setFont(notice.getFont().deriveFont(
 				notice.getFont().getStyle() & ~Font.BOLD | Font.ITALIC));
@@ -193,7 +204,7 @@ public class GUI implements WindowListener, MouseListener,KeyListener{
 		cardsBtn.setToolTipText("Show a list of the cards that you currently hold.");
 		cardsBtn.addActionListener(new ActionListener() {
 			public void actionPerformed(ActionEvent event) {	//shows cards
-				board.getPlayer(game.getCurrent()).showCards();
+				showCards(board.getPlayer(game.getCurrent()));
 				frame.requestFocus();		//request focus
 			}
 		});
@@ -217,7 +228,7 @@ public class GUI implements WindowListener, MouseListener,KeyListener{
 		seenBtn.setToolTipText("Show a list of the cards that you have seen during the game.");
 		seenBtn.addActionListener(new ActionListener() {
 			public void actionPerformed(ActionEvent event) {	//show seen cards
-				board.getPlayer(game.getCurrent()).seenCards();
+				seenCards(board.getPlayer(game.getCurrent()));
 				frame.requestFocus();		//request focus
 			}
 		});
@@ -291,6 +302,47 @@ public class GUI implements WindowListener, MouseListener,KeyListener{
 		file.add(fileNew);
 		
 		//item 1.2
+		JMenuItem fileSave = new JMenuItem("Save Game");
+		fileSave.setToolTipText("Save this game to a file, to load it later");
+		fileSave.addActionListener(new ActionListener() {
+			public void actionPerformed(ActionEvent event) {
+				JFileChooser chooser = new JFileChooser();
+				if (chooser.showSaveDialog(frame) == JFileChooser.APPROVE_OPTION) {
+					try {
+						game.save(chooser.getSelectedFile());
+					} catch (IOException e) {
+						InputOutput.popup("Cannot Save", e.getMessage());
+					}
+				}
+			}
+		});
+		file.add(fileSave);
+		
+		//item 1.3
+		JMenuItem fileLoad = new JMenuItem("Load Game");
+		fileLoad.setToolTipText("Play on from a saved game");
+		fileLoad.addActionListener(new ActionListener() {
+			public void actionPerformed(ActionEvent event) {
+				JFileChooser chooser = new JFileChooser();
+				if (chooser.showOpenDialog(frame) == JFileChooser.APPROVE_OPTION
+						&& InputOutput.yesOrNo("Load Game","All progress will be lost. Do you want to load "+chooser.getSelectedFile().getName()) == JOptionPane.YES_OPTION) {
+					game.load(chooser.getSelectedFile());
+				}
+			}
+		});
+		file.add(fileLoad);
+		
+		//item 1.4
+		JMenuItem fileReplay = new JMenuItem("Replay a Game");
+		fileReplay.setToolTipText("Watch a game recorded with -Dcluedo.journal=file");
+		fileReplay.addActionListener(new ActionListener() {
+			public void actionPerformed(ActionEvent event) {
+				replay();
+			}
+		});
+		file.add(fileReplay);
+		
+		//item 1.5
 		JMenuItem fileExit = new JMenuItem("Quit");
 		fileExit.setToolTipText("Exit application");
 		fileExit.addActionListener(new ActionListener() {
@@ -310,7 +362,7 @@ public class GUI implements WindowListener, MouseListener,KeyListener{
 				.setToolTipText("Show a list of the cards that you currently hold.");
 		gameShowCards.addActionListener(new ActionListener() {
 			public void actionPerformed(ActionEvent event) {
-				board.getPlayer(game.getCurrent()).showCards();
+				showCards(board.getPlayer(game.getCurrent()));
 			}
 		});
 		play.add(gameShowCards);
@@ -320,11 +372,31 @@ public class GUI implements WindowListener, MouseListener,KeyListener{
 		showSeen.setToolTipText("Show a list of the cards that you have seen during the game.");
 		showSeen.addActionListener(new ActionListener() {
 			public void actionPerformed(ActionEvent event) {
-				board.getPlayer(game.getCurrent()).seenCards();
+				seenCards(board.getPlayer(game.getCurrent()));
 			}
 		});
 		play.add(showSeen);
 		
+		//item 2.3
+		JMenuItem gameUndo = new JMenuItem("Undo");
+		gameUndo.setToolTipText("Go back to before your last move or action.");
+		gameUndo.addActionListener(new ActionListener() {
+			public void actionPerformed(ActionEvent event) {
+				game.undo();
+			}
+		});
+		play.add(gameUndo);
+		
+		//item 2.4
+		JMenuItem gameRedo = new JMenuItem("Redo");
+		gameRedo.setToolTipText("Play again what was undone.");
+		gameRedo.addActionListener(new ActionListener() {
+			public void actionPerformed(ActionEvent event) {
+				game.redo();
+			}
+		});
+		play.add(gameRedo);
+		
 		JMenu help = new javax.swing.JMenu();	//menu item 
 		help.setText("Help");
 		menuBar.add(help);
@@ -351,29 +423,104 @@ public class GUI implements WindowListener, MouseListener,KeyListener{
 		text.append("Arrow keys: {Up, Down, Left, Right} \n");
 		
 		text.append("\nFile Menu Shortcuts: \n");
-		text.append("Shift+N -> New Game\nShift+Q -> Quit\n");
+		text.append("Shift+N -> New Game\nShift+R -> Replay a Game\nShift+Q -> Quit\n");
 		
 		text.append("\nIn-game Shortcuts: \n");
 		text.append("A -> Accuse Someone\nS -> Make A Suggestion \n");
 		text.append("E -> End Turn\nC -> Cards in Hand\n");
 		text.append("D -> Cards Seen a.k.a. Detective Notes\n");
+		text.append("U -> Undo\nY -> Redo\n");
 		
 		text.append("\nYou can access this again by going to Help -> Keyboard Mappings");
 		InputOutput.popup("ShortCut Keys",  text.toString());
 	}
 
+	/**
+	 * Manages JDialog popup message to show cards in hand
+	 * @param p -- current Player
+	 */
+	private void showCards(Player p) {
+		StringBuilder text = new StringBuilder();
+		text.append("You have the following cards in your hand: \n");
+		for (Card c: Card.set(p.hand())) {	//output each card on one line
+			text.append(c.toString()+"\n");
+		}
+		InputOutput.popup(p.name+"'s Cards",  text.toString());
+	}
+	
+	/**
+	 * Manages JDialog popup message to show detective notes i.e. cards seen
+	 * @param p -- current Player
+	 */
+	private void seenCards(Player p) {
+		StringBuilder text = new StringBuilder();
+		text.append("You have seen the following cards: \n");
+		for (Card c: Card.set(p.seen())) {		//output each card on one line
+			text.append(c.toString()+"\n");
+		}
+		Deduction notes = game.notes(p.ID).copy();
+		game.odds(p.ID, odds -> {		//shown once worked out, the GUI is not held up meanwhile
+			text.append("\nThe envelope may hold: \n");		//what follows from who could not refute what
+			for (Card c: Card.set(notes.candidates())) {
+				text.append(c.toString()+(notes.status(Deduction.ENVELOPE, c.id) == Deduction.OWNS ? " (certain)"
+						: String.format(" (%.0f%%%s)", 100 * odds.probability(c.id), odds.exact ? "" : " approx."))+"\n");
+			}
+			InputOutput.popup(p.name+"'s Cards",  text.toString());
+		});
+	}
+
+	/**
+	 * Pick a journal and a game in it, then show that game until the replay controls are closed
+	 * </br> The game being played is put back as it was afterwards
+	 */
+	private void replay() {
+		String journal = System.getProperty("cluedo.journal");
+		JFileChooser chooser = new JFileChooser(journal == null ? null : new File(journal).getAbsoluteFile().getParentFile());
+		if (chooser.showOpenDialog(frame) != JFileChooser.APPROVE_OPTION) {
+			return;
+		}
+		File file = chooser.getSelectedFile();
+		try {
+			int games = Replay.games(file);
+			if (games == 0) {
+				InputOutput.popup("Replay", file.getName()+" has no games");
+				return;
+			}
+			String[] options = new String[games];
+			for (int g = 1; g <= games; g++) {
+				options[g - 1] = String.valueOf(g);
+			}
+			String game = InputOutput.getString("Replay", "Which game?", options);
+			if (game == null) {
+				return;
+			}
+			replay = this.game.replay(file, Integer.parseInt(game));
+		} catch (IOException e) {
+			InputOutput.popup("Replay", "Cannot read "+file.getName()+": "+e.getMessage());
+			return;
+		}
+		Board live = board;
+		setBoard(replay.getBoard());
+		draw();
+		new ReplayDialog(frame, this, replay).setVisible(true);		//returns when closed
+		replay = null;
+		setBoard(live);
+		draw();
+		frame.requestFocus();
+	}
+
 	/**
 	 * Updates remaining step output and repaint GUI
 	 * </br> Called at first move and after every move in a given turn
 	 */
 	public void draw() {
-		Color fontColor = board.getPlayer(game.getCurrent()).color;	//player token color
+		Color fontColor = board.getPlayer(getCurrent()).color;	//player token color
 		if (fontColor  != Color.WHITE) {	//if not white
-			remaining.setForeground(board.getPlayer(game.getCurrent()).color);		//same color as current
+			remaining.setForeground(board.getPlayer(getCurrent()).color);		//same color as current
 		} else {		//if white, can't see, so change
 			remaining.setForeground(Color.WHITE.darker().darker().darker());	//gray
 		}
-		remaining.setText(" " + game.getRemaining());		//update remaining move steps available
+		remaining.setText(" " + getRemaining());		//update remaining move steps available
 		boardCanvas.repaint();		//redraw
 	}
 	
@@ -415,14 +562,43 @@ public class GUI implements WindowListener, MouseListener,KeyListener{
 		int row = getBoardRowFromY(e.getY());		//new move of current to row,col
 		int col = getBoardColFromX(e.getX());
 		
-		//ANIMATE MOVE if valid move or NOT using stairwells ONLY
-		animate(row,col);
-		
-		//update current player's location , then redraw
-		game.chooseMove(row, col);	
+		if (!moveAlong(row, col)) {		//not more than one step away
+			//ANIMATE MOVE if valid move or NOT using stairwells ONLY
+			animate(row,col);
+			
+			//update current player's location , then redraw
+			game.chooseMove(row, col);	
+		}
 		draw();
 		frame.requestFocus();
 	}
+	
+	/**
+	 * Move the current Player to row,col, step by step, along a shortest path
+	 * </br> Used when row,col is reachable this turn but more than one step away
+	 * @param row
+	 * @param col
+	 * @return true iff row,col was more than one step away and the Player was moved
+	 */
+	private boolean moveAlong(int row, int col) {
+		BoardTopology topology = board.getTopology();
+		if (row < 0 || row >= topology.rows() || col < 0 || col >= topology.cols() || game.getRemaining() <= 0) {
+			return false;
+		}
+		int ID = game.getCurrent();
+		int target = board.getSquare(row, col).id;
+		Reachability.Reach reach = board.reachable(ID, game.getRemaining(), game.visited(), game.visitedKey());
+		if (reach.distance(target) <= 1) {
+			return false;
+		}
+		Adjacency adj = board.getAdjacency();
+		for (int step: reach.path(target)) {
+			if (game.getCurrent() != ID) {return true;}		//turn ended on the way
+			animate(adj.row(step), adj.col(step));
+			game.chooseMove(adj.row(step), adj.col(step));
+		}
+		return true;
+	}
 
 	@Override
 	public void mouseExited(MouseEvent e) {
@@ -468,6 +644,8 @@ public class GUI implements WindowListener, MouseListener,KeyListener{
 			if (r == JOptionPane.YES_OPTION) {
 				game.reset();
 			}
+		} else if (ch.equals("r")) {	//replay
+			replay();
 		} else if (ch.equals("q")) {	//quit
 			windowClosing(null);
 		} 
@@ -489,9 +667,13 @@ public class GUI implements WindowListener, MouseListener,KeyListener{
 				game.makeChoice(0);
 			}
 		} else if (ch.equals("c")) {	//cards in hand
-			board.getPlayer(game.getCurrent()).showCards();
+			showCards(board.getPlayer(game.getCurrent()));
 		} else if (ch.equals("d")) {	//detective notes
-			board.getPlayer(game.getCurrent()).seenCards();
+			seenCards(board.getPlayer(game.getCurrent()));
+		} else if (ch.equals("u")) {	//undo
+			game.undo();
+		} else if (ch.equals("y")) {	//redo
+			game.redo();
 		} 
 	}
 
@@ -539,7 +721,7 @@ public class GUI implements WindowListener, MouseListener,KeyListener{
 	 */
 	private void animate(int row, int col) {
 		try {
-			if (board.isValid(game.getCurrent(), row, col, visited)) {		//animate only if valid move	
+			if (board.isValid(game.getCurrent(), row, col, game.visited())) {		//animate only if valid move	
 				Square oldLoc = board.getPlayer(game.getCurrent()).getLocation();
 				Square newLoc = board.getSquare(row, col);
 				//animate only playarea to playarea movement, not involving room
@@ -555,21 +737,33 @@ public class GUI implements WindowListener, MouseListener,KeyListener{
 		// Ask the user to confirm they wanted to do this
 		int r = InputOutput.yesOrNo("Confirm Exit","Are you sure you want to exit?");
 		if (r == JOptionPane.YES_OPTION) {
+			game.close();
 			System.exit(0);
 		}
 	}
 	
 	//GETTERS
+	//of the replay while one is shown, of the game otherwise
 	public int getCurrent () {
-		return game.getCurrent();
+		return replay != null ? replay.getCurrent() : game.getCurrent();
 	}
 	
 	public int getRemaining () {
-		return game.getRemaining();
+		return replay != null ? replay.getRemaining() : game.getRemaining();
+	}
+	
+	public Map<Place, Weapon> getWeapons() {
+		return replay != null ? replay.weapons() : game.weapons();
+	}
+	
+	//visited set of Squares during current turn, by Square id
+	public BitSet visited() {
+		return replay != null ? replay.visited() : game.visited();
 	}
 	
-	public Map<String, String> getWeapons() {
-		return game.weapons();
+	//Zobrist key of visited()
+	public long visitedKey() {
+		return replay != null ? replay.visitedKey() : game.visitedKey();
 	}
 	
 	//TODO		//USELESS METHODS HERE TO FULFILL INTERFACE
@@ -12,14 +12,18 @@ import java.awt.event.MouseMotionListener;
 import java.awt.image.BufferedImage;
 import java.io.IOException;
 import java.io.InputStream;
-import java.util.HashMap;
+import java.util.EnumMap;
 import java.util.Map;
 
 import javax.imageio.ImageIO;
 
-import main.Loader;
+import model.Adjacency;
 import model.Board;
+import model.BoardTopology;
+import model.Card.Place;
+import model.Card.Weapon;
 import model.Player;
+import model.Reachability;
 import model.Square.Type;
 
 /**
@@ -31,7 +35,7 @@ public class GUICanvas extends Canvas {
 	private GUI ui;		//main GUI
 	private Image boardImage;	//assets/board.png
 	private Board board;	//underlying data structure
-	private Map<String, Point> weaponPrintLoc;		//location where to print particular weapons in certain rooms
+	private EnumMap<Place, Point> weaponPrintLoc;		//location where to print particular weapons in certain rooms
 
 	private int squareWidth;		//one Square size, changes depending on frame size
 	private int squareHeight;
@@ -88,17 +92,17 @@ public class GUICanvas extends Canvas {
 	 * Represented as: print at BoardRow, BoardCol === new Point(Col, Row)
 	 * @return
 	 */
-	private Map<String, Point> printLocations() {
-		Map<String, Point> roomToLoc = new HashMap<String, Point>();
-		roomToLoc.put("Kitchen", new Point(1, 1));
-		roomToLoc.put("Ball Room", new Point(8, 1));
-		roomToLoc.put("Conservatory", new Point(15, 1));
-		roomToLoc.put("Billiard Room", new Point(14, 8));
-		roomToLoc.put("Library", new Point(15, 11));
-		roomToLoc.put("Study", new Point(15, 16));
-		roomToLoc.put("Hall", new Point(8, 15));
-		roomToLoc.put("Lounge", new Point(1, 15));
-		roomToLoc.put("Dining Room", new Point(1, 7));
+	private EnumMap<Place, Point> printLocations() {
+		EnumMap<Place, Point> roomToLoc = new EnumMap<Place, Point>(Place.class);
+		roomToLoc.put(Place.KITCHEN, new Point(1, 1));
+		roomToLoc.put(Place.BALL_ROOM, new Point(8, 1));
+		roomToLoc.put(Place.CONSERVATORY, new Point(15, 1));
+		roomToLoc.put(Place.BILLIARD_ROOM, new Point(14, 8));
+		roomToLoc.put(Place.LIBRARY, new Point(15, 11));
+		roomToLoc.put(Place.STUDY, new Point(15, 16));
+		roomToLoc.put(Place.HALL, new Point(8, 15));
+		roomToLoc.put(Place.LOUNGE, new Point(1, 15));
+		roomToLoc.put(Place.DINING_ROOM, new Point(1, 7));
 		return roomToLoc;
 	}
 
@@ -117,10 +121,10 @@ public class GUICanvas extends Canvas {
 
 		g2d.drawImage(boardImage, 0, 0, this.getWidth(), this.getHeight(), null); // draw board TODO EDITED
 
-		Map<String, String> weaponsInRoom = ui.getWeapons();
-		for (Map.Entry<String, Point> e : weaponPrintLoc.entrySet()) { 
+		Map<Place, Weapon> weaponsInRoom = ui.getWeapons();
+		for (Map.Entry<Place, Point> e : weaponPrintLoc.entrySet()) { 
 			//for each weapon
-			String weapon = weaponsInRoom.get(e.getKey());
+			Weapon weapon = weaponsInRoom.get(e.getKey());
 			if (weapon != null) {
 				g2d.setColor(Color.BLACK);
 				g2d.drawString("(" + weapon + ")",
@@ -135,7 +139,8 @@ public class GUICanvas extends Canvas {
 				if (p.isPlaying()) { // and is playing/active
 					p.draw(g2d, this);
 					if (p.ID == ui.getCurrent()) {	//draw available places to move for current Player
-						p.getLocation().drawNeighbours(g2d,this, board, ui.getRemaining(), ui.visited);
+						p.getLocation().drawNeighbours(g2d,this, board, ui.getRemaining(), ui.visited());
+						drawReachable(g2d, p);
 					}
 				}
 			}
@@ -143,6 +148,29 @@ public class GUICanvas extends Canvas {
 
 	}
 
+	/**
+	 * Draw every Square that Player p can reach with its remaining move steps
+	 * </br> Squares one step away are drawn by Square.drawNeighbours()
+	 * @param g -- graphics context for Canvas
+	 * @param p -- the current Player
+	 */
+	private void drawReachable(Graphics2D g, Player p) {
+		if (ui.getRemaining() <= 0) {return;}		//if none left
+		
+		Reachability.Reach reach = board.reachable(p.ID, ui.getRemaining(), ui.visited(), ui.visitedKey());
+		Adjacency adj = board.getAdjacency();
+		g.setColor(p.color.brighter().brighter().brighter());		//player color but lighter
+		int size = (int) (getSquareWidth()/4);
+		for (int i = 0; i < reach.size(); i++) {
+			int id = reach.square(i);
+			if (reach.distance(id) > 1) {		//further than one step
+				int x = getXFromBoardCol(adj.col(id)) + (int) (getSquareWidth() - size)/2 + 5;
+				int y = getYFromBoardRow(adj.row(id)) + (int) (getSquareHeight() - size)/2 + 5;
+				g.fillOval(x, y, size, size);
+			}
+		}
+	}
+
 	/**
 	 * Canvas 'corner' x given board column
 	 * @param col -- board column
@@ -205,11 +233,12 @@ public class GUICanvas extends Canvas {
 			//point to board row, col
 			int row = parent.ui.getBoardRowFromY(p.y);
 			int col = parent.ui.getBoardColFromX(p.x);
-			if (row <0 || row >= Loader.rows() || col < 0 || col >= Loader.cols()) {
+			BoardTopology topology = parent.board.getTopology();
+			if (row <0 || row >= topology.rows() || col < 0 || col >= topology.cols()) {
 				return;
 			}
 			
-			if (parent.board.getSquare(row, col).getOccupied() == null) {		//if not occupied by any player
+			if (parent.board.getOccupant(row, col) == Board.FREE) {		//if not occupied by any player
 				if (parent.board.getSquare(row, col).kind == Type.ROOM) {		//if part of a room, output room
 					String roonName = parent.board.getSquare(row, col).getName();
 					parent.ui.status.setText("MOUSE HOVERING at r: "+row+" c: "+col+". This is part of "+roonName);
@@ -219,8 +248,7 @@ public class GUICanvas extends Canvas {
 					parent.ui.status.setText("MOUSE HOVERING at r: "+row+" c: "+col+" This point is out of bounds");
 				}
 			} else {		//if occupied by whoever player
-				int ID = Integer.parseInt(""+parent.board.getSquare(row, col).getOccupied().charAt(1));
-				Player pl = parent.board.getPlayer(ID);
+				Player pl = parent.board.getPlayer(parent.board.getOccupant(row, col));
 				parent.ui.status.setText("This is player '"+pl.name+"' playing the role of "+pl.character);
 			}
 		}
@@ -5,7 +5,7 @@ import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.Random;
+import java.util.SplittableRandom;
 
 import javax.swing.ButtonGroup;
 import javax.swing.JLabel;
@@ -98,9 +98,10 @@ public class InputOutput {
 	/**
 	 * Setup JRadio buttons for character selection
 	 * @param playerNames -- String [] from playerNames(N)
+	 * @param rand -- picks the character selected by default
 	 * @return a Map Map<String, String> of Player name to character
 	 */
-	public static Map<String, String> playerChars(String[] playerNames) {
+	public static Map<String, String> playerChars(String[] playerNames, SplittableRandom rand) {
 		JPanel panel = new JPanel(new GridLayout(0, 1));	//window
 		panel.setVisible(true);
 		
@@ -116,7 +117,7 @@ public class InputOutput {
 		}
 		
 		//ensures that at least one radio is selected by default
-		options.get(new Random().nextInt(options.size())).setSelected(true);
+		options.get(rand.nextInt(options.size())).setSelected(true);
 		
 		//do the assignment
 		return assignChars(playerNames, options, panel, group);	
@@ -0,0 +1,191 @@
+package view;
+
+import java.awt.BorderLayout;
+import java.awt.FlowLayout;
+import java.awt.event.ActionEvent;
+import java.awt.event.ActionListener;
+import java.awt.event.WindowAdapter;
+import java.awt.event.WindowEvent;
+
+import javax.swing.JButton;
+import javax.swing.JComboBox;
+import javax.swing.JDialog;
+import javax.swing.JFrame;
+import javax.swing.JLabel;
+import javax.swing.JPanel;
+import javax.swing.JSlider;
+import javax.swing.Timer;
+import javax.swing.event.ChangeEvent;
+import javax.swing.event.ChangeListener;
+
+import main.Event;
+import main.Replay;
+
+/**
+ * Controls of a Replay shown on the GUI's board: a slider over the turns, play/pause and speed
+ * <br> -- modal, so the game being played cannot be touched while a replay is shown
+ * <br> -- playback runs on a Swing Timer at a fixed frame rate; at high speed several events are
+ * applied per frame and only the last is drawn, i.e. frames are skipped rather than falling behind
+ * @author Ronni Perez
+ *
+ */
+public class ReplayDialog extends JDialog {
+	private static final int FRAME = 40;		//milliseconds between frames
+	private static final double EVENTS_PER_SECOND = 4;		//playback rate at 1x
+	private static final String[] SPEEDS = {"1x", "2x", "4x", "8x", "16x", "64x"};
+
+	private final GUI ui;
+	private final Replay replay;
+	private final JSlider turns;		//turn being shown
+	private final JLabel status;		//turn, player and last event
+	private final JButton playBtn;
+	private final JComboBox<String> speed;
+	private final Timer timer;
+	private long started;		//System.nanoTime() when playback started or changed speed
+	private int from;		//position when playback started or changed speed
+	private boolean seeking;		//the slider is being moved by playback, not by the user
+
+	private static final long serialVersionUID = 2318863937407762316L;
+
+	/**
+	 * Constructor
+	 * @param owner -- the GUI's window
+	 * @param ui -- draws the replay instead of the game until this closes
+	 * @param replay -- game to show
+	 */
+	public ReplayDialog(JFrame owner, GUI ui, Replay replay) {
+		super(owner, "Replay", true);
+		this.ui = ui;
+		this.replay = replay;
+
+		turns = new JSlider(0, Math.max(1, replay.turns()), 0);
+		turns.setMajorTickSpacing(Math.max(1, replay.turns() / 10));
+		turns.setPaintTicks(true);
+		turns.setPaintLabels(true);
+		turns.addChangeListener(new ChangeListener() {
+			public void stateChanged(ChangeEvent event) {		//scrub
+				if (!seeking) {
+					pause();
+					if (turns.getValue() == 0) {
+						replay.seek(0);
+					} else {
+						replay.seekTurn(turns.getValue());
+					}
+					shown();
+				}
+			}
+		});
+
+		playBtn = new JButton("Play");
+		playBtn.addActionListener(new ActionListener() {
+			public void actionPerformed(ActionEvent event) {
+				if (timer.isRunning()) {
+					pause();
+				} else {
+					play();
+				}
+			}
+		});
+		JButton backBtn = new JButton("<");		//one event back
+		backBtn.addActionListener(new ActionListener() {
+			public void actionPerformed(ActionEvent event) {
+				pause();
+				replay.seek(replay.position() - 1);
+				shown();
+			}
+		});
+		JButton nextBtn = new JButton(">");		//one event forward
+		nextBtn.addActionListener(new ActionListener() {
+			public void actionPerformed(ActionEvent event) {
+				pause();
+				replay.seek(replay.position() + 1);
+				shown();
+			}
+		});
+		speed = new JComboBox<String>(SPEEDS);
+		speed.addActionListener(new ActionListener() {
+			public void actionPerformed(ActionEvent event) {
+				restart();		//same position, new rate
+			}
+		});
+
+		timer = new Timer(FRAME, new ActionListener() {
+			public void actionPerformed(ActionEvent event) {
+				frame();
+			}
+		});
+
+		JPanel buttons = new JPanel(new FlowLayout());
+		buttons.add(backBtn);
+		buttons.add(playBtn);
+		buttons.add(nextBtn);
+		buttons.add(new JLabel("Speed"));
+		buttons.add(speed);
+		status = new JLabel();
+		getContentPane().setLayout(new BorderLayout());
+		getContentPane().add(turns, BorderLayout.NORTH);
+		getContentPane().add(buttons, BorderLayout.CENTER);
+		getContentPane().add(status, BorderLayout.SOUTH);
+
+		addWindowListener(new WindowAdapter() {
+			public void windowClosing(WindowEvent e) {
+				timer.stop();
+			}
+		});
+		setDefaultCloseOperation(DISPOSE_ON_CLOSE);
+		pack();
+		setLocation(owner.getX(), owner.getY() + owner.getHeight());		//below the board, not over it
+		shown();
+	}
+
+	/**
+	 * Start playback from the position shown, from the start if the game was shown to the end
+	 */
+	private void play() {
+		if (replay.position() >= replay.size()) {
+			replay.seek(0);
+		}
+		playBtn.setText("Pause");
+		restart();
+		timer.start();
+	}
+
+	private void pause() {
+		timer.stop();
+		playBtn.setText("Play");
+	}
+
+	private void restart() {
+		started = System.nanoTime();
+		from = replay.position();
+	}
+
+	/**
+	 * One Timer tick: seek to where playback should be by now, and draw that only
+	 */
+	private void frame() {
+		double seconds = (System.nanoTime() - started) / 1e9;
+		int rate = Integer.parseInt(((String) speed.getSelectedItem()).replace("x", ""));
+		int target = from + (int) (seconds * EVENTS_PER_SECOND * rate);
+		if (target != replay.position()) {
+			replay.seek(target);
+			shown();
+		}
+		if (replay.position() >= replay.size()) {
+			pause();
+		}
+	}
+
+	/**
+	 * Redraw the board, the slider and the status after the replay moved
+	 */
+	private void shown() {
+		seeking = true;
+		turns.setValue(replay.turn());
+		seeking = false;
+		Event last = replay.last();
+		status.setText(" Turn "+replay.turn()+" of "+replay.turns()+", event "+replay.position()+" of "+replay.size()
+				+(last == null ? "" : ": "+replay.getConfig().getName(last.player)+" "+last.kind));
+		ui.draw();
+	}
+}
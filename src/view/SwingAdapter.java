@@ -0,0 +1,191 @@
+package view;
+
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+
+import javax.swing.JOptionPane;
+
+import main.Action;
+import main.Engine;
+import main.Event;
+import main.GameAdapter;
+import main.GameConfig;
+import main.Loader;
+import model.Board;
+import model.BoardTopology;
+import model.Card;
+import model.Card.Place;
+import model.Card.Suspect;
+import model.Card.Weapon;
+import model.Player;
+import model.Square;
+import model.SuggestionAdvisor;
+
+/**
+ * Plays a game through the GUI and the JOptionPane dialogs of InputOutput
+ * @author Ronni Perez
+ *
+ */
+public class SwingAdapter implements GameAdapter {
+	private static final int ADVICE = 3;		//suggestions recommended
+	private final GUI ui;
+	private Engine engine;		//game being played
+	private SuggestionAdvisor advisor;		//rates suggestions in the background, per game
+
+	public SwingAdapter(GUI ui) {
+		this.ui = ui;
+	}
+
+	@Override
+	public GameConfig setup(BoardTopology topology) {
+		long seed = GameConfig.defaultSeed();		//-Dcluedo.seed=N plays the same game again
+		SplittableRandom rand = new SplittableRandom(seed);
+		int players = InputOutput.numPlayers();		//game players
+		String [] playerNames = InputOutput.playerNames(players);	//player names
+		//player to characters played
+		Map<String,String>nameToChar = InputOutput.playerChars(playerNames, rand.split());
+		String[] names = new String[players + 1];
+		Suspect[] chars = new Suspect[players + 1];
+		for (int ID = 1; ID <= players; ID++) {
+			names[ID] = playerNames[ID].substring(1);		//NOTE: get name except ID
+			chars[ID] = Suspect.parse(nameToChar.get(playerNames[ID]));		//UI name to character
+		}
+		return new GameConfig(names, chars, seed);
+	}
+
+	@Override
+	public void started(Engine engine) {
+		this.engine = engine;
+		this.advisor = new SuggestionAdvisor(ForkJoinPool.commonPool(), SuggestionAdvisor.SAMPLES, engine.getSeed());
+		ui.setBoard(engine.getBoard());
+		ui.showKeys(); //show key mappings
+	}
+
+	@Override
+	public Action chooseSuggestion(Place room) {
+		Suspect person = Suspect.parse(InputOutput.getString("Choose Character", advice(room)+"SUGGEST a suspect: ", Loader.getPeople()));		//pick character
+		if (person == null) return null;
+		Weapon weapon = Weapon.parse(InputOutput.getString("Choose Weapon", "SUGGEST a murder weapon: ", Loader.getWeapons()));		//pick weapon
+		if (weapon == null) return null;
+		return Action.suggest(person, weapon);
+	}
+
+	/**
+	 * Most informative suggestions in room, if the advisor is done with them
+	 * @param room
+	 * @return text for the suggestion dialog
+	 */
+	private String advice(Place room) {
+		SuggestionAdvisor.Rating[] ratings = advisor.ratings(engine.notes(engine.getCurrent()), room);
+		if (ratings == null) {
+			return "";		//still working it out, do not keep the player waiting
+		}
+		StringBuilder text = new StringBuilder("Most informative suggestions here:\n");
+		for (int i = 0; i < ADVICE; i++) {
+			text.append((i + 1)+". "+ratings[i]+"\n");
+		}
+		return text.append("\n").toString();
+	}
+
+	@Override
+	public Action chooseAccusation() {
+		Suspect person = Suspect.parse(InputOutput.getString("Choose Character", "Choose the suspect:", Loader.getPeople()));		//pick character
+		if (person == null) return null;
+		Weapon weapon = Weapon.parse(InputOutput.getString("Choose Weapon", "Choose the murder weapon: ", Loader.getWeapons()));		//pick weapon
+		if (weapon == null) return null;
+		Place room = Place.parse(InputOutput.getString("Choose Room", "Choose the scene of the crime:", Loader.getRooms()));		//pick room (any room)
+		if (room == null) return null;
+		return Action.accuse(person, weapon, room);
+	}
+
+	@Override
+	public void show(Event event, Engine engine) {
+		Board board = engine.getBoard();
+		Player p = board.getPlayer(event.player);
+		switch (event.kind) {
+		case TURN_STARTED:
+			//inform of whos's turn it is
+			ui.playerTurn.setText("It's "+p.name+" (P"+p.ID+")'s turn");
+			ui.characterLbl.setText(" Go "+p.character);
+			ui.diceRoll.setText("You rolled:"+event.value);
+			ui.status.setText("");
+			break;
+		case MOVED:
+			ui.status.setText("");	//clear status bar text
+			break;
+		case ENTERED_ROOM:
+			InputOutput.popup("Make a Choice", "You may now make a suggestion OR choose to end your turn");
+			ui.status.setText("You now have the option of making a suggestion");
+			break;
+		case INVALID:
+			if (event.action != null && event.action.kind == Action.Kind.MOVE) {
+				ui.status.setText("INVALID: You cannot move at: "+event.row+" , "+event.col);
+			} else {
+				ui.status.setText("INVALID: You cannot do that now");
+			}
+			break;
+		case SUGGESTED:
+			//inform user of his/her suggestion
+			InputOutput.popup("Your Suggestion", "You suggested: "+ event.action.suspect+", "+Place.of(event.value)+", "+event.action.weapon);
+			break;
+		case SUMMONED:
+			Square sq = board.getSquare(event.row, event.col);
+			InputOutput.popup(null, p.character+"(P"+p.ID+") will be moved to {"+sq.row+", "+sq.col+"} "+sq.getName());
+			break;
+		case REFUTED:
+			InputOutput.popup("Suggestion Refuted", "Player "+p.ID+" has the card "+Card.get(event.value).name);
+			break;
+		case CANNOT_REFUTE:
+			InputOutput.popup("Info", "P"+p.ID+" cannot refute the suggestion");
+			break;
+		case UNREFUTED:
+			InputOutput.popup("Unrefutable", "No one can refute the suggestion");
+			break;
+		case ACCUSED:
+			//inform user of his/her accusation
+			InputOutput.popup("Your Suggestion", "You chose: "+ event.action.suspect+", "+event.action.place+", "+event.action.weapon);
+			break;
+		case WON:
+			InputOutput.popup(null, "You WON!!!");
+			InputOutput.popup(null, p.character+" won the game");
+			InputOutput.popup(null, "The suspect is "+event.action.suspect+". He/She used the "+event.action.weapon+" to kill Dr Black in the "+event.action.place);
+			break;
+		case EXPELLED:
+			InputOutput.popup("You're out", "P"+p.ID+"'s accusations are baseless. P"+p.ID+" is expelled from the game BUT can still rubute suggestions");
+			break;
+		case GAME_OVER:
+			InputOutput.popup("Game Over", "The case has gone cold. No active players left");
+			break;
+		default:		//WEAPON_MOVED is only drawn
+			break;
+		}
+		ui.suggestBtn.setEnabled(engine.canSuggest());
+		if (engine.canSuggest()) {		//start rating suggestions now, so they are ready when asked for
+			advisor.advise(engine.notes(engine.getCurrent()), board.inRoom(engine.getCurrent()));
+		}
+		ui.endBtn.setEnabled(engine.canEndTurn());
+		ui.draw();
+	}
+
+	@Override
+	public boolean playAgain() {
+		//ask user to play again
+		int r = InputOutput.yesOrNo("Play Again", "Do you want to play again?");
+		if (r == JOptionPane.YES_OPTION) {
+			ui.setReady(false);
+			return true;
+		}
+		return false;
+	}
+
+	@Override
+	public void notice(String title, String msg) {
+		InputOutput.popup(title, msg);
+	}
+
+	@Override
+	public boolean confirm(String title, String msg) {
+		return InputOutput.yesOrNo(title, msg) == JOptionPane.YES_OPTION;
+	}
+}
@@ -1,10 +1,54 @@
-import java.lang.reflect.Field;
-import java.lang.reflect.InvocationTargetException;
-import java.lang.reflect.Method;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicBoolean;
 
-import main.Cluedo;
+import main.Action;
+import main.Engine;
+import main.Event;
+import main.GameConfig;
+import main.GameState;
+import main.Deadline;
+import main.GreedyAgent;
+import main.GreedyPolicy;
+import main.Journal;
 import main.Loader;
+import main.PlayerAgent;
+import main.Policy;
+import main.RandomPolicy;
+import main.Replay;
+import main.SaveGame;
+import main.Seat;
+import main.SimulationStats;
+import main.Simulator;
+import main.Table;
+import main.Tournament;
 import model.Board;
+import model.BoardTopology;
+import model.Card;
+import model.Card.Place;
+import model.Card.Suspect;
+import model.Card.Weapon;
+import model.CentreRoom;
+import model.Deduction;
+import model.MovePlanner;
+import model.Player;
+import model.Reachability;
+import model.RoomIndex;
+import model.SafeFile;
+import model.SolutionProbability;
+import model.SuggestionAdvisor;
+import model.Square;
+import model.Zobrist;
 
 import org.junit.*;
 
@@ -17,84 +61,791 @@ import static org.junit.Assert.*;
  */
 public class GamePlayTests {
 	@Test
-	public void gameStart() throws NoSuchFieldException, SecurityException, IllegalArgumentException, IllegalAccessException {
-		Cluedo game = new Cluedo(3);	//3 players
-		Field f = null;
+	public void gameStart() {
+		Engine game = newGame(3);	//3 players
+		assertFalse(game.isWon());		//not won
+		assertFalse(game.isOver());
+		assertEquals(3, game.getPlayers());		//only 3 players indeed
+		assertEquals(1, game.getCurrent());		//P1 always starts
+		assertTrue(game.legalActions().contains(Action.accuse(Suspect.MISS_SCARLETT, Weapon.ROPE, Place.HALL)));
+		assertFalse(game.legalActions().contains(Action.END_TURN));		//must move first
+	}
+	
+	@Test
+	public void diceRoll() {
+		Engine game = new Engine(new Loader());
+		BoardTopology topology = new Loader().getTopology();
+		int[] rolls = new int[7];
+		for (int counter = 1; counter < 1000; counter++) {		//roll die 1000 times, 1 player
+			List<Event> events = game.newGame(new GameConfig(1, topology, counter));
+			assertEquals(Event.Kind.TURN_STARTED, events.get(0).kind);
+			int i = game.getRemaining();
+			assertEquals(i, events.get(0).value);
+			assertTrue(i >= 1 && i <= 6);		//  1 =< remaining =< 6
+			rolls[i]++;
+		}
+		for (int i = 1; i <= 6; i++) {
+			assertTrue(rolls[i] > 100);		//every face comes up
+		}
+	}
+	
+	@Test
+	public void replaySeed() {
+		Engine game1 = newGame(4, 7);
+		Engine game2 = newGame(4, 7);
+		assertEquals(7, game1.getSeed());
+		assertTrue(game1.getSolution().matches(game2.getSolution().getSuspect(), game2.getSolution().getWeapon(), game2.getSolution().getPlace()));
+		assertEquals(game1.weapons(), game2.weapons());
+		for (int ID = 1; ID <= 4; ID++) {
+			assertEquals(game1.getBoard().getPlayer(ID).hand(), game2.getBoard().getPlayer(ID).hand());
+		}
+		for (int turn = 0; turn < 20; turn++) {		//same actions, same events
+			assertEquals(game1.getRemaining(), game2.getRemaining());
+			endTurn(game1);
+			endTurn(game2);
+			assertEquals(game1.getCurrent(), game2.getCurrent());
+		}
+		List<Event> events1 = game1.apply(Action.accuse(Suspect.MRS_WHITE, Weapon.ROPE, Place.HALL));
+		List<Event> events2 = game2.apply(Action.accuse(Suspect.MRS_WHITE, Weapon.ROPE, Place.HALL));
+		assertEquals(events1.toString(), events2.toString());
+		
+		Engine other = newGame(4, 8);		//another seed deals another game
+		boolean same = other.getBoard().getPlayer(1).hand() == newGame(4, 7).getBoard().getPlayer(1).hand()
+				&& other.getBoard().getPlayer(2).hand() == newGame(4, 7).getBoard().getPlayer(2).hand();
+		assertFalse(same);
+	}
+	
+	@Test
+	public void reproducibleSimulation() {
+		Simulator sim = new Simulator(new Loader(), 4, new GreedyPolicy());
+		String expected = sim.run(99, 300).toString();
+		ForkJoinPool pool = new ForkJoinPool(3);
+		try {		//another split and thread count, same results
+			assertEquals(expected, sim.run(99, 300, 70, pool, null).toString());
+		} finally {
+			pool.shutdown();
+		}
+		assertNotEquals(expected, sim.run(100, 300).toString());
+	}
+	
+	@Test
+	public void nextTurn() {
+		Engine game = newGame(4);		//4 players
+		//current starts with 1 as in P1
+		int[] expected = new int[] {2, 3, 4, 1, 2, 3};
+		for (int next: expected) {
+			endTurn(game);
+			assertEquals(next, game.getCurrent());
+		}
+	}
+	
+	@Test
+	public void gameOver() {
+		Engine game = newGame(5);		//5 players
+		CentreRoom solution = game.getSolution();
+		Suspect wrong = Suspect.of((solution.getSuspect().ordinal() + 1) % Suspect.COUNT);
+		for(int i = 1; i <= 5; i++) {		//expel all by false accusations
+			assertEquals(i, game.getCurrent());
+			List<Event> events = game.apply(Action.accuse(wrong, solution.getWeapon(), solution.getPlace()));
+			assertEquals(Event.Kind.EXPELLED, events.get(1).kind);
+		}
+		assertTrue(game.isOver());		//no active players
+		assertFalse(game.isWon());
+		assertTrue(game.legalActions().isEmpty());
+	}
+	
+	@Test
+	public void correctAccusation() {
+		Engine game = newGame(2);
+		CentreRoom solution = game.getSolution();
+		List<Event> events = game.apply(Action.accuse(solution.getSuspect(), solution.getWeapon(), solution.getPlace()));
+		assertEquals(Event.Kind.WON, events.get(events.size() - 1).kind);
+		assertTrue(game.isWon());
+		assertEquals(Event.Kind.INVALID, game.apply(Action.END_TURN).get(0).kind);		//nothing more to play
+	}
+	
+	@Test
+	public void legalMoves() {
+		Engine game = newGame(1);
+		for (long seed = 2; game.getRemaining() < 2; seed++) {		//roll of 2 or more, so the turn goes on
+			game = newGame(1, seed);
+		}
+		Board board = game.getBoard();
+		for (Action a: game.legalActions()) {		//only single steps from {17,5}
+			if (a.kind == Action.Kind.MOVE) {
+				assertTrue(board.isValid(1, a.row, a.col, game.visited()));
+			}
+		}
+		assertTrue(game.legalActions().contains(Action.move(16, 5)));
+		assertFalse(game.legalActions().contains(Action.move(15, 5)));
+		assertEquals(Event.Kind.INVALID, game.apply(Action.move(15, 5)).get(0).kind);		//2 steps
+		assertEquals(Event.Kind.INVALID, game.apply(Action.suggest(Suspect.MRS_WHITE, Weapon.ROPE)).get(0).kind);		//not in a room
 		
-		f = Cluedo.class.getDeclaredField("isWon");		//not won
-        f.setAccessible(true);
-        assertEquals("false", f.get(game).toString());
-        
-        f = Cluedo.class.getDeclaredField("players");		//only 3 players indeed
-        f.setAccessible(true);
-        assertEquals("3", f.get(game).toString());
-        
-        f = Cluedo.class.getDeclaredField("current");		//P1 always starts
-        f.setAccessible(true);
-        assertEquals("1", f.get(game).toString());
+		int remaining = game.getRemaining();
+		List<Event> events = game.apply(Action.move(16, 5));
+		assertEquals(Event.Kind.MOVED, events.get(0).kind);
+		assertEquals(remaining - 1, events.get(0).value);
+		assertEquals(1, board.getOccupant(16, 5));
+		assertTrue(game.visited().get(board.getSquare(17, 5).id));
+		assertFalse(game.legalActions().contains(Action.move(17, 5)));		//no going back this turn
 	}
 	
 	@Test
-	public void diceRoll() throws IllegalAccessException, NoSuchMethodException, InvocationTargetException {
-		Cluedo game = new Cluedo(1);		//1 player
-		Method m = null;
-		for (int counter = 1; counter < 1000; counter++) {		//roll die 1000 times
-			m=Cluedo.class.getDeclaredMethod("roll");
-	        m.setAccessible(true);
-	        String str = m.invoke(game).toString();
-	        int i = Integer.parseInt(str);
-	        assert(i >= 1 && i <= 6);		//  1 =< remaining =< 6
+	public void simulateGames() {
+		Simulator sim = new Simulator(new Loader(), 3, new GreedyPolicy(), new RandomPolicy());
+		SimulationStats stats = sim.run(42, 200);
+		assertEquals(200, stats.games());
+		assertEquals(200, stats.won() + stats.cold() + stats.unfinished());
+		assertTrue(stats.won() > 0);
+		assertTrue(stats.meanTurns() >= 1 && stats.maxTurns() <= Simulator.MAX_TURNS + 1);
+		assertTrue(stats.meanSuggestions() > 0);
+		long wins = 0;
+		for (int ID = 1; ID <= 3; ID++) {
+			wins += stats.seatWins(ID);
 		}
+		assertEquals(stats.won(), wins);
 	}
 	
 	@Test
-	public void nextTurn() throws IllegalAccessException, NoSuchMethodException, InvocationTargetException, NoSuchFieldException, SecurityException {
-		Cluedo game = new Cluedo(4);		//4 players
-		Field f = null;
-		Method m = null;
+	public void deductionRules() {
+		int hand = Card.bit(0) | Card.bit(1) | Card.bit(6) | Card.bit(7) | Card.bit(12) | Card.bit(13);
+		Deduction notes = new Deduction(3, 1, hand);
+		assertEquals(6, notes.size(2));
+		assertEquals(Deduction.LACKS, notes.status(Deduction.ENVELOPE, 0));		//in my hand
+		assertEquals(Deduction.LACKS, notes.status(2, 0));
+		assertEquals(Deduction.UNKNOWN, notes.status(2, 2));
 		
-		f = Cluedo.class.getDeclaredField("current"); // get current
-		f.setAccessible(true);
-		m = Cluedo.class.getDeclaredMethod("nextMove",boolean.class);	//get nextMove
-		m.setAccessible(true);
+		//P3 refutes {2, 8, 14} to someone else, then turns out to lack 2 and 8
+		notes.refuted(3, Card.bit(2) | Card.bit(8) | Card.bit(14));
+		assertEquals(Deduction.UNKNOWN, notes.status(3, 14));
+		notes.cannotRefute(3, Card.bit(2) | Card.bit(9) | Card.bit(15));
+		notes.cannotRefute(3, Card.bit(3) | Card.bit(8) | Card.bit(16));
+		assertEquals(Deduction.OWNS, notes.status(3, 14));
+		assertEquals(Deduction.LACKS, notes.status(2, 14));
+		assertEquals(Deduction.LACKS, notes.status(Deduction.ENVELOPE, 14));
 		
-		//current starts with 1 as in P1
-		m.invoke(game, true);		//is testing, ..current should == 2
-		assertEquals("2", f.get(game).toString());
-		m.invoke(game, true);		//is testing, ..current should == 3
-		assertEquals("3", f.get(game).toString());
-		m.invoke(game, true);		//is testing, ..current should == 4
-		assertEquals("4", f.get(game).toString());
-		m.invoke(game, true);		//is testing, ..current should == 1
-		assertEquals("1", f.get(game).toString());
-		m.invoke(game, true);		//is testing, ..current should == 2
-		assertEquals("2", f.get(game).toString());
-		m.invoke(game, true);		//is testing, ..current should == 3
-		assertEquals("3", f.get(game).toString());
-	}
-	
-	@Test
-	public void gameOver() throws NoSuchFieldException, SecurityException,
-			IllegalArgumentException, IllegalAccessException, 
-			NoSuchMethodException, InvocationTargetException {
-		Cluedo game = new Cluedo(5);		//5 players
-		Field f = null;
-		Method m = null;
-		
-		f = Cluedo.class.getDeclaredField("board");		//get board
-        f.setAccessible(true);
-        Board board = (Board) f.get(game);
-        for(int i = 1; i <= 5; i++) {		//expel all
-        	board.expel(i);
-        }
-        m=Cluedo.class.getDeclaredMethod("gameOver");
-        m.setAccessible(true);
-        assertEquals("true", m.invoke(game).toString());		//gameOver() should be true
+		//one character left for the envelope
+		notes.shown(2, 2);
+		notes.shown(2, 3);
+		notes.shown(3, 4);
+		assertEquals(Deduction.OWNS, notes.status(Deduction.ENVELOPE, 5));
+		assertEquals(Card.bit(5), notes.candidates() & 0x3f);
+		assertFalse(notes.isSolved());
+		assertEquals(4 * 6, notes.solutions().length);		//weapons 8..11, rooms 14..20 less 14
+		
+		//a full hand lacks everything else
+		Deduction copy = notes.copy();
+		for (int card: new int[] {9, 10, 15, 16}) {
+			copy.shown(2, card);
+		}
+		assertEquals(Card.ALL & ~copy.owns(2), copy.lacks(2));
+		assertEquals(Deduction.UNKNOWN, notes.status(2, 9));		//copy is independent
+	}
+	
+	@Test
+	public void deductionIsSound() {
+		Policy policy = new GreedyPolicy();
+		for (long seed = 1; seed <= 20; seed++) {
+			Engine game = newGame(4, seed);
+			SplittableRandom rng = new SplittableRandom(seed);
+			CentreRoom solution = game.getSolution();
+			int envelope = Card.mask(solution.getSuspect(), solution.getWeapon(), solution.getPlace());
+			for (int actions = 0; actions < 5000 && !game.isOver(); actions++) {
+				for (Event e: game.apply(policy.choose(game, rng))) {
+					assertNotEquals(Event.Kind.EXPELLED, e.kind);		//accusations follow from the notes
+				}
+				for (int ID = 1; ID <= 4; ID++) {		//never contradicts the truth
+					Deduction notes = game.notes(ID);
+					assertEquals(envelope, envelope & notes.candidates());
+					assertEquals(notes.owns(Deduction.ENVELOPE), envelope & notes.owns(Deduction.ENVELOPE));
+					for (int h = 1; h <= 4; h++) {
+						int truth = game.getBoard().getPlayer(h).hand();
+						assertEquals(notes.owns(h), truth & notes.owns(h));
+						assertEquals(0, truth & notes.lacks(h));
+					}
+				}
+			}
+			assertTrue(game.isWon());
+		}
+	}
+	
+	@Test
+	public void exactProbability() {
+		int hand = Card.bit(0) | Card.bit(1) | Card.bit(6) | Card.bit(7) | Card.bit(12) | Card.bit(13);
+		Deduction notes = new Deduction(3, 1, hand);
+		ForkJoinPool pool = new ForkJoinPool(2);
+		try {
+			SolutionProbability odds = SolutionProbability.of(notes, 1000, pool, 1);
+			assertTrue(odds.exact);
+			assertEquals(4 * 4 * 7 * 924, odds.deals);		//solutions times 6 of the other 12 cards to P2
+			assertEquals(0.25, odds.probability(2), 1e-9);		//4 characters left, all alike
+			assertEquals(0, odds.probability(0), 1e-9);		//in my hand
+			assertEquals(1.0 / 7, odds.probability(20), 1e-9);
+			
+			//P2 refuted {2, 8, 14} and lacks 8 and 14, so P2 holds 2
+			notes.refuted(2, Card.bit(2) | Card.bit(8) | Card.bit(14));
+			notes.cannotRefute(2, Card.bit(8) | Card.bit(14));
+			odds = SolutionProbability.of(notes, 1000, pool, 1);
+			assertEquals(0, odds.probability(2), 1e-9);
+			assertEquals(1.0 / 3, odds.probability(3), 1e-9);
+			
+			//P3 refuted {3, 9, 15}: one of them is NOT in the envelope
+			notes.refuted(3, Card.bit(3) | Card.bit(9) | Card.bit(15));
+			odds = SolutionProbability.of(notes, 1000, pool, 1);
+			assertTrue(odds.exact);
+			assertTrue(odds.probability(3) < 1.0 / 3);
+			double total = 0;
+			for (int i = 0; i < SolutionProbability.SOLUTIONS; i++) {
+				total += odds.solution(i);
+			}
+			assertEquals(1, total, 1e-9);
+			assertEquals(0, odds.solution(SolutionProbability.index(Card.mask(Suspect.MRS_WHITE, Weapon.CANDLESTICK, Place.KITCHEN))), 1e-9);
+			
+			//sampling agrees with counting
+			SolutionProbability sampled = SolutionProbability.of(notes, 0, pool, 1);
+			assertFalse(sampled.exact);
+			assertTrue(sampled.samples > 0);
+			for (int card = 0; card < Card.COUNT; card++) {
+				assertEquals(odds.probability(card), sampled.probability(card), 0.03);
+			}
+		} finally {
+			pool.shutdown();
+		}
+	}
+	
+	@Test
+	public void adviseSuggestion() {
+		int hand = Card.bit(0) | Card.bit(1) | Card.bit(6) | Card.bit(7) | Card.bit(12) | Card.bit(13);
+		Deduction notes = new Deduction(3, 1, hand);
+		Place room = Place.of(0);		//card 12, in my hand
+		ForkJoinPool pool = new ForkJoinPool(3);
+		try {
+			SuggestionAdvisor.Rating[] ratings = SuggestionAdvisor.rank(notes, room, 4096, pool, 1);
+			assertEquals(36, ratings.length);
+			for (int i = 1; i < ratings.length; i++) {
+				assertTrue(ratings[i - 1].gain >= ratings[i].gain);
+			}
+			SuggestionAdvisor.Rating last = ratings[ratings.length - 1];
+			assertEquals(0, last.gain, 1e-9);		//all my own cards, no one can refute, nothing learned
+			assertEquals(1, last.unrefuted, 1e-9);
+			assertTrue(ratings[0].gain > 0.5);
+			
+			//the same on any number of threads
+			SuggestionAdvisor.Rating[] again = SuggestionAdvisor.rank(notes, room, 4096, new ForkJoinPool(1), 1);
+			for (int i = 0; i < ratings.length; i++) {
+				assertEquals(ratings[i].toString(), again[i].toString());
+			}
+			
+			//cached per knowledge state
+			SuggestionAdvisor advisor = new SuggestionAdvisor(pool, 4096, 1);
+			assertNull(advisor.ratings(notes, room));
+			assertSame(advisor.advise(notes, room), advisor.advise(notes.copy(), room));
+			advisor.advise(notes, room).join();
+			assertNotNull(advisor.ratings(notes, room));
+			notes.cannotRefute(2, Card.bit(2));
+			assertNull(advisor.ratings(notes, room));
+		} finally {
+			pool.shutdown();
+		}
+	}
+	
+	@Test
+	public void agentsPlayWholeGame() {
+		Engine game = newGame(4, 3);
+		PlayerAgent[] agents = new PlayerAgent[5];
+		for (int ID = 1; ID <= 4; ID++) {
+			agents[ID] = PlayerAgent.load("greedy");		//found through META-INF/services
+			assertNotNull(agents[ID]);
+		}
+		assertNotSame(agents[1], agents[2]);		//one instance per seat
+		Table table = new Table(game, agents, Table.TIMEOUT);
+		try {
+			table.play();
+			assertTrue(game.isOver());
+			assertTrue(game.isWon());
+			assertEquals(0, table.late());
+			assertEquals(0, table.failed());
+		} finally {
+			table.close();
+		}
+	}
+	
+	@Test
+	public void agentTimesOut() {
+		Engine game = newGame(2, 5);
+		AtomicBoolean stopped = new AtomicBoolean();
+		PlayerAgent sleepy = new GreedyAgent() {
+			@Override
+			public Action move(Seat seat, Deadline deadline) {
+				try {
+					Thread.sleep(10000);
+				} catch (InterruptedException e) {
+					stopped.set(deadline.expired());		//cancelled, and told so
+				}
+				return Action.END_TURN;
+			}
+		};
+		PlayerAgent cheat = new GreedyAgent() {
+			@Override
+			public Action accuse(Seat seat, Deadline deadline) {
+				return Action.move(0, 0);		//not an accusation
+			}
+		};
+		Table table = new Table(game, new PlayerAgent[] {null, sleepy, cheat}, 50);
+		try {
+			long start = System.nanoTime();
+			Action action = table.decide();
+			assertTrue(System.nanoTime() - start < 5000000000L);
+			assertTrue(game.legalMoves().contains(action));		//the default move
+			assertEquals(1, table.late());
+			endTurn(game);
+			
+			table.decide();		//P2 is asked to accuse first
+			assertEquals(1, table.failed());
+			
+			long wait = System.nanoTime() + 5000000000L;
+			while (!stopped.get() && System.nanoTime() < wait) {
+				Thread.yield();
+			}
+			assertTrue(stopped.get());
+		} finally {
+			table.close();
+		}
+	}
+	
+	@Test
+	public void deadlineNever() {
+		Deadline never = Deadline.never();		//given to the default decision
+		assertFalse(never.expired());
+		assertEquals(Long.MAX_VALUE, never.remaining());
+		assertFalse(new Deadline(Long.MAX_VALUE).expired());		//no overflow
+		Deadline now = new Deadline(0);
+		assertTrue(now.expired());
+		assertEquals(0, now.remaining());
+	}
+	
+	@Test
+	public void agentShowsCard() {
+		Engine game = newGame(3, 1);
+		Player p2 = game.getBoard().getPlayer(2);
+		int card = 31 - Integer.numberOfLeadingZeros(p2.hand());		//the engine would pick one of P2's cards at random
+		Table table = new Table(game, new PlayerAgent[] {null, null, new GreedyAgent() {
+			@Override
+			public int showCard(Seat seat, int suggester, int held, Deadline deadline) {
+				assertEquals(1, suggester);
+				assertEquals(2, seat.ID);
+				return 31 - Integer.numberOfLeadingZeros(held);
+			}
+		}, null}, Table.TIMEOUT);
+		try {
+			//P2 is asked first and holds every card suggested
+			assertEquals(card, game.checkSuggestion(p2.hand()));
+		} finally {
+			table.close();
+		}
+	}
+	
+	@Test
+	public void roundRobin() throws IOException {
+		List<String> bots = Arrays.asList("a:greedy", "b:greedy", "c:greedy", "d:greedy");
+		Tournament whole = new Tournament(new Loader(), Tournament.Format.ROUND_ROBIN, 3, 0, bots, 9);
+		assertTrue(whole.run(2, null, Long.MAX_VALUE, null));
+		double elo = 0;
+		for (Tournament.Standing s: whole.standings()) {
+			assertEquals(3 * 3 * 6, s.games());		//3 groups of 3 each, every rotation and start
+			elo += s.elo();
+			assertTrue(s.wins() > 0);
+		}
+		assertEquals(4 * Tournament.INITIAL_ELO, elo, 1e-6);		//Elo is only passed around
+		
+		//stopped part way, then resumed from the checkpoint
+		File checkpoint = File.createTempFile("tournament", ".bin");
+		checkpoint.delete();
+		try {
+			Tournament first = new Tournament(new Loader(), Tournament.Format.ROUND_ROBIN, 3, 0, bots, 9);
+			assertFalse(first.run(3, checkpoint, 25, null));
+			assertTrue(checkpoint.exists());
+			Tournament resumed = new Tournament(new Loader(), Tournament.Format.ROUND_ROBIN, 3, 0, bots, 9);
+			assertTrue(resumed.run(1, checkpoint, Long.MAX_VALUE, null));
+			assertEquals(whole.toString(), resumed.toString());
+			
+			Tournament other = new Tournament(new Loader(), Tournament.Format.ROUND_ROBIN, 3, 0, bots, 10);
+			try {
+				other.run(1, checkpoint, 1, null);
+				fail("resumed another tournament's checkpoint");
+			} catch (IOException e) {
+				//expected
+			}
+		} finally {
+			checkpoint.delete();
+		}
+	}
+	
+	@Test
+	public void swiss() throws IOException {
+		List<String> bots = Arrays.asList("a:greedy", "b:greedy", "c:greedy", "d:greedy", "e:greedy");
+		Tournament t = new Tournament(new Loader(), Tournament.Format.SWISS, 3, 2, bots, 4);
+		List<Integer> rounds = new ArrayList<Integer>();
+		assertTrue(t.run(2, null, Long.MAX_VALUE, tournament -> rounds.add(tournament.round())));
+		assertEquals(Arrays.asList(1, 2), rounds);
+		long games = 0;
+		for (Tournament.Standing s: t.standings()) {
+			games += s.games();
+		}
+		assertEquals(2 * 3 * 3 * 6, games);		//two rounds, one table of 3, two sit out
+	}
+	
+	@Test
+	public void journal() throws IOException {
+		Loader loader = new Loader();
+		File file = File.createTempFile("journal", ".bin");
+		file.delete();
+		try {
+			//one game by hand, with every kind of action
+			Engine game = new Engine(loader);
+			GameConfig config = new GameConfig(3, loader.getTopology(), 8);
+			List<Event> played = new ArrayList<Event>(game.newGame(config));
+			played.addAll(game.apply(Action.move(-1, 40)));		//INVALID, off the board
+			Policy policy = new GreedyPolicy();
+			SplittableRandom rng = new SplittableRandom(8);
+			for (int i = 0; i < 10000 && !game.isOver(); i++) {
+				played.addAll(game.apply(policy.choose(game, rng)));
+			}
+			Journal.Encoder record = new Journal.Encoder(loader.getTopology());
+			record.begin(config);
+			record.add(played);
+			try (Journal journal = new Journal(file, loader.getTopology())) {
+				journal.write(record);
+				assertEquals(0, record.size());
+			}
+			
+			//then simulated games, appended
+			Simulator sim = new Simulator(loader, 4, new GreedyPolicy());
+			try (Journal journal = new Journal(file, loader.getTopology())) {
+				sim.setJournal(journal);
+				sim.run(5, 20);
+			}
+			assertTrue(file.length() < 21 * 2000);		//compact
+			
+			try (Journal.Reader in = new Journal.Reader(file)) {
+				assertTrue(in.nextGame());
+				assertEquals(8, in.config().seed);
+				assertEquals(config.getCharacter(2), in.config().getCharacter(2));
+				assertEquals(config.getName(3), in.config().getName(3));
+				assertEquals(played.toString(), in.events().toString());
+				int games = 0;
+				while (in.nextGame()) {
+					assertEquals(4, in.config().players);
+					assertEquals(Event.Kind.TURN_STARTED, in.next().kind);		//the rest is skipped
+					games++;
+				}
+				assertEquals(20, games);
+			}
+			
+			//a crash in the middle of a record, then more games appended
+			long length = file.length();
+			try (RandomAccessFile cut = new RandomAccessFile(file, "rw")) {
+				cut.setLength(length - 1);
+			}
+			try (Journal journal = new Journal(file, loader.getTopology())) {
+				sim.setJournal(journal);
+				sim.run(6, 2);
+			}
+			try (Journal.Reader in = new Journal.Reader(file)) {
+				int games = 0;
+				while (in.nextGame()) {
+					in.events();		//every record can be read
+					games++;
+				}
+				assertEquals(1 + 20 + 2, games);
+			}
+		} finally {
+			file.delete();
+		}
+	}
+	
+	@Test
+	public void replaySeeks() {
+		Loader loader = new Loader();
+		Engine game = new Engine(loader);
+		GameConfig config = new GameConfig(6, loader.getTopology(), 21);
+		List<Event> played = new ArrayList<Event>(game.newGame(config));
+		List<Integer> positions = new ArrayList<Integer>();		//after each call to the Engine
+		List<String> shown = new ArrayList<String>();		//what the GUI draws there
+		positions.add(played.size());
+		shown.add(shown(game.getBoard(), game.weapons(), game.getCurrent(), game.getRemaining(), game.visited()));
+		Policy policy = new RandomPolicy();
+		SplittableRandom rng = new SplittableRandom(21);
+		for (int i = 0; i < 3000 && !game.isOver(); i++) {
+			played.addAll(game.apply(policy.choose(game, rng)));
+			positions.add(played.size());
+			shown.add(shown(game.getBoard(), game.weapons(), game.getCurrent(), game.getRemaining(), game.visited()));
+		}
+		Replay replay = new Replay(loader, config, played);
+		assertEquals(0, replay.position());
+		assertEquals(game.getTurn(), replay.turns());
+		
+		for (int k = 0; k < 500; k++) {		//scrub back and forth
+			int i = k % 50 == 49 ? positions.size() - 1 : rng.nextInt(positions.size());
+			replay.seek(positions.get(i));
+			assertEquals(shown.get(i), shown(replay.getBoard(), replay.weapons(), replay.getCurrent(), replay.getRemaining(), replay.visited()));
+			assertEquals(Zobrist.visited(replay.visited()), replay.visitedKey());		//kept up to date, not rehashed
+		}
+		for (int i = 0; i < positions.size(); i++) {		//play forward
+			replay.seek(positions.get(i));
+			assertEquals(shown.get(i), shown(replay.getBoard(), replay.weapons(), replay.getCurrent(), replay.getRemaining(), replay.visited()));
+		}
+		replay.seekTurn(2);
+		assertEquals(2, replay.turn());
+		assertEquals(Event.Kind.TURN_STARTED, replay.last().kind);
+		assertEquals(2, replay.getCurrent());
+	}
+	
+	/**
+	 * What the GUI draws of a game
+	 */
+	private static String shown(Board board, Map<Place, Weapon> weapons, int current, int remaining, BitSet visited) {
+		StringBuilder text = new StringBuilder(board.toString());
+		for (Place room: Place.values()) {
+			text.append(room).append(':').append(weapons.get(room)).append(' ');
+		}
+		for (int ID = 1; ID <= 6 && board.getPlayer(ID) != null; ID++) {
+			text.append(board.isPlaying(ID) ? 'Y' : 'N');
+		}
+		return text.append(" P").append(current).append(' ').append(remaining).append(' ').append(visited).toString();
+	}
+	
+	@Test
+	public void safeFileReplaces() throws IOException {
+		File dir = Files.createTempDirectory("cluedo").toFile();
+		File file = new File(dir, "game.sav");
+		try {
+			Engine game = newGame(3);
+			SaveGame.save(game, file);
+			endTurn(game);
+			SaveGame.save(game, file);		//replaces it
+			assertArrayEquals(new String[] {"game.sav"}, dir.list());		//no temporary file left over
+			try {
+				SafeFile.write(file, out -> {
+					out.writeInt(1);
+					throw new IOException("disk full");
+				});
+				fail();
+			} catch (IOException e) {
+				assertArrayEquals(SaveGame.encode(game), Files.readAllBytes(file.toPath()));		//left as it was
+			}
+			assertEquals(1, dir.list().length);
+		} finally {
+			for (File f: dir.listFiles()) {
+				f.delete();
+			}
+			dir.delete();
+		}
+	}
+	
+	@Test
+	public void saveAndLoad() throws IOException {
+		Loader loader = new Loader();
+		Engine game = new Engine(loader);
+		game.newGame(new GameConfig(5, loader.getTopology(), 34));
+		Policy policy = new GreedyPolicy();
+		SplittableRandom rng = new SplittableRandom(34);
+		for (int i = 0; i < 120 && !game.isOver(); i++) {
+			game.apply(policy.choose(game, rng));
+		}
+		byte[] save = SaveGame.encode(game);
+		assertTrue(save.length < 1024);
+		
+		Engine loaded = new Engine(loader);
+		loaded.newGame(new GameConfig(3, loader.getTopology(), 1));		//replaced whole
+		SaveGame.decode(save, loaded);
+		assertEquals(game.getBoard().toString(), loaded.getBoard().toString());
+		assertEquals(game.getConfig().getName(4), loaded.getConfig().getName(4));
+		assertEquals(game.getTurn(), loaded.getTurn());
+		assertEquals(game.visited(), loaded.visited());
+		assertEquals(game.getSolution().getPlace(), loaded.getSolution().getPlace());
+		for (Place room: Place.values()) {
+			assertEquals(game.weapons().get(room), loaded.weapons().get(room));
+		}
+		for (int ID = 1; ID <= 5; ID++) {
+			assertEquals(game.getBoard().getPlayer(ID).hand(), loaded.getBoard().getPlayer(ID).hand());
+			assertEquals(game.getBoard().getPlayer(ID).seen(), loaded.getBoard().getPlayer(ID).seen());
+			assertEquals(game.getBoard().isPlaying(ID), loaded.getBoard().isPlaying(ID));
+			assertEquals(game.notes(ID), loaded.notes(ID));
+		}
+		
+		//both play on alike, rolls and refutations included
+		SplittableRandom rng2 = new SplittableRandom(99);
+		rng = new SplittableRandom(99);
+		for (int i = 0; i < 10000 && !game.isOver(); i++) {
+			assertEquals(game.apply(policy.choose(game, rng)).toString(), loaded.apply(policy.choose(loaded, rng2)).toString());
+		}
+		assertTrue(loaded.isOver());
+		
+		save[5] ^= 1;		//another version
+		try {
+			SaveGame.decode(save, loaded);
+			fail();
+		} catch (IOException e) {
+			assertTrue(loaded.isOver());		//left as it was
+		}
+	}
+	
+	@Test
+	public void snapshotsKeepRolls() {
+		Loader loader = new Loader();
+		Engine headless = new Engine(loader);
+		Engine kept = new Engine(loader);
+		headless.newGame(new GameConfig(4, loader.getTopology(), 21));
+		kept.newGame(new GameConfig(4, loader.getTopology(), 21));
+		Policy policy = new GreedyPolicy();
+		SplittableRandom rng = new SplittableRandom(5);
+		SplittableRandom rng2 = new SplittableRandom(5);
+		for (int i = 0; i < 10000 && !headless.isOver(); i++) {
+			kept.state();		//as undo does after every action
+			SaveGame.encode(kept);		//as autosave does
+			assertEquals(headless.apply(policy.choose(headless, rng)).toString(), kept.apply(policy.choose(kept, rng2)).toString());
+		}
+		assertTrue(kept.isOver());
+	}
+	
+	@Test
+	public void persistentState() {
+		Loader loader = new Loader();
+		Engine game = new Engine(loader);
+		game.newGame(new GameConfig(4, loader.getTopology(), 55));
+		GameState start = game.state();
+		assertSame(start, game.state());		//nothing changed
+		
+		//branch: every first step from the same state
+		for (Action move: game.legalMoves()) {
+			GameState next = game.apply(start, move);
+			assertEquals(move.row * loader.getTopology().cols() + move.col, next.square(1));
+			assertSame(start.notes(2), next.notes(2));		//shared, not copied
+		}
+		game.restore(start);
+		assertEquals(start.square(1), game.getBoard().getPlayer(1).getLocation().id);
+		
+		//a whole game, kept state by state
+		Policy policy = new GreedyPolicy();
+		SplittableRandom rng = new SplittableRandom(55);
+		List<GameState> states = new ArrayList<GameState>();
+		List<String> shown = new ArrayList<String>();
+		List<Deduction> notes = new ArrayList<Deduction>();
+		List<Action> played = new ArrayList<Action>();
+		GameState state = start;
+		for (int i = 0; i < 10000 && !state.isOver(); i++) {
+			states.add(state);
+			shown.add(shown(game.getBoard(), game.weapons(), game.getCurrent(), game.getRemaining(), game.visited()));
+			notes.add(game.notes(1).copy());
+			Action action = policy.choose(game, rng);
+			played.add(action);
+			state = game.apply(state, action);
+		}
+		assertTrue(state.isOver());
+		
+		for (int k = 0; k < 300; k++) {		//undo and redo, anywhere
+			int i = rng.nextInt(states.size());
+			game.restore(states.get(i));
+			assertEquals(shown.get(i), shown(game.getBoard(), game.weapons(), game.getCurrent(), game.getRemaining(), game.visited()));
+			assertEquals(notes.get(i), game.notes(1));
+			assertEquals(notes.get(i), states.get(i).notes(1));		//never changed afterwards
+		}
+		
+		//the same actions from an old state play out the same
+		int from = states.size() / 2;
+		game.restore(states.get(from));
+		for (int i = from; i < played.size(); i++) {
+			assertEquals(shown.get(i), shown(game.getBoard(), game.weapons(), game.getCurrent(), game.getRemaining(), game.visited()));
+			game.apply(played.get(i));
+			game.state();
+		}
+		assertTrue(game.isOver());
+	}
+	
+	@Test
+	public void zobristHash() {
+		Loader loader = new Loader();
+		Engine game = new Engine(loader);
+		game.newGame(new GameConfig(6, loader.getTopology(), 89));
+		Policy policy = new RandomPolicy();
+		SplittableRandom rng = new SplittableRandom(89);
+		Map<String, Long> keys = new HashMap<String, Long>();		//position to key
+		Map<Long, String> positions = new HashMap<Long, String>();
+		List<GameState> states = new ArrayList<GameState>();
+		for (int i = 0; i < 3000 && !game.isOver(); i++) {
+			//kept up to date move by move, same as from scratch
+			long key = Zobrist.current(game.getCurrent()) ^ Zobrist.remaining(game.getRemaining()) ^ Zobrist.visited(game.visited());
+			for (int ID = 1; ID <= 6; ID++) {
+				key ^= Zobrist.token(ID, game.getBoard().getPlayer(ID).getLocation().id);
+			}
+			for (Weapon w: Weapon.values()) {
+				key ^= Zobrist.weapon(w.ordinal(), game.getRoom(w).ordinal());
+			}
+			assertEquals(key, game.hash());
+			
+			//equal positions, equal keys, and the other way round
+			String position = shown(game.getBoard(), game.weapons(), game.getCurrent(), game.getRemaining(), game.visited());
+			assertEquals(keys.getOrDefault(position, key).longValue(), key);
+			assertEquals(positions.getOrDefault(key, position), position);
+			keys.put(position, key);
+			positions.put(key, position);
+			if (i % 10 == 0) {
+				states.add(game.state());
+			}
+			game.apply(policy.choose(game, rng));
+		}
+		assertTrue(keys.size() > 100);
+		for (GameState state: states) {
+			game.restore(state);
+			assertEquals(state.hash(), game.hash());
+		}
+	}
+	
+	@Test
+	public void plannerPaths() {
+		Engine game = newGame(3, 11);
+		BoardTopology topology = game.getBoard().getTopology();
+		RoomIndex rooms = topology.getRooms();
+		double[] value = new double[rooms.rooms()];
+		Arrays.fill(value, 1);		//every room is worth going to
+		MovePlanner planner = new MovePlanner(topology, ForkJoinPool.commonPool(), 4096, 50, MovePlanner.TURNS);
+		for (int turn = 0; turn < 30 && !game.isOver(); turn++) {
+			Board board = game.getBoard();
+			int ID = game.getCurrent();
+			int start = board.getPlayer(ID).getLocation().id;
+			int remaining = game.getRemaining();
+			BitSet occupied = new BitSet();
+			for (int other = 1; other <= game.getPlayers(); other++) {
+				if (other != ID) {occupied.set(board.getPlayer(other).getLocation().id);}
+			}
+			boolean roomInReach = false;		//a room can be entered this turn
+			Reachability.Reach reach = board.reachable(ID, remaining, game.visited(), game.visitedKey());
+			for (int i = 0; i < reach.size(); i++) {
+				roomInReach |= rooms.roomOf(reach.square(i)) != RoomIndex.NONE;
+			}
+
+			long t = System.nanoTime();
+			MovePlanner.Plan plan = planner.plan(start, remaining, occupied, game.visited(), value, turn);
+			assertTrue((System.nanoTime() - t) / 1000000 < 50 + 200);		//the budget, give or take a slow thread
+			assertTrue(plan.playouts > 0 && plan.playouts <= 4096);
+			assertTrue(plan.path.length >= 1 && plan.path.length <= remaining);
+			assertEquals(roomInReach, rooms.roomOf(plan.destination()) != RoomIndex.NONE);		//entering is best
+
+			for (int id: plan.path) {		//every step is legal
+				Event e = game.apply(Action.move(topology.getSquare(id).row, topology.getSquare(id).col)).get(0);
+				assertTrue(e.kind == Event.Kind.MOVED || e.kind == Event.Kind.ENTERED_ROOM);
+			}
+			if (game.getCurrent() == ID) {		//stopped early or in a room
+				game.apply(Action.END_TURN);
+			}
+		}
+		assertNotNull(PlayerAgent.load("planner"));
 	}
 	
 	@Test
 	public void validMoves() {
-		Board board = new Board(new Loader(18, 18).getCoords(), 3);
+		Board board = new Board(new Loader().getTopology(), 3);
 		/* row, col
 		 * {17,5},		//starting positions for player 1
 			{12,0},		//p 2
@@ -117,9 +868,121 @@ public class GamePlayTests {
 		assertTrue(board.movePiece(3, 2, 12));	//out to right BR doorway
 	}
 	
+	@Test
+	public void revisitMoves() {
+		Board board = new Board(new Loader().getTopology(), 3);
+		BitSet visited = new BitSet();
+		board.markVisited(visited, 0, 6);		//P3 starting position
+		//move P3 down to the BR doorway, into BR, then out to right BR doorway
+		int[][] steps = new int[][] {{0,5}, {1,5}, {2,5}, {2,6}, {2,12}};
+		for (int[] step: steps) {
+			int oldRow = board.getPlayer(3).getLocation().row;
+			int oldCol = board.getPlayer(3).getLocation().col;
+			assertTrue(board.movePiece(3, step[0], step[1], visited));
+			board.markVisited(visited, oldRow, oldCol);
+		}
+		assertFalse(board.movePiece(3, 2, 11, visited));	//back into BR should not work, same turn
+		assertFalse(board.movePiece(3, 5, 8, visited));	//nor any other Square of BR
+		assertTrue(board.movePiece(3, 3, 12, visited));	//down is fine
+	}
+	
+	@Test
+	public void suggestionMoves() {
+		Board board = new Board(new Loader().getTopology(), 3);
+		int hall = board.getRooms().room("Hall");
+		assertEquals(hall, board.getRooms().roomOf(board.getSquare(13, 7).id));
+		//P1 and P2 moved to the SAME Square of the Hall (HL)
+		board.movePlayerViaSuggestion(1, 13, 7);
+		board.movePlayerViaSuggestion(2, 13, 7);
+		assertEquals("Hall", board.getPlayer(1).getLocation().getName());
+		assertEquals("Hall", board.getPlayer(2).getLocation().getName());
+		assertNotEquals(board.getPlayer(1).getLocation(), board.getPlayer(2).getLocation());
+		//P3 goes to the next free Square
+		Square free = board.getFreeSquare(hall);
+		assertEquals(Board.FREE, board.getOccupant(free.row, free.col));
+		assertEquals("Hall", free.getName());
+	}
+	
+	@Test
+	public void reachableMoves() {
+		Board board = new Board(new Loader().getTopology(), 1);
+		BitSet visited = new BitSet();
+		Square start = board.getPlayer(1).getLocation();	//{17,5}
+		visited.set(start.id);
+		Reachability.Reach reach = board.reachable(1, 3, visited, Zobrist.visited(visited));
+		assertTrue(reach.atMost(board.getSquare(14, 5).id));	//3 steps up
+		assertTrue(reach.exactly(board.getSquare(14, 5).id, false));
+		assertFalse(reach.exactly(board.getSquare(15, 5).id, false));	//only 2 steps
+		assertFalse(reach.atMost(board.getSquare(13, 5).id));	//4 steps up
+		assertFalse(reach.atMost(board.getSquare(17, 4).id));	//LN w/o using doorway
+		assertEquals(3, reach.path(board.getSquare(14, 5).id).length);
+		reach = board.reachable(1, 4, visited, Zobrist.visited(visited));
+		assertEquals(2, reach.distance(board.getSquare(15, 5).id));
+		assertTrue(reach.exactly(board.getSquare(15, 5).id, false));	//a detour via {16,6} uses all 4 steps
+		assertFalse(reach.exactly(board.getSquare(14, 5).id, false));	//3 steps, never 4 without stepping back
+		
+		//enough steps to reach the LN doorway at {13,4} and enter, but not to go through
+		reach = board.reachable(1, 5, visited, Zobrist.visited(visited));
+		assertEquals(5, reach.distance(board.getSquare(13, 4).id));
+		assertFalse(reach.atMost(board.getSquare(14, 4).id));		//one too many
+		reach = board.reachable(1, 7, visited, Zobrist.visited(visited));
+		assertEquals(6, reach.distance(board.getSquare(17, 0).id));	//ANY Square of LN
+		assertTrue(reach.exactly(board.getSquare(14, 4).id, true));
+		assertFalse(reach.atMost(board.getSquare(1, 16).id));	//no stairwell, entering LN ends turn
+		
+		//cached until something moves
+		assertSame(reach, board.reachable(1, 7, visited, Zobrist.visited(visited)));
+		assertTrue(board.movePiece(1, 16, 5, visited));
+		assertNotSame(reach, board.reachable(1, 7, visited, Zobrist.visited(visited)));
+	}
+	
+	@Test
+	public void refuteSuggestion() {
+		Engine game = newGame(3);		//3 players, cards dealt
+		Board board = game.getBoard();
+		CentreRoom solution = game.getSolution();
+		
+		int envelope = Card.mask(solution.getSuspect(), solution.getWeapon(), solution.getPlace());
+		int dealt = 0;
+		for (int ID = 1; ID <= 3; ID++) {
+			assertEquals(0, board.getPlayer(ID).hand() & envelope);		//no one holds the solution
+			assertEquals(0, board.getPlayer(ID).hand() & dealt);		//every card dealt once
+			dealt |= board.getPlayer(ID).hand();
+		}
+		assertEquals(Card.ALL, dealt | envelope);
+		assertEquals(Card.NONE, game.checkSuggestion(envelope));
+		
+		//a suggestion that ONLY P3 can refute, P2 is asked first
+		int p3Card = Integer.numberOfTrailingZeros(board.getPlayer(3).hand());
+		int suggestion = Card.bit(p3Card) | envelope;
+		assertFalse(board.getPlayer(2).canRefute(suggestion));
+		assertTrue(board.getPlayer(3).canRefute(suggestion));
+		assertEquals(p3Card, board.getPlayer(3).refute(suggestion, new SplittableRandom(1)));
+		assertEquals(0, board.getPlayer(1).seen() & Card.bit(p3Card));
+		assertEquals(p3Card, game.checkSuggestion(suggestion));
+		assertNotEquals(0, board.getPlayer(1).seen() & Card.bit(p3Card));		//now in detective notes
+	}
+	
+	@Test
+	public void sharedTopology() {
+		Loader loader = new Loader();
+		BoardTopology topology = loader.getTopology();
+		assertSame(topology, loader.getTopology());		//built once
+		String[] names = new String[] {null, "Ann", "Bob"};
+		Suspect[] chars = new Suspect[] {null, Suspect.MISS_SCARLETT, Suspect.COLONEL_MUSTARD};
+		Board game1 = new Board(topology, names, chars);
+		Board game2 = new Board(topology, names, chars);
+		assertSame(game1.getSquare(17, 5), game2.getSquare(17, 5));		//same Squares
+		
+		assertTrue(game1.movePiece(1, 16, 5));		//moves in one game only
+		assertEquals(1, game1.getOccupant(16, 5));
+		assertEquals(Board.FREE, game2.getOccupant(16, 5));
+		assertEquals(1, game2.getOccupant(17, 5));
+	}
+	
 	@Test
 	public void invalidMoves() {
-		Board board = new Board(new Loader(18, 18).getCoords(), 1);
+		Board board = new Board(new Loader().getTopology(), 1);
 		/* row, col
 		 * {17,5},		//starting position for player 1
 		 */
@@ -130,4 +993,44 @@ public class GamePlayTests {
 		assertFalse(board.movePiece(1, 17, 3));		//move to room LN w/o using doorway should not work, same position
 		assertFalse(board.movePiece(1, 15, 5));		//move 2 steps should not work, same position
 	}
+	
+	/**
+	 * New game on the built-in board, no UI
+	 * @param players
+	 * @return
+	 */
+	private static Engine newGame(int players) {
+		return newGame(players, 1);
+	}
+	
+	/**
+	 * New game on the built-in board, no UI
+	 * @param players
+	 * @param seed -- seed of the game's random draws
+	 * @return
+	 */
+	private static Engine newGame(int players, long seed) {
+		Loader loader = new Loader();
+		Engine game = new Engine(loader);
+		game.newGame(new GameConfig(players, loader.getTopology(), seed));
+		return game;
+	}
+	
+	/**
+	 * End the current player's turn, moving first as required
+	 * @param game
+	 */
+	private static void endTurn(Engine game) {
+		int current = game.getCurrent();
+		for (Action a: game.legalActions()) {
+			if (a.kind == Action.Kind.MOVE) {
+				game.apply(a);
+				break;
+			}
+		}
+		if (game.getCurrent() == current) {		//did not use up the roll
+			assertTrue(game.legalActions().contains(Action.END_TURN));
+			game.apply(Action.END_TURN);
+		}
+	}
 }
@@ -1,16 +1,26 @@
 import org.junit.*;
 import static org.junit.Assert.*;
 
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 
 import main.Loader;
 import model.Board;
+import model.BoardFile;
+import model.BoardTopology;
 import model.Card;
+import model.Card.Place;
+import model.Card.Suspect;
 import model.Card.Type;
+import model.Card.Weapon;
 import model.CentreRoom;
+import model.DistanceTable;
 import model.Player;
+import model.RoomIndex;
 import model.Square;
 
 /**
@@ -21,7 +31,7 @@ import model.Square;
 public class GameSetupTests {
 	@Test
 	public void validPlayareaNeigbour() {
-		Board board = new Board(new Loader(18, 18).getCoords(), 0);
+		Board board = new Board(new Loader().getTopology(), 0);
 		Square playarea = board.getSquare(4, 5);	//get square
 		assertTrue(playarea.hasNeigbour(3, 5));	//above
 		assertTrue(playarea.hasNeigbour(5, 5));	//below
@@ -31,7 +41,7 @@ public class GameSetupTests {
 	
 	@Test
 	public void validPlayareaNeigbour2() {
-		Board board = new Board(new Loader(18, 18).getCoords(), 0);
+		Board board = new Board(new Loader().getTopology(), 0);
 		Square playarea = board.getSquare(0, 5);	//get square @ label "th"
 		/*
 		 * 03 04 05 06 07
@@ -48,7 +58,7 @@ public class GameSetupTests {
 	
 	@Test
 	public void invalidPlayareaNeigbour() {
-		Board board = new Board(new Loader(18, 18).getCoords(), 0);
+		Board board = new Board(new Loader().getTopology(), 0);
 		Square playarea = board.getSquare(12, 2);	//get square
 		assertFalse(playarea.hasNeigbour(11, 1));	//not itself
 		assertFalse(playarea.hasNeigbour(11, 1));	//not north west diagonal
@@ -59,7 +69,7 @@ public class GameSetupTests {
 	
 	@Test
 	public void invalidCentreRoomNeigbour() {
-		Board board = new Board(new Loader(18, 18).getCoords(), 0);
+		Board board = new Board(new Loader().getTopology(), 0);
 		Square centre = board.getSquare(8, 9);	//get 'CR' square
 		//should have no neighbors
 		assertFalse(centre.hasNeigbour(7, 9));	//not above
@@ -70,7 +80,7 @@ public class GameSetupTests {
 	
 	@Test
 	public void validDoorwayNeigbour() {
-		Board board = new Board(new Loader(18, 18).getCoords(), 0);
+		Board board = new Board(new Loader().getTopology(), 0);
 		Square dw = board.getSquare(3, 3);	//get doorway 'dw' to Kitchen (KC)
 		/*
 		 * 02 03 04
@@ -87,7 +97,7 @@ public class GameSetupTests {
 	
 	@Test
 	public void invalidDoorwayNeigbour() {
-		Board board = new Board(new Loader(18, 18).getCoords(), 0);
+		Board board = new Board(new Loader().getTopology(), 0);
 		Square dw = board.getSquare(3, 3);	//get doorway 'dw' to Kitchen (KC)
 		/*
 		 * 02 03 04
@@ -102,7 +112,7 @@ public class GameSetupTests {
 	
 	@Test
 	public void validRoomNeigbour() {
-		Board board = new Board(new Loader(18, 18).getCoords(), 0);
+		Board board = new Board(new Loader().getTopology(), 0);
 		Square rm = board.getSquare(13, 7);	//get room Hall (HL)
 		/*
 		 * 07 08 09 10 11 12 13 
@@ -120,7 +130,7 @@ public class GameSetupTests {
 	
 	@Test
 	public void invalidRoomNeigbour() {
-		Board board = new Board(new Loader(18, 18).getCoords(), 0);
+		Board board = new Board(new Loader().getTopology(), 0);
 		Square rm = board.getSquare(13, 7);	//get room Hall (HL)
 		/*
 		 *	06 07 08 09 10 11 12 13 
@@ -138,9 +148,116 @@ public class GameSetupTests {
 		assertFalse(rm.hasNeigbour(12, 6));	//not north west diagonal
 	}
 	
+	@Test
+	public void validStairwellNeigbour() {
+		Board board = new Board(new Loader().getTopology(), 0);
+		Square kc = board.getSquare(0, 0);	//get room Kitchen (KC)
+		//stairwell leads to EVERY Square of the Study (SD)
+		assertTrue(kc.hasNeigbour(15, 14));
+		assertTrue(kc.hasNeigbour(17, 17));
+		//every Square of the Kitchen leads to the same doorway
+		assertTrue(board.getSquare(2, 0).hasNeigbour(3, 3));
+		assertFalse(kc.hasNeigbour(17, 0));	//not the Lounge (LN)
+	}
+	
+	@Test
+	public void validDistances() {
+		Board board = new Board(new Loader().getTopology(), 0);
+		DistanceTable table = board.getDistances();
+		RoomIndex rooms = board.getRooms();
+		int kitchen = rooms.room("Kitchen");
+		assertEquals(0, table.distance(board.getSquare(0, 0).id, kitchen));	//already in
+		assertEquals(1, table.distance(board.getSquare(3, 3).id, kitchen));	//doorway
+		assertEquals(1, table.distance(board.getSquare(17, 17).id, kitchen));	//stairwell from SD
+		assertEquals(6, table.distance(board.getSquare(17, 5).id, rooms.room("Lounge")));
+		assertEquals(-1, table.distance(board.getSquare(9, 9).id, kitchen));	//'CR' is never left
+		assertEquals(3, table.between(board.getSquare(17, 5).id, board.getSquare(14, 5).id));
+		assertEquals(1, table.between(board.getSquare(16, 1).id, board.getSquare(0, 16).id));	//stairwell LN to CV
+		assertEquals(0, table.between(board.getSquare(16, 1).id, board.getSquare(17, 0).id));	//same room
+		
+		//read back from the saved file, same answers
+		DistanceTable saved = new Board(new Loader().getTopology(), 0).getDistances();
+		assertEquals(table.distance(board.getSquare(17, 5).id, kitchen), saved.distance(board.getSquare(17, 5).id, kitchen));
+	}
+	
+	@Test
+	public void customBoard() throws IOException {
+		File file = File.createTempFile("cluedo-board", ".txt");
+		file.deleteOnExit();
+		try (PrintWriter out = new PrintWriter(file, "UTF-8")) {
+			out.println("SIZE 3 11");
+			out.println("RM.KC RM.KC PA.00 RM.BR RM.CV RM.BL RM.LB RM.SD RM.HL RM.LN RM.DR");
+			out.println("PA.00 PA.00 PA.00 RM.BR PA.00 PA.00 PA.00 PA.00 PA.00 PA.00 PA.00");
+			out.println("PA.00 PA.00 PA.00 PA.00 PA.00 PA.00 PA.00 PA.00 PA.00 PA.00 PA.00");
+			for (String room: new String[] {"KC Kitchen", "BR Ball Room", "CV Conservatory", "BL Billiard Room",
+					"LB Library", "SD Study", "HL Hall", "LN Lounge", "DR Dining Room"}) {
+				out.println("ROOM "+room);
+			}
+			out.println("DOOR 1 0 0 0");
+			out.println("PASSAGE KC BR");
+			out.println("START 2 3 Miss Scarlett");
+		}
+		Loader loader = new Loader(file.getPath());
+		assertEquals(3, loader.getTopology().rows());
+		assertEquals(11, loader.getTopology().cols());
+		assertEquals("Ball Room", Loader.getRooms()[1]);
+		assertEquals(18, new Loader().getTopology().rows());
+		assertEquals(3, loader.getTopology().rows());		//a later Loader leaves this one's board alone
+		Board board = new Board(loader.getTopology(), 1);
+		assertEquals(board.getSquare(2, 3), board.getPlayer(1).getLocation());
+		assertTrue(board.getSquare(1, 0).hasNeigbour(0, 1));	//door, any Square of the room
+		assertTrue(board.getSquare(0, 1).hasNeigbour(1, 0));	//and back
+		assertFalse(board.getSquare(0, 2).hasNeigbour(0, 1));	//no door
+		assertFalse(board.getSquare(1, 2).hasNeigbour(1, 3));	//no door
+		assertTrue(board.getSquare(0, 0).hasNeigbour(1, 3));	//stairwell
+	}
+	
+	@Test
+	public void malformedSquare() throws IOException {
+		File file = File.createTempFile("cluedo-board", ".txt");
+		file.deleteOnExit();
+		try (PrintWriter out = new PrintWriter(file, "UTF-8")) {
+			out.println("SIZE 1 2");
+			out.println("PA.00 RMKC");		//no dot
+		}
+		try {
+			new Loader(file.getPath());
+			fail();
+		} catch (IllegalArgumentException e) {
+			assertTrue(e.getMessage(), e.getMessage().contains("line 2"));
+			assertTrue(e.getMessage(), e.getMessage().contains("RMKC"));
+		}
+	}
+	
+	@Test
+	public void compiledBoard() throws IOException {
+		BoardTopology text = new Loader().getTopology();
+		File file = File.createTempFile("cluedo-board", ".bin");
+		file.deleteOnExit();
+		BoardFile.write(text, file);
+		assertTrue(BoardFile.isCompiled(file));
+		
+		BoardTopology compiled = new Loader(file.getPath()).getTopology();
+		assertNotSame(text, compiled);
+		assertEquals(text.getAdjacency().size(), compiled.getAdjacency().size());
+		for (int id = 0; id < text.getAdjacency().size(); id++) {
+			assertEquals(text.getSquare(id).toString(), compiled.getSquare(id).toString());	//doorways too
+			assertEquals(text.getSquare(id).getName(), compiled.getSquare(id).getName());
+			assertEquals(text.getRooms().roomOf(id), compiled.getRooms().roomOf(id));
+			for (int room = 0; room < text.getRooms().rooms(); room++) {
+				assertEquals(text.getDistances().distance(id, room), compiled.getDistances().distance(id, room));
+			}
+		}
+		Board board = new Board(compiled, 6);
+		assertEquals(board.getSquare(13, 17), board.getPlayer(6).getLocation());
+		assertTrue(board.getSquare(0, 0).hasNeigbour(15, 14));		//stairwell KC to SD
+		assertTrue(board.getSquare(3, 3).hasNeigbour(2, 3));		//doorway
+		assertEquals(3, compiled.getDistances().between(board.getSquare(17, 5).id, board.getSquare(14, 5).id));
+	}
+	
 	@Test
 	public void validPlayerLoc() {
-		Board board = new Board(new Loader(18, 18).getCoords(), 6);		//6 players
+		Board board = new Board(new Loader().getTopology(), 6);		//6 players
 		//P1 and so on
         assertEquals(board.getPlayer(1).getLocation(), board.getSquare(17, 5));
 		assertEquals(board.getPlayer(2).getLocation(), board.getSquare(12, 0));
@@ -152,7 +269,7 @@ public class GameSetupTests {
 	
 	@Test
 	public void invalidPlayerLoc() {
-		Board board = new Board(new Loader(18, 18).getCoords(), 6);		//6 players
+		Board board = new Board(new Loader().getTopology(), 6);		//6 players
 		//P1 and so on
         assertNotEquals(board.getPlayer(1).getLocation(), board.getSquare(11, 5));
 		assertNotEquals(board.getPlayer(2).getLocation(), board.getSquare(15, 14));
@@ -164,7 +281,7 @@ public class GameSetupTests {
 	
 	@Test
 	public void invalidPlayerSpawn() {
-		Board board = new Board(new Loader(18, 18).getCoords(), 4);		//4 players
+		Board board = new Board(new Loader().getTopology(), 4);		//4 players
 		//P5 and P6 should NOT have any mappings
         assertNull(board.getPlayer(5));
         assertNull(board.getPlayer(6));
@@ -172,20 +289,39 @@ public class GameSetupTests {
 	
 	@Test
 	public void invalidPlayerSpawn2() {
-		Board board = new Board(new Loader(18, 18).getCoords(), 3);		//4 players
+		Board board = new Board(new Loader().getTopology(), 3);		//4 players
 		//P4 and P5 and P6 should NOT have any mappings
         assertNull(board.getPlayer(4));
         assertNull(board.getPlayer(5));
         assertNull(board.getPlayer(6));
 	}
 	
+	@Test
+	public void validCardIds() {
+		assertEquals(21, Card.COUNT);
+		for (int id = 0; id < Card.COUNT; id++) {
+			assertEquals(id, Card.get(id).id);
+			assertSame(Card.get(id), Card.of(Card.get(id).name));		//one instance per card
+		}
+		assertEquals(Type.CHARACTER, Card.get(Suspect.PROFESSOR_PLUM.card()).kind);
+		assertEquals(Type.WEAPON, Card.get(Weapon.CANDLESTICK.card()).kind);
+		assertEquals(Type.ROOM, Card.get(Place.KITCHEN.card()).kind);
+		assertEquals(20, Place.DINING_ROOM.card());
+		
+		Board board = new Board(new Loader().getTopology(), 2);
+		assertSame(board.getPlayer(2), board.getPlayer(Suspect.COLONEL_MUSTARD));
+		assertNull(board.getPlayer(Suspect.MRS_WHITE));		//not played
+		assertNull(board.inRoom(1));
+		assertEquals(Place.LOUNGE, Place.of(board.getRooms().roomOf(board.getSquare(16, 1).id)));
+	}
+	
 	@Test
 	public void validSolution() {
 		CentreRoom solution = new CentreRoom();
 		
-		Card c1 = new Card(Type.ROOM, "Lounge");
-		Card c2 = new Card(Type.CHARACTER, "Miss Scarrlet");
-		Card c3 = new Card(Type.WEAPON, "Dagger");
+		Card c1 = Card.of("Lounge");
+		Card c2 = Card.of("Miss Scarlett");
+		Card c3 = Card.get(Weapon.DAGGER.card());
 		
 		ArrayList<Card>list = new ArrayList<>();
 		list.add(c1);
@@ -193,44 +329,46 @@ public class GameSetupTests {
 		list.add(c3);
 		solution.putInEnvelope(list);
 		
-		assertEquals("Dagger", solution.getWeapon());
-		assertEquals("Lounge", solution.getPlace());
-		assertEquals("Miss Scarrlet", solution.getSuspect());
+		assertEquals(Type.ROOM, c1.kind);
+		assertEquals(Weapon.DAGGER, solution.getWeapon());
+		assertEquals(Place.LOUNGE, solution.getPlace());
+		assertEquals(Suspect.MISS_SCARLETT, solution.getSuspect());
+		assertTrue(solution.matches(Suspect.MISS_SCARLETT, Weapon.DAGGER, Place.LOUNGE));
+		assertFalse(solution.matches(Suspect.MISS_SCARLETT, Weapon.ROPE, Place.LOUNGE));
 	}
 	
-	//turn off / comment out delay in Player.hasCard(name) when testing this
 	@Test
 	public void validCards() {
-		Board board = new Board(new Loader(18, 18).getCoords(), 1);	//1 player only
+		Board board = new Board(new Loader().getTopology(), 1);	//1 player only
 		Player p = board.getPlayer(1);
-		List<Card> cards = new Loader(18, 18).populateCards();
-		List<String> p1Cards = new ArrayList<>();
+		List<Card> cards = new Loader().populateCards();
+		List<Integer> p1Cards = new ArrayList<>();
 		Collections.shuffle(cards);
 		
 		for (int i=0; i < cards.size(); i+=2) {
 			Card c = cards.get(i);
 			p.addCard(c);
-			p1Cards.add(c.name);
+			p1Cards.add(c.id);
 		}
 		
-		for (String name: p1Cards) {		//given the name, player should have card
-			assertNotEquals(null, p.hasCard(name, true));		//turn off / comment out delay in Player.hasCard(name) when testing this
+		for (int id: p1Cards) {		//given the id, player should have card
+			assertNotEquals(null, p.hasCard(id));
 		}
 	}
 	
 	@Test
 	public void invalidCards() {
-		Board board = new Board(new Loader(18, 18).getCoords(), 1);	//1 player only
+		Board board = new Board(new Loader().getTopology(), 1);	//1 player only
 		Player p = board.getPlayer(1);
-		List<Card> cards = new Loader(18, 18).populateCards();
+		List<Card> cards = new Loader().populateCards();
 		
 		for (int i=0; i < cards.size(); i+=2) {
 			Card c = cards.remove(i);		//remove from cards collection
 			p.addCard(c);		//give to player
 		}
 		//now all Cards in collection are the cards that are left
-		for (Card c: cards) {		//given the name, player should NOT have card
-            assertNull(p.hasCard(c.name, true));
+		for (Card c: cards) {		//given the id, player should NOT have card
+            assertNull(p.hasCard(c.id));
 		}
 	}
 	